@@ -0,0 +1,111 @@
+package it.tennis_club.business_logic;
+
+/**
+ * Istogramma delle latenze in nanosecondi con errore relativo massimo di
+ * circa il 6%: i valori sotto 32 ns hanno un intervallo ciascuno, quelli
+ * maggiori sono raggruppati in 16 intervalli per ogni potenza di due. La
+ * memoria occupata è fissa, qualunque sia il numero di campioni.
+ *
+ * Non è thread-safe: ogni thread registra nel proprio istogramma e gli
+ * istogrammi vengono uniti con {@link #aggiungi(LatencyHistogram)} a fine
+ * misura, così la registrazione non introduce contesa tra i thread.
+ */
+class LatencyHistogram {
+
+    private static final int VALORI_ESATTI = 32;
+    private static final int INTERVALLI_PER_OTTAVA = 16;
+    private static final int INTERVALLI = VALORI_ESATTI + 58 * INTERVALLI_PER_OTTAVA;
+
+    private final long[] conteggi = new long[INTERVALLI];
+    private long campioni;
+    private long somma;
+    private long minimo = Long.MAX_VALUE;
+    private long massimo;
+
+    /**
+     * Registra una latenza.
+     *
+     * @param nanos la latenza in nanosecondi (i valori negativi valgono 0)
+     */
+    void registra(long nanos) {
+        long valore = Math.max(0, nanos);
+        conteggi[indice(valore)]++;
+        campioni++;
+        somma += valore;
+        minimo = Math.min(minimo, valore);
+        massimo = Math.max(massimo, valore);
+    }
+
+    /**
+     * Aggiunge a questo istogramma i campioni di un altro.
+     */
+    void aggiungi(LatencyHistogram altro) {
+        for (int i = 0; i < INTERVALLI; i++) {
+            conteggi[i] += altro.conteggi[i];
+        }
+        campioni += altro.campioni;
+        somma += altro.somma;
+        minimo = Math.min(minimo, altro.minimo);
+        massimo = Math.max(massimo, altro.massimo);
+    }
+
+    long getCampioni() {
+        return campioni;
+    }
+
+    long getMinimo() {
+        return campioni == 0 ? 0 : minimo;
+    }
+
+    long getMassimo() {
+        return massimo;
+    }
+
+    double getMedia() {
+        return campioni == 0 ? 0 : (double) somma / campioni;
+    }
+
+    /**
+     * Restituisce il percentile richiesto, come limite superiore
+     * dell'intervallo che lo contiene (mai oltre il massimo osservato).
+     *
+     * @param percentile il percentile, tra 0 e 100
+     * @return la latenza in nanosecondi, 0 se non ci sono campioni
+     */
+    long getPercentile(double percentile) {
+        if (campioni == 0) {
+            return 0;
+        }
+        long posizione = Math.max(1, (long) Math.ceil(percentile / 100.0 * campioni));
+        long cumulati = 0;
+        for (int i = 0; i < INTERVALLI; i++) {
+            cumulati += conteggi[i];
+            if (cumulati >= posizione) {
+                return Math.min(limiteSuperiore(i), massimo);
+            }
+        }
+        return massimo;
+    }
+
+    private static int indice(long valore) {
+        if (valore < VALORI_ESATTI) {
+            return (int) valore;
+        }
+        // Si conservano i 5 bit più significativi: il primo è sempre 1,
+        // gli altri 4 scelgono uno dei 16 intervalli dell'ottava
+        int bitPiuAlto = 63 - Long.numberOfLeadingZeros(valore);
+        int scorrimento = bitPiuAlto - 4;
+        int mantissa = (int) (valore >>> scorrimento) - INTERVALLI_PER_OTTAVA;
+        return VALORI_ESATTI + (scorrimento - 1) * INTERVALLI_PER_OTTAVA + mantissa;
+    }
+
+    private static long limiteSuperiore(int indice) {
+        if (indice < VALORI_ESATTI) {
+            return indice;
+        }
+        int k = indice - VALORI_ESATTI;
+        int scorrimento = k / INTERVALLI_PER_OTTAVA + 1;
+        long mantissa = INTERVALLI_PER_OTTAVA + k % INTERVALLI_PER_OTTAVA;
+        return ((mantissa + 1) << scorrimento) - 1;
+    }
+}
@@ -0,0 +1,96 @@
+package it.tennis_club.business_logic;
+
+import it.tennis_club.domain_model.Notifica;
+import it.tennis_club.orm.NotificaDAO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark dell'invio di notifiche, eseguito per ogni prenotazione
+ * cancellata da una manutenzione, e della loro lettura, con un DAO in
+ * memoria: misura coda, conteggi e scrittura a blocchi, senza il costo del
+ * database.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NotificationServiceBenchmark {
+
+    private static final String MESSAGGIO =
+            "La tua prenotazione è stata cancellata a causa di una manutenzione programmata.";
+
+    /** Numero di utenti destinatari. */
+    @Param({ "1000" })
+    private int utenti;
+
+    private NotificationService notificationService;
+    private int prossimo;
+
+    @Setup
+    public void prepara() {
+        // Senza thread in background: la coda viene scritta da chi la riempie
+        notificationService = new NotificationService(new FakeNotificaDAO(), 100, 10000, 0);
+    }
+
+    @Benchmark
+    public int aggiungi() {
+        int idUtente = prossimo++ % utenti + 1;
+        notificationService.addNotification(idUtente, MESSAGGIO);
+        return notificationService.getNotificationCount(idUtente);
+    }
+
+    @Benchmark
+    public List<String> aggiungiELeggi() {
+        int idUtente = prossimo++ % utenti + 1;
+        notificationService.addNotification(idUtente, MESSAGGIO);
+        return notificationService.getAndClearNotifications(idUtente);
+    }
+
+    /**
+     * DAO in memoria: conserva solo le notifiche non lette, per utente.
+     */
+    private static class FakeNotificaDAO extends NotificaDAO {
+        private final Map<Integer, List<Notifica>> nonLette = new HashMap<>();
+
+        @Override
+        public void inserisci(List<Notifica> notifiche, int maxPerUtente) {
+            for (Notifica notifica : notifiche) {
+                List<Notifica> utente = nonLette.computeIfAbsent(notifica.getIdUtente(), k -> new ArrayList<>());
+                utente.add(notifica);
+                if (utente.size() > maxPerUtente) {
+                    utente.remove(0);
+                }
+            }
+        }
+
+        @Override
+        public Map<Integer, Integer> contaNonLette() {
+            return new HashMap<>();
+        }
+
+        @Override
+        public List<Notifica> consumaNonLette(Integer idUtente) {
+            List<Notifica> consumate = nonLette.remove(idUtente);
+            return consumate != null ? consumate : new ArrayList<>();
+        }
+    }
+}
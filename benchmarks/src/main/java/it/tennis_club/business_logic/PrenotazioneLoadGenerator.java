@@ -0,0 +1,587 @@
+package it.tennis_club.business_logic;
+
+import it.tennis_club.domain_model.Campo;
+import it.tennis_club.domain_model.Utente;
+import it.tennis_club.orm.CampoDAO;
+import it.tennis_club.orm.ConnectionManager;
+import it.tennis_club.orm.UtenteDAO;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generatore di carico che riproduce la corsa alle prenotazioni (ad es. alle
+ * 8:00 per i campi del sabato) contro un database locale, usando
+ * {@link PrenotazioneService} come fa l'applicazione.
+ *
+ * Ogni socio simulato è un virtual thread che, dopo una partenza simultanea,
+ * esegue in ciclo verifiche di disponibilità, prenotazioni e cancellazioni
+ * secondo il mix richiesto, scegliendo l'orario con un modello di contesa:
+ * - uniforme: tutti gli orari sono ugualmente richiesti;
+ * - picco: una quota delle richieste si concentra su pochi orari;
+ * - zipf: la popolarità degli orari segue una legge di Zipf.
+ *
+ * Al termine stampa throughput, percentili di latenza per operazione,
+ * conflitti (orario già preso) ed errori, poi verifica sul database che
+ * nessun orario sia stato prenotato due volte. Le prenotazioni create dal
+ * test vengono cancellate, a meno di --mantieni.
+ *
+ * Pensato anche come controllo di regressione: termina con codice 1 se ci
+ * sono doppie prenotazioni, errori oltre --max-errori o un p99 delle
+ * prenotazioni oltre --max-p99-ms, con codice 2 se gli argomenti non sono
+ * validi. Con --report scrive i risultati anche in JSON.
+ *
+ * Uso (dalla cartella benchmarks, dopo mvn package):
+ * java -cp target/benchmarks.jar it.tennis_club.business_logic.PrenotazioneLoadGenerator [opzioni]
+ */
+public class PrenotazioneLoadGenerator {
+
+    private static final String USO = String.join(System.lineSeparator(),
+            "Uso: PrenotazioneLoadGenerator [opzioni]",
+            "  --soci N               soci simulati concorrenti (default 200)",
+            "  --durata S             secondi di misura (default 30)",
+            "  --riscaldamento S      secondi iniziali esclusi dalla misura (default 5)",
+            "  --data AAAA-MM-GG      giorno prenotato (default il prossimo sabato)",
+            "  --campi N              numero massimo di campi usati (default tutti)",
+            "  --contesa MODELLO      uniforme | picco | zipf (default picco)",
+            "  --orari-picco N        orari contesi nel modello picco (default 2)",
+            "  --quota-picco Q        quota di richieste sugli orari contesi (default 0.8)",
+            "  --zipf-s S             esponente del modello zipf (default 1.2)",
+            "  --mix V,P,C            pesi di verifiche, prenotazioni, cancellazioni (default 50,40,10)",
+            "  --pausa-ms MS          pausa di ogni socio tra due operazioni (default 0)",
+            "  --max-p99-ms MS        soglia del p99 delle prenotazioni (default nessuna)",
+            "  --max-errori N         errori inattesi ammessi (default 0)",
+            "  --report FILE          scrive i risultati in JSON",
+            "  --mantieni             non cancella le prenotazioni create",
+            "  --aiuto                mostra questo messaggio");
+
+    // Frammento del messaggio di PrenotazioneService per un orario già occupato
+    private static final String GIA_PRENOTATO = "è già prenotato";
+
+    private static final String SELECT_DOPPIE =
+            "SELECT id_campo, ora_inizio, COUNT(*) FROM prenotazione WHERE data = ? " +
+                    "GROUP BY id_campo, ora_inizio HAVING COUNT(*) > 1";
+
+    private static final String COUNT_PRENOTAZIONI = "SELECT COUNT(*) FROM prenotazione WHERE data = ?";
+
+    private enum Operazione {
+        VERIFICA, PRENOTAZIONE, CANCELLAZIONE
+    }
+
+    /**
+     * Un orario prenotabile di un campo.
+     */
+    private static class Slot {
+        final Campo campo;
+        final LocalTime ora;
+
+        Slot(Campo campo, LocalTime ora) {
+            this.campo = campo;
+            this.ora = ora;
+        }
+    }
+
+    /**
+     * Risultati di un socio simulato, uniti a fine misura.
+     */
+    private static class Risultati {
+        final Map<Operazione, LatencyHistogram> latenze = new LinkedHashMap<>();
+        long conflitti;
+        long errori;
+        long cancellazioniSenzaPrenotazioni;
+        String primoErrore;
+
+        Risultati() {
+            for (Operazione operazione : Operazione.values()) {
+                latenze.put(operazione, new LatencyHistogram());
+            }
+        }
+
+        void aggiungi(Risultati altri) {
+            for (Operazione operazione : Operazione.values()) {
+                latenze.get(operazione).aggiungi(altri.latenze.get(operazione));
+            }
+            conflitti += altri.conflitti;
+            errori += altri.errori;
+            cancellazioniSenzaPrenotazioni += altri.cancellazioniSenzaPrenotazioni;
+            if (primoErrore == null) {
+                primoErrore = altri.primoErrore;
+            }
+        }
+    }
+
+    private int soci = 200;
+    private int durataSecondi = 30;
+    private int riscaldamentoSecondi = 5;
+    private LocalDate data = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.SATURDAY));
+    private int maxCampi = Integer.MAX_VALUE;
+    private String contesa = "picco";
+    private int orariPicco = 2;
+    private double quotaPicco = 0.8;
+    private double zipfS = 1.2;
+    private int[] mix = { 50, 40, 10 };
+    private long pausaMillis;
+    private Double maxP99Millis;
+    private long maxErrori;
+    private Path report;
+    private boolean mantieni;
+
+    private final PrenotazioneService prenotazioneService = new PrenotazioneService();
+
+    private List<Slot> slot;
+    private double[] distribuzione;
+    private List<Utente> sociDisponibili;
+
+    // Prenotazioni create e non ancora cancellate: le cancellazioni simulate
+    // e la pulizia finale le prelevano da qui
+    private final ConcurrentLinkedQueue<Integer> prenotazioniCreate = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Entry point del generatore di carico.
+     */
+    public static void main(String[] args) {
+        if (List.of(args).contains("--aiuto")) {
+            System.out.println(USO);
+            return;
+        }
+
+        PrenotazioneLoadGenerator generatore = new PrenotazioneLoadGenerator();
+        try {
+            generatore.leggiArgomenti(args);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            System.err.println("Argomento non valido: " + e.getMessage());
+            System.err.println(USO);
+            System.exit(2);
+        }
+
+        try {
+            System.exit(generatore.esegui() ? 0 : 1);
+        } catch (Exception e) {
+            System.err.println("Test di carico fallito: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private void leggiArgomenti(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String opzione = args[i];
+            if (opzione.equals("--mantieni")) {
+                mantieni = true;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("valore mancante per " + opzione);
+            }
+            String valore = args[++i];
+            switch (opzione) {
+                case "--soci" -> soci = positivo(opzione, Integer.parseInt(valore));
+                case "--durata" -> durataSecondi = positivo(opzione, Integer.parseInt(valore));
+                case "--riscaldamento" -> riscaldamentoSecondi = Math.max(0, Integer.parseInt(valore));
+                case "--data" -> data = LocalDate.parse(valore);
+                case "--campi" -> maxCampi = positivo(opzione, Integer.parseInt(valore));
+                case "--contesa" -> contesa = valore;
+                case "--orari-picco" -> orariPicco = positivo(opzione, Integer.parseInt(valore));
+                case "--quota-picco" -> quotaPicco = Double.parseDouble(valore);
+                case "--zipf-s" -> zipfS = Double.parseDouble(valore);
+                case "--mix" -> mix = leggiMix(valore);
+                case "--pausa-ms" -> pausaMillis = Math.max(0, Long.parseLong(valore));
+                case "--max-p99-ms" -> maxP99Millis = Double.parseDouble(valore);
+                case "--max-errori" -> maxErrori = Math.max(0, Long.parseLong(valore));
+                case "--report" -> report = Paths.get(valore);
+                default -> throw new IllegalArgumentException("opzione sconosciuta " + opzione);
+            }
+        }
+        if (!List.of("uniforme", "picco", "zipf").contains(contesa)) {
+            throw new IllegalArgumentException("modello di contesa sconosciuto " + contesa);
+        }
+        if (quotaPicco < 0 || quotaPicco > 1) {
+            throw new IllegalArgumentException("--quota-picco deve essere tra 0 e 1");
+        }
+        if (data.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("--data non può essere nel passato");
+        }
+    }
+
+    private static int positivo(String opzione, int valore) {
+        if (valore <= 0) {
+            throw new IllegalArgumentException(opzione + " deve essere positivo");
+        }
+        return valore;
+    }
+
+    private static int[] leggiMix(String valore) {
+        String[] parti = valore.split(",");
+        if (parti.length != 3) {
+            throw new IllegalArgumentException("--mix richiede tre pesi separati da virgola");
+        }
+        int[] pesi = new int[3];
+        for (int i = 0; i < 3; i++) {
+            pesi[i] = Integer.parseInt(parti[i].trim());
+            if (pesi[i] < 0) {
+                throw new IllegalArgumentException("i pesi di --mix non possono essere negativi");
+            }
+        }
+        if (pesi[0] + pesi[1] + pesi[2] == 0) {
+            throw new IllegalArgumentException("almeno un peso di --mix deve essere positivo");
+        }
+        return pesi;
+    }
+
+    /**
+     * Esegue il test e stampa i risultati.
+     *
+     * @return true se il controllo di regressione è superato
+     */
+    private boolean esegui() throws Exception {
+        preparaSlot();
+        sociDisponibili = new UtenteDAO().getUtentiByRuolo(Utente.Ruolo.SOCIO);
+        if (sociDisponibili.isEmpty()) {
+            throw new IllegalStateException("nel database non ci sono utenti con ruolo SOCIO");
+        }
+        long preesistenti = contaPrenotazioni();
+
+        System.out.printf("Corsa alle prenotazioni del %s: %d soci, %d orari su %d campi, contesa %s, mix %d/%d/%d%n",
+                data, soci, slot.size(), slot.size() / orari().size(), contesa, mix[0], mix[1], mix[2]);
+
+        Risultati totali = new Risultati();
+        long inizioMisura;
+        long fineMisura;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CountDownLatch partenza = new CountDownLatch(1);
+            long inizio = System.nanoTime();
+            inizioMisura = inizio + TimeUnit.SECONDS.toNanos(riscaldamentoSecondi);
+            fineMisura = inizioMisura + TimeUnit.SECONDS.toNanos(durataSecondi);
+
+            List<Future<Risultati>> futuri = new ArrayList<>();
+            for (int i = 0; i < soci; i++) {
+                Utente socio = sociDisponibili.get(i % sociDisponibili.size());
+                long inizioMisuraSocio = inizioMisura;
+                long fineMisuraSocio = fineMisura;
+                futuri.add(executor.submit(() -> simulaSocio(socio, partenza, inizioMisuraSocio, fineMisuraSocio)));
+            }
+            // Tutti i soci partono insieme, come allo scoccare delle 8:00
+            partenza.countDown();
+
+            for (Future<Risultati> futuro : futuri) {
+                totali.aggiungi(futuro.get());
+            }
+        }
+
+        List<String> doppie = trovaDoppiePrenotazioni();
+        int rimaste = prenotazioniCreate.size();
+        if (!mantieni) {
+            pulisci();
+        }
+
+        boolean superato = stampaRisultati(totali, doppie, preesistenti, rimaste,
+                (double) (fineMisura - inizioMisura) / TimeUnit.SECONDS.toNanos(1));
+        if (report != null) {
+            scriviReport(totali, doppie, (double) (fineMisura - inizioMisura) / TimeUnit.SECONDS.toNanos(1),
+                    superato);
+        }
+        return superato;
+    }
+
+    private void preparaSlot() throws SQLException {
+        List<Campo> campi = new CampoDAO().getAllCampi();
+        if (campi.isEmpty()) {
+            throw new IllegalStateException("nel database non ci sono campi");
+        }
+        campi = campi.subList(0, Math.min(maxCampi, campi.size()));
+
+        // Gli orari più contesi vengono per primi: il primo orario del
+        // mattino di ogni campo, poi il successivo e così via
+        slot = new ArrayList<>();
+        for (LocalTime ora : orari()) {
+            for (Campo campo : campi) {
+                slot.add(new Slot(campo, ora));
+            }
+        }
+
+        distribuzione = new double[slot.size()];
+        double cumulata = 0;
+        for (int i = 0; i < slot.size(); i++) {
+            double peso = switch (contesa) {
+                case "picco" -> i < orariPicco
+                        ? quotaPicco / Math.min(orariPicco, slot.size())
+                        : (1 - quotaPicco) / Math.max(1, slot.size() - orariPicco);
+                case "zipf" -> 1 / Math.pow(i + 1, zipfS);
+                default -> 1;
+            };
+            cumulata += peso;
+            distribuzione[i] = cumulata;
+        }
+        for (int i = 0; i < distribuzione.length; i++) {
+            distribuzione[i] /= cumulata;
+        }
+    }
+
+    private static List<LocalTime> orari() {
+        List<LocalTime> orari = new ArrayList<>();
+        for (LocalTime ora = LocalTime.of(8, 0); !ora.isAfter(LocalTime.of(21, 0)); ora = ora.plusHours(1)) {
+            orari.add(ora);
+        }
+        return orari;
+    }
+
+    private Risultati simulaSocio(Utente socio, CountDownLatch partenza, long inizioMisura, long fineMisura)
+            throws InterruptedException {
+        Risultati risultati = new Risultati();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        partenza.await();
+
+        while (true) {
+            long inizio = System.nanoTime();
+            if (inizio >= fineMisura) {
+                return risultati;
+            }
+            boolean misurata = inizio >= inizioMisura;
+            Operazione operazione = scegliOperazione(random);
+            Slot scelto = scegliSlot(random);
+            Integer daCancellare = null;
+            if (operazione == Operazione.CANCELLAZIONE) {
+                daCancellare = prenotazioniCreate.poll();
+                if (daCancellare == null) {
+                    // Nessuna prenotazione da cancellare: il socio verifica un orario
+                    if (misurata) {
+                        risultati.cancellazioniSenzaPrenotazioni++;
+                    }
+                    operazione = Operazione.VERIFICA;
+                }
+            }
+
+            try {
+                switch (operazione) {
+                    case VERIFICA -> prenotazioneService.isCampoDisponibile(data, scelto.ora, scelto.campo);
+                    case PRENOTAZIONE -> prenotazioniCreate.add(
+                            prenotazioneService.creaPrenotazione(data, scelto.ora, scelto.campo, socio));
+                    case CANCELLAZIONE -> prenotazioneService.cancellaPrenotazione(daCancellare);
+                }
+            } catch (PrenotazioneException e) {
+                if (!misurata) {
+                    // Durante il riscaldamento gli esiti non vengono contati
+                } else if (operazione == Operazione.PRENOTAZIONE && e.getMessage() != null
+                        && e.getMessage().contains(GIA_PRENOTATO)) {
+                    risultati.conflitti++;
+                } else {
+                    risultati.errori++;
+                    if (risultati.primoErrore == null) {
+                        risultati.primoErrore = operazione + ": " + e.getMessage();
+                    }
+                }
+            }
+
+            if (misurata) {
+                risultati.latenze.get(operazione).registra(System.nanoTime() - inizio);
+            }
+            if (pausaMillis > 0) {
+                Thread.sleep(pausaMillis);
+            }
+        }
+    }
+
+    private Operazione scegliOperazione(ThreadLocalRandom random) {
+        int estratto = random.nextInt(mix[0] + mix[1] + mix[2]);
+        if (estratto < mix[0]) {
+            return Operazione.VERIFICA;
+        }
+        return estratto < mix[0] + mix[1] ? Operazione.PRENOTAZIONE : Operazione.CANCELLAZIONE;
+    }
+
+    private Slot scegliSlot(ThreadLocalRandom random) {
+        double estratto = random.nextDouble();
+        int basso = 0;
+        int alto = distribuzione.length - 1;
+        while (basso < alto) {
+            int medio = (basso + alto) >>> 1;
+            if (distribuzione[medio] < estratto) {
+                basso = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return slot.get(basso);
+    }
+
+    private long contaPrenotazioni() throws SQLException {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+
+        try {
+            connection = ConnectionManager.getConnection();
+            statement = connection.prepareStatement(COUNT_PRENOTAZIONI);
+            statement.setDate(1, Date.valueOf(data));
+            resultSet = statement.executeQuery();
+            resultSet.next();
+            return resultSet.getLong(1);
+
+        } finally {
+            chiudi(resultSet, statement, connection);
+        }
+    }
+
+    /**
+     * Cerca sul database gli orari prenotati più di una volta nel giorno del
+     * test, indipendentemente da chi li ha prenotati.
+     */
+    private List<String> trovaDoppiePrenotazioni() throws SQLException {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        List<String> doppie = new ArrayList<>();
+
+        try {
+            connection = ConnectionManager.getConnection();
+            statement = connection.prepareStatement(SELECT_DOPPIE);
+            statement.setDate(1, Date.valueOf(data));
+            resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                doppie.add("campo " + resultSet.getInt(1) + " ore " + resultSet.getTime(2).toLocalTime()
+                        + ": " + resultSet.getLong(3) + " prenotazioni");
+            }
+            return doppie;
+
+        } finally {
+            chiudi(resultSet, statement, connection);
+        }
+    }
+
+    private void pulisci() {
+        int cancellate = 0;
+        Integer id;
+        while ((id = prenotazioniCreate.poll()) != null) {
+            try {
+                prenotazioneService.cancellaPrenotazione(id);
+                cancellate++;
+            } catch (PrenotazioneException e) {
+                System.err.println("Impossibile cancellare la prenotazione " + id + ": " + e.getMessage());
+            }
+        }
+        System.out.println("Prenotazioni di test cancellate: " + cancellate);
+    }
+
+    private boolean stampaRisultati(Risultati totali, List<String> doppie, long preesistenti, int rimaste,
+            double secondi) {
+        long operazioni = 0;
+        for (LatencyHistogram istogramma : totali.latenze.values()) {
+            operazioni += istogramma.getCampioni();
+        }
+
+        System.out.println();
+        System.out.printf(Locale.ROOT, "Operazioni: %d in %.1f s (%.1f op/s)%n", operazioni, secondi,
+                operazioni / secondi);
+        System.out.printf("%-14s %10s %10s %10s %10s %10s %10s%n", "operazione", "numero", "media ms", "p50 ms",
+                "p95 ms", "p99 ms", "max ms");
+        for (Map.Entry<Operazione, LatencyHistogram> voce : totali.latenze.entrySet()) {
+            LatencyHistogram h = voce.getValue();
+            System.out.printf(Locale.ROOT, "%-14s %10d %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                    voce.getKey().name().toLowerCase(Locale.ROOT), h.getCampioni(), h.getMedia() / 1e6,
+                    millis(h.getPercentile(50)), millis(h.getPercentile(95)), millis(h.getPercentile(99)),
+                    millis(h.getMassimo()));
+        }
+        System.out.println("Conflitti (orario già prenotato): " + totali.conflitti);
+        System.out.println("Cancellazioni sostituite da verifiche (nessuna prenotazione da cancellare): " + totali.cancellazioniSenzaPrenotazioni);
+        System.out.println("Errori inattesi: " + totali.errori
+                + (totali.primoErrore != null ? " (primo: " + totali.primoErrore + ")" : ""));
+        System.out.println("Prenotazioni preesistenti nel giorno: " + preesistenti
+                + ", create dal test ancora attive a fine misura: " + rimaste);
+        System.out.println("Doppie prenotazioni: " + doppie.size());
+        for (String doppia : doppie) {
+            System.out.println("  " + doppia);
+        }
+
+        boolean superato = true;
+        if (!doppie.isEmpty()) {
+            System.out.println("CONTROLLO FALLITO: uno stesso orario è stato prenotato più volte");
+            superato = false;
+        }
+        if (totali.errori > maxErrori) {
+            System.out.println("CONTROLLO FALLITO: " + totali.errori + " errori inattesi (massimo " + maxErrori + ")");
+            superato = false;
+        }
+        double p99 = millis(totali.latenze.get(Operazione.PRENOTAZIONE).getPercentile(99));
+        if (maxP99Millis != null && p99 > maxP99Millis) {
+            System.out.printf(Locale.ROOT, "CONTROLLO FALLITO: p99 delle prenotazioni %.2f ms (massimo %.2f ms)%n",
+                    p99, maxP99Millis);
+            superato = false;
+        }
+        if (superato) {
+            System.out.println("Controllo superato");
+        }
+        return superato;
+    }
+
+    private void scriviReport(Risultati totali, List<String> doppie, double secondi, boolean superato)
+            throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append(String.format(Locale.ROOT, "  \"data\": \"%s\",%n", data));
+        json.append(String.format(Locale.ROOT, "  \"soci\": %d,%n", soci));
+        json.append(String.format(Locale.ROOT, "  \"contesa\": \"%s\",%n", contesa));
+        json.append(String.format(Locale.ROOT, "  \"mix\": [%d, %d, %d],%n", mix[0], mix[1], mix[2]));
+        json.append(String.format(Locale.ROOT, "  \"secondi\": %.3f,%n", secondi));
+        json.append("  \"operazioni\": {\n");
+        int i = 0;
+        for (Map.Entry<Operazione, LatencyHistogram> voce : totali.latenze.entrySet()) {
+            LatencyHistogram h = voce.getValue();
+            json.append(String.format(Locale.ROOT,
+                    "    \"%s\": {\"numero\": %d, \"opAlSecondo\": %.1f, \"mediaMs\": %.3f, \"p50Ms\": %.3f, "
+                            + "\"p95Ms\": %.3f, \"p99Ms\": %.3f, \"p999Ms\": %.3f, \"maxMs\": %.3f}%s%n",
+                    voce.getKey().name().toLowerCase(Locale.ROOT), h.getCampioni(), h.getCampioni() / secondi,
+                    h.getMedia() / 1e6, millis(h.getPercentile(50)), millis(h.getPercentile(95)),
+                    millis(h.getPercentile(99)), millis(h.getPercentile(99.9)), millis(h.getMassimo()),
+                    ++i < totali.latenze.size() ? "," : ""));
+        }
+        json.append("  },\n");
+        json.append(String.format(Locale.ROOT, "  \"conflitti\": %d,%n", totali.conflitti));
+        json.append(String.format(Locale.ROOT, "  \"errori\": %d,%n", totali.errori));
+        json.append(String.format(Locale.ROOT, "  \"doppiePrenotazioni\": %d,%n", doppie.size()));
+        json.append(String.format(Locale.ROOT, "  \"superato\": %b%n", superato));
+        json.append("}\n");
+        Files.writeString(report, json, StandardCharsets.UTF_8);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static void chiudi(ResultSet resultSet, PreparedStatement statement, Connection connection) {
+        try {
+            if (resultSet != null) {
+                resultSet.close();
+            }
+            if (statement != null) {
+                statement.close();
+            }
+        } catch (SQLException e) {
+            System.err.println("Errore durante la chiusura delle risorse: " + e.getMessage());
+        }
+        ConnectionManager.closeConnection(connection);
+    }
+}
@@ -0,0 +1,102 @@
+package it.tennis_club.business_logic;
+
+import it.tennis_club.domain_model.Campo;
+import it.tennis_club.domain_model.Manutenzione;
+import it.tennis_club.domain_model.Prenotazione;
+import it.tennis_club.domain_model.Utente;
+import it.tennis_club.orm.ManutenzioneDAO;
+import it.tennis_club.orm.OccupancyIndex;
+import it.tennis_club.orm.PrenotazioneDAO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Benchmark di {@link PrenotazioneService#creaPrenotazione}, con DAO in
+ * memoria: misura validazione, costruzione degli oggetti e gestione del
+ * conflitto, senza il costo del database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrenotazioneServiceBenchmark {
+
+    private PrenotazioneService libero;
+    private PrenotazioneService occupato;
+    private Campo campo;
+    private Utente socio;
+    private LocalDate data;
+    private LocalTime ora;
+
+    @Setup
+    public void prepara() {
+        libero = new PrenotazioneService(new FakePrenotazioneDAO(true), new FakeManutenzioneDAO(),
+                OccupancyIndex.getInstance());
+        occupato = new PrenotazioneService(new FakePrenotazioneDAO(false), new FakeManutenzioneDAO(),
+                OccupancyIndex.getInstance());
+
+        campo = new Campo(1, "Campo Centrale", "Terra rossa", false);
+        socio = new Utente(1, "Mario", "Rossi", "mario.rossi@test.it", null, Utente.Ruolo.SOCIO);
+        data = LocalDate.now().plusDays(7);
+        ora = LocalTime.of(10, 0);
+    }
+
+    @Benchmark
+    public Integer creaPrenotazione() throws PrenotazioneException {
+        return libero.creaPrenotazione(data, ora, campo, socio);
+    }
+
+    @Benchmark
+    public PrenotazioneException creaPrenotazioneGiaOccupata() {
+        try {
+            occupato.creaPrenotazione(data, ora, campo, socio);
+            throw new IllegalStateException("La prenotazione avrebbe dovuto fallire");
+        } catch (PrenotazioneException e) {
+            return e;
+        }
+    }
+
+    /**
+     * DAO in memoria: l'inserimento riesce sempre o fallisce sempre per
+     * conflitto, come farebbe ON CONFLICT DO NOTHING.
+     */
+    private static class FakePrenotazioneDAO extends PrenotazioneDAO {
+        private final boolean inserisce;
+        private final AtomicInteger id = new AtomicInteger();
+
+        FakePrenotazioneDAO(boolean inserisce) {
+            this.inserisce = inserisce;
+        }
+
+        @Override
+        public Integer createPrenotazione(Prenotazione prenotazione) {
+            return inserisce ? id.incrementAndGet() : null;
+        }
+    }
+
+    /**
+     * DAO in memoria senza manutenzioni attive.
+     */
+    private static class FakeManutenzioneDAO extends ManutenzioneDAO {
+        @Override
+        public Manutenzione getManutenzioneAttivaByDataAndCampo(LocalDate data, Integer idCampo) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package it.tennis_club.business_logic;
+
+import it.tennis_club.domain_model.Utente;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark della lettura di una sessione, eseguita a ogni operazione
+ * dell'utente, e della creazione al login. La lettura viene misurata anche
+ * con più thread per verificare che non ci sia contesa.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionManagerBenchmark {
+
+    /** Numero di sessioni attive. */
+    @Param({ "1000" })
+    private int sessioni;
+
+    private SessionManager sessionManager;
+    private String[] ids;
+    private Utente utente;
+
+    @Setup
+    public void prepara() {
+        sessionManager = new SessionManager(TimeUnit.HOURS.toMillis(1), sessioni * 2, 0, System::nanoTime);
+        utente = new Utente(1, "Mario", "Rossi", "mario.rossi@test.it", null, Utente.Ruolo.SOCIO);
+        ids = new String[sessioni];
+        for (int i = 0; i < sessioni; i++) {
+            ids[i] = sessionManager.createSession(utente);
+        }
+    }
+
+    @TearDown
+    public void chiudi() {
+        sessionManager.shutdown();
+    }
+
+    @Benchmark
+    public Utente getUser() {
+        return sessionManager.getUser(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Utente getUserConcorrente() {
+        return sessionManager.getUser(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public boolean creaEInvalida() {
+        return sessionManager.invalidateSession(sessionManager.createSession(utente));
+    }
+}
@@ -0,0 +1,78 @@
+package it.tennis_club.orm;
+
+import java.lang.reflect.Proxy;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.Time;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ResultSet in memoria per i benchmark di mappatura: restituisce righe già
+ * pronte senza driver né database, così il costo misurato è solo quello della
+ * conversione in oggetti del dominio.
+ */
+final class FakeResultSet {
+
+    private FakeResultSet() {
+    }
+
+    /**
+     * Crea un ResultSet che scorre le righe indicate. Ogni riga associa il
+     * nome della colonna al valore JDBC (Integer, String, Boolean, Date, Time).
+     */
+    static ResultSet of(List<Map<String, Object>> righe) {
+        int[] posizione = { -1 };
+        return (ResultSet) Proxy.newProxyInstance(FakeResultSet.class.getClassLoader(),
+                new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++posizione[0] < righe.size();
+                        case "beforeFirst":
+                            posizione[0] = -1;
+                            return null;
+                        case "getInt": {
+                            Object valore = righe.get(posizione[0]).get((String) args[0]);
+                            return valore == null ? 0 : (Integer) valore;
+                        }
+                        case "getBoolean": {
+                            Object valore = righe.get(posizione[0]).get((String) args[0]);
+                            return valore != null && (Boolean) valore;
+                        }
+                        case "getString":
+                        case "getDate":
+                        case "getTime":
+                        case "getObject":
+                            return righe.get(posizione[0]).get((String) args[0]);
+                        case "close":
+                            return null;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /**
+     * Riga di una prenotazione con le colonne di
+     * {@link ResultSetHydrator#colonnePrenotazione()}.
+     */
+    static Map<String, Object> rigaPrenotazione(int id, int idCampo, int idSocio, Date data, Time ora) {
+        return Map.ofEntries(
+                Map.entry(ResultSetHydrator.PRENOTAZIONE + "id", id),
+                Map.entry(ResultSetHydrator.PRENOTAZIONE + "data", data),
+                Map.entry(ResultSetHydrator.PRENOTAZIONE + "ora_inizio", ora),
+                Map.entry(ResultSetHydrator.CAMPO + "id", idCampo),
+                Map.entry(ResultSetHydrator.CAMPO + "nome", "Campo " + idCampo),
+                Map.entry(ResultSetHydrator.CAMPO + "tipo_superficie", "Terra rossa"),
+                Map.entry(ResultSetHydrator.CAMPO + "is_coperto", Boolean.FALSE),
+                Map.entry(ResultSetHydrator.SOCIO + "id", idSocio),
+                Map.entry(ResultSetHydrator.SOCIO + "nome", "Nome" + idSocio),
+                Map.entry(ResultSetHydrator.SOCIO + "cognome", "Cognome" + idSocio),
+                Map.entry(ResultSetHydrator.SOCIO + "email", "socio" + idSocio + "@test.it"),
+                Map.entry(ResultSetHydrator.SOCIO + "ruolo", "SOCIO"));
+    }
+}
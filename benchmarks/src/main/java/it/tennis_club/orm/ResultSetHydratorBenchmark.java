@@ -0,0 +1,71 @@
+package it.tennis_club.orm;
+
+import it.tennis_club.domain_model.Prenotazione;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark della mappatura delle prenotazioni da ResultSet, il percorso
+ * seguito da ogni lettura di {@link PrenotazioneDAO}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultSetHydratorBenchmark {
+
+    /** Numero di righe del ResultSet. */
+    @Param({ "1", "100" })
+    private int righe;
+
+    /** Numero di campi e soci distinti: determina quante istanze vengono condivise. */
+    @Param({ "4" })
+    private int distinti;
+
+    private ResultSet resultSet;
+
+    @Setup
+    public void preparaDati() {
+        List<Map<String, Object>> dati = new ArrayList<>(righe);
+        Date data = Date.valueOf(LocalDate.now().plusDays(1));
+        for (int i = 0; i < righe; i++) {
+            Time ora = Time.valueOf(LocalTime.of(8 + i % 14, 0));
+            dati.add(FakeResultSet.rigaPrenotazione(i + 1, i % distinti + 1, i % distinti + 1, data, ora));
+        }
+        resultSet = FakeResultSet.of(dati);
+    }
+
+    @Benchmark
+    public List<Prenotazione> mappaPrenotazioni() throws SQLException {
+        resultSet.beforeFirst();
+        ResultSetHydrator hydrator = new ResultSetHydrator();
+        List<Prenotazione> prenotazioni = new ArrayList<>();
+        while (resultSet.next()) {
+            prenotazioni.add(hydrator.prenotazione(resultSet));
+        }
+        return prenotazioni;
+    }
+}
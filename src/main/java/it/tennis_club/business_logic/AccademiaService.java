@@ -2,17 +2,24 @@ package it.tennis_club.business_logic;
 
 import it.tennis_club.domain_model.AllievoLezione;
 import it.tennis_club.domain_model.Lezione;
+import it.tennis_club.domain_model.Notifica;
 import it.tennis_club.domain_model.Prenotazione;
 import it.tennis_club.domain_model.Campo;
 import it.tennis_club.domain_model.Utente;
 import it.tennis_club.domain_model.Utente.Ruolo;
 import it.tennis_club.orm.LezioneDAO;
 import it.tennis_club.orm.AllievoLezioneDAO;
+import it.tennis_club.orm.ConnectionManager;
+import it.tennis_club.orm.UtenteCache;
+import it.tennis_club.orm.Strumentazione;
 import it.tennis_club.orm.UtenteDAO;
 
+import java.io.Writer;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 
 /**
@@ -26,6 +33,8 @@ public class AccademiaService {
     private final PrenotazioneService prenotazioneService;
     private final AllievoLezioneDAO allievoLezioneDAO;
     private final UtenteDAO utenteDAO;
+    private final UtenteCache utenteCache;
+    private final NotificationService notificationService;
     private static final int MAX_ALLIEVI_PER_LEZIONE = 8;
 
     /**
@@ -36,6 +45,8 @@ public class AccademiaService {
         this.prenotazioneService = new PrenotazioneService();
         this.allievoLezioneDAO = new AllievoLezioneDAO();
         this.utenteDAO = new UtenteDAO();
+        this.utenteCache = UtenteCache.getInstance();
+        this.notificationService = NotificationService.getInstance();
     }
 
     /**
@@ -58,42 +69,51 @@ public class AccademiaService {
      */
     public Integer creaLezione(LocalDate data, LocalTime ora, Campo campo, Utente maestro, String descrizione)
             throws AccademiaException, PrenotazioneException {
+        // Il corpo lancia due eccezioni controllate diverse, che misura() non
+        // può propagare entrambe: la chiamata viene misurata esplicitamente
+        Strumentazione.Chiamata chiamata = Strumentazione.inizia("AccademiaService.creaLezione");
+        try {
+            // Validazione input PRIMA di creare la prenotazione
+            if (maestro == null) {
+                throw new AccademiaException("Il maestro non può essere null");
+            }
 
-        // Validazione input PRIMA di creare la prenotazione
-        if (maestro == null) {
-            throw new AccademiaException("Il maestro non può essere null");
-        }
-
-        if (maestro.getRuolo() != Ruolo.MAESTRO) {
-            throw new AccademiaException("Solo i maestri possono creare una lezione");
-        }
+            if (maestro.getRuolo() != Ruolo.MAESTRO) {
+                throw new AccademiaException("Solo i maestri possono creare una lezione");
+            }
 
-        if (data == null || ora == null || campo == null) {
-            throw new AccademiaException("Data, ora e campo sono obbligatori");
-        }
+            if (data == null || ora == null || campo == null) {
+                throw new AccademiaException("Data, ora e campo sono obbligatori");
+            }
 
-        try {
-            // Crea la prenotazione per la lezione
-            Integer idPrenotazione = prenotazioneService.creaPrenotazione(data, ora, campo, maestro);
+            try {
+                // Crea la prenotazione per la lezione
+                Integer idPrenotazione = prenotazioneService.creaPrenotazione(data, ora, campo, maestro);
 
-            if (idPrenotazione == null) {
-                throw new AccademiaException("Errore durante la creazione della prenotazione");
-            }
+                if (idPrenotazione == null) {
+                    throw new AccademiaException("Errore durante la creazione della prenotazione");
+                }
 
-            // Recupera l'oggetto Prenotazione completo
-            Prenotazione prenotazione = prenotazioneService.getPrenotazionePerId(idPrenotazione);
+                // Recupera l'oggetto Prenotazione completo
+                Prenotazione prenotazione = prenotazioneService.getPrenotazionePerId(idPrenotazione);
 
-            // Crea la lezione
-            Lezione lezione = new Lezione();
-            lezione.setPrenotazione(prenotazione);
-            lezione.setMaestro(maestro);
-            lezione.setDescrizione(descrizione);
-            // Il feedback non viene impostato alla creazione
+                // Crea la lezione
+                Lezione lezione = new Lezione();
+                lezione.setPrenotazione(prenotazione);
+                lezione.setMaestro(maestro);
+                lezione.setDescrizione(descrizione);
+                // Il feedback non viene impostato alla creazione
 
-            return lezioneDAO.createLezione(lezione);
+                return lezioneDAO.createLezione(lezione);
 
-        } catch (SQLException e) {
-            throw new AccademiaException("Errore durante la creazione della lezione: " + e.getMessage(), e);
+            } catch (SQLException e) {
+                throw new AccademiaException("Errore durante la creazione della lezione: " + e.getMessage(), e);
+            }
+        } catch (Throwable e) {
+            chiamata.errore();
+            throw e;
+        } finally {
+            chiamata.fine();
         }
     }
 
@@ -106,41 +126,71 @@ public class AccademiaService {
      * @throws AccademiaException se la lezione non esiste o si verifica un errore
      */
     public boolean inserisciDescrizione(Integer idLezione, String descrizione) throws AccademiaException {
+        return Strumentazione.misura("AccademiaService.inserisciDescrizione", () -> {
+            if (idLezione == null || idLezione <= 0) {
+                throw new AccademiaException("ID lezione non valido");
+            }
 
-        if (idLezione == null || idLezione <= 0) {
-            throw new AccademiaException("ID lezione non valido");
-        }
-
-        try {
-            Lezione lezione = lezioneDAO.getLezioneById(idLezione);
-            if (lezione == null) {
-                throw new AccademiaException("Lezione con ID " + idLezione + " non trovata");
-            }
-            lezione.setDescrizione(descrizione);
-            return lezioneDAO.updateLezione(lezione);
-        } catch (SQLException e) {
-            throw new AccademiaException(
-                    "Errore durante l'inserimento della descrizione: " + e.getMessage(), e);
-        }
+            try {
+                Lezione lezione = lezioneDAO.getLezioneById(idLezione);
+                if (lezione == null) {
+                    throw new AccademiaException("Lezione con ID " + idLezione + " non trovata");
+                }
+                lezione.setDescrizione(descrizione);
+                return lezioneDAO.updateLezione(lezione);
+            } catch (SQLException e) {
+                throw new AccademiaException(
+                        "Errore durante l'inserimento della descrizione: " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
-     * Elimina una lezione dal database.
+     * Elimina una lezione dal database e notifica gli allievi iscritti.
+     * Iscrizioni, lezione e notifiche vengono eliminate e scritte in un'unica
+     * transazione; la consegna delle notifiche avviene in background.
      * 
      * @param idLezione l'ID della lezione da eliminare
-     * @return true se la cancellazione è andata a buon fine
-     * @throws AccademiaException se la lezione non esiste o si verifica un errore
+     * @return true se la cancellazione è andata a buon fine, false se la
+     *         lezione non esiste
+     * @throws AccademiaException se si verifica un errore
      */
     public boolean cancellaLezione(Integer idLezione) throws AccademiaException {
-        if (idLezione == null || idLezione <= 0) {
-            throw new AccademiaException("ID della lezione non valido");
-        }
+        return Strumentazione.misura("AccademiaService.cancellaLezione", () -> {
+            if (idLezione == null || idLezione <= 0) {
+                throw new AccademiaException("ID della lezione non valido");
+            }
 
-        try {
-            return lezioneDAO.deleteLezione(idLezione);
-        } catch (SQLException e) {
-            throw new AccademiaException("Errore durante la cancellazione della lezione: " + e.getMessage(), e);
-        }
+            try {
+                // Serve per il testo della notifica
+                Lezione lezione = lezioneDAO.getLezioneById(idLezione);
+                if (lezione == null) {
+                    return false;
+                }
+
+                List<Notifica> notifiche = new ArrayList<>();
+                boolean eliminata = ConnectionManager.inTransaction(connection -> {
+                    List<Integer> idAllievi = allievoLezioneDAO.rimuoviAllievi(connection, idLezione);
+                    if (!lezioneDAO.deleteLezione(connection, idLezione)) {
+                        return false;
+                    }
+                    String messaggio = MessaggiNotifica.lezioneCancellata(lezione);
+                    LocalDateTime adesso = LocalDateTime.now();
+                    for (Integer idAllievo : idAllievi) {
+                        notifiche.add(new Notifica(idAllievo, messaggio, adesso));
+                    }
+                    notificationService.inserisci(connection, notifiche);
+                    return true;
+                });
+
+                if (eliminata) {
+                    notificationService.confermaInserite(notifiche);
+                }
+                return eliminata;
+            } catch (SQLException e) {
+                throw new AccademiaException("Errore durante la cancellazione della lezione: " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
@@ -151,19 +201,21 @@ public class AccademiaService {
      * @throws AccademiaException se la lezione non esiste o si verifica un errore
      */
     public Lezione getLezionePerId(Integer idLezione) throws AccademiaException {
-        if (idLezione == null || idLezione <= 0) {
-            throw new AccademiaException("ID della lezione non valido");
-        }
+        return Strumentazione.misura("AccademiaService.getLezionePerId", () -> {
+            if (idLezione == null || idLezione <= 0) {
+                throw new AccademiaException("ID della lezione non valido");
+            }
 
-        try {
-            Lezione lezione = lezioneDAO.getLezioneById(idLezione);
-            if (lezione == null) {
-                throw new AccademiaException("Lezione con ID " + idLezione + " non trovata");
+            try {
+                Lezione lezione = lezioneDAO.getLezioneById(idLezione);
+                if (lezione == null) {
+                    throw new AccademiaException("Lezione con ID " + idLezione + " non trovata");
+                }
+                return lezione;
+            } catch (SQLException e) {
+                throw new AccademiaException("Errore durante il recupero della lezione: " + e.getMessage(), e);
             }
-            return lezione;
-        } catch (SQLException e) {
-            throw new AccademiaException("Errore durante il recupero della lezione: " + e.getMessage(), e);
-        }
+        });
     }
 
     /**
@@ -173,11 +225,75 @@ public class AccademiaService {
      * @throws AccademiaException se si verifica un errore durante il recupero
      */
     public List<Lezione> getLezioni() throws AccademiaException {
-        try {
-            return lezioneDAO.getAllLezioni();
-        } catch (SQLException e) {
-            throw new AccademiaException("Errore durante il recupero di tutte le lezioni: " + e.getMessage(), e);
-        }
+        return Strumentazione.misura("AccademiaService.getLezioni", () -> {
+            try {
+                return lezioneDAO.getAllLezioni();
+            } catch (SQLException e) {
+                throw new AccademiaException("Errore durante il recupero di tutte le lezioni: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Esporta in CSV le lezioni con maestro e presenze degli allievi,
+     * scrivendo le righe man mano che arrivano dal database: la memoria usata
+     * non dipende dal numero di righe.
+     * 
+     * @param destinazione il Writer su cui scrivere il CSV
+     * @param dal          la data iniziale inclusa, null per nessun limite
+     * @param al           la data finale inclusa, null per nessun limite
+     * @param idCampo      l'ID del campo, null per tutti i campi
+     * @return il numero di righe esportate
+     * @throws AccademiaException se i filtri non sono validi o in caso di errore
+     */
+    public long esportaLezioni(Writer destinazione, LocalDate dal, LocalDate al, Integer idCampo)
+            throws AccademiaException {
+        return Strumentazione.misura("AccademiaService.esportaLezioni", () -> {
+            if (destinazione == null) {
+                throw new AccademiaException("La destinazione dell'esportazione non può essere nulla");
+            }
+            if (dal != null && al != null && dal.isAfter(al)) {
+                throw new AccademiaException("La data iniziale non può essere successiva a quella finale");
+            }
+            if (idCampo != null && idCampo <= 0) {
+                throw new AccademiaException("ID campo non valido");
+            }
+
+            try {
+                return lezioneDAO.esportaCsv(destinazione, dal, al, idCampo);
+            } catch (SQLException e) {
+                throw new AccademiaException("Errore durante l'esportazione delle lezioni: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Recupera una pagina di lezioni, ordinate per data e ora.
+     * 
+     * @param token      il token restituito dalla pagina precedente, null per
+     *                   la prima pagina
+     * @param dimensione il numero di lezioni per pagina
+     * @return la pagina richiesta
+     * @throws AccademiaException se il token o la dimensione non sono validi o
+     *                            in caso di errore
+     */
+    public Pagina<Lezione> getLezioni(String token, int dimensione) throws AccademiaException {
+        return Strumentazione.misura("AccademiaService.getLezioni(String, int)", () -> {
+            try {
+                return Pagina.leggi(token, dimensione, 3, chiave -> {
+                    LocalDate data = chiave != null ? LocalDate.parse(chiave[0]) : null;
+                    LocalTime oraInizio = chiave != null ? LocalTime.parse(chiave[1]) : null;
+                    Integer id = chiave != null ? Integer.valueOf(chiave[2]) : null;
+                    return limite -> lezioneDAO.getLezioniDopo(data, oraInizio, id, limite);
+                }, ultima -> new Object[] { ultima.getPrenotazione().getData(),
+                        ultima.getPrenotazione().getOraInizio(), ultima.getId() });
+
+            } catch (IllegalArgumentException e) {
+                throw new AccademiaException(e.getMessage(), e);
+            } catch (SQLException e) {
+                throw new AccademiaException("Errore durante il recupero delle lezioni: " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
@@ -188,28 +304,29 @@ public class AccademiaService {
      * @throws AccademiaException se il maestro non è valido o si verifica un errore
      */
     public List<Lezione> getLezionePerMaestro(Utente maestro) throws AccademiaException {
+        return Strumentazione.misura("AccademiaService.getLezionePerMaestro", () -> {
+            if (maestro == null) {
+                throw new AccademiaException("Il maestro non può essere null");
+            }
 
-        if (maestro == null) {
-            throw new AccademiaException("Il maestro non può essere null");
-        }
-
-        if (maestro.getId() == null) {
-            throw new AccademiaException("ID del maestro non valido");
-        }
+            if (maestro.getId() == null) {
+                throw new AccademiaException("ID del maestro non valido");
+            }
 
-        if (maestro.getRuolo() != Ruolo.MAESTRO) {
-            throw new AccademiaException("Solo i maestri possono recuperare le proprie lezioni");
-        }
+            if (maestro.getRuolo() != Ruolo.MAESTRO) {
+                throw new AccademiaException("Solo i maestri possono recuperare le proprie lezioni");
+            }
 
-        try {
-            return lezioneDAO.getLezioniByMaestro(maestro.getId());
+            try {
+                return lezioneDAO.getLezioniByMaestro(maestro.getId());
 
-        } catch (SQLException e) {
-            throw new AccademiaException(
-                    "Errore durante il recupero delle lezioni per il maestro " + maestro.getNome() + ": "
-                            + e.getMessage(),
-                    e);
-        }
+            } catch (SQLException e) {
+                throw new AccademiaException(
+                        "Errore durante il recupero delle lezioni per il maestro " + maestro.getNome() + ": "
+                                + e.getMessage(),
+                        e);
+            }
+        });
     }
 
     /**
@@ -221,21 +338,22 @@ public class AccademiaService {
      *                            errore
      */
     public Lezione getLezionePerPrenotazione(Prenotazione prenotazione) throws AccademiaException {
+        return Strumentazione.misura("AccademiaService.getLezionePerPrenotazione", () -> {
+            if (prenotazione == null) {
+                throw new AccademiaException("La prenotazione non può essere null");
+            }
 
-        if (prenotazione == null) {
-            throw new AccademiaException("La prenotazione non può essere null");
-        }
-
-        if (prenotazione.getId() == null) {
-            throw new AccademiaException("ID della prenotazione non valido");
-        }
+            if (prenotazione.getId() == null) {
+                throw new AccademiaException("ID della prenotazione non valido");
+            }
 
-        try {
-            return lezioneDAO.getLezioneByPrenotazione(prenotazione.getId());
-        } catch (SQLException e) {
-            throw new AccademiaException("Errore durante il recupero della lezione per la prenotazione "
-                    + prenotazione.getId() + ": " + e.getMessage(), e);
-        }
+            try {
+                return lezioneDAO.getLezioneByPrenotazione(prenotazione.getId());
+            } catch (SQLException e) {
+                throw new AccademiaException("Errore durante il recupero della lezione per la prenotazione "
+                        + prenotazione.getId() + ": " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
@@ -246,40 +364,42 @@ public class AccademiaService {
      * @throws AccademiaException se si verifica un errore o la lezione è piena
      */
     public void aggiungiAllievo(Integer idLezione, Utente allievo) throws AccademiaException {
-        // Validazione
-        if (idLezione == null || idLezione <= 0) {
-            throw new AccademiaException("ID della lezione non valido");
-        }
-        if (allievo == null) {
-            throw new AccademiaException("L'allievo non può essere null");
-        }
-        if (allievo.getRuolo() != Ruolo.ALLIEVO && allievo.getRuolo() != Ruolo.SOCIO) {
-            throw new AccademiaException("Solo gli allievi o i soci possono partecipare a una lezione");
-        }
-
-        try {
-            // Verifica che la lezione esista
-            Lezione lezione = lezioneDAO.getLezioneById(idLezione);
-            if (lezione == null) {
-                throw new AccademiaException("Lezione con ID " + idLezione + " non trovata");
+        Strumentazione.misura("AccademiaService.aggiungiAllievo", () -> {
+            // Validazione
+            if (idLezione == null || idLezione <= 0) {
+                throw new AccademiaException("ID della lezione non valido");
             }
-
-            // Verifica il numero massimo di allievi
-            int numeroAllievi = allievoLezioneDAO.contaAllievi(idLezione);
-            if (numeroAllievi >= MAX_ALLIEVI_PER_LEZIONE) {
-                throw new AccademiaException("La lezione ha raggiunto il numero massimo di allievi ("
-                        + MAX_ALLIEVI_PER_LEZIONE + ")");
+            if (allievo == null) {
+                throw new AccademiaException("L'allievo non può essere null");
+            }
+            if (allievo.getRuolo() != Ruolo.ALLIEVO && allievo.getRuolo() != Ruolo.SOCIO) {
+                throw new AccademiaException("Solo gli allievi o i soci possono partecipare a una lezione");
             }
 
-            // Aggiunge l'allievo
-            allievoLezioneDAO.aggiungiAllievoLezione(idLezione, allievo.getId());
-
-        } catch (SQLException e) {
-            if (e.getMessage().contains("duplicate key") || e.getMessage().contains("UNIQUE")) {
-                throw new AccademiaException("L'allievo è già iscritto a questa lezione");
+            try {
+                // Verifica che la lezione esista
+                Lezione lezione = lezioneDAO.getLezioneById(idLezione);
+                if (lezione == null) {
+                    throw new AccademiaException("Lezione con ID " + idLezione + " non trovata");
+                }
+
+                // Verifica il numero massimo di allievi
+                int numeroAllievi = allievoLezioneDAO.contaAllievi(idLezione);
+                if (numeroAllievi >= MAX_ALLIEVI_PER_LEZIONE) {
+                    throw new AccademiaException("La lezione ha raggiunto il numero massimo di allievi ("
+                            + MAX_ALLIEVI_PER_LEZIONE + ")");
+                }
+
+                // Aggiunge l'allievo
+                allievoLezioneDAO.aggiungiAllievoLezione(idLezione, allievo.getId());
+
+            } catch (SQLException e) {
+                if (e.getMessage().contains("duplicate key") || e.getMessage().contains("UNIQUE")) {
+                    throw new AccademiaException("L'allievo è già iscritto a questa lezione");
+                }
+                throw new AccademiaException("Errore durante l'aggiunta dell'allievo: " + e.getMessage(), e);
             }
-            throw new AccademiaException("Errore durante l'aggiunta dell'allievo: " + e.getMessage(), e);
-        }
+        });
     }
 
     /**
@@ -292,22 +412,24 @@ public class AccademiaService {
      *                            errore durante la rimozione
      */
     public boolean rimuoviAllievo(Integer idLezione, Integer idAllievo) throws AccademiaException {
-        if (idLezione == null || idLezione <= 0) {
-            throw new AccademiaException("ID della lezione non valido");
-        }
-        if (idAllievo == null || idAllievo <= 0) {
-            throw new AccademiaException("ID dell'allievo non valido");
-        }
+        return Strumentazione.misura("AccademiaService.rimuoviAllievo", () -> {
+            if (idLezione == null || idLezione <= 0) {
+                throw new AccademiaException("ID della lezione non valido");
+            }
+            if (idAllievo == null || idAllievo <= 0) {
+                throw new AccademiaException("ID dell'allievo non valido");
+            }
 
-        try {
-            boolean rimosso = allievoLezioneDAO.rimuoviAllievoLezione(idLezione, idAllievo);
-            if (!rimosso) {
-                throw new AccademiaException("L'allievo non è iscritto a questa lezione");
+            try {
+                boolean rimosso = allievoLezioneDAO.rimuoviAllievoLezione(idLezione, idAllievo);
+                if (!rimosso) {
+                    throw new AccademiaException("L'allievo non è iscritto a questa lezione");
+                }
+                return true;
+            } catch (SQLException e) {
+                throw new AccademiaException("Errore durante la rimozione dell'allievo: " + e.getMessage(), e);
             }
-            return true;
-        } catch (SQLException e) {
-            throw new AccademiaException("Errore durante la rimozione dell'allievo: " + e.getMessage(), e);
-        }
+        });
     }
 
     /**
@@ -320,15 +442,17 @@ public class AccademiaService {
      * @throws AccademiaException se si verifica un errore durante il recupero
      */
     public List<Utente> getAllievi(Integer idLezione) throws AccademiaException {
-        if (idLezione == null || idLezione <= 0) {
-            throw new AccademiaException("ID della lezione non valido");
-        }
+        return Strumentazione.misura("AccademiaService.getAllievi", () -> {
+            if (idLezione == null || idLezione <= 0) {
+                throw new AccademiaException("ID della lezione non valido");
+            }
 
-        try {
-            return allievoLezioneDAO.getAllieviByLezione(idLezione);
-        } catch (SQLException e) {
-            throw new AccademiaException("Errore durante il recupero degli allievi: " + e.getMessage(), e);
-        }
+            try {
+                return allievoLezioneDAO.getAllieviByLezione(idLezione);
+            } catch (SQLException e) {
+                throw new AccademiaException("Errore durante il recupero degli allievi: " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
@@ -339,15 +463,17 @@ public class AccademiaService {
      * @throws AccademiaException se l'allievo non è valido o si verifica un errore
      */
     public List<Lezione> getLezioniAllievo(Utente allievo) throws AccademiaException {
-        if (allievo == null || allievo.getId() == null) {
-            throw new AccademiaException("L'allievo non può essere null");
-        }
+        return Strumentazione.misura("AccademiaService.getLezioniAllievo", () -> {
+            if (allievo == null || allievo.getId() == null) {
+                throw new AccademiaException("L'allievo non può essere null");
+            }
 
-        try {
-            return allievoLezioneDAO.getLezioniByAllievo(allievo.getId());
-        } catch (SQLException e) {
-            throw new AccademiaException("Errore durante il recupero delle lezioni: " + e.getMessage(), e);
-        }
+            try {
+                return allievoLezioneDAO.getLezioniByAllievo(allievo.getId());
+            } catch (SQLException e) {
+                throw new AccademiaException("Errore durante il recupero delle lezioni: " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
@@ -358,15 +484,17 @@ public class AccademiaService {
      * @throws AccademiaException se si verifica un errore durante il conteggio
      */
     public int contaAllievi(Integer idLezione) throws AccademiaException {
-        if (idLezione == null || idLezione <= 0) {
-            throw new AccademiaException("ID della lezione non valido");
-        }
+        return Strumentazione.misura("AccademiaService.contaAllievi", () -> {
+            if (idLezione == null || idLezione <= 0) {
+                throw new AccademiaException("ID della lezione non valido");
+            }
 
-        try {
-            return allievoLezioneDAO.contaAllievi(idLezione);
-        } catch (SQLException e) {
-            throw new AccademiaException("Errore durante il conteggio degli allievi: " + e.getMessage(), e);
-        }
+            try {
+                return allievoLezioneDAO.contaAllievi(idLezione);
+            } catch (SQLException e) {
+                throw new AccademiaException("Errore durante il conteggio degli allievi: " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
@@ -377,7 +505,9 @@ public class AccademiaService {
      * @throws AccademiaException se si verifica un errore durante la verifica
      */
     public boolean haPostiDisponibili(Integer idLezione) throws AccademiaException {
-        return contaAllievi(idLezione) < MAX_ALLIEVI_PER_LEZIONE;
+        return Strumentazione.misura("AccademiaService.haPostiDisponibili", () -> {
+            return contaAllievi(idLezione) < MAX_ALLIEVI_PER_LEZIONE;
+        });
     }
 
     /**
@@ -391,18 +521,20 @@ public class AccademiaService {
      */
     public boolean segnaPresenza(Integer idLezione, Integer idAllievo, boolean presente)
             throws AccademiaException {
-        if (idLezione == null || idLezione <= 0) {
-            throw new AccademiaException("ID della lezione non valido");
-        }
-        if (idAllievo == null || idAllievo <= 0) {
-            throw new AccademiaException("ID dell'allievo non valido");
-        }
+        return Strumentazione.misura("AccademiaService.segnaPresenza", () -> {
+            if (idLezione == null || idLezione <= 0) {
+                throw new AccademiaException("ID della lezione non valido");
+            }
+            if (idAllievo == null || idAllievo <= 0) {
+                throw new AccademiaException("ID dell'allievo non valido");
+            }
 
-        try {
-            return allievoLezioneDAO.segnaPresenza(idLezione, idAllievo, presente);
-        } catch (SQLException e) {
-            throw new AccademiaException("Errore durante la segnatura della presenza: " + e.getMessage(), e);
-        }
+            try {
+                return allievoLezioneDAO.segnaPresenza(idLezione, idAllievo, presente);
+            } catch (SQLException e) {
+                throw new AccademiaException("Errore durante la segnatura della presenza: " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
@@ -416,18 +548,20 @@ public class AccademiaService {
      */
     public boolean aggiungiFeedback(Integer idLezione, Integer idAllievo, String feedback)
             throws AccademiaException {
-        if (idLezione == null || idLezione <= 0) {
-            throw new AccademiaException("ID della lezione non valido");
-        }
-        if (idAllievo == null || idAllievo <= 0) {
-            throw new AccademiaException("ID dell'allievo non valido");
-        }
+        return Strumentazione.misura("AccademiaService.aggiungiFeedback", () -> {
+            if (idLezione == null || idLezione <= 0) {
+                throw new AccademiaException("ID della lezione non valido");
+            }
+            if (idAllievo == null || idAllievo <= 0) {
+                throw new AccademiaException("ID dell'allievo non valido");
+            }
 
-        try {
-            return allievoLezioneDAO.aggiungiFeedback(idLezione, idAllievo, feedback);
-        } catch (SQLException e) {
-            throw new AccademiaException("Errore durante l'aggiunta del feedback: " + e.getMessage(), e);
-        }
+            try {
+                return allievoLezioneDAO.aggiungiFeedback(idLezione, idAllievo, feedback);
+            } catch (SQLException e) {
+                throw new AccademiaException("Errore durante l'aggiunta del feedback: " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
@@ -441,18 +575,20 @@ public class AccademiaService {
      */
     public AllievoLezione getAllievoLezione(Integer idLezione, Integer idAllievo)
             throws AccademiaException {
-        if (idLezione == null || idLezione <= 0) {
-            throw new AccademiaException("ID della lezione non valido");
-        }
-        if (idAllievo == null || idAllievo <= 0) {
-            throw new AccademiaException("ID dell'allievo non valido");
-        }
+        return Strumentazione.misura("AccademiaService.getAllievoLezione", () -> {
+            if (idLezione == null || idLezione <= 0) {
+                throw new AccademiaException("ID della lezione non valido");
+            }
+            if (idAllievo == null || idAllievo <= 0) {
+                throw new AccademiaException("ID dell'allievo non valido");
+            }
 
-        try {
-            return allievoLezioneDAO.getAllievoLezione(idLezione, idAllievo);
-        } catch (SQLException e) {
-            throw new AccademiaException("Errore durante il recupero dei dettagli: " + e.getMessage(), e);
-        }
+            try {
+                return allievoLezioneDAO.getAllievoLezione(idLezione, idAllievo);
+            } catch (SQLException e) {
+                throw new AccademiaException("Errore durante il recupero dei dettagli: " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
@@ -464,11 +600,13 @@ public class AccademiaService {
      * @throws AccademiaException se si verifica un errore durante il recupero
      */
     public List<Utente> getUtentiAllievi() throws AccademiaException {
-        try {
-            return utenteDAO.getUtentiByRuolo(Ruolo.ALLIEVO);
-        } catch (SQLException e) {
-            throw new AccademiaException("Errore durante il recupero degli allievi: " + e.getMessage(), e);
-        }
+        return Strumentazione.misura("AccademiaService.getUtentiAllievi", () -> {
+            try {
+                return utenteDAO.getUtentiByRuolo(Ruolo.ALLIEVO);
+            } catch (SQLException e) {
+                throw new AccademiaException("Errore durante il recupero degli allievi: " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
@@ -480,18 +618,20 @@ public class AccademiaService {
      * @throws AccademiaException se l'utente non esiste o si verifica un errore
      */
     public Utente getUtentePerId(Integer idUtente) throws AccademiaException {
-        if (idUtente == null || idUtente <= 0) {
-            throw new AccademiaException("ID dell'utente non valido");
-        }
+        return Strumentazione.misura("AccademiaService.getUtentePerId", () -> {
+            if (idUtente == null || idUtente <= 0) {
+                throw new AccademiaException("ID dell'utente non valido");
+            }
 
-        try {
-            Utente utente = utenteDAO.getUtenteById(idUtente);
-            if (utente == null) {
-                throw new AccademiaException("Utente con ID " + idUtente + " non trovato");
+            try {
+                Utente utente = utenteCache.getUtenteById(idUtente);
+                if (utente == null) {
+                    throw new AccademiaException("Utente con ID " + idUtente + " non trovato");
+                }
+                return utente;
+            } catch (SQLException e) {
+                throw new AccademiaException("Errore durante il recupero dell'utente: " + e.getMessage(), e);
             }
-            return utente;
-        } catch (SQLException e) {
-            throw new AccademiaException("Errore durante il recupero dell'utente: " + e.getMessage(), e);
-        }
+        });
     }
 }
@@ -2,8 +2,12 @@ package it.tennis_club.business_logic;
 
 import it.tennis_club.domain_model.Utente;
 import it.tennis_club.domain_model.Utente.Ruolo;
+import it.tennis_club.orm.EsitoImportazione;
+import it.tennis_club.orm.Log;
+import it.tennis_club.orm.Strumentazione;
 import it.tennis_club.orm.UtenteDAO;
 
+import java.io.Reader;
 import java.sql.SQLException;
 
 /**
@@ -15,6 +19,8 @@ import java.sql.SQLException;
  */
 public class AuthService {
 
+    private static final Log LOG = Log.get(AuthService.class);
+
     private final UtenteDAO utenteDAO;
 
     /**
@@ -43,7 +49,9 @@ public class AuthService {
      *                                 errore
      */
     public Integer registrazione(Utente nuovoUtente) throws AuthenticationException {
-        return registrazione(nuovoUtente, true);
+        return Strumentazione.misura("AuthService.registrazione", () -> {
+            return registrazione(nuovoUtente, true);
+        });
     }
 
     /**
@@ -57,7 +65,9 @@ public class AuthService {
      *                                 errore
      */
     public Integer registrazioneSenzaSessione(Utente nuovoUtente) throws AuthenticationException {
-        return registrazione(nuovoUtente, false);
+        return Strumentazione.misura("AuthService.registrazioneSenzaSessione", () -> {
+            return registrazione(nuovoUtente, false);
+        });
     }
 
     /**
@@ -100,12 +110,10 @@ public class AuthService {
             // Crea la sessione solo se richiesto
             if (creaSessione) {
                 SessionManager sessionManager = SessionManager.getInstance();
-                String sessionId = sessionManager.createSession(nuovoUtente);
-                System.out.println("Registrazione completata per: " + nuovoUtente.getEmail() +
-                        " (ID: " + idGenerato + ", Session ID: " + sessionId + ")");
+                sessionManager.createSession(nuovoUtente);
+                LOG.info("Registrazione completata", "email", nuovoUtente.getEmail(), "idUtente", idGenerato);
             } else {
-                System.out.println("Utente creato: " + nuovoUtente.getEmail() +
-                        " (ID: " + idGenerato + ") - senza sessione");
+                LOG.info("Utente creato senza sessione", "email", nuovoUtente.getEmail(), "idUtente", idGenerato);
             }
 
             return idGenerato;
@@ -130,18 +138,8 @@ public class AuthService {
      *                                 l'autenticazione
      */
     public Utente login(String email, String password) throws AuthenticationException {
-        // Validazione input
-        if (email == null || email.trim().isEmpty()) {
-            throw new AuthenticationException("L'email non può essere vuota");
-        }
-
-        if (password == null || password.trim().isEmpty()) {
-            throw new AuthenticationException("La password non può essere vuota");
-        }
-
-        try {
-            // Delega al DAO la ricerca dell'utente
-            Utente utente = utenteDAO.login(email.trim(), password);
+        return Strumentazione.misura("AuthService.login", () -> {
+            Utente utente = verificaCredenziali(email, password);
 
             if (utente == null) {
                 // Credenziali non valide
@@ -150,18 +148,86 @@ public class AuthService {
 
             // Crea una sessione per l'utente autenticato
             SessionManager sessionManager = SessionManager.getInstance();
-            String sessionId = sessionManager.createSession(utente);
+            sessionManager.createSession(utente);
 
-            // Log dell'accesso
-            System.out.println();
-            System.out.println("Sessione creata per utente: " + utente.getEmail() +
-                    " (Session ID: " + sessionId + ")");
+            // Log dell'accesso (senza l'ID della sessione)
+            LOG.info("Sessione creata", "email", utente.getEmail(), "idUtente", utente.getId());
 
             return utente;
+        });
+    }
+
+    /**
+     * Autentica un utente e apre per lui una sessione che non diventa quella
+     * corrente, da usare nei client che presentano l'ID di sessione a ogni
+     * richiesta (ad es. l'API HTTP, con molti utenti collegati insieme).
+     * 
+     * @param email    l'email dell'utente
+     * @param password la password dell'utente
+     * @return l'ID della sessione creata, null se le credenziali non sono
+     *         valide
+     * @throws AuthenticationException se si verifica un errore durante
+     *                                 l'autenticazione
+     */
+    public String apriSessione(String email, String password) throws AuthenticationException {
+        return Strumentazione.misura("AuthService.apriSessione", () -> {
+            Utente utente = verificaCredenziali(email, password);
+            if (utente == null) {
+                return null;
+            }
+            return SessionManager.getInstance().createSession(utente, false);
+        });
+    }
+
+    /**
+     * Chiude una sessione aperta con {@link #apriSessione(String, String)}.
+     * 
+     * @param sessionId l'ID della sessione
+     * @return true se la sessione esisteva ed è stata chiusa
+     */
+    public boolean chiudiSessione(String sessionId) {
+        return Strumentazione.misura("AuthService.chiudiSessione", () -> {
+            return SessionManager.getInstance().invalidateSession(sessionId);
+        });
+    }
+
+    /**
+     * Verifica le credenziali senza creare sessioni. Ogni tentativo viene
+     * registrato come {@link EventoLogin} di Java Flight Recorder.
+     * 
+     * @return l'utente se le credenziali sono valide, null altrimenti
+     */
+    private Utente verificaCredenziali(String email, String password) throws AuthenticationException {
+        EventoLogin evento = new EventoLogin();
+        evento.begin();
+        try {
+            // Validazione input
+            if (email == null || email.trim().isEmpty()) {
+                throw new AuthenticationException("L'email non può essere vuota");
+            }
+
+            if (password == null || password.trim().isEmpty()) {
+                throw new AuthenticationException("La password non può essere vuota");
+            }
+
+            // Delega al DAO la ricerca dell'utente
+            Utente utente = utenteDAO.login(email.trim(), password);
+            if (utente != null) {
+                evento.riuscito = true;
+                evento.idUtente = utente.getId() != null ? utente.getId() : 0;
+                evento.ruolo = utente.getRuolo() != null ? utente.getRuolo().name() : null;
+            }
+            return utente;
 
         } catch (SQLException e) {
+            evento.errore = e.getMessage();
             // Trasforma l'eccezione SQL in un'eccezione di business
             throw new AuthenticationException("Errore durante l'autenticazione: " + e.getMessage(), e);
+        } catch (AuthenticationException e) {
+            evento.errore = e.getMessage();
+            throw e;
+        } finally {
+            evento.commit();
         }
     }
 
@@ -197,21 +263,21 @@ public class AuthService {
      * @return true se il logout è stato effettuato con successo, false altrimenti
      */
     public boolean logout(Utente utente) {
-        if (utente == null) {
-            return false;
-        }
-
-        // Invalida la sessione corrente
-        SessionManager sessionManager = SessionManager.getInstance();
-        boolean success = sessionManager.logout();
+        return Strumentazione.misura("AuthService.logout", () -> {
+            if (utente == null) {
+                return false;
+            }
 
-        if (success) {
-            System.out.println("\n" + "Logout effettuato per: " + utente.getEmail());
-            System.out.println();
+            // Invalida la sessione corrente
+            SessionManager sessionManager = SessionManager.getInstance();
+            boolean success = sessionManager.logout();
 
-        }
+            if (success) {
+                LOG.info("Logout effettuato", "email", utente.getEmail());
+            }
 
-        return success;
+            return success;
+        });
     }
 
     /**
@@ -224,23 +290,78 @@ public class AuthService {
      *                                 l'eliminazione
      */
     public boolean eliminaUtente(Integer id) throws AuthenticationException {
+        return Strumentazione.misura("AuthService.eliminaUtente", () -> {
+            if (id == null) {
+                throw new AuthenticationException("L'ID dell'utente non può essere vuoto");
+            }
 
-        if (id == null) {
-            throw new AuthenticationException("L'ID dell'utente non può essere vuoto");
-        }
+            try {
 
-        try {
+                boolean success = utenteDAO.deleteUtente(id);
+                if (success) {
+                    LOG.info("Cancellazione effettuata", "idUtente", id);
+                }
 
-            boolean success = utenteDAO.deleteUtente(id);
-            if (success) {
-                System.out.println("Cancellazione effettuata per l'utente con ID: " + id);
+                return success;
+            } catch (SQLException e) {
+                throw new AuthenticationException("Errore durante la cancellazione dell'utente " + e.getMessage(), e);
+            }
 
+        });
+    }
+
+    /**
+     * Recupera una pagina di utenti, ordinati per ID. La password non viene
+     * letta.
+     * 
+     * @param token      il token restituito dalla pagina precedente, null per
+     *                   la prima pagina
+     * @param dimensione il numero di utenti per pagina
+     * @return la pagina richiesta
+     * @throws AuthenticationException se il token o la dimensione non sono
+     *                                 validi o in caso di errore
+     */
+    public Pagina<Utente> getUtenti(String token, int dimensione) throws AuthenticationException {
+        return Strumentazione.misura("AuthService.getUtenti", () -> {
+            try {
+                return Pagina.leggi(token, dimensione, 1, chiave -> {
+                    Integer id = chiave != null ? Integer.valueOf(chiave[0]) : null;
+                    return limite -> utenteDAO.getUtentiDopo(id, limite);
+                }, ultimo -> new Object[] { ultimo.getId() });
+
+            } catch (IllegalArgumentException e) {
+                throw new AuthenticationException(e.getMessage(), e);
+            } catch (SQLException e) {
+                throw new AuthenticationException("Errore durante il recupero degli utenti: " + e.getMessage(), e);
             }
+        });
+    }
 
-            return success;
-        } catch (SQLException e) {
-            throw new AuthenticationException("Errore durante la cancellazione dell'utente " + e.getMessage(), e);
-        }
+    /**
+     * Importa in blocco gli utenti di un file CSV (intestazione e colonne
+     * nome, cognome, email, password, ruolo), ad esempio all'inizio della
+     * stagione. Le righe non valide vengono scartate e riportate nell'esito.
+     * 
+     * @param csv il contenuto del file CSV
+     * @return il numero di utenti importati e le righe scartate
+     * @throws AuthenticationException se il CSV è malformato o si verifica un
+     *                                 errore
+     */
+    public EsitoImportazione importaUtenti(Reader csv) throws AuthenticationException {
+        return Strumentazione.misura("AuthService.importaUtenti", () -> {
+            if (csv == null) {
+                throw new AuthenticationException("Il file da importare non può essere nullo");
+            }
 
+            try {
+                EsitoImportazione esito = utenteDAO.importaUtenti(csv);
+                LOG.info("Importazione completata", "importati", esito.getImportati(), "scartate",
+                        esito.getErrori().size());
+                return esito;
+
+            } catch (SQLException e) {
+                throw new AuthenticationException("Errore durante l'importazione degli utenti: " + e.getMessage(), e);
+            }
+        });
     }
 }
@@ -3,15 +3,23 @@ package it.tennis_club.business_logic;
 import it.tennis_club.domain_model.Campo;
 import it.tennis_club.domain_model.Manutenzione;
 import it.tennis_club.domain_model.Manutenzione.Stato;
+import it.tennis_club.domain_model.Notifica;
 import it.tennis_club.domain_model.Prenotazione;
 import it.tennis_club.domain_model.Utente;
 import it.tennis_club.domain_model.Utente.Ruolo;
-import it.tennis_club.orm.CampoDAO;
+import it.tennis_club.orm.CampoCache;
+import it.tennis_club.orm.ConnectionManager;
 import it.tennis_club.orm.ManutenzioneDAO;
+import it.tennis_club.orm.OccupancyIndex;
 import it.tennis_club.orm.PrenotazioneDAO;
+import it.tennis_club.orm.Strumentazione;
 
+import java.io.Writer;
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -20,16 +28,18 @@ import java.util.List;
  */
 public class CampoService {
 
-    private CampoDAO campoDAO;
+    private CampoCache campoCache;
     private ManutenzioneDAO manutenzioneDAO;
     private PrenotazioneDAO prenotazioneDAO;
     private NotificationService notificationService;
+    private OccupancyIndex occupancyIndex;
 
     public CampoService() {
-        this.campoDAO = new CampoDAO();
+        this.campoCache = CampoCache.getInstance();
         this.manutenzioneDAO = new ManutenzioneDAO();
         this.prenotazioneDAO = new PrenotazioneDAO();
         this.notificationService = NotificationService.getInstance();
+        this.occupancyIndex = OccupancyIndex.getInstance();
     }
 
     // ========== OPERAZIONI PUBBLICHE (accessibili a tutti) ==========
@@ -41,11 +51,13 @@ public class CampoService {
      * @throws CampoException se si verifica un errore durante il recupero
      */
     public List<Campo> getCampi() throws CampoException {
-        try {
-            return campoDAO.getAllCampi();
-        } catch (SQLException e) {
-            throw new CampoException("Errore durante il recupero dei campi: " + e.getMessage(), e);
-        }
+        return Strumentazione.misura("CampoService.getCampi", () -> {
+            try {
+                return campoCache.getAllCampi();
+            } catch (SQLException e) {
+                throw new CampoException("Errore durante il recupero dei campi: " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
@@ -56,19 +68,21 @@ public class CampoService {
      * @throws CampoException se il campo non esiste o si verifica un errore
      */
     public Campo getCampoPerId(Integer idCampo) throws CampoException {
-        if (idCampo == null || idCampo <= 0) {
-            throw new CampoException("ID campo non valido");
-        }
+        return Strumentazione.misura("CampoService.getCampoPerId", () -> {
+            if (idCampo == null || idCampo <= 0) {
+                throw new CampoException("ID campo non valido");
+            }
 
-        try {
-            Campo campo = campoDAO.getCampoById(idCampo);
-            if (campo == null) {
-                throw new CampoException("Campo con ID " + idCampo + " non trovato");
+            try {
+                Campo campo = campoCache.getCampoById(idCampo);
+                if (campo == null) {
+                    throw new CampoException("Campo con ID " + idCampo + " non trovato");
+                }
+                return campo;
+            } catch (SQLException e) {
+                throw new CampoException("Errore durante il recupero del campo: " + e.getMessage(), e);
             }
-            return campo;
-        } catch (SQLException e) {
-            throw new CampoException("Errore durante il recupero del campo: " + e.getMessage(), e);
-        }
+        });
     }
 
     /**
@@ -78,11 +92,13 @@ public class CampoService {
      * @throws CampoException se si verifica un errore durante il recupero
      */
     public List<Campo> getCampiCoperti() throws CampoException {
-        try {
-            return campoDAO.getCampiCoperti();
-        } catch (SQLException e) {
-            throw new CampoException("Errore durante il recupero dei campi coperti: " + e.getMessage(), e);
-        }
+        return Strumentazione.misura("CampoService.getCampiCoperti", () -> {
+            try {
+                return campoCache.getCampiCoperti();
+            } catch (SQLException e) {
+                throw new CampoException("Errore durante il recupero dei campi coperti: " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
@@ -93,15 +109,17 @@ public class CampoService {
      * @throws CampoException se si verifica un errore durante il recupero
      */
     public List<Campo> getCampiPerTipoSuperficie(String tipoSuperficie) throws CampoException {
-        if (tipoSuperficie == null || tipoSuperficie.trim().isEmpty()) {
-            throw new CampoException("Tipo superficie non valido");
-        }
+        return Strumentazione.misura("CampoService.getCampiPerTipoSuperficie", () -> {
+            if (tipoSuperficie == null || tipoSuperficie.trim().isEmpty()) {
+                throw new CampoException("Tipo superficie non valido");
+            }
 
-        try {
-            return campoDAO.getCampiByTipoSuperficie(tipoSuperficie);
-        } catch (SQLException e) {
-            throw new CampoException("Errore durante il recupero dei campi: " + e.getMessage(), e);
-        }
+            try {
+                return campoCache.getCampiByTipoSuperficie(tipoSuperficie);
+            } catch (SQLException e) {
+                throw new CampoException("Errore durante il recupero dei campi: " + e.getMessage(), e);
+            }
+        });
     }
 
     // ========== OPERAZIONI RISERVATE (solo ADMIN e MANUTENTORE) ==========
@@ -119,64 +137,74 @@ public class CampoService {
      */
     public Integer creaManutenzione(Utente utente, Integer idCampo, LocalDate dataInizio, String descrizione)
             throws CampoException {
-
-        // Controllo permessi
-        verificaPermessiManutenzione(utente);
-
-        // Validazione input
-        if (idCampo == null || idCampo <= 0) {
-            throw new CampoException("ID campo non valido");
-        }
-
-        if (dataInizio == null) {
-            throw new CampoException("Data inizio non può essere null");
-        }
-
-        // Validazione: la manutenzione non può essere programmata nel passato
-        if (dataInizio.isBefore(LocalDate.now())) {
-            throw new CampoException("Non è possibile programmare una manutenzione per una data passata");
-        }
-
-        if (descrizione == null || descrizione.trim().isEmpty()) {
-            throw new CampoException("Descrizione manutenzione obbligatoria");
-        }
-
+        EventoManutenzione evento = new EventoManutenzione();
+        evento.begin();
+        evento.idCampo = idCampo != null ? idCampo : 0;
+        evento.idUtente = utente != null && utente.getId() != null ? utente.getId() : 0;
         try {
-            // Verifica che il campo esista
-            Campo campo = campoDAO.getCampoById(idCampo);
-            if (campo == null) {
-                throw new CampoException("Campo con ID " + idCampo + " non trovato");
-            }
-
-            // Elimina tutte le prenotazioni esistenti per quel campo e data
-            // Le lezioni associate verranno eliminate automaticamente via CASCADE
-            List<Prenotazione> prenotazioniDaEliminare = prenotazioneDAO.getPrenotazioniByDataAndCampo(
-                    dataInizio, idCampo);
-
-            for (Prenotazione prenotazione : prenotazioniDaEliminare) {
-                // Notifica l'utente che la sua prenotazione è stata cancellata
-                String messaggio = String.format(
-                        "La tua prenotazione del %s sul %s è stata cancellata " +
-                                "a causa di una manutenzione programmata.",
-                        prenotazione.getData(), campo.getNome());
-                notificationService.addNotification(prenotazione.getSocio().getId(), messaggio);
-
-                // Elimina la prenotazione (le lezioni vengono eliminate in cascade)
-                prenotazioneDAO.deletePrenotazione(prenotazione.getId());
-            }
-
-            // Crea la manutenzione
-            Manutenzione manutenzione = new Manutenzione();
-            manutenzione.setCampo(campo);
-            manutenzione.setManutentore(utente);
-            manutenzione.setDataInizio(dataInizio);
-            manutenzione.setDescrizione(descrizione);
-            manutenzione.setStato(Stato.IN_CORSO);
-
-            return manutenzioneDAO.createManutenzione(manutenzione);
-
-        } catch (SQLException e) {
-            throw new CampoException("Errore durante la creazione della manutenzione: " + e.getMessage(), e);
+            return Strumentazione.misura("CampoService.creaManutenzione", () -> {
+                // Controllo permessi
+                verificaPermessiManutenzione(utente);
+
+                // Validazione input
+                if (idCampo == null || idCampo <= 0) {
+                    throw new CampoException("ID campo non valido");
+                }
+
+                if (dataInizio == null) {
+                    throw new CampoException("Data inizio non può essere null");
+                }
+
+                // Validazione: la manutenzione non può essere programmata nel passato
+                if (dataInizio.isBefore(LocalDate.now())) {
+                    throw new CampoException("Non è possibile programmare una manutenzione per una data passata");
+                }
+
+                if (descrizione == null || descrizione.trim().isEmpty()) {
+                    throw new CampoException("Descrizione manutenzione obbligatoria");
+                }
+
+                try {
+                    // Verifica che il campo esista
+                    Campo campo = campoCache.getCampoById(idCampo);
+                    if (campo == null) {
+                        throw new CampoException("Campo con ID " + idCampo + " non trovato");
+                    }
+
+                    // Crea la manutenzione
+                    Manutenzione manutenzione = new Manutenzione();
+                    manutenzione.setCampo(campo);
+                    manutenzione.setManutentore(utente);
+                    manutenzione.setDataInizio(dataInizio);
+                    manutenzione.setDescrizione(descrizione);
+                    manutenzione.setStato(Stato.IN_CORSO);
+
+                    // Manutenzione, cancellazione delle prenotazioni di quel giorno e
+                    // notifiche ai soci in un'unica transazione; le lezioni associate
+                    // vengono eliminate dal trigger trg_prenotazione_lezione
+                    List<Prenotazione> cancellate = new ArrayList<>();
+                    List<Notifica> notifiche = new ArrayList<>();
+                    Integer idManutenzione = ConnectionManager.inTransaction(connection -> {
+                        Integer id = manutenzioneDAO.createManutenzione(connection, manutenzione);
+                        cancellate.addAll(prenotazioneDAO.deletePrenotazioniByCampoAndDateRange(connection, idCampo,
+                                dataInizio, dataInizio));
+                        notifiche.addAll(scriviNotificheCancellazione(connection, cancellate, campo));
+                        return id;
+                    });
+
+                    evento.idManutenzione = idManutenzione != null ? idManutenzione : 0;
+                    confermaCancellazioni(cancellate, campo, notifiche);
+                    return idManutenzione;
+
+                } catch (SQLException e) {
+                    throw new CampoException("Errore durante la creazione della manutenzione: " + e.getMessage(), e);
+                }
+            });
+        } catch (Throwable e) {
+            evento.errore = e.getMessage();
+            throw e;
+        } finally {
+            evento.commit();
         }
     }
 
@@ -191,51 +219,50 @@ public class CampoService {
      */
     public void completaManutenzione(Utente utente, Integer idManutenzione, LocalDate dataFine)
             throws CampoException {
+        Strumentazione.misura("CampoService.completaManutenzione", () -> {
+            // Controllo permessi
+            verificaPermessiManutenzione(utente);
 
-        // Controllo permessi
-        verificaPermessiManutenzione(utente);
-
-        // Validazione input
-        if (idManutenzione == null || idManutenzione <= 0) {
-            throw new CampoException("ID manutenzione non valido");
-        }
-
-        if (dataFine == null) {
-            throw new CampoException("Data fine non può essere null");
-        }
-
-        if (dataFine.isBefore(LocalDate.now())) {
-            throw new CampoException("La data di fine manutenzione non può essere passata");
-        }
-
-        try {
-            if (manutenzioneDAO.getManutenzioneById(idManutenzione) == null) {
-                throw new CampoException("Manutenzione con ID " + idManutenzione + " non trovata");
+            // Validazione input
+            if (idManutenzione == null || idManutenzione <= 0) {
+                throw new CampoException("ID manutenzione non valido");
             }
-            manutenzioneDAO.completaManutenzione(idManutenzione, dataFine);
 
-            Manutenzione manutenzione = manutenzioneDAO.getManutenzioneById(idManutenzione);
-
-            // Elimina tutte le prenotazioni esistenti per quel campo nel range [dataInizio,
-            // dataFine]
-            List<Prenotazione> prenotazioniDaEliminare = prenotazioneDAO.getPrenotazioniByDateRangeAndCampo(
-                    manutenzione.getDataInizio(), manutenzione.getDataFine(), manutenzione.getCampo().getId());
-
-            for (Prenotazione prenotazione : prenotazioniDaEliminare) {
-                // Notifica l'utente che la sua prenotazione è stata cancellata
-                String messaggio = String.format(
-                        "La tua prenotazione del %s sul %s è stata cancellata " +
-                                "a causa di una manutenzione programmata.",
-                        prenotazione.getData(), manutenzione.getCampo().getNome());
-                notificationService.addNotification(prenotazione.getSocio().getId(), messaggio);
+            if (dataFine == null) {
+                throw new CampoException("Data fine non può essere null");
+            }
 
-                // Elimina la prenotazione (le lezioni associate vengono eliminate in CASCADE)
-                prenotazioneDAO.deletePrenotazione(prenotazione.getId());
+            if (dataFine.isBefore(LocalDate.now())) {
+                throw new CampoException("La data di fine manutenzione non può essere passata");
             }
 
-        } catch (SQLException e) {
-            throw new CampoException("Errore durante il completamento della manutenzione: " + e.getMessage(), e);
-        }
+            try {
+                // Completamento ed eliminazione delle prenotazioni nel range
+                // [dataInizio, dataFine] in un'unica transazione; le lezioni
+                // associate vengono eliminate dal trigger trg_prenotazione_lezione
+                List<Prenotazione> cancellate = new ArrayList<>();
+                List<Notifica> notifiche = new ArrayList<>();
+                Manutenzione manutenzione = ConnectionManager.inTransaction(connection -> {
+                    Manutenzione completata = manutenzioneDAO.completaManutenzione(connection, idManutenzione,
+                            dataFine);
+                    if (completata != null) {
+                        cancellate.addAll(prenotazioneDAO.deletePrenotazioniByCampoAndDateRange(connection,
+                                completata.getCampo().getId(), completata.getDataInizio(), completata.getDataFine()));
+                        notifiche.addAll(scriviNotificheCancellazione(connection, cancellate, completata.getCampo()));
+                    }
+                    return completata;
+                });
+
+                if (manutenzione == null) {
+                    throw new CampoException("Manutenzione con ID " + idManutenzione + " non trovata");
+                }
+
+                confermaCancellazioni(cancellate, manutenzione.getCampo(), notifiche);
+
+            } catch (SQLException e) {
+                throw new CampoException("Errore durante il completamento della manutenzione: " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
@@ -247,25 +274,26 @@ public class CampoService {
      * @throws CampoException se l'utente non ha i permessi o si verifica un errore
      */
     public void annullaManutenzione(Utente utente, Integer idManutenzione) throws CampoException {
+        Strumentazione.misura("CampoService.annullaManutenzione", () -> {
+            // Controllo permessi
+            verificaPermessiManutenzione(utente);
 
-        // Controllo permessi
-        verificaPermessiManutenzione(utente);
+            // Validazione input
+            if (idManutenzione == null || idManutenzione <= 0) {
+                throw new CampoException("ID manutenzione non valido");
+            }
 
-        // Validazione input
-        if (idManutenzione == null || idManutenzione <= 0) {
-            throw new CampoException("ID manutenzione non valido");
-        }
+            try {
 
-        try {
+                if (manutenzioneDAO.getManutenzioneById(idManutenzione) == null) {
+                    throw new CampoException("Manutenzione con ID " + idManutenzione + " non trovata");
+                }
 
-            if (manutenzioneDAO.getManutenzioneById(idManutenzione) == null) {
-                throw new CampoException("Manutenzione con ID " + idManutenzione + " non trovata");
+                manutenzioneDAO.updateStatoManutenzione(idManutenzione, Stato.ANNULLATA);
+            } catch (SQLException e) {
+                throw new CampoException("Errore durante l'annullamento della manutenzione: " + e.getMessage(), e);
             }
-
-            manutenzioneDAO.updateStatoManutenzione(idManutenzione, Stato.ANNULLATA);
-        } catch (SQLException e) {
-            throw new CampoException("Errore durante l'annullamento della manutenzione: " + e.getMessage(), e);
-        }
+        });
     }
 
     /**
@@ -278,28 +306,104 @@ public class CampoService {
      * @throws CampoException se l'utente non ha i permessi o si verifica un errore
      */
     public List<Manutenzione> getManutenzioniPerCampo(Utente utente, Integer idCampo) throws CampoException {
+        return Strumentazione.misura("CampoService.getManutenzioniPerCampo", () -> {
+            // Controllo permessi
+            verificaPermessiManutenzione(utente);
 
-        // Controllo permessi
-        verificaPermessiManutenzione(utente);
+            // Validazione input
+            if (idCampo == null || idCampo <= 0) {
+                throw new CampoException("ID campo non valido");
+            }
 
-        // Validazione input
-        if (idCampo == null || idCampo <= 0) {
-            throw new CampoException("ID campo non valido");
-        }
+            try {
+                return manutenzioneDAO.getManutenzioniByCampo(idCampo);
+            } catch (SQLException e) {
+                throw new CampoException("Errore durante il recupero delle manutenzioni: " + e.getMessage(), e);
+            }
+        });
+    }
 
-        try {
-            return manutenzioneDAO.getManutenzioniByCampo(idCampo);
-        } catch (SQLException e) {
-            throw new CampoException("Errore durante il recupero delle manutenzioni: " + e.getMessage(), e);
+    public List<Manutenzione> getAllManutenzioni() throws CampoException {
+        return Strumentazione.misura("CampoService.getAllManutenzioni", () -> {
+            try {
+                return manutenzioneDAO.getAllManutenzioni();
+            } catch (SQLException e) {
+                throw new CampoException("Errore durante il recupero delle manutenzioni: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Esporta in CSV le manutenzioni con campo e manutentore, scrivendo le
+     * righe man mano che arrivano dal database: la memoria usata non dipende
+     * dal numero di righe.
+     * 
+     * @param destinazione il Writer su cui scrivere il CSV
+     * @param dal          la data iniziale inclusa, null per nessun limite
+     * @param al           la data finale inclusa, null per nessun limite
+     * @param idCampo      l'ID del campo, null per tutti i campi
+     * @return il numero di righe esportate
+     * @throws CampoException se i filtri non sono validi o in caso di errore
+     */
+    public long esportaManutenzioni(Writer destinazione, LocalDate dal, LocalDate al, Integer idCampo)
+            throws CampoException {
+        return Strumentazione.misura("CampoService.esportaManutenzioni", () -> {
+            if (destinazione == null) {
+                throw new CampoException("La destinazione dell'esportazione non può essere nulla");
+            }
+            if (dal != null && al != null && dal.isAfter(al)) {
+                throw new CampoException("La data iniziale non può essere successiva a quella finale");
+            }
+            if (idCampo != null && idCampo <= 0) {
+                throw new CampoException("ID campo non valido");
+            }
+
+            try {
+                return manutenzioneDAO.esportaCsv(destinazione, dal, al, idCampo);
+            } catch (SQLException e) {
+                throw new CampoException("Errore durante l'esportazione delle manutenzioni: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Metodo helper che, all'interno della transazione che cancella le
+     * prenotazioni per una manutenzione, scrive le notifiche ai soci
+     * interessati: le notifiche vengono salvate solo se le cancellazioni
+     * vengono confermate.
+     * 
+     * @param connection la connessione della transazione
+     * @param cancellate le prenotazioni eliminate
+     * @param campo      il campo in manutenzione
+     * @return le notifiche scritte
+     * @throws SQLException se la scrittura fallisce
+     */
+    private List<Notifica> scriviNotificheCancellazione(Connection connection, List<Prenotazione> cancellate,
+            Campo campo) throws SQLException {
+        List<Notifica> notifiche = new ArrayList<>(cancellate.size());
+        LocalDateTime adesso = LocalDateTime.now();
+        for (Prenotazione prenotazione : cancellate) {
+            notifiche.add(new Notifica(prenotazione.getSocio().getId(),
+                    MessaggiNotifica.prenotazioneCancellataPerManutenzione(prenotazione, campo), adesso));
         }
+        notificationService.inserisci(connection, notifiche);
+        return notifiche;
     }
 
-    public List<Manutenzione> getAllManutenzioni() throws CampoException {
-        try {
-            return manutenzioneDAO.getAllManutenzioni();
-        } catch (SQLException e) {
-            throw new CampoException("Errore durante il recupero delle manutenzioni: " + e.getMessage(), e);
+    /**
+     * Metodo helper che, dopo il commit, libera gli orari delle prenotazioni
+     * cancellate per una manutenzione e rende visibili le notifiche ai soci
+     * interessati, senza attenderne la consegna.
+     * 
+     * @param cancellate le prenotazioni eliminate
+     * @param campo      il campo in manutenzione
+     * @param notifiche  le notifiche scritte nella transazione
+     */
+    private void confermaCancellazioni(List<Prenotazione> cancellate, Campo campo, List<Notifica> notifiche) {
+        for (Prenotazione prenotazione : cancellate) {
+            occupancyIndex.libera(campo.getId(), prenotazione.getData(), prenotazione.getOraInizio());
         }
+        notificationService.confermaInserite(notifiche);
     }
 
     /**
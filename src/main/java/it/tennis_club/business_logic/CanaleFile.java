@@ -0,0 +1,60 @@
+package it.tennis_club.business_logic;
+
+import it.tennis_club.domain_model.Notifica;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Canale che aggiunge ogni notifica come riga di un file di testo: ID
+ * notifica, ID utente, data di creazione e messaggio, separati da
+ * tabulazioni. Le notifiche consegnate più volte compaiono con lo stesso ID.
+ */
+public class CanaleFile implements CanaleNotifiche {
+
+    private final Path file;
+
+    // ReentrantLock e non synchronized: le consegne avvengono su virtual
+    // thread e uno in attesa durante la scrittura non deve bloccare il carrier
+    private final ReentrantLock scrittura = new ReentrantLock();
+
+    /**
+     * @param file il file a cui aggiungere le notifiche; la cartella viene
+     *             creata se non esiste
+     */
+    public CanaleFile(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public String getNome() {
+        return "file";
+    }
+
+    /**
+     * Aggiunge la notifica al file. Le scritture sono serializzate, così le
+     * righe di consegne parallele non si mescolano.
+     */
+    @Override
+    public void consegna(Notifica notifica) throws IOException {
+        String riga = notifica.getId() + "\t" + notifica.getIdUtente() + "\t" + notifica.getCreataIl() + "\t" +
+                notifica.getMessaggio().replace('\t', ' ').replace('\r', ' ').replace('\n', ' ') +
+                System.lineSeparator();
+
+        scrittura.lock();
+        try {
+            Path cartella = file.toAbsolutePath().getParent();
+            if (cartella != null) {
+                Files.createDirectories(cartella);
+            }
+            Files.writeString(file, riga, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+        } finally {
+            scrittura.unlock();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package it.tennis_club.business_logic;
+
+import it.tennis_club.domain_model.Notifica;
+import it.tennis_club.domain_model.Utente;
+import it.tennis_club.orm.UtenteCache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Canale che scrive ogni notifica come messaggio di posta (file .eml) in una
+ * cartella di spool, da cui un agente di posta esterno può prelevarli e
+ * inviarli all'indirizzo email del socio.
+ *
+ * Ogni messaggio ha il nome "notifica-&lt;id&gt;.eml" e viene scritto prima in
+ * un file temporaneo e poi rinominato: chi legge lo spool non vede mai un
+ * messaggio incompleto e una notifica consegnata più volte sovrascrive lo
+ * stesso file.
+ */
+public class CanaleMailSpool implements CanaleNotifiche {
+
+    private static final String OGGETTO = "Notifica dal Tennis Club";
+
+    private final Path cartella;
+
+    /**
+     * @param cartella la cartella di spool; viene creata se non esiste
+     */
+    public CanaleMailSpool(Path cartella) {
+        this.cartella = cartella;
+    }
+
+    @Override
+    public String getNome() {
+        return "mailspool";
+    }
+
+    @Override
+    public void consegna(Notifica notifica) throws IOException {
+        Utente destinatario;
+        try {
+            destinatario = UtenteCache.getInstance().getUtenteById(notifica.getIdUtente());
+        } catch (SQLException e) {
+            throw new IOException("Impossibile recuperare il destinatario: " + e.getMessage(), e);
+        }
+        if (destinatario == null || destinatario.getEmail() == null || destinatario.getEmail().isBlank()) {
+            throw new IOException("Utente " + notifica.getIdUtente() + " senza indirizzo email");
+        }
+
+        String nome = "notifica-" + notifica.getId() + ".eml";
+        Files.createDirectories(cartella);
+        Path temporaneo = cartella.resolve(nome + ".tmp");
+        Files.writeString(temporaneo, messaggio(notifica, destinatario.getEmail()), StandardCharsets.UTF_8);
+        Files.move(temporaneo, cartella.resolve(nome), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private String messaggio(Notifica notifica, String email) {
+        return "To: " + email + "\r\n" +
+                "Subject: " + OGGETTO + "\r\n" +
+                "Date: " + DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now()) + "\r\n" +
+                "Message-ID: <notifica-" + notifica.getId() + "@tennis-club>\r\n" +
+                "MIME-Version: 1.0\r\n" +
+                "Content-Type: text/plain; charset=UTF-8\r\n" +
+                "Content-Transfer-Encoding: 8bit\r\n" +
+                "\r\n" +
+                notifica.getMessaggio() + "\r\n";
+    }
+}
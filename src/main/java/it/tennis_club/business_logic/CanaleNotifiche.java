@@ -0,0 +1,30 @@
+package it.tennis_club.business_logic;
+
+import it.tennis_club.domain_model.Notifica;
+
+import java.io.IOException;
+
+/**
+ * Canale esterno su cui {@link NotificaDispatcher} consegna le notifiche
+ * (un file, uno spool di posta, ...).
+ *
+ * Il metodo {@link #consegna(Notifica)} viene chiamato da più thread in
+ * parallelo. La consegna è "almeno una volta": dopo un errore o un riavvio la
+ * stessa notifica può essere consegnata di nuovo, quindi un canale che deve
+ * evitare i duplicati può usare l'ID della notifica.
+ */
+public interface CanaleNotifiche {
+
+    /**
+     * Il nome del canale, usato nel log e negli errori registrati.
+     */
+    String getNome();
+
+    /**
+     * Consegna una notifica.
+     *
+     * @param notifica la notifica da consegnare, già salvata nel database
+     * @throws IOException se la consegna non è riuscita e va riprovata
+     */
+    void consegna(Notifica notifica) throws IOException;
+}
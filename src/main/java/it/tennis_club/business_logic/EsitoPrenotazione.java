@@ -0,0 +1,62 @@
+package it.tennis_club.business_logic;
+
+import it.tennis_club.domain_model.Prenotazione;
+
+/**
+ * Esito della creazione di una singola prenotazione all'interno di una
+ * richiesta multipla (vedi {@link PrenotazioneService#creaPrenotazioniBatch}).
+ */
+public class EsitoPrenotazione {
+
+    /**
+     * Possibili esiti di una prenotazione.
+     */
+    public enum Stato {
+        CREATA,
+        GIA_PRENOTATA,
+        IN_MANUTENZIONE,
+        NON_VALIDA
+    }
+
+    private final Prenotazione prenotazione;
+    private final Stato stato;
+    private final String messaggio;
+
+    public EsitoPrenotazione(Prenotazione prenotazione, Stato stato, String messaggio) {
+        this.prenotazione = prenotazione;
+        this.stato = stato;
+        this.messaggio = messaggio;
+    }
+
+    /**
+     * La prenotazione richiesta; se creata, contiene l'ID generato.
+     */
+    public Prenotazione getPrenotazione() {
+        return prenotazione;
+    }
+
+    public Stato getStato() {
+        return stato;
+    }
+
+    /**
+     * Descrizione dell'esito, utile da mostrare all'utente.
+     */
+    public String getMessaggio() {
+        return messaggio;
+    }
+
+    public boolean isCreata() {
+        return stato == Stato.CREATA;
+    }
+
+    @Override
+    public String toString() {
+        return "EsitoPrenotazione{" +
+                "data=" + prenotazione.getData() +
+                ", oraInizio=" + prenotazione.getOraInizio() +
+                ", stato=" + stato +
+                ", messaggio='" + messaggio + '\'' +
+                '}';
+    }
+}
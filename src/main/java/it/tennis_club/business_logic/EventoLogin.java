@@ -0,0 +1,32 @@
+package it.tennis_club.business_logic;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Evento di Java Flight Recorder per {@link AuthService#login}. L'email e la
+ * password non vengono registrate.
+ */
+@Name("it.tennis_club.Login")
+@Label("Login")
+@Category({ "Tennis Club", "Servizi" })
+@Description("Tentativo di login")
+final class EventoLogin extends Event {
+
+    @Label("Riuscito")
+    boolean riuscito;
+
+    @Label("ID utente")
+    @Description("L'ID dell'utente autenticato, 0 se il login non è riuscito")
+    int idUtente;
+
+    @Label("Ruolo")
+    String ruolo;
+
+    @Label("Errore")
+    @Description("Il messaggio dell'eccezione, null se non ci sono stati errori")
+    String errore;
+}
@@ -0,0 +1,31 @@
+package it.tennis_club.business_logic;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Evento di Java Flight Recorder per {@link CampoService#creaManutenzione}.
+ */
+@Name("it.tennis_club.Manutenzione")
+@Label("Creazione manutenzione")
+@Category({ "Tennis Club", "Servizi" })
+@Description("Apertura di una manutenzione, con la cancellazione delle prenotazioni del campo")
+final class EventoManutenzione extends Event {
+
+    @Label("ID campo")
+    int idCampo;
+
+    @Label("ID utente")
+    int idUtente;
+
+    @Label("ID manutenzione")
+    @Description("L'ID della manutenzione creata, 0 se non creata")
+    int idManutenzione;
+
+    @Label("Errore")
+    @Description("Il motivo del rifiuto, null se creata")
+    String errore;
+}
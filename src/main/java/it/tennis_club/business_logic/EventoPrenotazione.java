@@ -0,0 +1,38 @@
+package it.tennis_club.business_logic;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Evento di Java Flight Recorder per
+ * {@link PrenotazioneService#creaPrenotazione}.
+ */
+@Name("it.tennis_club.Prenotazione")
+@Label("Creazione prenotazione")
+@Category({ "Tennis Club", "Servizi" })
+@Description("Creazione di una prenotazione, riuscita o rifiutata")
+final class EventoPrenotazione extends Event {
+
+    @Label("ID campo")
+    int idCampo;
+
+    @Label("ID socio")
+    int idSocio;
+
+    @Label("Data")
+    String data;
+
+    @Label("Ora di inizio")
+    String oraInizio;
+
+    @Label("ID prenotazione")
+    @Description("L'ID della prenotazione creata, 0 se rifiutata")
+    int idPrenotazione;
+
+    @Label("Errore")
+    @Description("Il motivo del rifiuto, null se creata")
+    String errore;
+}
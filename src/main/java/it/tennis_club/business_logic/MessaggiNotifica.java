@@ -0,0 +1,34 @@
+package it.tennis_club.business_logic;
+
+import it.tennis_club.domain_model.Campo;
+import it.tennis_club.domain_model.Lezione;
+import it.tennis_club.domain_model.Prenotazione;
+
+/**
+ * Testi delle notifiche inviate ai soci dai servizi.
+ */
+final class MessaggiNotifica {
+
+    private MessaggiNotifica() {
+    }
+
+    /**
+     * Prenotazione cancellata perché il campo è in manutenzione.
+     */
+    static String prenotazioneCancellataPerManutenzione(Prenotazione prenotazione, Campo campo) {
+        return "La tua prenotazione del " + prenotazione.getData() + " sul " + campo.getNome() +
+                " è stata cancellata a causa di una manutenzione programmata.";
+    }
+
+    /**
+     * Lezione cancellata, per gli allievi iscritti.
+     */
+    static String lezioneCancellata(Lezione lezione) {
+        Prenotazione prenotazione = lezione.getPrenotazione();
+        if (prenotazione == null || prenotazione.getCampo() == null) {
+            return "La lezione \"" + lezione.getDescrizione() + "\" a cui eri iscritto è stata cancellata.";
+        }
+        return "La lezione del " + prenotazione.getData() + " alle " + prenotazione.getOraInizio() + " sul " +
+                prenotazione.getCampo().getNome() + " a cui eri iscritto è stata cancellata.";
+    }
+}
@@ -0,0 +1,365 @@
+package it.tennis_club.business_logic;
+
+import it.tennis_club.domain_model.Notifica;
+import it.tennis_club.orm.ConnectionManager;
+import it.tennis_club.orm.Log;
+import it.tennis_club.orm.NotificaDAO;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Consegna le notifiche ai canali esterni ({@link CanaleNotifiche}), che
+ * implementa il pattern Singleton.
+ *
+ * La tabella notifica fa da coda di uscita (outbox): i servizi scrivono le
+ * notifiche nella stessa transazione dell'operazione che le genera (ad
+ * esempio la cancellazione delle prenotazioni per una manutenzione) e non
+ * attendono la consegna. Un thread virtuale in background preleva le
+ * notifiche IN_ATTESA a blocchi (proprietà
+ * "notifiche.consegna.dimensioneBlocco", default 100) e consegna ogni
+ * notifica del blocco a tutti i canali su un proprio thread virtuale.
+ *
+ * Se un canale fallisce la notifica viene riprovata con un ritardo che
+ * raddoppia a ogni tentativo (proprietà "notifiche.consegna.backoffMs",
+ * default 1 secondo, fino a "notifiche.consegna.backoffMaxMs", default 10
+ * minuti) e dopo "notifiche.consegna.maxTentativi" tentativi (default 8)
+ * viene segnata come FALLITA. La consegna è "almeno una volta": una notifica
+ * può essere consegnata di nuovo se l'esito non è stato registrato, ad
+ * esempio per una chiusura dell'applicazione durante la consegna.
+ *
+ * Senza nuove notifiche il thread controlla la tabella ogni
+ * "notifiche.consegna.intervalloMs" (default 1 secondo); {@link #segnala()}
+ * lo risveglia subito dopo la scrittura di nuove notifiche.
+ */
+public class NotificaDispatcher {
+
+    private static final Log LOG = Log.get(NotificaDispatcher.class);
+
+    private static final String DEFAULT_CANALI = "file";
+    private static final String DEFAULT_FILE = "notifiche.log";
+    private static final String DEFAULT_SPOOL = "mail-spool";
+    private static final int DEFAULT_DIMENSIONE_BLOCCO = 100;
+    private static final int DEFAULT_MAX_TENTATIVI = 8;
+    private static final long DEFAULT_BACKOFF_MILLIS = 1000;
+    private static final long DEFAULT_BACKOFF_MAX_MILLIS = 10 * 60 * 1000;
+    private static final long DEFAULT_INTERVALLO_MILLIS = 1000;
+
+    // Tempo entro cui deve essere registrato l'esito di una notifica
+    // prelevata, prima che venga prelevata di nuovo
+    private static final long DEFAULT_RISERVA_MILLIS = 60 * 1000;
+
+    // Attesa massima della fine del thread di consegna quando viene fermato
+    private static final long ATTESA_FERMA_MILLIS = 5000;
+
+    // Istanza singleton
+    private static volatile NotificaDispatcher instance;
+
+    private final NotificaDAO notificaDAO;
+    private final List<CanaleNotifiche> canali;
+    private final int dimensioneBlocco;
+    private final int maxTentativi;
+    private final long backoffMillis;
+    private final long backoffMaxMillis;
+    private final long riservaMillis;
+
+    // Un thread virtuale per ogni consegna
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Thread ciclo;
+
+    private final LongAdder consegnate = new LongAdder();
+    private final LongAdder tentativiFalliti = new LongAdder();
+    private final LongAdder fallite = new LongAdder();
+
+    /**
+     * Costruttore privato per implementare il pattern Singleton.
+     * I parametri vengono letti da db.properties.
+     */
+    private NotificaDispatcher() {
+        this(new NotificaDAO(), canaliConfigurati(),
+                Integer.parseInt(ConnectionManager.getProperty("notifiche.consegna.dimensioneBlocco",
+                        String.valueOf(DEFAULT_DIMENSIONE_BLOCCO))),
+                Integer.parseInt(ConnectionManager.getProperty("notifiche.consegna.maxTentativi",
+                        String.valueOf(DEFAULT_MAX_TENTATIVI))),
+                Long.parseLong(ConnectionManager.getProperty("notifiche.consegna.backoffMs",
+                        String.valueOf(DEFAULT_BACKOFF_MILLIS))),
+                Long.parseLong(ConnectionManager.getProperty("notifiche.consegna.backoffMaxMs",
+                        String.valueOf(DEFAULT_BACKOFF_MAX_MILLIS))),
+                DEFAULT_RISERVA_MILLIS,
+                Long.parseLong(ConnectionManager.getProperty("notifiche.consegna.intervalloMs",
+                        String.valueOf(DEFAULT_INTERVALLO_MILLIS))));
+
+        NotificationService.registraChiusura();
+    }
+
+    /**
+     * Crea un dispatcher con parametri espliciti e DAO e canali sostituibili
+     * (usato dai test). Un intervallo non positivo disabilita il thread in
+     * background: le notifiche vengono consegnate solo da
+     * {@link #consegnaBlocco()}.
+     */
+    NotificaDispatcher(NotificaDAO notificaDAO, List<CanaleNotifiche> canali, int dimensioneBlocco,
+            int maxTentativi, long backoffMillis, long backoffMaxMillis, long riservaMillis, long intervalloMillis) {
+        if (dimensioneBlocco <= 0 || maxTentativi <= 0 || backoffMillis <= 0 || backoffMaxMillis < backoffMillis) {
+            throw new IllegalArgumentException("Parametri di consegna delle notifiche non validi");
+        }
+        this.notificaDAO = notificaDAO;
+        this.canali = List.copyOf(canali);
+        this.dimensioneBlocco = dimensioneBlocco;
+        this.maxTentativi = maxTentativi;
+        this.backoffMillis = backoffMillis;
+        this.backoffMaxMillis = backoffMaxMillis;
+        this.riservaMillis = riservaMillis;
+
+        if (intervalloMillis > 0) {
+            long intervalloNanos = TimeUnit.MILLISECONDS.toNanos(intervalloMillis);
+            this.ciclo = Thread.ofVirtual().name("notification-dispatcher").start(() -> esegui(intervalloNanos));
+        } else {
+            this.ciclo = null;
+        }
+    }
+
+    /**
+     * Ottiene l'istanza singleton del NotificaDispatcher, avviando il thread
+     * di consegna alla prima chiamata.
+     *
+     * @return l'unica istanza di NotificaDispatcher
+     */
+    public static synchronized NotificaDispatcher getInstance() {
+        if (instance == null) {
+            instance = new NotificaDispatcher();
+        }
+        return instance;
+    }
+
+    /**
+     * Risveglia il thread di consegna, se il dispatcher è stato avviato.
+     * Chiamato dopo la scrittura di nuove notifiche; non attende la consegna.
+     */
+    public static void segnala() {
+        NotificaDispatcher dispatcher = instance;
+        if (dispatcher != null && dispatcher.ciclo != null) {
+            LockSupport.unpark(dispatcher.ciclo);
+        }
+    }
+
+    /**
+     * Il numero di notifiche consegnate a tutti i canali.
+     */
+    public long getConsegnate() {
+        return consegnate.sum();
+    }
+
+    /**
+     * Il numero di tentativi di consegna falliti, compresi quelli riprovati.
+     */
+    public long getTentativiFalliti() {
+        return tentativiFalliti.sum();
+    }
+
+    /**
+     * Il numero di notifiche segnate come FALLITA dopo l'ultimo tentativo.
+     */
+    public long getFallite() {
+        return fallite.sum();
+    }
+
+    /**
+     * Ferma il thread di consegna e attende (al massimo qualche secondo) che
+     * termini, così non usa più il database. Le notifiche prelevate e non
+     * ancora registrate verranno riprese alla scadenza della riserva.
+     */
+    public void ferma() {
+        if (ciclo != null) {
+            ciclo.interrupt();
+        }
+        executor.shutdownNow();
+        if (ciclo != null && ciclo != Thread.currentThread()) {
+            try {
+                ciclo.join(Duration.ofMillis(ATTESA_FERMA_MILLIS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Ferma il singleton, se è stato avviato. Chiamato dalla sequenza di
+     * chiusura dopo la scrittura delle notifiche in coda.
+     */
+    static void fermaIstanza() {
+        NotificaDispatcher dispatcher = instance;
+        if (dispatcher != null) {
+            dispatcher.ferma();
+        }
+    }
+
+    /**
+     * Ciclo del thread di consegna. Dopo un blocco pieno ne preleva subito un
+     * altro, altrimenti attende l'intervallo o una {@link #segnala()}.
+     */
+    private void esegui(long intervalloNanos) {
+        while (!Thread.currentThread().isInterrupted()) {
+            int prelevate = 0;
+            try {
+                prelevate = consegnaBlocco();
+            } catch (SQLException | RuntimeException e) {
+                // Le notifiche del blocco verranno riprese alla scadenza della riserva
+                LOG.errore("Errore durante la consegna delle notifiche", e);
+            }
+            if (prelevate < dimensioneBlocco) {
+                LockSupport.parkNanos(this, intervalloNanos);
+            }
+        }
+    }
+
+    /**
+     * Preleva un blocco di notifiche da consegnare, le consegna in parallelo
+     * e ne registra l'esito.
+     *
+     * @return il numero di notifiche prelevate
+     * @throws SQLException se il prelievo o la registrazione delle notifiche
+     *                      consegnate falliscono
+     */
+    int consegnaBlocco() throws SQLException {
+        List<Notifica> blocco = notificaDAO.prelevaDaConsegnare(dimensioneBlocco, riservaMillis);
+        if (blocco.isEmpty()) {
+            return 0;
+        }
+
+        List<Callable<String>> consegne = new ArrayList<>(blocco.size());
+        for (Notifica notifica : blocco) {
+            consegne.add(() -> consegna(notifica));
+        }
+
+        List<Future<String>> esiti;
+        try {
+            esiti = executor.invokeAll(consegne);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return blocco.size();
+        }
+
+        List<Long> consegnateBlocco = new ArrayList<>(blocco.size());
+        for (int i = 0; i < blocco.size(); i++) {
+            String errore = esito(esiti.get(i));
+            if (errore == null) {
+                consegnateBlocco.add(blocco.get(i).getId());
+            } else {
+                registraFallimento(blocco.get(i), errore);
+            }
+        }
+
+        notificaDAO.segnaConsegnate(consegnateBlocco);
+        consegnate.add(consegnateBlocco.size());
+        return blocco.size();
+    }
+
+    /**
+     * Consegna una notifica a tutti i canali, in ordine.
+     *
+     * @return null se la consegna è riuscita, altrimenti la descrizione
+     *         dell'errore del primo canale fallito
+     */
+    private String consegna(Notifica notifica) {
+        for (CanaleNotifiche canale : canali) {
+            try {
+                canale.consegna(notifica);
+            } catch (Exception e) {
+                return canale.getNome() + ": " + e.getMessage();
+            }
+        }
+        return null;
+    }
+
+    private String esito(Future<String> futuro) {
+        try {
+            return futuro.get();
+        } catch (ExecutionException e) {
+            return e.getCause().toString();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "Consegna interrotta";
+        }
+    }
+
+    private void registraFallimento(Notifica notifica, String errore) {
+        tentativiFalliti.increment();
+        int tentativi = notifica.getTentativi() + 1;
+        boolean definitivo = tentativi >= maxTentativi;
+        long ritardo = definitivo ? 0 : ritardo(tentativi);
+
+        try {
+            notificaDAO.registraFallimento(notifica.getId(), errore, ritardo, definitivo);
+        } catch (SQLException e) {
+            // Già registrato dal DAO: la notifica verrà ripresa alla scadenza della riserva
+            return;
+        }
+
+        if (definitivo) {
+            fallite.increment();
+            LOG.errore("Consegna della notifica fallita definitivamente", "idNotifica", notifica.getId(),
+                    "tentativi", tentativi, "causa", errore);
+        } else {
+            LOG.avviso("Consegna della notifica fallita, verrà riprovata", "idNotifica", notifica.getId(),
+                    "tentativo", tentativi, "ritardoMs", ritardo, "causa", errore);
+        }
+    }
+
+    /**
+     * Il ritardo prima del prossimo tentativo: il ritardo base raddoppia a
+     * ogni tentativo fino al massimo, e il valore effettivo è scelto a caso
+     * tra metà e il valore pieno, così le notifiche fallite insieme non
+     * vengono riprovate tutte nello stesso istante.
+     *
+     * @param tentativi il numero di tentativi già falliti, almeno 1
+     * @return il ritardo in millisecondi
+     */
+    long ritardo(int tentativi) {
+        int esponente = Math.min(tentativi - 1, 30);
+        long massimo = Math.min(backoffMaxMillis, backoffMillis << esponente);
+        if (massimo < 0) {
+            massimo = backoffMaxMillis;
+        }
+        return massimo / 2 + ThreadLocalRandom.current().nextLong(massimo - massimo / 2 + 1);
+    }
+
+    /**
+     * Crea i canali elencati nella proprietà "notifiche.consegna.canali"
+     * (separati da virgole: "file", "mailspool").
+     */
+    private static List<CanaleNotifiche> canaliConfigurati() {
+        List<CanaleNotifiche> canali = new ArrayList<>();
+        for (String nome : ConnectionManager.getProperty("notifiche.consegna.canali", DEFAULT_CANALI).split(",")) {
+            switch (nome.trim().toLowerCase(Locale.ROOT)) {
+                case "":
+                    break;
+                case "file":
+                    canali.add(new CanaleFile(Path.of(
+                            ConnectionManager.getProperty("notifiche.consegna.file", DEFAULT_FILE))));
+                    break;
+                case "mailspool":
+                    canali.add(new CanaleMailSpool(Path.of(
+                            ConnectionManager.getProperty("notifiche.consegna.spool", DEFAULT_SPOOL))));
+                    break;
+                default:
+                    LOG.avviso("Canale di notifica sconosciuto, ignorato", "canale", nome.trim());
+            }
+        }
+        return canali;
+    }
+}
@@ -0,0 +1,29 @@
+package it.tennis_club.business_logic;
+
+/**
+ * Eccezione personalizzata per gli errori sul servizio delle notifiche.
+ * Viene lanciata quando non è possibile leggere le notifiche di un utente.
+ */
+
+public class NotificaException extends Exception {
+
+    /**
+     * Costruttore con un messaggio di errore
+     * 
+     * @param message il messaggio di errore
+     */
+    NotificaException(String message) {
+        super(message);
+    }
+
+    /**
+     * Costruttore con messaggio di errore e causa.
+     * 
+     * @param message il messaggio di errore
+     * @param cause   la causa dell'eccezione
+     */
+    NotificaException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -1,89 +1,309 @@
 package it.tennis_club.business_logic;
 
+import it.tennis_club.domain_model.Notifica;
+import it.tennis_club.orm.ConnectionManager;
+import it.tennis_club.orm.Log;
+import it.tennis_club.orm.NotificaDAO;
+import it.tennis_club.orm.Strumentazione;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Servizio singleton per la gestione delle notifiche in-memory.
- * Le notifiche vengono memorizzate per utente e consumate al primo accesso.
+ * Servizio singleton per la gestione delle notifiche agli utenti.
+ * Le notifiche vengono salvate nella tabella 'notifica' e consumate al primo
+ * accesso dell'utente.
+ *
+ * Le nuove notifiche non vengono scritte subito: finiscono in una coda e un
+ * thread in background le inserisce a blocchi (proprietà
+ * "notifiche.intervalloScritturaMs", default 200 ms), quindi chi le crea non
+ * attende il database. La coda ha una capacità massima (proprietà
+ * "notifiche.maxInAttesa", default 10000): quando è piena scrive direttamente
+ * chi aggiunge la notifica, così la memoria usata resta limitata anche quando
+ * la chiusura di un campo genera notifiche per molti soci. Per ogni utente
+ * vengono conservate solo le notifiche più recenti (proprietà
+ * "notifiche.maxPerUtente", default 100). Le notifiche ancora in coda vengono
+ * scritte alla chiusura dell'applicazione, prima che il pool venga chiuso.
+ *
+ * Il numero di notifiche non lette di ogni utente è tenuto in una mappa
+ * concorrente, caricata dal database una sola volta all'avvio e aggiornata a
+ * ogni notifica: {@link #hasNotifications(Integer)} e
+ * {@link #getNotificationCount(Integer)} non interrogano il database.
+ *
+ * Le notifiche che devono essere salvate insieme all'operazione che le genera
+ * (ad esempio le cancellazioni per una manutenzione) vengono scritte con
+ * {@link #inserisci(Connection, List)} nella transazione del chiamante. Tutte
+ * le notifiche salvate vengono poi consegnate ai canali esterni da
+ * {@link NotificaDispatcher}.
  */
 public class NotificationService {
 
-    // Istanza singleton
-    private static NotificationService instance;
+    private static final Log LOG = Log.get(NotificationService.class);
+
+    private static final int DEFAULT_MAX_PER_UTENTE = 100;
+    private static final int DEFAULT_MAX_IN_ATTESA = 10000;
+    private static final long DEFAULT_INTERVALLO_SCRITTURA_MILLIS = 200;
+
+    // Numero massimo di notifiche inserite con un unico batch
+    private static final int DIMENSIONE_BLOCCO = 500;
+
+    // Istanza singleton, impostata alla creazione da Holder; letta dalla
+    // sequenza di chiusura senza crearla
+    private static volatile NotificationService instance;
+
+    private static final AtomicBoolean chiusuraRegistrata = new AtomicBoolean();
+
+    private final NotificaDAO notificaDAO;
+    private final int maxPerUtente;
+
+    // Numero di notifiche non lette per ID utente; gli utenti senza notifiche
+    // non sono presenti
+    private final ConcurrentHashMap<Integer, Integer> nonLette = new ConcurrentHashMap<>();
+
+    // Notifiche non ancora scritte nel database, dalla più vecchia
+    private final LinkedBlockingDeque<Notifica> inAttesa;
+
+    // Serializza le scritture, del thread in background e dei chiamanti.
+    // ReentrantLock e non synchronized: la scrittura viene eseguita con il
+    // lock acquisito e un virtual thread in attesa non deve bloccare il carrier
+    private final ReentrantLock scrittura = new ReentrantLock();
+
+    private final LongAdder scartate = new LongAdder();
 
-    // Mappa che associa ID utente alla lista di messaggi
-    private final Map<Integer, List<String>> userNotifications;
+    private final ScheduledExecutorService writer;
 
     /**
      * Costruttore privato per il pattern Singleton.
+     * I parametri vengono letti da db.properties.
      */
     private NotificationService() {
-        this.userNotifications = new HashMap<>();
+        this(new NotificaDAO(),
+                Integer.parseInt(ConnectionManager.getProperty("notifiche.maxPerUtente",
+                        String.valueOf(DEFAULT_MAX_PER_UTENTE))),
+                Integer.parseInt(ConnectionManager.getProperty("notifiche.maxInAttesa",
+                        String.valueOf(DEFAULT_MAX_IN_ATTESA))),
+                Long.parseLong(ConnectionManager.getProperty("notifiche.intervalloScritturaMs",
+                        String.valueOf(DEFAULT_INTERVALLO_SCRITTURA_MILLIS))));
+
+        registraChiusura();
+    }
+
+    /**
+     * Crea un servizio con parametri espliciti e DAO sostituibile (usato dai
+     * test). Un intervallo di scrittura non positivo disabilita il thread in
+     * background: le notifiche vengono scritte solo da {@link #scrivi()} o
+     * quando servono per una lettura.
+     */
+    NotificationService(NotificaDAO notificaDAO, int maxPerUtente, int maxInAttesa, long intervalloScritturaMillis) {
+        if (maxPerUtente <= 0 || maxInAttesa <= 0) {
+            throw new IllegalArgumentException("I limiti delle notifiche devono essere positivi");
+        }
+        this.notificaDAO = notificaDAO;
+        this.maxPerUtente = maxPerUtente;
+        this.inAttesa = new LinkedBlockingDeque<>(maxInAttesa);
+
+        try {
+            notificaDAO.contaNonLette().forEach((idUtente, conteggio) -> {
+                if (conteggio > 0) {
+                    nonLette.put(idUtente, Math.min(conteggio, maxPerUtente));
+                }
+            });
+        } catch (SQLException e) {
+            // Vengono contate solo le notifiche create da ora in poi
+            LOG.errore("Impossibile caricare il numero di notifiche non lette", e);
+        }
+
+        if (intervalloScritturaMillis > 0) {
+            this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "notification-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.writer.scheduleWithFixedDelay(this::scrivi, intervalloScritturaMillis, intervalloScritturaMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            this.writer = null;
+        }
+    }
+
+    /**
+     * Contenitore del singleton: viene creato al primo utilizzo, senza
+     * eseguire la lettura dei conteggi dentro un blocco synchronized.
+     */
+    private static class Holder {
+        private static final NotificationService INSTANCE = crea();
+
+        private static NotificationService crea() {
+            NotificationService servizio = new NotificationService();
+            instance = servizio;
+            return servizio;
+        }
     }
 
     /**
      * Ottiene l'istanza singleton del NotificationService.
-     * 
+     *
      * @return l'unica istanza di NotificationService
      */
-    public static synchronized NotificationService getInstance() {
-        if (instance == null) {
-            instance = new NotificationService();
-        }
-        return instance;
+    public static NotificationService getInstance() {
+        return Holder.INSTANCE;
     }
 
     /**
-     * Aggiunge una notifica per un utente specifico.
-     * 
+     * Aggiunge una notifica per un utente specifico. La notifica viene
+     * scritta nel database in background.
+     *
      * @param userId  l'ID dell'utente destinatario
      * @param message il messaggio di notifica
      */
     public void addNotification(Integer userId, String message) {
-        if (userId == null || message == null || message.trim().isEmpty()) {
-            return;
-        }
+        Strumentazione.misura("NotificationService.addNotification", () -> {
+            if (userId == null || message == null || message.trim().isEmpty()) {
+                return;
+            }
 
-        userNotifications.computeIfAbsent(userId, k -> new ArrayList<>()).add(message);
+            Notifica notifica = new Notifica(userId, message, LocalDateTime.now());
+            nonLette.merge(userId, 1, (conteggio, uno) -> Math.min(conteggio + uno, maxPerUtente));
+
+            // Coda piena: scrive chi aggiunge, così la coda non cresce oltre il
+            // limite; la notifica viene scartata solo se la scrittura fallisce
+            while (!inAttesa.offerLast(notifica)) {
+                if (!scrivi()) {
+                    scarta(notifica);
+                    return;
+                }
+            }
+        });
+    }
+
+    /**
+     * Scrive delle notifiche usando la connessione di una transazione del
+     * chiamante, così vengono salvate solo se l'operazione che le genera viene
+     * confermata. Dopo il commit il chiamante deve chiamare
+     * {@link #confermaInserite(List)}.
+     *
+     * @param connection la connessione della transazione
+     * @param notifiche  le notifiche da scrivere
+     * @throws SQLException se la scrittura fallisce; la transazione va annullata
+     */
+    public void inserisci(Connection connection, List<Notifica> notifiche) throws SQLException {
+        Strumentazione.misura("NotificationService.inserisci", () -> {
+            notificaDAO.inserisci(connection, notifiche, maxPerUtente);
+        });
+    }
+
+    /**
+     * Aggiorna il numero di notifiche non lette dopo il commit della
+     * transazione in cui sono state scritte con
+     * {@link #inserisci(Connection, List)} e risveglia la consegna ai canali
+     * esterni, senza attenderla.
+     *
+     * @param notifiche le notifiche scritte
+     */
+    public void confermaInserite(List<Notifica> notifiche) {
+        for (Notifica notifica : notifiche) {
+            nonLette.merge(notifica.getIdUtente(), 1, (conteggio, uno) -> Math.min(conteggio + uno, maxPerUtente));
+        }
+        if (!notifiche.isEmpty()) {
+            NotificaDispatcher.segnala();
+        }
     }
 
     /**
      * Recupera e consuma tutte le notifiche di un utente.
-     * Dopo la chiamata, la lista di notifiche dell'utente viene svuotata.
-     * 
+     * Dopo la chiamata, le notifiche dell'utente risultano lette. Se l'utente
+     * non ha notifiche non lette il database non viene interrogato.
+     *
      * @param userId l'ID dell'utente
-     * @return lista di messaggi di notifica (vuota se non ce ne sono)
+     * @return lista di messaggi di notifica, dal più vecchio (vuota se non ce
+     *         ne sono o se il database non è raggiungibile)
      */
     public List<String> getAndClearNotifications(Integer userId) {
-        if (userId == null) {
-            return new ArrayList<>();
-        }
+        return Strumentazione.misura("NotificationService.getAndClearNotifications", () -> {
+            List<String> messaggi = new ArrayList<>();
+            if (!hasNotifications(userId)) {
+                return messaggi;
+            }
+
+            // Le notifiche ancora in coda devono essere lette insieme alle altre
+            scrivi();
+
+            try {
+                List<Notifica> consumate = notificaDAO.consumaNonLette(userId);
+                int numero = consumate.size();
+                nonLette.computeIfPresent(userId, (id, conteggio) -> conteggio > numero ? conteggio - numero : null);
+                for (Notifica notifica : consumate) {
+                    messaggi.add(notifica.getMessaggio());
+                }
+            } catch (SQLException e) {
+                // Le notifiche restano non lette e verranno mostrate al prossimo accesso
+                LOG.errore("Errore durante la lettura delle notifiche", e, "idUtente", userId);
+            }
+            return messaggi;
+        });
+    }
+
+    /**
+     * Restituisce una pagina delle notifiche di un utente, lette e non lette,
+     * dalla più recente, senza consumarle.
+     *
+     * @param userId     l'ID dell'utente
+     * @param token      il token restituito dalla pagina precedente, null per
+     *                   la prima pagina
+     * @param dimensione il numero di notifiche per pagina
+     * @return la pagina richiesta
+     * @throws NotificaException se l'utente, il token o la dimensione non sono
+     *                           validi o in caso di errore
+     */
+    public Pagina<Notifica> getNotifiche(Integer userId, String token, int dimensione) throws NotificaException {
+        return Strumentazione.misura("NotificationService.getNotifiche", () -> {
+            if (userId == null) {
+                throw new NotificaException("L'ID dell'utente non può essere vuoto");
+            }
+            try {
+                return Pagina.leggi(token, dimensione, 1, chiave -> {
+                    Long id = chiave != null ? Long.valueOf(chiave[0]) : null;
+                    // La prima pagina deve contenere anche le notifiche ancora in coda
+                    if (id == null) {
+                        scrivi();
+                    }
+                    return limite -> notificaDAO.getNotificheDopo(userId, id, limite);
+                }, ultima -> new Object[] { ultima.getId() });
 
-        List<String> notifications = userNotifications.remove(userId);
-        return notifications != null ? notifications : new ArrayList<>();
+            } catch (IllegalArgumentException e) {
+                throw new NotificaException(e.getMessage(), e);
+            } catch (SQLException e) {
+                throw new NotificaException("Errore durante il recupero delle notifiche: " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
-     * Verifica se un utente ha notifiche pendenti.
-     * 
+     * Verifica se un utente ha notifiche pendenti, senza interrogare il
+     * database.
+     *
      * @param userId l'ID dell'utente
      * @return true se ci sono notifiche, false altrimenti
      */
     public boolean hasNotifications(Integer userId) {
-        if (userId == null) {
-            return false;
-        }
-
-        List<String> notifications = userNotifications.get(userId);
-        return notifications != null && !notifications.isEmpty();
+        return userId != null && nonLette.containsKey(userId);
     }
 
     /**
-     * Conta il numero di notifiche pendenti per un utente.
-     * 
+     * Conta il numero di notifiche pendenti per un utente, senza interrogare
+     * il database.
+     *
      * @param userId l'ID dell'utente
      * @return numero di notifiche
      */
@@ -91,15 +311,108 @@ public class NotificationService {
         if (userId == null) {
             return 0;
         }
+        return nonLette.getOrDefault(userId, 0);
+    }
+
+    /**
+     * Il numero di notifiche in coda, non ancora scritte nel database.
+     */
+    public int getInAttesa() {
+        return inAttesa.size();
+    }
+
+    /**
+     * Il numero di notifiche perse perché il database non era raggiungibile
+     * e la coda era piena.
+     */
+    public long getScartate() {
+        return scartate.sum();
+    }
+
+    /**
+     * Scrive nel database le notifiche in coda, a blocchi. Se una scrittura
+     * fallisce, il blocco torna in testa alla coda e verrà riprovato alla
+     * scrittura successiva.
+     *
+     * @return true se la coda è stata svuotata
+     */
+    boolean scrivi() {
+        scrittura.lock();
+        try {
+            List<Notifica> blocco = new ArrayList<>(DIMENSIONE_BLOCCO);
+            while (inAttesa.drainTo(blocco, DIMENSIONE_BLOCCO) > 0) {
+                try {
+                    notificaDAO.inserisci(blocco, maxPerUtente);
+                } catch (SQLException | RuntimeException e) {
+                    for (int i = blocco.size() - 1; i >= 0; i--) {
+                        if (!inAttesa.offerFirst(blocco.get(i))) {
+                            scarta(blocco.get(i));
+                        }
+                    }
+                    LOG.errore("Errore durante la scrittura delle notifiche", e, "inAttesa", inAttesa.size());
+                    return false;
+                }
+                blocco.clear();
+                NotificaDispatcher.segnala();
+            }
+            return true;
+        } finally {
+            scrittura.unlock();
+        }
+    }
+
+    /**
+     * Ferma il thread in background e scrive le notifiche ancora in coda.
+     * Le notifiche aggiunte dopo restano in coda fino alla scrittura
+     * successiva.
+     */
+    void chiudi() {
+        if (writer != null) {
+            writer.shutdown();
+        }
+        scrivi();
+    }
+
+    /**
+     * Registra le notifiche nella sequenza di chiusura dell'applicazione, una
+     * sola volta per il servizio e per {@link NotificaDispatcher}: prima
+     * vengono scritte le notifiche in coda, poi viene fermata la consegna, e
+     * solo dopo {@link ConnectionManager} chiude il pool.
+     */
+    static void registraChiusura() {
+        if (!chiusuraRegistrata.compareAndSet(false, true)) {
+            return;
+        }
+        ConnectionManager.allaChiusura(() -> {
+            NotificationService servizio = instance;
+            if (servizio != null) {
+                servizio.chiudi();
+            }
+            NotificaDispatcher.fermaIstanza();
+        });
+    }
 
-        List<String> notifications = userNotifications.get(userId);
-        return notifications != null ? notifications.size() : 0;
+    private void scarta(Notifica notifica) {
+        scartate.increment();
+        nonLette.computeIfPresent(notifica.getIdUtente(), (id, conteggio) -> conteggio > 1 ? conteggio - 1 : null);
+        LOG.avviso("Notifica scartata: coda di scrittura piena", "idUtente", notifica.getIdUtente());
     }
 
     /**
-     * Pulisce tutte le notifiche (utile per testing).
+     * Pulisce tutte le notifiche, in coda e nel database (utile per testing).
      */
     public void clearAllNotifications() {
-        userNotifications.clear();
+        Strumentazione.misura("NotificationService.clearAllNotifications", () -> {
+            scrittura.lock();
+            try {
+                inAttesa.clear();
+                nonLette.clear();
+                notificaDAO.eliminaTutte();
+            } catch (SQLException e) {
+                LOG.errore("Errore durante l'eliminazione delle notifiche", e);
+            } finally {
+                scrittura.unlock();
+            }
+        });
     }
 }
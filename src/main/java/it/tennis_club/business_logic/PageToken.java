@@ -0,0 +1,51 @@
+package it.tennis_club.business_logic;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Codifica e decodifica i token di pagina di {@link Pagina}.
+ *
+ * Il token contiene la chiave dell'ultimo elemento della pagina (ad esempio
+ * data, ora e ID) ed è opaco per il chiamante, che deve solo restituirlo
+ * invariato per ottenere la pagina successiva.
+ */
+final class PageToken {
+
+    private static final String SEPARATORE = "|";
+
+    private PageToken() {
+    }
+
+    /**
+     * Codifica i valori della chiave in un token.
+     */
+    static String codifica(Object... chiave) {
+        StringBuilder testo = new StringBuilder();
+        for (int i = 0; i < chiave.length; i++) {
+            if (i > 0) {
+                testo.append(SEPARATORE);
+            }
+            testo.append(chiave[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(testo.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica un token nei valori della chiave.
+     *
+     * @param token il token da decodificare
+     * @param parti il numero di valori attesi
+     * @return i valori della chiave, come stringhe
+     * @throws IllegalArgumentException se il token non è valido
+     */
+    static String[] decodifica(String token, int parti) {
+        String testo = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        String[] valori = testo.split("\\" + SEPARATORE, -1);
+        if (valori.length != parti) {
+            throw new IllegalArgumentException("Token di pagina non valido");
+        }
+        return valori;
+    }
+}
@@ -0,0 +1,109 @@
+package it.tennis_club.business_logic;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Una pagina di risultati di un elenco paginato.
+ *
+ * Per ottenere la pagina successiva si passa {@link #getTokenSuccessivo()}
+ * al metodo che ha restituito questa pagina. Il token identifica l'ultimo
+ * elemento letto: le pagine successive non si spostano se nel frattempo
+ * vengono inseriti o eliminati elementi già visualizzati.
+ */
+public class Pagina<T> {
+
+    /**
+     * Il numero massimo di elementi in una pagina.
+     */
+    public static final int MAX_DIMENSIONE = 100;
+
+    /**
+     * Lettura dal database degli elementi successivi alla chiave della pagina
+     * precedente.
+     */
+    @FunctionalInterface
+    interface Lettura<T> {
+        List<T> leggi(int limite) throws SQLException;
+    }
+
+    private final List<T> elementi;
+    private final String tokenSuccessivo;
+
+    public Pagina(List<T> elementi, String tokenSuccessivo) {
+        this.elementi = Collections.unmodifiableList(elementi);
+        this.tokenSuccessivo = tokenSuccessivo;
+    }
+
+    /**
+     * Legge una pagina di un elenco paginato per chiave.
+     *
+     * Il chiamante fornisce solo la decodifica della chiave e la lettura: la
+     * funzione dopo riceve i valori della chiave contenuti nel token (null per
+     * la prima pagina), li converte e restituisce la lettura dal DAO, che
+     * viene eseguita con un elemento in più per sapere se esiste una pagina
+     * successiva.
+     *
+     * @param token      il token della pagina precedente, null per la prima
+     * @param dimensione il numero di elementi per pagina
+     * @param parti      il numero di valori della chiave
+     * @param dopo       converte i valori della chiave nella lettura
+     * @param chiave     i valori della chiave di un elemento, per il token
+     *                   della pagina successiva
+     * @return la pagina richiesta
+     * @throws IllegalArgumentException se la dimensione o il token non sono
+     *                                  validi
+     * @throws SQLException             se la lettura fallisce
+     */
+    static <T> Pagina<T> leggi(String token, int dimensione, int parti, Function<String[], Lettura<T>> dopo,
+            Function<T, Object[]> chiave) throws SQLException {
+        if (dimensione <= 0 || dimensione > MAX_DIMENSIONE) {
+            throw new IllegalArgumentException("La dimensione della pagina deve essere tra 1 e " + MAX_DIMENSIONE);
+        }
+
+        Lettura<T> lettura;
+        try {
+            lettura = dopo.apply(token != null ? PageToken.decodifica(token, parti) : null);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Token di pagina non valido", e);
+        }
+
+        return da(lettura.leggi(dimensione + 1), dimensione, chiave);
+    }
+
+    /**
+     * Crea una pagina dalle righe lette con un elemento in più della
+     * dimensione: se l'elemento in più è presente, il token della pagina
+     * successiva contiene la chiave dell'ultimo elemento della pagina.
+     *
+     * @param righe      le righe lette, al massimo dimensione + 1
+     * @param dimensione il numero di elementi per pagina
+     * @param chiave     i valori della chiave di un elemento
+     * @return la pagina
+     */
+    static <T> Pagina<T> da(List<T> righe, int dimensione, Function<T, Object[]> chiave) {
+        if (righe.size() <= dimensione) {
+            return new Pagina<>(righe, null);
+        }
+        List<T> pagina = new ArrayList<>(righe.subList(0, dimensione));
+        return new Pagina<>(pagina, PageToken.codifica(chiave.apply(pagina.get(dimensione - 1))));
+    }
+
+    public List<T> getElementi() {
+        return elementi;
+    }
+
+    /**
+     * Il token della pagina successiva, null se questa è l'ultima pagina.
+     */
+    public String getTokenSuccessivo() {
+        return tokenSuccessivo;
+    }
+
+    public boolean hasSuccessiva() {
+        return tokenSuccessivo != null;
+    }
+}
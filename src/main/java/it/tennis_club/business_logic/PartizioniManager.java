@@ -0,0 +1,202 @@
+package it.tennis_club.business_logic;
+
+import it.tennis_club.orm.ConnectionManager;
+import it.tennis_club.orm.Log;
+import it.tennis_club.orm.PrenotazioneDAO;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Gestore delle partizioni mensili della tabella prenotazione, che implementa
+ * il pattern Singleton.
+ *
+ * Un thread in background (proprietà "prenotazione.partizioni.intervalloMs",
+ * default 1 giorno) esegue periodicamente due operazioni:
+ * - crea in anticipo le partizioni dal mese corrente ai successivi
+ *   "prenotazione.partizioni.mesiFuturi" mesi (default 3), così i nuovi
+ *   inserimenti non devono crearle;
+ * - archivia le partizioni dei mesi precedenti all'orizzonte di
+ *   "prenotazione.partizioni.orizzonteMesi" mesi (default 24), spostandole
+ *   nello schema "archivio".
+ *
+ * Le partizioni che rientrano tra le prenotazioni attive di
+ * {@link PrenotazioneDAO} non vengono mai archiviate, anche con un orizzonte
+ * più breve.
+ */
+public class PartizioniManager {
+
+    private static final Log LOG = Log.get(PartizioniManager.class);
+
+    private static final int DEFAULT_MESI_FUTURI = 3;
+    private static final int DEFAULT_ORIZZONTE_MESI = 24;
+    private static final long DEFAULT_INTERVALLO_MILLIS = 24 * 60 * 60 * 1000;
+
+    // Nome generato da crea_partizione_prenotazione (vedi schema.sql)
+    private static final Pattern NOME_PARTIZIONE = Pattern.compile("prenotazione_p(\\d{4})_(\\d{2})");
+
+    // Istanza singleton
+    private static PartizioniManager instance;
+
+    private final PrenotazioneDAO prenotazioneDAO;
+    private final int mesiFuturi;
+    private final int orizzonteMesi;
+    private final Supplier<LocalDate> oggi;
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Costruttore privato per implementare il pattern Singleton.
+     * I parametri vengono letti da db.properties.
+     */
+    private PartizioniManager() {
+        this(new PrenotazioneDAO(),
+                Integer.parseInt(ConnectionManager.getProperty("prenotazione.partizioni.mesiFuturi",
+                        String.valueOf(DEFAULT_MESI_FUTURI))),
+                Integer.parseInt(ConnectionManager.getProperty("prenotazione.partizioni.orizzonteMesi",
+                        String.valueOf(DEFAULT_ORIZZONTE_MESI))),
+                Long.parseLong(ConnectionManager.getProperty("prenotazione.partizioni.intervalloMs",
+                        String.valueOf(DEFAULT_INTERVALLO_MILLIS))),
+                LocalDate::now);
+    }
+
+    /**
+     * Crea un gestore con parametri espliciti e data corrente sostituibile
+     * (usato dai test). Un intervallo non positivo disabilita il thread in
+     * background.
+     */
+    PartizioniManager(PrenotazioneDAO prenotazioneDAO, int mesiFuturi, int orizzonteMesi,
+            long intervalloMillis, Supplier<LocalDate> oggi) {
+        if (mesiFuturi < 0 || orizzonteMesi <= 0) {
+            throw new IllegalArgumentException("Mesi futuri e orizzonte di archiviazione non validi");
+        }
+        this.prenotazioneDAO = prenotazioneDAO;
+        this.mesiFuturi = mesiFuturi;
+        this.orizzonteMesi = orizzonteMesi;
+        this.oggi = oggi;
+
+        if (intervalloMillis > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "partizioni-prenotazione");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // La prima esecuzione è immediata: all'avvio le partizioni future devono esistere
+            this.scheduler.scheduleWithFixedDelay(this::esegui, 0, intervalloMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Ottiene l'istanza singleton del gestore, avviando il thread in
+     * background alla prima chiamata.
+     *
+     * @return l'unica istanza di PartizioniManager
+     */
+    public static synchronized PartizioniManager getInstance() {
+        if (instance == null) {
+            instance = new PartizioniManager();
+        }
+        return instance;
+    }
+
+    /**
+     * Crea le partizioni mancanti dal mese corrente ai mesi futuri configurati.
+     *
+     * @return il numero di partizioni create
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public int creaPartizioniFuture() throws SQLException {
+        LocalDate mese = oggi.get().withDayOfMonth(1);
+        int create = 0;
+        for (int i = 0; i <= mesiFuturi; i++) {
+            if (prenotazioneDAO.creaPartizione(mese.plusMonths(i))) {
+                create++;
+            }
+        }
+        return create;
+    }
+
+    /**
+     * Archivia le partizioni dei mesi precedenti all'orizzonte configurato.
+     * Un errore su una partizione non interrompe l'archiviazione delle altre.
+     *
+     * @return i nomi delle partizioni archiviate
+     * @throws SQLException se non è possibile leggere l'elenco delle partizioni
+     */
+    public List<String> archiviaPartizioniScadute() throws SQLException {
+        LocalDate limite = getLimiteArchiviazione();
+        List<String> archiviate = new ArrayList<>();
+
+        for (String nome : prenotazioneDAO.getPartizioni()) {
+            LocalDate mese = getMese(nome);
+            if (mese == null || !mese.isBefore(limite)) {
+                continue;
+            }
+            try {
+                prenotazioneDAO.archiviaPartizione(nome);
+                archiviate.add(nome);
+            } catch (SQLException e) {
+                // Già segnalato dal DAO: si riprova alla prossima esecuzione
+            }
+        }
+        return archiviate;
+    }
+
+    /**
+     * Restituisce il primo mese che non viene archiviato: il mese corrente
+     * meno l'orizzonte, ma mai oltre l'inizio delle prenotazioni attive.
+     */
+    LocalDate getLimiteArchiviazione() {
+        LocalDate giorno = oggi.get();
+        LocalDate limite = giorno.withDayOfMonth(1).minusMonths(orizzonteMesi);
+        LocalDate inizioAttive = PrenotazioneDAO.getInizioPrenotazioniAttive(giorno);
+        return limite.isAfter(inizioAttive) ? inizioAttive : limite;
+    }
+
+    /**
+     * Arresta il thread in background (usato dai test).
+     */
+    void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Estrae il primo giorno del mese dal nome di una partizione, o null se il
+     * nome non è quello di una partizione mensile.
+     */
+    static LocalDate getMese(String nome) {
+        Matcher matcher = NOME_PARTIZIONE.matcher(nome);
+        if (!matcher.matches()) {
+            return null;
+        }
+        return LocalDate.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)), 1);
+    }
+
+    /**
+     * Esecuzione periodica: gli errori vengono segnalati senza fermare il
+     * thread.
+     */
+    private void esegui() {
+        try {
+            creaPartizioniFuture();
+            List<String> archiviate = archiviaPartizioniScadute();
+            if (!archiviate.isEmpty()) {
+                LOG.info("Partizioni delle prenotazioni archiviate", "partizioni", String.join(",", archiviate));
+            }
+        } catch (SQLException | RuntimeException e) {
+            LOG.errore("Errore durante la manutenzione delle partizioni", e);
+        }
+    }
+}
@@ -3,12 +3,18 @@ package it.tennis_club.business_logic;
 import it.tennis_club.domain_model.Campo;
 import it.tennis_club.domain_model.Prenotazione;
 import it.tennis_club.domain_model.Utente;
+import it.tennis_club.orm.OccupancyIndex;
 import it.tennis_club.orm.PrenotazioneDAO;
+import it.tennis_club.orm.PrenotazioneDAO.DisponibilitaSlot;
 import it.tennis_club.orm.ManutenzioneDAO;
+import it.tennis_club.orm.Strumentazione;
 
+import java.io.Writer;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -18,15 +24,32 @@ import java.util.List;
  */
 public class PrenotazioneService {
 
+    // SQLState di PostgreSQL per la violazione di un vincolo di unicità
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    // Numero massimo di prenotazioni in una singola richiesta multipla
+    private static final int MAX_PRENOTAZIONI_BATCH = 200;
+
     private final PrenotazioneDAO prenotazioneDAO;
     private final ManutenzioneDAO manutenzioneDAO;
+    private final OccupancyIndex occupancyIndex;
 
     /**
      * Costruttore che inizializza il DAO.
      */
     public PrenotazioneService() {
-        this.prenotazioneDAO = new PrenotazioneDAO();
-        this.manutenzioneDAO = new ManutenzioneDAO();
+        this(new PrenotazioneDAO(), new ManutenzioneDAO(), OccupancyIndex.getInstance());
+    }
+
+    /**
+     * Costruttore con dipendenze esplicite, usato da test e benchmark per
+     * sostituire i DAO con implementazioni in memoria.
+     */
+    PrenotazioneService(PrenotazioneDAO prenotazioneDAO, ManutenzioneDAO manutenzioneDAO,
+            OccupancyIndex occupancyIndex) {
+        this.prenotazioneDAO = prenotazioneDAO;
+        this.manutenzioneDAO = manutenzioneDAO;
+        this.occupancyIndex = occupancyIndex;
     }
 
     /**
@@ -42,59 +65,187 @@ public class PrenotazioneService {
      */
     public Integer creaPrenotazione(LocalDate data, LocalTime oraInizio, Campo campo, Utente socio)
             throws PrenotazioneException {
-
-        // Validazione input
-        if (data == null || oraInizio == null || campo == null || socio == null) {
-            throw new PrenotazioneException("Tutti i campi sono obbligatori per creare una prenotazione");
+        EventoPrenotazione evento = new EventoPrenotazione();
+        evento.begin();
+        try {
+            return Strumentazione.misura("PrenotazioneService.creaPrenotazione", () -> {
+                validaPrenotazione(data, oraInizio, campo, socio);
+
+                try {
+                    // Validazione manutenzione esistente in quella data
+                    if (manutenzioneDAO.getManutenzioneAttivaByDataAndCampo(data, campo.getId()) != null) {
+                        throw new PrenotazioneException(
+                                "Non è possibile prenotare il campo perché è in corso una manutenzione");
+                    }
+                    // Crea l'oggetto Prenotazione
+                    Prenotazione nuovaPrenotazione = new Prenotazione();
+                    nuovaPrenotazione.setData(data);
+                    nuovaPrenotazione.setOraInizio(oraInizio);
+                    nuovaPrenotazione.setCampo(campo);
+                    nuovaPrenotazione.setSocio(socio);
+
+                    // L'inserimento è atomico: la disponibilità viene verificata dal
+                    // vincolo di unicità, senza lettura preventiva
+                    Integer id = prenotazioneDAO.createPrenotazione(nuovaPrenotazione);
+                    if (id == null) {
+                        throw campoGiaPrenotato(campo, data, oraInizio, null);
+                    }
+                    evento.idPrenotazione = id;
+                    return id;
+
+                } catch (SQLException e) {
+                    if (UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                        throw campoGiaPrenotato(campo, data, oraInizio, e);
+                    }
+                    throw new PrenotazioneException(
+                            "Errore durante la creazione della prenotazione: " + e.getMessage(), e);
+                }
+            });
+        } catch (Throwable e) {
+            evento.errore = e.getMessage();
+            throw e;
+        } finally {
+            if (evento.shouldCommit()) {
+                evento.idCampo = campo != null && campo.getId() != null ? campo.getId() : 0;
+                evento.idSocio = socio != null && socio.getId() != null ? socio.getId() : 0;
+                evento.data = data != null ? data.toString() : null;
+                evento.oraInizio = oraInizio != null ? oraInizio.toString() : null;
+                evento.commit();
+            }
         }
+    }
 
-        // Validazione data (non può essere nel passato)
-        if (data.isBefore(LocalDate.now())) {
-            throw new PrenotazioneException("Non è possibile prenotare un campo per una data passata");
-        }
+    /**
+     * Crea più prenotazioni con una sola richiesta al database per la verifica
+     * di disponibilità e manutenzioni e un unico inserimento batch in una
+     * transazione. Le prenotazioni non valide (comprese quelle null), già
+     * occupate o su un campo in manutenzione vengono scartate senza bloccare
+     * le altre.
+     * 
+     * @param richieste le prenotazioni da creare (data, ora, campo e socio)
+     * @return l'esito di ogni prenotazione, nello stesso ordine delle richieste
+     * @throws PrenotazioneException se la richiesta è vuota o troppo grande, o
+     *                               in caso di errore del database
+     */
+    public List<EsitoPrenotazione> creaPrenotazioniBatch(List<Prenotazione> richieste)
+            throws PrenotazioneException {
+        return Strumentazione.misura("PrenotazioneService.creaPrenotazioniBatch", () -> {
+            if (richieste == null || richieste.isEmpty()) {
+                throw new PrenotazioneException("Nessuna prenotazione da creare");
+            }
 
-        // Validazione orario (esempio: dalle 8:00 alle 22:00)
-        if (oraInizio.isBefore(LocalTime.of(8, 0)) || oraInizio.isAfter(LocalTime.of(22, 0))) {
-            throw new PrenotazioneException("L'orario di prenotazione deve essere tra le 8:00 e le 22:00");
-        }
+            if (richieste.size() > MAX_PRENOTAZIONI_BATCH) {
+                throw new PrenotazioneException(
+                        "Non è possibile creare più di " + MAX_PRENOTAZIONI_BATCH + " prenotazioni alla volta");
+            }
 
-        // Validazione orario passato (solo se la data è oggi)
-        if (data.equals(LocalDate.now()) && oraInizio.isBefore(LocalTime.now())) {
-            throw new PrenotazioneException("Non è possibile prenotare un campo per un orario passato");
-        }
+            EsitoPrenotazione[] esiti = new EsitoPrenotazione[richieste.size()];
+            List<Integer> posizioniValide = new ArrayList<>();
+            List<Prenotazione> valide = new ArrayList<>();
 
-        try {
-            // Validazione manutenzione esistente in quella data
-            if (manutenzioneDAO.getManutenzioneAttivaByDataAndCampo(data, campo.getId()) != null) {
-                throw new PrenotazioneException(
-                        "Non è possibile prenotare il campo perché è in corso una manutenzione");
+            for (int i = 0; i < richieste.size(); i++) {
+                Prenotazione richiesta = richieste.get(i);
+                if (richiesta == null) {
+                    esiti[i] = new EsitoPrenotazione(null, EsitoPrenotazione.Stato.NON_VALIDA,
+                            "La prenotazione non può essere null");
+                    continue;
+                }
+                try {
+                    validaPrenotazione(richiesta.getData(), richiesta.getOraInizio(), richiesta.getCampo(),
+                            richiesta.getSocio());
+                    posizioniValide.add(i);
+                    valide.add(richiesta);
+                } catch (PrenotazioneException e) {
+                    esiti[i] = new EsitoPrenotazione(richiesta, EsitoPrenotazione.Stato.NON_VALIDA, e.getMessage());
+                }
             }
-            // Verifica disponibilità del campo
-            List<Prenotazione> prenotazioniEsistenti = prenotazioneDAO.getPrenotazioniByDataAndCampo(data,
-                    campo.getId());
 
-            // Controlla se c'è già una prenotazione alla stessa ora
-            for (Prenotazione p : prenotazioniEsistenti) {
-                if (p.getOraInizio().equals(oraInizio)) {
-                    throw new PrenotazioneException(
-                            String.format("Il campo %s è già prenotato per il %s alle ore %s",
-                                    campo.getNome(), data, oraInizio));
+            try {
+                // Verifica di disponibilità e manutenzioni per tutte le richieste insieme
+                List<DisponibilitaSlot> disponibilita = prenotazioneDAO.verificaDisponibilita(valide);
+
+                List<Integer> posizioniLibere = new ArrayList<>();
+                List<Prenotazione> libere = new ArrayList<>();
+                for (int j = 0; j < valide.size(); j++) {
+                    Prenotazione richiesta = valide.get(j);
+                    int posizione = posizioniValide.get(j);
+                    switch (disponibilita.get(j)) {
+                        case IN_MANUTENZIONE:
+                            esiti[posizione] = new EsitoPrenotazione(richiesta, EsitoPrenotazione.Stato.IN_MANUTENZIONE,
+                                    "Non è possibile prenotare il campo perché è in corso una manutenzione");
+                            break;
+                        case OCCUPATO:
+                            esiti[posizione] = new EsitoPrenotazione(richiesta, EsitoPrenotazione.Stato.GIA_PRENOTATA,
+                                    campoGiaPrenotato(richiesta.getCampo(), richiesta.getData(),
+                                            richiesta.getOraInizio(), null).getMessage());
+                            break;
+                        default:
+                            posizioniLibere.add(posizione);
+                            libere.add(richiesta);
+                            break;
+                    }
+                }
+
+                // Un orario può risultare occupato anche qui, se prenotato nel frattempo
+                // o ripetuto nella stessa richiesta
+                List<Integer> ids = prenotazioneDAO.createPrenotazioni(libere);
+                for (int k = 0; k < libere.size(); k++) {
+                    Prenotazione richiesta = libere.get(k);
+                    if (ids.get(k) != null) {
+                        esiti[posizioniLibere.get(k)] = new EsitoPrenotazione(richiesta, EsitoPrenotazione.Stato.CREATA,
+                                "Prenotazione creata con ID " + ids.get(k));
+                    } else {
+                        esiti[posizioniLibere.get(k)] = new EsitoPrenotazione(richiesta,
+                                EsitoPrenotazione.Stato.GIA_PRENOTATA,
+                                campoGiaPrenotato(richiesta.getCampo(), richiesta.getData(),
+                                        richiesta.getOraInizio(), null).getMessage());
+                    }
                 }
+
+            } catch (SQLException e) {
+                throw new PrenotazioneException("Errore durante la creazione delle prenotazioni: " + e.getMessage(), e);
             }
 
-            // Crea l'oggetto Prenotazione
-            Prenotazione nuovaPrenotazione = new Prenotazione();
-            nuovaPrenotazione.setData(data);
-            nuovaPrenotazione.setOraInizio(oraInizio);
-            nuovaPrenotazione.setCampo(campo);
-            nuovaPrenotazione.setSocio(socio);
+            return Arrays.asList(esiti);
+        });
+    }
 
-            // Salva nel database
-            return prenotazioneDAO.createPrenotazione(nuovaPrenotazione);
+    /**
+     * Prenota lo stesso campo e orario ogni settimana tra due date (incluse),
+     * ad esempio per gli allenamenti di una stagione.
+     * 
+     * @param dataInizio la data della prima prenotazione
+     * @param dataFine   l'ultima data utile
+     * @param oraInizio  l'ora di inizio
+     * @param campo      il campo da prenotare
+     * @param socio      il socio che effettua le prenotazioni
+     * @return l'esito di ogni prenotazione settimanale, in ordine di data
+     * @throws PrenotazioneException se l'intervallo non è valido o in caso di
+     *                               errore del database
+     */
+    public List<EsitoPrenotazione> creaPrenotazioniSettimanali(LocalDate dataInizio, LocalDate dataFine,
+            LocalTime oraInizio, Campo campo, Utente socio) throws PrenotazioneException {
+        return Strumentazione.misura("PrenotazioneService.creaPrenotazioniSettimanali", () -> {
+            if (dataInizio == null || dataFine == null) {
+                throw new PrenotazioneException("Le date di inizio e fine sono obbligatorie");
+            }
 
-        } catch (SQLException e) {
-            throw new PrenotazioneException("Errore durante la creazione della prenotazione: " + e.getMessage(), e);
-        }
+            if (dataFine.isBefore(dataInizio)) {
+                throw new PrenotazioneException("La data di fine non può precedere la data di inizio");
+            }
+
+            List<Prenotazione> richieste = new ArrayList<>();
+            for (LocalDate data = dataInizio; !data.isAfter(dataFine); data = data.plusWeeks(1)) {
+                Prenotazione richiesta = new Prenotazione();
+                richiesta.setData(data);
+                richiesta.setOraInizio(oraInizio);
+                richiesta.setCampo(campo);
+                richiesta.setSocio(socio);
+                richieste.add(richiesta);
+            }
+
+            return creaPrenotazioniBatch(richieste);
+        });
     }
 
     /**
@@ -105,19 +256,21 @@ public class PrenotazioneService {
      * @throws PrenotazioneException in caso di errore
      */
     public List<Prenotazione> getPrenotazioniPerData(LocalDate data) throws PrenotazioneException {
-        if (data == null) {
-            throw new PrenotazioneException("La data non può essere null");
-        }
+        return Strumentazione.misura("PrenotazioneService.getPrenotazioniPerData", () -> {
+            if (data == null) {
+                throw new PrenotazioneException("La data non può essere null");
+            }
 
-        if (data.isBefore(LocalDate.now())) {
-            throw new PrenotazioneException("Non è possibile ricercare la prenotazione per una data passata");
-        }
+            if (data.isBefore(LocalDate.now())) {
+                throw new PrenotazioneException("Non è possibile ricercare la prenotazione per una data passata");
+            }
 
-        try {
-            return prenotazioneDAO.getPrenotazioniByData(data);
-        } catch (SQLException e) {
-            throw new PrenotazioneException("Errore durante il recupero delle prenotazioni: " + e.getMessage(), e);
-        }
+            try {
+                return prenotazioneDAO.getPrenotazioniByData(data);
+            } catch (SQLException e) {
+                throw new PrenotazioneException("Errore durante il recupero delle prenotazioni: " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
@@ -128,15 +281,17 @@ public class PrenotazioneService {
      * @throws PrenotazioneException in caso di errore
      */
     public List<Prenotazione> getPrenotazioniPerCampo(Campo campo) throws PrenotazioneException {
-        if (campo == null || campo.getId() == null) {
-            throw new PrenotazioneException("Il campo non può essere null");
-        }
+        return Strumentazione.misura("PrenotazioneService.getPrenotazioniPerCampo", () -> {
+            if (campo == null || campo.getId() == null) {
+                throw new PrenotazioneException("Il campo non può essere null");
+            }
 
-        try {
-            return prenotazioneDAO.getPrenotazioniByCampo(campo.getId());
-        } catch (SQLException e) {
-            throw new PrenotazioneException("Errore durante il recupero delle prenotazioni: " + e.getMessage(), e);
-        }
+            try {
+                return prenotazioneDAO.getPrenotazioniByCampo(campo.getId());
+            } catch (SQLException e) {
+                throw new PrenotazioneException("Errore durante il recupero delle prenotazioni: " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
@@ -147,15 +302,17 @@ public class PrenotazioneService {
      * @throws PrenotazioneException in caso di errore
      */
     public List<Prenotazione> getPrenotazioniPerSocio(Utente socio) throws PrenotazioneException {
-        if (socio == null || socio.getId() == null) {
-            throw new PrenotazioneException("Il socio non può essere null");
-        }
+        return Strumentazione.misura("PrenotazioneService.getPrenotazioniPerSocio", () -> {
+            if (socio == null || socio.getId() == null) {
+                throw new PrenotazioneException("Il socio non può essere null");
+            }
 
-        try {
-            return prenotazioneDAO.getPrenotazioniBySocio(socio.getId());
-        } catch (SQLException e) {
-            throw new PrenotazioneException("Errore durante il recupero delle prenotazioni: " + e.getMessage(), e);
-        }
+            try {
+                return prenotazioneDAO.getPrenotazioniBySocio(socio.getId());
+            } catch (SQLException e) {
+                throw new PrenotazioneException("Errore durante il recupero delle prenotazioni: " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
@@ -168,20 +325,21 @@ public class PrenotazioneService {
      */
     public List<Prenotazione> getPrenotazioniPerDataECampo(LocalDate data, Campo campo)
             throws PrenotazioneException {
+        return Strumentazione.misura("PrenotazioneService.getPrenotazioniPerDataECampo", () -> {
+            if (data == null || campo == null || campo.getId() == null) {
+                throw new PrenotazioneException("Data e campo non possono essere null");
+            }
 
-        if (data == null || campo == null || campo.getId() == null) {
-            throw new PrenotazioneException("Data e campo non possono essere null");
-        }
-
-        if (data.isBefore(LocalDate.now())) {
-            throw new PrenotazioneException("Non è possibile ricercare la prenotazione per una data passata");
-        }
+            if (data.isBefore(LocalDate.now())) {
+                throw new PrenotazioneException("Non è possibile ricercare la prenotazione per una data passata");
+            }
 
-        try {
-            return prenotazioneDAO.getPrenotazioniByDataAndCampo(data, campo.getId());
-        } catch (SQLException e) {
-            throw new PrenotazioneException("Errore durante il recupero delle prenotazioni: " + e.getMessage(), e);
-        }
+            try {
+                return prenotazioneDAO.getPrenotazioniByDataAndCampo(data, campo.getId());
+            } catch (SQLException e) {
+                throw new PrenotazioneException("Errore durante il recupero delle prenotazioni: " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
@@ -195,33 +353,27 @@ public class PrenotazioneService {
      */
     public boolean isCampoDisponibile(LocalDate data, LocalTime oraInizio, Campo campo)
             throws PrenotazioneException {
+        return Strumentazione.misura("PrenotazioneService.isCampoDisponibile", () -> {
+            if (data == null || oraInizio == null || campo == null || campo.getId() == null) {
+                throw new PrenotazioneException("Tutti i parametri sono obbligatori");
+            }
 
-        if (data == null || oraInizio == null || campo == null || campo.getId() == null) {
-            throw new PrenotazioneException("Tutti i parametri sono obbligatori");
-        }
-
-        if (data.isBefore(LocalDate.now())) {
-            throw new PrenotazioneException("Non è possibile ricercare la prenotazione per una data passata");
-        }
-
-        if (data.isEqual(LocalDate.now()) && oraInizio.isBefore(LocalTime.now())) {
-            throw new PrenotazioneException("Non è possibile ricercare la prenotazione per un orario passato");
-        }
-
-        try {
-            List<Prenotazione> prenotazioni = prenotazioneDAO.getPrenotazioniByDataAndCampo(data, campo.getId());
+            if (data.isBefore(LocalDate.now())) {
+                throw new PrenotazioneException("Non è possibile ricercare la prenotazione per una data passata");
+            }
 
-            // Controlla se esiste già una prenotazione alla stessa ora
-            for (Prenotazione p : prenotazioni) {
-                if (p.getOraInizio().equals(oraInizio)) {
-                    return false; // Campo non disponibile
-                }
+            if (data.isEqual(LocalDate.now()) && oraInizio.isBefore(LocalTime.now())) {
+                throw new PrenotazioneException("Non è possibile ricercare la prenotazione per un orario passato");
             }
 
-            return true; // Campo disponibile
-        } catch (SQLException e) {
-            throw new PrenotazioneException("Errore durante la verifica della disponibilità: " + e.getMessage(), e);
-        }
+            try {
+                // Lettura in memoria: l'indice è mantenuto allineato da PrenotazioneDAO
+                return !occupancyIndex.isOccupato(campo.getId(), data, oraInizio);
+            } catch (SQLException e) {
+                throw new PrenotazioneException("Errore durante la verifica della disponibilità: " + e.getMessage(),
+                        e);
+            }
+        });
     }
 
     /**
@@ -232,22 +384,25 @@ public class PrenotazioneService {
      * @throws PrenotazioneException in caso di errore
      */
     public boolean cancellaPrenotazione(Integer idPrenotazione) throws PrenotazioneException {
-        if (idPrenotazione == null) {
-            throw new PrenotazioneException("L'ID della prenotazione non può essere null");
-        }
-
-        try {
-            // Verifica che la prenotazione esista
-            Prenotazione prenotazione = prenotazioneDAO.getPrenotazioneById(idPrenotazione);
-            if (prenotazione == null) {
-                throw new PrenotazioneException("Prenotazione non trovata con ID: " + idPrenotazione);
+        return Strumentazione.misura("PrenotazioneService.cancellaPrenotazione", () -> {
+            if (idPrenotazione == null) {
+                throw new PrenotazioneException("L'ID della prenotazione non può essere null");
             }
 
-            // Cancella la prenotazione
-            return prenotazioneDAO.deletePrenotazione(idPrenotazione);
-        } catch (SQLException e) {
-            throw new PrenotazioneException("Errore durante la cancellazione della prenotazione: " + e.getMessage(), e);
-        }
+            try {
+                // Verifica che la prenotazione esista
+                Prenotazione prenotazione = prenotazioneDAO.getPrenotazioneById(idPrenotazione);
+                if (prenotazione == null) {
+                    throw new PrenotazioneException("Prenotazione non trovata con ID: " + idPrenotazione);
+                }
+
+                // Cancella la prenotazione
+                return prenotazioneDAO.deletePrenotazione(idPrenotazione);
+            } catch (SQLException e) {
+                throw new PrenotazioneException("Errore durante la cancellazione della prenotazione: " + e.getMessage(),
+                        e);
+            }
+        });
     }
 
     /**
@@ -259,19 +414,21 @@ public class PrenotazioneService {
      *                               errore
      */
     public Prenotazione getPrenotazionePerId(Integer idPrenotazione) throws PrenotazioneException {
-        if (idPrenotazione == null || idPrenotazione <= 0) {
-            throw new PrenotazioneException("L'ID della prenotazione non può essere null o negativo");
-        }
+        return Strumentazione.misura("PrenotazioneService.getPrenotazionePerId", () -> {
+            if (idPrenotazione == null || idPrenotazione <= 0) {
+                throw new PrenotazioneException("L'ID della prenotazione non può essere null o negativo");
+            }
 
-        try {
-            Prenotazione prenotazione = prenotazioneDAO.getPrenotazioneById(idPrenotazione);
-            if (prenotazione == null) {
-                throw new PrenotazioneException("Prenotazione con ID " + idPrenotazione + " non trovata");
+            try {
+                Prenotazione prenotazione = prenotazioneDAO.getPrenotazioneById(idPrenotazione);
+                if (prenotazione == null) {
+                    throw new PrenotazioneException("Prenotazione con ID " + idPrenotazione + " non trovata");
+                }
+                return prenotazione;
+            } catch (SQLException e) {
+                throw new PrenotazioneException("Errore durante il recupero della prenotazione: " + e.getMessage(), e);
             }
-            return prenotazione;
-        } catch (SQLException e) {
-            throw new PrenotazioneException("Errore durante il recupero della prenotazione: " + e.getMessage(), e);
-        }
+        });
     }
 
     /**
@@ -281,11 +438,114 @@ public class PrenotazioneService {
      * @throws PrenotazioneException in caso di errore
      */
     public List<Prenotazione> getPrenotazioni() throws PrenotazioneException {
-        try {
-            return prenotazioneDAO.getAllPrenotazioni();
-        } catch (SQLException e) {
-            throw new PrenotazioneException("Errore durante il recupero di tutte le prenotazioni: " + e.getMessage(),
-                    e);
+        return Strumentazione.misura("PrenotazioneService.getPrenotazioni", () -> {
+            try {
+                return prenotazioneDAO.getAllPrenotazioni();
+            } catch (SQLException e) {
+                throw new PrenotazioneException(
+                        "Errore durante il recupero di tutte le prenotazioni: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Esporta in CSV le prenotazioni con campo, socio e lezione associata,
+     * partizioni archiviate escluse, scrivendo le righe man mano che arrivano
+     * dal database: la memoria usata non dipende dal numero di righe.
+     * 
+     * @param destinazione il Writer su cui scrivere il CSV
+     * @param dal          la data iniziale inclusa, null per nessun limite
+     * @param al           la data finale inclusa, null per nessun limite
+     * @param idCampo      l'ID del campo, null per tutti i campi
+     * @return il numero di righe esportate
+     * @throws PrenotazioneException se i filtri non sono validi o in caso di errore
+     */
+    public long esportaPrenotazioni(Writer destinazione, LocalDate dal, LocalDate al, Integer idCampo)
+            throws PrenotazioneException {
+        return Strumentazione.misura("PrenotazioneService.esportaPrenotazioni", () -> {
+            if (destinazione == null) {
+                throw new PrenotazioneException("La destinazione dell'esportazione non può essere nulla");
+            }
+            if (dal != null && al != null && dal.isAfter(al)) {
+                throw new PrenotazioneException("La data iniziale non può essere successiva a quella finale");
+            }
+            if (idCampo != null && idCampo <= 0) {
+                throw new PrenotazioneException("ID campo non valido");
+            }
+
+            try {
+                return prenotazioneDAO.esportaCsv(destinazione, dal, al, idCampo);
+            } catch (SQLException e) {
+                throw new PrenotazioneException("Errore durante l'esportazione delle prenotazioni: " + e.getMessage(),
+                        e);
+            }
+        });
+    }
+
+    /**
+     * Recupera una pagina di prenotazioni, ordinate per data e ora.
+     * 
+     * @param token      il token restituito dalla pagina precedente, null per
+     *                   la prima pagina
+     * @param dimensione il numero di prenotazioni per pagina
+     * @return la pagina richiesta
+     * @throws PrenotazioneException se il token o la dimensione non sono validi
+     *                               o in caso di errore
+     */
+    public Pagina<Prenotazione> getPrenotazioni(String token, int dimensione) throws PrenotazioneException {
+        return Strumentazione.misura("PrenotazioneService.getPrenotazioni(String, int)", () -> {
+            try {
+                return Pagina.leggi(token, dimensione, 3, chiave -> {
+                    LocalDate data = chiave != null ? LocalDate.parse(chiave[0]) : null;
+                    LocalTime oraInizio = chiave != null ? LocalTime.parse(chiave[1]) : null;
+                    Integer id = chiave != null ? Integer.valueOf(chiave[2]) : null;
+                    return limite -> prenotazioneDAO.getPrenotazioniDopo(data, oraInizio, id, limite);
+                }, ultima -> new Object[] { ultima.getData(), ultima.getOraInizio(), ultima.getId() });
+
+            } catch (IllegalArgumentException e) {
+                throw new PrenotazioneException(e.getMessage(), e);
+            } catch (SQLException e) {
+                throw new PrenotazioneException("Errore durante il recupero delle prenotazioni: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Verifica i dati obbligatori e le regole su data e orario di una
+     * prenotazione.
+     */
+    private void validaPrenotazione(LocalDate data, LocalTime oraInizio, Campo campo, Utente socio)
+            throws PrenotazioneException {
+
+        // Validazione input
+        if (data == null || oraInizio == null || campo == null || socio == null) {
+            throw new PrenotazioneException("Tutti i campi sono obbligatori per creare una prenotazione");
         }
+
+        // Validazione data (non può essere nel passato)
+        if (data.isBefore(LocalDate.now())) {
+            throw new PrenotazioneException("Non è possibile prenotare un campo per una data passata");
+        }
+
+        // Validazione orario (esempio: dalle 8:00 alle 22:00)
+        if (oraInizio.isBefore(LocalTime.of(8, 0)) || oraInizio.isAfter(LocalTime.of(22, 0))) {
+            throw new PrenotazioneException("L'orario di prenotazione deve essere tra le 8:00 e le 22:00");
+        }
+
+        // Validazione orario passato (solo se la data è oggi)
+        if (data.equals(LocalDate.now()) && oraInizio.isBefore(LocalTime.now())) {
+            throw new PrenotazioneException("Non è possibile prenotare un campo per un orario passato");
+        }
+    }
+
+    /**
+     * Crea l'eccezione per un orario già occupato.
+     */
+    private static PrenotazioneException campoGiaPrenotato(Campo campo, LocalDate data, LocalTime oraInizio,
+            SQLException causa) {
+        return new PrenotazioneException(
+                String.format("Il campo %s è già prenotato per il %s alle ore %s",
+                        campo.getNome(), data, oraInizio),
+                causa);
     }
 }
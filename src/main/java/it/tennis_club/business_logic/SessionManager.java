@@ -1,11 +1,18 @@
 package it.tennis_club.business_logic;
 
 import it.tennis_club.domain_model.Utente;
+import it.tennis_club.orm.ConnectionManager;
+import it.tennis_club.orm.Log;
 
-import java.time.LocalDateTime;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
 
 /**
  * Gestore delle sessioni utente che implementa il pattern Singleton.
@@ -16,9 +23,24 @@ import java.util.UUID;
  * - Recuperare l'utente corrente dalla sessione
  * - Invalidare sessioni (logout)
  * - Verificare la validità delle sessioni
+ * 
+ * Le sessioni sono conservate in una mappa concorrente e possono essere usate
+ * da più thread contemporaneamente. Una sessione scade dopo un periodo di
+ * inattività (proprietà "session.timeoutMs", default 30 minuti) misurato con
+ * {@link System#nanoTime()}, quindi insensibile ai cambi dell'orologio di
+ * sistema. Un thread in background rimuove periodicamente le sessioni scadute
+ * (proprietà "session.sweepIntervalMs", default 1 minuto). Oltre il numero
+ * massimo di sessioni (proprietà "session.maxSessions", default 10000) la
+ * creazione di una nuova sessione rimuove quella inattiva da più tempo.
  */
 public class SessionManager {
 
+    private static final Log LOG = Log.get(SessionManager.class);
+
+    private static final long DEFAULT_TIMEOUT_MILLIS = 30 * 60 * 1000;
+    private static final long DEFAULT_SWEEP_INTERVAL_MILLIS = 60 * 1000;
+    private static final int DEFAULT_MAX_SESSIONS = 10000;
+
     // Istanza singleton
     private static SessionManager instance;
 
@@ -26,14 +48,61 @@ public class SessionManager {
     private final Map<String, Session> sessions;
 
     // Session ID dell'utente corrente (per applicazioni single-user)
-    private String currentSessionId;
+    private final AtomicReference<String> currentSessionId;
+
+    private final long timeoutNanos;
+    private final int maxSessions;
+    private final LongSupplier clock;
+
+    // Serializza solo le creazioni, per rispettare il limite di sessioni;
+    // letture e invalidazioni non acquisiscono lock
+    private final Object creationLock = new Object();
+
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    private final ScheduledExecutorService sweeper;
 
     /**
      * Costruttore privato per implementare il pattern Singleton.
+     * I parametri vengono letti da db.properties.
      */
     private SessionManager() {
-        this.sessions = new HashMap<>();
-        this.currentSessionId = null;
+        this(Long.parseLong(ConnectionManager.getProperty("session.timeoutMs",
+                String.valueOf(DEFAULT_TIMEOUT_MILLIS))),
+                Integer.parseInt(ConnectionManager.getProperty("session.maxSessions",
+                        String.valueOf(DEFAULT_MAX_SESSIONS))),
+                Long.parseLong(ConnectionManager.getProperty("session.sweepIntervalMs",
+                        String.valueOf(DEFAULT_SWEEP_INTERVAL_MILLIS))),
+                System::nanoTime);
+    }
+
+    /**
+     * Crea un gestore con parametri espliciti e orologio sostituibile (usato
+     * dai test). Un intervallo di pulizia non positivo disabilita il thread in
+     * background.
+     */
+    SessionManager(long timeoutMillis, int maxSessions, long sweepIntervalMillis, LongSupplier clock) {
+        if (timeoutMillis <= 0 || maxSessions <= 0) {
+            throw new IllegalArgumentException("Timeout e numero massimo di sessioni devono essere positivi");
+        }
+        this.sessions = new ConcurrentHashMap<>();
+        this.currentSessionId = new AtomicReference<>();
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.maxSessions = maxSessions;
+        this.clock = clock;
+
+        if (sweepIntervalMillis > 0) {
+            this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "session-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.sweeper.scheduleWithFixedDelay(this::sweep, sweepIntervalMillis, sweepIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            this.sweeper = null;
+        }
     }
 
     /**
@@ -49,12 +118,27 @@ public class SessionManager {
     }
 
     /**
-     * Crea una nuova sessione per un utente autenticato.
+     * Crea una nuova sessione per un utente autenticato. Se è stato raggiunto
+     * il numero massimo di sessioni, viene rimossa quella inattiva da più
+     * tempo.
      * 
      * @param utente l'utente per cui creare la sessione
      * @return l'ID della sessione creata
      */
     public String createSession(Utente utente) {
+        return createSession(utente, true);
+    }
+
+    /**
+     * Crea una nuova sessione per un utente autenticato, indicando se deve
+     * diventare la sessione corrente. Le sessioni dei client HTTP non sono mai
+     * correnti: ogni richiesta presenta il proprio ID di sessione.
+     * 
+     * @param utente   l'utente per cui creare la sessione
+     * @param corrente se true, la sessione diventa quella corrente
+     * @return l'ID della sessione creata
+     */
+    public String createSession(Utente utente, boolean corrente) {
         if (utente == null) {
             throw new IllegalArgumentException("L'utente non può essere null");
         }
@@ -63,13 +147,24 @@ public class SessionManager {
         String sessionId = UUID.randomUUID().toString();
 
         // Crea la sessione
-        Session session = new Session(sessionId, utente);
+        Session session = new Session(utente, clock.getAsLong());
+
+        synchronized (creationLock) {
+            if (sessions.size() >= maxSessions) {
+                cleanExpiredSessions();
+            }
+            while (sessions.size() >= maxSessions) {
+                evictLeastRecentlyUsed();
+            }
 
-        // Salva la sessione
-        sessions.put(sessionId, session);
+            // Salva la sessione
+            sessions.put(sessionId, session);
+        }
 
         // Imposta come sessione corrente (per applicazioni single-user)
-        currentSessionId = sessionId;
+        if (corrente) {
+            currentSessionId.set(sessionId);
+        }
 
         return sessionId;
     }
@@ -82,24 +177,30 @@ public class SessionManager {
      *         è scaduta
      */
     public Utente getUser(String sessionId) {
+        if (sessionId == null) {
+            return null;
+        }
+
         Session session = sessions.get(sessionId);
 
         if (session == null) {
             return null;
         }
 
+        long now = clock.getAsLong();
+
         // Verifica se la sessione è ancora valida
-        if (session.isExpired()) {
+        if (session.isExpired(now, timeoutNanos)) {
             // Rimuovi la sessione scaduta
-            sessions.remove(sessionId);
-            if (sessionId.equals(currentSessionId)) {
-                currentSessionId = null;
+            if (sessions.remove(sessionId, session)) {
+                expired.incrementAndGet();
             }
+            currentSessionId.compareAndSet(sessionId, null);
             return null;
         }
 
         // Aggiorna il timestamp dell'ultimo accesso
-        session.updateLastAccess();
+        session.updateLastAccess(now);
 
         return session.getUtente();
     }
@@ -110,10 +211,7 @@ public class SessionManager {
      * @return l'utente corrente, o null se nessun utente è loggato
      */
     public Utente getCurrentUser() {
-        if (currentSessionId == null) {
-            return null;
-        }
-        return getUser(currentSessionId);
+        return getUser(currentSessionId.get());
     }
 
     /**
@@ -138,9 +236,7 @@ public class SessionManager {
 
         Session removed = sessions.remove(sessionId);
 
-        if (sessionId.equals(currentSessionId)) {
-            currentSessionId = null;
-        }
+        currentSessionId.compareAndSet(sessionId, null);
 
         return removed != null;
     }
@@ -152,12 +248,11 @@ public class SessionManager {
      *         sessione attiva
      */
     public boolean logout() {
-        if (currentSessionId == null) {
+        String sessionToRemove = currentSessionId.getAndSet(null);
+        if (sessionToRemove == null) {
             return false;
         }
 
-        String sessionToRemove = currentSessionId;
-        currentSessionId = null;
         sessions.remove(sessionToRemove);
 
         return true;
@@ -174,11 +269,73 @@ public class SessionManager {
         return sessions.size();
     }
 
+    /**
+     * Restituisce il numero di sessioni rimosse perché scadute.
+     */
+    public long getExpiredSessionsCount() {
+        return expired.get();
+    }
+
+    /**
+     * Restituisce il numero di sessioni rimosse per rispettare il limite
+     * massimo di sessioni.
+     */
+    public long getEvictedSessionsCount() {
+        return evicted.get();
+    }
+
     /**
      * Pulisce tutte le sessioni scadute.
+     * 
+     * @return il numero di sessioni rimosse
+     */
+    int cleanExpiredSessions() {
+        long now = clock.getAsLong();
+        int removed = 0;
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            if (entry.getValue().isExpired(now, timeoutNanos)
+                    && sessions.remove(entry.getKey(), entry.getValue())) {
+                currentSessionId.compareAndSet(entry.getKey(), null);
+                removed++;
+            }
+        }
+        expired.addAndGet(removed);
+        return removed;
+    }
+
+    /**
+     * Pulizia eseguita dal thread in background: un errore non deve
+     * interrompere le esecuzioni successive.
      */
-    private void cleanExpiredSessions() {
-        sessions.entrySet().removeIf(entry -> entry.getValue().isExpired());
+    private void sweep() {
+        try {
+            cleanExpiredSessions();
+        } catch (RuntimeException e) {
+            LOG.errore("Errore durante la pulizia delle sessioni", e);
+        }
+    }
+
+    /**
+     * Rimuove la sessione inattiva da più tempo. Chiamato solo con
+     * creationLock acquisito.
+     */
+    private void evictLeastRecentlyUsed() {
+        String oldestId = null;
+        Session oldest = null;
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            Session session = entry.getValue();
+            if (oldest == null || session.lastAccessNanos - oldest.lastAccessNanos < 0) {
+                oldestId = entry.getKey();
+                oldest = session;
+            }
+        }
+        if (oldestId == null) {
+            return;
+        }
+        if (sessions.remove(oldestId, oldest)) {
+            evicted.incrementAndGet();
+        }
+        currentSessionId.compareAndSet(oldestId, null);
     }
 
     /**
@@ -186,7 +343,17 @@ public class SessionManager {
      */
     public void clearAllSessions() {
         sessions.clear();
-        currentSessionId = null;
+        currentSessionId.set(null);
+    }
+
+    /**
+     * Arresta il thread di pulizia in background. Le sessioni esistenti
+     * restano utilizzabili e scadono comunque alla lettura.
+     */
+    void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
     }
 
     /**
@@ -194,22 +361,21 @@ public class SessionManager {
      */
     private static class Session {
         private final Utente utente;
-        private LocalDateTime lastAccessedAt;
 
-        // Timeout della sessione in minuti (default: 30 minuti)
-        private static final long SESSION_TIMEOUT_MINUTES = 30;
+        // Istante dell'ultimo accesso secondo System.nanoTime()
+        private volatile long lastAccessNanos;
 
-        public Session(String sessionId, Utente utente) {
+        Session(Utente utente, long now) {
             this.utente = utente;
-            this.lastAccessedAt = LocalDateTime.now();
+            this.lastAccessNanos = now;
         }
 
-        public Utente getUtente() {
+        Utente getUtente() {
             return utente;
         }
 
-        public void updateLastAccess() {
-            this.lastAccessedAt = LocalDateTime.now();
+        void updateLastAccess(long now) {
+            this.lastAccessNanos = now;
         }
 
         /**
@@ -217,9 +383,9 @@ public class SessionManager {
          * 
          * @return true se la sessione è scaduta, false altrimenti
          */
-        public boolean isExpired() {
-            LocalDateTime expirationTime = lastAccessedAt.plusMinutes(SESSION_TIMEOUT_MINUTES);
-            return LocalDateTime.now().isAfter(expirationTime);
+        boolean isExpired(long now, long timeoutNanos) {
+            // Confronto per differenza: corretto anche in caso di overflow di nanoTime
+            return now - lastAccessNanos > timeoutNanos;
         }
     }
 }
@@ -0,0 +1,113 @@
+package it.tennis_club.domain_model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Rappresenta una notifica destinata a un utente.
+ * Corrisponde alla tabella 'notifica' nel database.
+ */
+public class Notifica {
+
+    /**
+     * Stato della consegna della notifica ai canali esterni.
+     */
+    public enum StatoConsegna {
+        IN_ATTESA, CONSEGNATA, FALLITA
+    }
+
+    private Long id;
+    private Integer idUtente;
+    private String messaggio;
+    private LocalDateTime creataIl;
+    private boolean letta;
+    private StatoConsegna statoConsegna = StatoConsegna.IN_ATTESA;
+    private int tentativi;
+
+    // Costruttore vuoto
+    public Notifica() {
+    }
+
+    // Costruttore per una nuova notifica, non ancora salvata
+    public Notifica(Integer idUtente, String messaggio, LocalDateTime creataIl) {
+        this(null, idUtente, messaggio, creataIl, false);
+    }
+
+    // Costruttore completo
+    public Notifica(Long id, Integer idUtente, String messaggio, LocalDateTime creataIl, boolean letta) {
+        this.id = id;
+        this.idUtente = idUtente;
+        this.messaggio = messaggio;
+        this.creataIl = creataIl;
+        this.letta = letta;
+    }
+
+    // Getter e Setter
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Integer getIdUtente() {
+        return idUtente;
+    }
+
+    public void setIdUtente(Integer idUtente) {
+        this.idUtente = idUtente;
+    }
+
+    public String getMessaggio() {
+        return messaggio;
+    }
+
+    public void setMessaggio(String messaggio) {
+        this.messaggio = messaggio;
+    }
+
+    public LocalDateTime getCreataIl() {
+        return creataIl;
+    }
+
+    public void setCreataIl(LocalDateTime creataIl) {
+        this.creataIl = creataIl;
+    }
+
+    public boolean isLetta() {
+        return letta;
+    }
+
+    public void setLetta(boolean letta) {
+        this.letta = letta;
+    }
+
+    public StatoConsegna getStatoConsegna() {
+        return statoConsegna;
+    }
+
+    public void setStatoConsegna(StatoConsegna statoConsegna) {
+        this.statoConsegna = statoConsegna;
+    }
+
+    public int getTentativi() {
+        return tentativi;
+    }
+
+    public void setTentativi(int tentativi) {
+        this.tentativi = tentativi;
+    }
+
+    @Override
+    public String toString() {
+        return "Notifica{" +
+                "id=" + id +
+                ", idUtente=" + idUtente +
+                ", messaggio='" + messaggio + '\'' +
+                ", creataIl=" + creataIl +
+                ", letta=" + letta +
+                ", statoConsegna=" + statoConsegna +
+                ", tentativi=" + tentativi +
+                '}';
+    }
+}
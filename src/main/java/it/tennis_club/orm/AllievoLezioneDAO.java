@@ -17,13 +17,41 @@ import java.util.List;
  */
 public class AllievoLezioneDAO {
 
-    private final LezioneDAO lezioneDAO;
-    private final UtenteDAO utenteDAO;
+    private static final Log LOG = Log.get(AllievoLezioneDAO.class);
 
-    public AllievoLezioneDAO() {
-        this.lezioneDAO = new LezioneDAO();
-        this.utenteDAO = new UtenteDAO();
-    }
+    // Dalla partecipazione si arriva a lezione, prenotazione, campo, socio,
+    // maestro e allievo con un'unica JOIN
+    private static final String FROM_ALLIEVO_LEZIONE = " FROM allievo_lezione al" +
+            " JOIN lezione l ON l.id = al.id_lezione" + ResultSetHydrator.JOIN_LEZIONE + " ";
+
+    private static final String SELECT_ALLIEVO_LEZIONE = "SELECT " + ResultSetHydrator.colonneAllievoLezione() +
+            FROM_ALLIEVO_LEZIONE + "JOIN utente a ON a.id = al.id_allievo ";
+
+    // Query complete dei metodi che filtrano le iscrizioni, visibili nel
+    // package perché QueryPlanTest ne verifica i piani di esecuzione
+    static final String QUERY_ALLIEVI_BY_LEZIONE = "SELECT " +
+            ResultSetHydrator.colonneUtente("a", ResultSetHydrator.ALLIEVO) +
+            " FROM allievo_lezione al JOIN utente a ON a.id = al.id_allievo WHERE al.id_lezione = ?";
+
+    static final String QUERY_LEZIONI_BY_ALLIEVO = "SELECT " + ResultSetHydrator.colonneLezione() +
+            FROM_ALLIEVO_LEZIONE + "WHERE al.id_allievo = ? ORDER BY p.data, p.ora_inizio";
+
+    static final String QUERY_ALLIEVO_LEZIONE = SELECT_ALLIEVO_LEZIONE +
+            "WHERE al.id_lezione = ? AND al.id_allievo = ?";
+
+    static final String QUERY_ALLIEVI_LEZIONE = SELECT_ALLIEVO_LEZIONE + "WHERE al.id_lezione = ?";
+
+    static final String QUERY_CONTA_ALLIEVI = "SELECT COUNT(*) as totale FROM allievo_lezione WHERE id_lezione = ?";
+
+    static final String UPDATE_PRESENZA =
+            "UPDATE allievo_lezione SET presente = ? WHERE id_lezione = ? AND id_allievo = ?";
+
+    static final String UPDATE_FEEDBACK =
+            "UPDATE allievo_lezione SET feedback = ? WHERE id_lezione = ? AND id_allievo = ?";
+
+    static final String DELETE_ALLIEVO = "DELETE FROM allievo_lezione WHERE id_lezione = ? AND id_allievo = ?";
+
+    static final String DELETE_BY_LEZIONE = "DELETE FROM allievo_lezione WHERE id_lezione = ? RETURNING id_allievo";
 
     /**
      * Aggiunge un allievo a una lezione.
@@ -34,33 +62,35 @@ public class AllievoLezioneDAO {
      * @throws SQLException se si verifica un errore
      */
     public Integer aggiungiAllievoLezione(Integer idLezione, Integer idAllievo) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        Integer generatedId = null;
-
-        try {
-            connection = ConnectionManager.getConnection();
-            String query = "INSERT INTO allievo_lezione (id_lezione, id_allievo, presente) VALUES (?, ?, TRUE)";
-            statement = connection.prepareStatement(query, PreparedStatement.RETURN_GENERATED_KEYS);
-            statement.setInt(1, idLezione);
-            statement.setInt(2, idAllievo);
-
-            int affectedRows = statement.executeUpdate();
-
-            if (affectedRows == 0) {
-                throw new SQLException("Aggiunta allievo fallita, nessuna riga inserita.");
-            }
+        return Strumentazione.misura("AllievoLezioneDAO.aggiungiAllievoLezione", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            Integer generatedId = null;
 
-            resultSet = statement.getGeneratedKeys();
-            if (resultSet.next()) {
-                generatedId = resultSet.getInt(1);
-            }
+            try {
+                connection = ConnectionManager.getConnection();
+                String query = "INSERT INTO allievo_lezione (id_lezione, id_allievo, presente) VALUES (?, ?, TRUE)";
+                statement = connection.prepareStatement(query, PreparedStatement.RETURN_GENERATED_KEYS);
+                statement.setInt(1, idLezione);
+                statement.setInt(2, idAllievo);
 
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
-        return generatedId;
+                int affectedRows = statement.executeUpdate();
+
+                if (affectedRows == 0) {
+                    throw new SQLException("Aggiunta allievo fallita, nessuna riga inserita.");
+                }
+
+                resultSet = statement.getGeneratedKeys();
+                if (resultSet.next()) {
+                    generatedId = resultSet.getInt(1);
+                }
+
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
+            return generatedId;
+        });
     }
 
     /**
@@ -72,22 +102,56 @@ public class AllievoLezioneDAO {
      * @throws SQLException se si verifica un errore
      */
     public boolean rimuoviAllievoLezione(Integer idLezione, Integer idAllievo) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
+        return Strumentazione.misura("AllievoLezioneDAO.rimuoviAllievoLezione", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
 
-        try {
-            connection = ConnectionManager.getConnection();
-            String query = "DELETE FROM allievo_lezione WHERE id_lezione = ? AND id_allievo = ?";
-            statement = connection.prepareStatement(query);
-            statement.setInt(1, idLezione);
-            statement.setInt(2, idAllievo);
+            try {
+                connection = ConnectionManager.getConnection();
+                statement = connection.prepareStatement(DELETE_ALLIEVO);
+                statement.setInt(1, idLezione);
+                statement.setInt(2, idAllievo);
 
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
+                int affectedRows = statement.executeUpdate();
+                return affectedRows > 0;
 
-        } finally {
-            closeResources(null, statement, connection);
-        }
+            } finally {
+                closeResources(null, statement, connection);
+            }
+        });
+    }
+
+    /**
+     * Rimuove tutti gli allievi iscritti a una lezione usando una connessione
+     * esistente, ad esempio nella transazione che cancella la lezione, e
+     * restituisce i loro ID. La connessione non viene chiusa.
+     *
+     * @param connection la connessione da usare
+     * @param idLezione  l'ID della lezione
+     * @return gli ID degli allievi rimossi
+     * @throws SQLException se si verifica un errore
+     */
+    public List<Integer> rimuoviAllievi(Connection connection, Integer idLezione) throws SQLException {
+        return Strumentazione.misura("AllievoLezioneDAO.rimuoviAllievi", () -> {
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Integer> idAllievi = new ArrayList<>();
+
+            try {
+                statement = connection.prepareStatement(DELETE_BY_LEZIONE);
+                statement.setInt(1, idLezione);
+                resultSet = statement.executeQuery();
+
+                while (resultSet.next()) {
+                    idAllievi.add(resultSet.getInt("id_allievo"));
+                }
+
+            } finally {
+                closeResources(resultSet, statement, null);
+            }
+
+            return idAllievi;
+        });
     }
 
     /**
@@ -98,31 +162,29 @@ public class AllievoLezioneDAO {
      * @throws SQLException se si verifica un errore
      */
     public List<Utente> getAllieviByLezione(Integer idLezione) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Utente> allievi = new ArrayList<>();
-
-        try {
-            connection = ConnectionManager.getConnection();
-            String query = "SELECT id_allievo FROM allievo_lezione WHERE id_lezione = ?";
-            statement = connection.prepareStatement(query);
-            statement.setInt(1, idLezione);
-            resultSet = statement.executeQuery();
-
-            while (resultSet.next()) {
-                int idAllievo = resultSet.getInt("id_allievo");
-                Utente allievo = utenteDAO.getUtenteById(idAllievo);
-                if (allievo != null) {
-                    allievi.add(allievo);
+        return Strumentazione.misura("AllievoLezioneDAO.getAllieviByLezione", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Utente> allievi = new ArrayList<>();
+
+            try {
+                connection = ConnectionManager.getConnection();
+                statement = connection.prepareStatement(QUERY_ALLIEVI_BY_LEZIONE);
+                statement.setInt(1, idLezione);
+                resultSet = statement.executeQuery();
+
+                ResultSetHydrator hydrator = new ResultSetHydrator();
+                while (resultSet.next()) {
+                    allievi.add(hydrator.utente(resultSet, ResultSetHydrator.ALLIEVO));
                 }
-            }
 
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
 
-        return allievi;
+            return allievi;
+        });
     }
 
     /**
@@ -133,31 +195,29 @@ public class AllievoLezioneDAO {
      * @throws SQLException se si verifica un errore
      */
     public List<Lezione> getLezioniByAllievo(Integer idAllievo) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Lezione> lezioni = new ArrayList<>();
-
-        try {
-            connection = ConnectionManager.getConnection();
-            String query = "SELECT id_lezione FROM allievo_lezione WHERE id_allievo = ?";
-            statement = connection.prepareStatement(query);
-            statement.setInt(1, idAllievo);
-            resultSet = statement.executeQuery();
-
-            while (resultSet.next()) {
-                int idLezione = resultSet.getInt("id_lezione");
-                Lezione lezione = lezioneDAO.getLezioneById(idLezione);
-                if (lezione != null) {
-                    lezioni.add(lezione);
+        return Strumentazione.misura("AllievoLezioneDAO.getLezioniByAllievo", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Lezione> lezioni = new ArrayList<>();
+
+            try {
+                connection = ConnectionManager.getConnection();
+                statement = connection.prepareStatement(QUERY_LEZIONI_BY_ALLIEVO);
+                statement.setInt(1, idAllievo);
+                resultSet = statement.executeQuery();
+
+                ResultSetHydrator hydrator = new ResultSetHydrator();
+                while (resultSet.next()) {
+                    lezioni.add(hydrator.lezione(resultSet));
                 }
-            }
 
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
 
-        return lezioni;
+            return lezioni;
+        });
     }
 
     /**
@@ -170,23 +230,24 @@ public class AllievoLezioneDAO {
      * @throws SQLException se si verifica un errore
      */
     public boolean segnaPresenza(Integer idLezione, Integer idAllievo, boolean presente) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-
-        try {
-            connection = ConnectionManager.getConnection();
-            String query = "UPDATE allievo_lezione SET presente = ? WHERE id_lezione = ? AND id_allievo = ?";
-            statement = connection.prepareStatement(query);
-            statement.setBoolean(1, presente);
-            statement.setInt(2, idLezione);
-            statement.setInt(3, idAllievo);
-
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
-
-        } finally {
-            closeResources(null, statement, connection);
-        }
+        return Strumentazione.misura("AllievoLezioneDAO.segnaPresenza", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+
+            try {
+                connection = ConnectionManager.getConnection();
+                statement = connection.prepareStatement(UPDATE_PRESENZA);
+                statement.setBoolean(1, presente);
+                statement.setInt(2, idLezione);
+                statement.setInt(3, idAllievo);
+
+                int affectedRows = statement.executeUpdate();
+                return affectedRows > 0;
+
+            } finally {
+                closeResources(null, statement, connection);
+            }
+        });
     }
 
     /**
@@ -199,23 +260,24 @@ public class AllievoLezioneDAO {
      * @throws SQLException se si verifica un errore
      */
     public boolean aggiungiFeedback(Integer idLezione, Integer idAllievo, String feedback) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-
-        try {
-            connection = ConnectionManager.getConnection();
-            String query = "UPDATE allievo_lezione SET feedback = ? WHERE id_lezione = ? AND id_allievo = ?";
-            statement = connection.prepareStatement(query);
-            statement.setString(1, feedback);
-            statement.setInt(2, idLezione);
-            statement.setInt(3, idAllievo);
-
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
-
-        } finally {
-            closeResources(null, statement, connection);
-        }
+        return Strumentazione.misura("AllievoLezioneDAO.aggiungiFeedback", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+
+            try {
+                connection = ConnectionManager.getConnection();
+                statement = connection.prepareStatement(UPDATE_FEEDBACK);
+                statement.setString(1, feedback);
+                statement.setInt(2, idLezione);
+                statement.setInt(3, idAllievo);
+
+                int affectedRows = statement.executeUpdate();
+                return affectedRows > 0;
+
+            } finally {
+                closeResources(null, statement, connection);
+            }
+        });
     }
 
     /**
@@ -226,26 +288,27 @@ public class AllievoLezioneDAO {
      * @throws SQLException se si verifica un errore
      */
     public int contaAllievi(Integer idLezione) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-
-        try {
-            connection = ConnectionManager.getConnection();
-            String query = "SELECT COUNT(*) as totale FROM allievo_lezione WHERE id_lezione = ?";
-            statement = connection.prepareStatement(query);
-            statement.setInt(1, idLezione);
-            resultSet = statement.executeQuery();
-
-            if (resultSet.next()) {
-                return resultSet.getInt("totale");
-            }
+        return Strumentazione.misura("AllievoLezioneDAO.contaAllievi", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
 
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
+            try {
+                connection = ConnectionManager.getConnection();
+                statement = connection.prepareStatement(QUERY_CONTA_ALLIEVI);
+                statement.setInt(1, idLezione);
+                resultSet = statement.executeQuery();
+
+                if (resultSet.next()) {
+                    return resultSet.getInt("totale");
+                }
 
-        return 0;
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
+
+            return 0;
+        });
     }
 
     /**
@@ -259,28 +322,28 @@ public class AllievoLezioneDAO {
      * @throws SQLException se si verifica un errore
      */
     public AllievoLezione getAllievoLezione(Integer idLezione, Integer idAllievo) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-
-        try {
-            connection = ConnectionManager.getConnection();
-            String query = "SELECT id, id_lezione, id_allievo, presente, feedback " +
-                    "FROM allievo_lezione WHERE id_lezione = ? AND id_allievo = ?";
-            statement = connection.prepareStatement(query);
-            statement.setInt(1, idLezione);
-            statement.setInt(2, idAllievo);
-            resultSet = statement.executeQuery();
-
-            if (resultSet.next()) {
-                return mapResultSetToAllievoLezione(resultSet);
-            }
+        return Strumentazione.misura("AllievoLezioneDAO.getAllievoLezione", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
 
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
+            try {
+                connection = ConnectionManager.getConnection();
+                statement = connection.prepareStatement(QUERY_ALLIEVO_LEZIONE);
+                statement.setInt(1, idLezione);
+                statement.setInt(2, idAllievo);
+                resultSet = statement.executeQuery();
+
+                if (resultSet.next()) {
+                    return new ResultSetHydrator().allievoLezione(resultSet);
+                }
 
-        return null;
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
+
+            return null;
+        });
     }
 
     /**
@@ -292,51 +355,29 @@ public class AllievoLezioneDAO {
      * @throws SQLException se si verifica un errore
      */
     public List<AllievoLezione> getAllieviLezione(Integer idLezione) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<AllievoLezione> allieviLezione = new ArrayList<>();
-
-        try {
-            connection = ConnectionManager.getConnection();
-            String query = "SELECT id, id_lezione, id_allievo, presente, feedback " +
-                    "FROM allievo_lezione WHERE id_lezione = ?";
-            statement = connection.prepareStatement(query);
-            statement.setInt(1, idLezione);
-            resultSet = statement.executeQuery();
-
-            while (resultSet.next()) {
-                allieviLezione.add(mapResultSetToAllievoLezione(resultSet));
-            }
-
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
+        return Strumentazione.misura("AllievoLezioneDAO.getAllieviLezione", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<AllievoLezione> allieviLezione = new ArrayList<>();
 
-        return allieviLezione;
-    }
-
-    /**
-     * Metodo helper per mappare un ResultSet a un oggetto AllievoLezione.
-     * 
-     * @param resultSet il ResultSet
-     * @return l'oggetto AllievoLezione
-     * @throws SQLException se si verifica un errore
-     */
-    private AllievoLezione mapResultSetToAllievoLezione(ResultSet resultSet) throws SQLException {
-        AllievoLezione allievoLezione = new AllievoLezione();
-        allievoLezione.setId(resultSet.getInt("id"));
-        allievoLezione.setPresente(resultSet.getBoolean("presente"));
-        allievoLezione.setFeedback(resultSet.getString("feedback"));
-
-        // Recupera gli oggetti completi
-        int idLezione = resultSet.getInt("id_lezione");
-        allievoLezione.setLezione(lezioneDAO.getLezioneById(idLezione));
+            try {
+                connection = ConnectionManager.getConnection();
+                statement = connection.prepareStatement(QUERY_ALLIEVI_LEZIONE);
+                statement.setInt(1, idLezione);
+                resultSet = statement.executeQuery();
+
+                ResultSetHydrator hydrator = new ResultSetHydrator();
+                while (resultSet.next()) {
+                    allieviLezione.add(hydrator.allievoLezione(resultSet));
+                }
 
-        int idAllievo = resultSet.getInt("id_allievo");
-        allievoLezione.setAllievo(utenteDAO.getUtenteById(idAllievo));
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
 
-        return allievoLezione;
+            return allieviLezione;
+        });
     }
 
     /**
@@ -347,14 +388,14 @@ public class AllievoLezioneDAO {
             try {
                 resultSet.close();
             } catch (SQLException e) {
-                System.err.println("Errore durante la chiusura del ResultSet: " + e.getMessage());
+                LOG.avviso("Errore durante la chiusura del ResultSet", e);
             }
         }
         if (statement != null) {
             try {
                 statement.close();
             } catch (SQLException e) {
-                System.err.println("Errore durante la chiusura del PreparedStatement: " + e.getMessage());
+                LOG.avviso("Errore durante la chiusura del PreparedStatement", e);
             }
         }
         ConnectionManager.closeConnection(connection);
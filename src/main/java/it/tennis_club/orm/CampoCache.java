@@ -0,0 +1,175 @@
+package it.tennis_club.orm;
+
+import it.tennis_club.domain_model.Campo;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Cache in memoria dei campi da tennis, posta davanti a {@link CampoDAO}.
+ *
+ * I campi cambiano molto raramente: al primo accesso vengono caricati tutti
+ * con una sola query e le letture successive sono servite dalla memoria fino
+ * alla scadenza del TTL (proprietà "cache.campo.ttlMs", default 10 minuti) o
+ * a una chiamata a {@link #invalidate()}, da usare dopo ogni modifica alla
+ * tabella campo.
+ *
+ * I metodi restituiscono copie degli oggetti in cache, quindi i chiamanti
+ * possono modificarli senza alterare la cache.
+ */
+public class CampoCache {
+
+    private static final long DEFAULT_TTL_MILLIS = 600000;
+
+    private static CampoCache instance;
+
+    private final CampoDAO campoDAO;
+    private final long ttlNanos;
+
+    // Campi indicizzati per ID, nell'ordine per nome restituito dal DAO
+    private volatile Map<Integer, Campo> campi;
+    private volatile long caricatoIl;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private final ReentrantLock caricamentoLock = new ReentrantLock();
+
+    CampoCache(CampoDAO campoDAO, long ttlMillis) {
+        this.campoDAO = campoDAO;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    /**
+     * Restituisce l'istanza singleton della cache.
+     */
+    public static synchronized CampoCache getInstance() {
+        if (instance == null) {
+            long ttl = Long.parseLong(ConnectionManager.getProperty("cache.campo.ttlMs",
+                    String.valueOf(DEFAULT_TTL_MILLIS)));
+            instance = new CampoCache(new CampoDAO(), ttl);
+        }
+        return instance;
+    }
+
+    /**
+     * Recupera tutti i campi, ordinati per nome.
+     *
+     * @return una lista di tutti i campi
+     * @throws SQLException se il caricamento dal database fallisce
+     */
+    public List<Campo> getAllCampi() throws SQLException {
+        return filtra(campo -> true);
+    }
+
+    /**
+     * Recupera un campo specifico tramite il suo ID.
+     *
+     * @param id l'ID del campo da cercare
+     * @return l'oggetto Campo se trovato, null altrimenti
+     * @throws SQLException se il caricamento dal database fallisce
+     */
+    public Campo getCampoById(Integer id) throws SQLException {
+        Campo campo = getCampi().get(id);
+        return campo != null ? copia(campo) : null;
+    }
+
+    /**
+     * Recupera tutti i campi coperti.
+     *
+     * @return una lista dei campi coperti
+     * @throws SQLException se il caricamento dal database fallisce
+     */
+    public List<Campo> getCampiCoperti() throws SQLException {
+        return filtra(campo -> Boolean.TRUE.equals(campo.getIsCoperto()));
+    }
+
+    /**
+     * Recupera tutti i campi per tipo di superficie.
+     *
+     * @param tipoSuperficie il tipo di superficie da cercare
+     * @return una lista dei campi con il tipo di superficie specificato
+     * @throws SQLException se il caricamento dal database fallisce
+     */
+    public List<Campo> getCampiByTipoSuperficie(String tipoSuperficie) throws SQLException {
+        return filtra(campo -> campo.getTipoSuperficie() != null && campo.getTipoSuperficie().equals(tipoSuperficie));
+    }
+
+    /**
+     * Svuota la cache: il prossimo accesso ricaricherà i campi dal database.
+     */
+    public void invalidate() {
+        campi = null;
+    }
+
+    /**
+     * Restituisce il numero di letture servite dalla memoria.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Restituisce il numero di letture che hanno richiesto il caricamento dal
+     * database.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private List<Campo> filtra(Predicate<Campo> filtro) throws SQLException {
+        List<Campo> risultato = new ArrayList<>();
+        for (Campo campo : getCampi().values()) {
+            if (filtro.test(campo)) {
+                risultato.add(copia(campo));
+            }
+        }
+        return risultato;
+    }
+
+    private Map<Integer, Campo> getCampi() throws SQLException {
+        Map<Integer, Campo> correnti = campi;
+        if (correnti != null && System.nanoTime() - caricatoIl < ttlNanos) {
+            hits.incrementAndGet();
+            return correnti;
+        }
+        return carica();
+    }
+
+    private Map<Integer, Campo> carica() throws SQLException {
+        // ReentrantLock e non synchronized: la query viene eseguita con il lock
+        // acquisito e un virtual thread in attesa non deve bloccare il carrier
+        caricamentoLock.lock();
+        try {
+            // Un altro thread potrebbe aver già ricaricato la cache
+            Map<Integer, Campo> correnti = campi;
+            if (correnti != null && System.nanoTime() - caricatoIl < ttlNanos) {
+                hits.incrementAndGet();
+                return correnti;
+            }
+
+            misses.incrementAndGet();
+            Map<Integer, Campo> caricati = new LinkedHashMap<>();
+            for (Campo campo : campoDAO.getAllCampi()) {
+                caricati.put(campo.getId(), campo);
+            }
+            caricatoIl = System.nanoTime();
+            campi = Collections.unmodifiableMap(caricati);
+            return campi;
+        } finally {
+            caricamentoLock.unlock();
+        }
+    }
+
+    private static Campo copia(Campo campo) {
+        return new Campo(campo.getId(), campo.getNome(), campo.getTipoSuperficie(), campo.getIsCoperto());
+    }
+}
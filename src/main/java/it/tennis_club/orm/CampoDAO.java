@@ -14,6 +14,8 @@ import java.util.List;
  */
 public class CampoDAO {
 
+    private static final Log LOG = Log.get(CampoDAO.class);
+
     /**
      * Recupera tutti i campi disponibili nel database.
      * 
@@ -21,62 +23,64 @@ public class CampoDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public List<Campo> getAllCampi() throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Campo> campi = new ArrayList<>();
+        return Strumentazione.misura("CampoDAO.getAllCampi", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Campo> campi = new ArrayList<>();
 
-        try {
-            // Ottiene la connessione dal ConnectionManager
-            connection = ConnectionManager.getConnection();
+            try {
+                // Ottiene la connessione dal ConnectionManager
+                connection = ConnectionManager.getConnection();
 
-            // Prepara la query SQL
-            String query = "SELECT id, nome, tipo_superficie, is_coperto FROM campo ORDER BY nome";
+                // Prepara la query SQL
+                String query = "SELECT id, nome, tipo_superficie, is_coperto FROM campo ORDER BY nome";
 
-            statement = connection.prepareStatement(query);
+                statement = connection.prepareStatement(query);
 
-            // Esegue la query
-            resultSet = statement.executeQuery();
+                // Esegue la query
+                resultSet = statement.executeQuery();
 
-            // Itera sui risultati e crea gli oggetti Campo
-            while (resultSet.next()) {
-                Campo campo = new Campo();
-                campo.setId(resultSet.getInt("id"));
-                campo.setNome(resultSet.getString("nome"));
-                campo.setTipoSuperficie(resultSet.getString("tipo_superficie"));
-                campo.setIsCoperto(resultSet.getBoolean("is_coperto"));
+                // Itera sui risultati e crea gli oggetti Campo
+                while (resultSet.next()) {
+                    Campo campo = new Campo();
+                    campo.setId(resultSet.getInt("id"));
+                    campo.setNome(resultSet.getString("nome"));
+                    campo.setTipoSuperficie(resultSet.getString("tipo_superficie"));
+                    campo.setIsCoperto(resultSet.getBoolean("is_coperto"));
 
-                campi.add(campo);
-            }
+                    campi.add(campo);
+                }
 
-        } catch (SQLException e) {
-            // Rilancia l'eccezione dopo averla loggata
-            System.err.println("Errore durante il recupero dei campi: " + e.getMessage());
-            throw e;
-
-        } finally {
-            // Chiude le risorse in ordine inverso di apertura
-            if (resultSet != null) {
-                try {
-                    resultSet.close();
-                } catch (SQLException e) {
-                    System.err.println("Errore durante la chiusura del ResultSet: " + e.getMessage());
+            } catch (SQLException e) {
+                // Rilancia l'eccezione dopo averla loggata
+                LOG.errore("Errore durante il recupero dei campi", e);
+                throw e;
+
+            } finally {
+                // Chiude le risorse in ordine inverso di apertura
+                if (resultSet != null) {
+                    try {
+                        resultSet.close();
+                    } catch (SQLException e) {
+                        LOG.avviso("Errore durante la chiusura del ResultSet", e);
+                    }
                 }
-            }
 
-            if (statement != null) {
-                try {
-                    statement.close();
-                } catch (SQLException e) {
-                    System.err.println("Errore durante la chiusura del PreparedStatement: " + e.getMessage());
+                if (statement != null) {
+                    try {
+                        statement.close();
+                    } catch (SQLException e) {
+                        LOG.avviso("Errore durante la chiusura del PreparedStatement", e);
+                    }
                 }
-            }
 
-            // Chiude la connessione usando il ConnectionManager
-            ConnectionManager.closeConnection(connection);
-        }
+                // Chiude la connessione usando il ConnectionManager
+                ConnectionManager.closeConnection(connection);
+            }
 
-        return campi;
+            return campi;
+        });
     }
 
     /**
@@ -87,54 +91,56 @@ public class CampoDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public Campo getCampoById(Integer id) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        Campo campo = null;
+        return Strumentazione.misura("CampoDAO.getCampoById", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            Campo campo = null;
 
-        try {
-            connection = ConnectionManager.getConnection();
+            try {
+                connection = ConnectionManager.getConnection();
 
-            String query = "SELECT id, nome, tipo_superficie, is_coperto FROM campo WHERE id = ?";
+                String query = "SELECT id, nome, tipo_superficie, is_coperto FROM campo WHERE id = ?";
 
-            statement = connection.prepareStatement(query);
-            statement.setInt(1, id);
+                statement = connection.prepareStatement(query);
+                statement.setInt(1, id);
 
-            resultSet = statement.executeQuery();
+                resultSet = statement.executeQuery();
 
-            if (resultSet.next()) {
-                campo = new Campo();
-                campo.setId(resultSet.getInt("id"));
-                campo.setNome(resultSet.getString("nome"));
-                campo.setTipoSuperficie(resultSet.getString("tipo_superficie"));
-                campo.setIsCoperto(resultSet.getBoolean("is_coperto"));
-            }
-
-        } catch (SQLException e) {
-            System.err.println("Errore durante il recupero del campo: " + e.getMessage());
-            throw e;
+                if (resultSet.next()) {
+                    campo = new Campo();
+                    campo.setId(resultSet.getInt("id"));
+                    campo.setNome(resultSet.getString("nome"));
+                    campo.setTipoSuperficie(resultSet.getString("tipo_superficie"));
+                    campo.setIsCoperto(resultSet.getBoolean("is_coperto"));
+                }
 
-        } finally {
-            if (resultSet != null) {
-                try {
-                    resultSet.close();
-                } catch (SQLException e) {
-                    System.err.println("Errore durante la chiusura del ResultSet: " + e.getMessage());
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero del campo", e);
+                throw e;
+
+            } finally {
+                if (resultSet != null) {
+                    try {
+                        resultSet.close();
+                    } catch (SQLException e) {
+                        LOG.avviso("Errore durante la chiusura del ResultSet", e);
+                    }
                 }
-            }
 
-            if (statement != null) {
-                try {
-                    statement.close();
-                } catch (SQLException e) {
-                    System.err.println("Errore durante la chiusura del PreparedStatement: " + e.getMessage());
+                if (statement != null) {
+                    try {
+                        statement.close();
+                    } catch (SQLException e) {
+                        LOG.avviso("Errore durante la chiusura del PreparedStatement", e);
+                    }
                 }
-            }
 
-            ConnectionManager.closeConnection(connection);
-        }
+                ConnectionManager.closeConnection(connection);
+            }
 
-        return campo;
+            return campo;
+        });
     }
 
     /**
@@ -144,55 +150,57 @@ public class CampoDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public List<Campo> getCampiCoperti() throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Campo> campi = new ArrayList<>();
+        return Strumentazione.misura("CampoDAO.getCampiCoperti", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Campo> campi = new ArrayList<>();
 
-        try {
-            connection = ConnectionManager.getConnection();
+            try {
+                connection = ConnectionManager.getConnection();
 
-            String query = "SELECT id, nome, tipo_superficie, is_coperto " +
-                    "FROM campo WHERE is_coperto = true ORDER BY nome";
+                String query = "SELECT id, nome, tipo_superficie, is_coperto " +
+                        "FROM campo WHERE is_coperto = true ORDER BY nome";
 
-            statement = connection.prepareStatement(query);
-            resultSet = statement.executeQuery();
+                statement = connection.prepareStatement(query);
+                resultSet = statement.executeQuery();
 
-            while (resultSet.next()) {
-                Campo campo = new Campo();
-                campo.setId(resultSet.getInt("id"));
-                campo.setNome(resultSet.getString("nome"));
-                campo.setTipoSuperficie(resultSet.getString("tipo_superficie"));
-                campo.setIsCoperto(resultSet.getBoolean("is_coperto"));
+                while (resultSet.next()) {
+                    Campo campo = new Campo();
+                    campo.setId(resultSet.getInt("id"));
+                    campo.setNome(resultSet.getString("nome"));
+                    campo.setTipoSuperficie(resultSet.getString("tipo_superficie"));
+                    campo.setIsCoperto(resultSet.getBoolean("is_coperto"));
 
-                campi.add(campo);
-            }
-
-        } catch (SQLException e) {
-            System.err.println("Errore durante il recupero dei campi coperti: " + e.getMessage());
-            throw e;
+                    campi.add(campo);
+                }
 
-        } finally {
-            if (resultSet != null) {
-                try {
-                    resultSet.close();
-                } catch (SQLException e) {
-                    System.err.println("Errore durante la chiusura del ResultSet: " + e.getMessage());
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero dei campi coperti", e);
+                throw e;
+
+            } finally {
+                if (resultSet != null) {
+                    try {
+                        resultSet.close();
+                    } catch (SQLException e) {
+                        LOG.avviso("Errore durante la chiusura del ResultSet", e);
+                    }
                 }
-            }
 
-            if (statement != null) {
-                try {
-                    statement.close();
-                } catch (SQLException e) {
-                    System.err.println("Errore durante la chiusura del PreparedStatement: " + e.getMessage());
+                if (statement != null) {
+                    try {
+                        statement.close();
+                    } catch (SQLException e) {
+                        LOG.avviso("Errore durante la chiusura del PreparedStatement", e);
+                    }
                 }
-            }
 
-            ConnectionManager.closeConnection(connection);
-        }
+                ConnectionManager.closeConnection(connection);
+            }
 
-        return campi;
+            return campi;
+        });
     }
 
     /**
@@ -204,56 +212,58 @@ public class CampoDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public List<Campo> getCampiByTipoSuperficie(String tipoSuperficie) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Campo> campi = new ArrayList<>();
+        return Strumentazione.misura("CampoDAO.getCampiByTipoSuperficie", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Campo> campi = new ArrayList<>();
 
-        try {
-            connection = ConnectionManager.getConnection();
+            try {
+                connection = ConnectionManager.getConnection();
 
-            String query = "SELECT id, nome, tipo_superficie, is_coperto " +
-                    "FROM campo WHERE tipo_superficie = ? ORDER BY nome";
+                String query = "SELECT id, nome, tipo_superficie, is_coperto " +
+                        "FROM campo WHERE tipo_superficie = ? ORDER BY nome";
 
-            statement = connection.prepareStatement(query);
-            statement.setString(1, tipoSuperficie);
+                statement = connection.prepareStatement(query);
+                statement.setString(1, tipoSuperficie);
 
-            resultSet = statement.executeQuery();
+                resultSet = statement.executeQuery();
 
-            while (resultSet.next()) {
-                Campo campo = new Campo();
-                campo.setId(resultSet.getInt("id"));
-                campo.setNome(resultSet.getString("nome"));
-                campo.setTipoSuperficie(resultSet.getString("tipo_superficie"));
-                campo.setIsCoperto(resultSet.getBoolean("is_coperto"));
+                while (resultSet.next()) {
+                    Campo campo = new Campo();
+                    campo.setId(resultSet.getInt("id"));
+                    campo.setNome(resultSet.getString("nome"));
+                    campo.setTipoSuperficie(resultSet.getString("tipo_superficie"));
+                    campo.setIsCoperto(resultSet.getBoolean("is_coperto"));
 
-                campi.add(campo);
-            }
-
-        } catch (SQLException e) {
-            System.err.println("Errore durante il recupero dei campi per tipo superficie: " + e.getMessage());
-            throw e;
+                    campi.add(campo);
+                }
 
-        } finally {
-            if (resultSet != null) {
-                try {
-                    resultSet.close();
-                } catch (SQLException e) {
-                    System.err.println("Errore durante la chiusura del ResultSet: " + e.getMessage());
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero dei campi per tipo superficie", e);
+                throw e;
+
+            } finally {
+                if (resultSet != null) {
+                    try {
+                        resultSet.close();
+                    } catch (SQLException e) {
+                        LOG.avviso("Errore durante la chiusura del ResultSet", e);
+                    }
                 }
-            }
 
-            if (statement != null) {
-                try {
-                    statement.close();
-                } catch (SQLException e) {
-                    System.err.println("Errore durante la chiusura del PreparedStatement: " + e.getMessage());
+                if (statement != null) {
+                    try {
+                        statement.close();
+                    } catch (SQLException e) {
+                        LOG.avviso("Errore durante la chiusura del PreparedStatement", e);
+                    }
                 }
-            }
 
-            ConnectionManager.closeConnection(connection);
-        }
+                ConnectionManager.closeConnection(connection);
+            }
 
-        return campi;
+            return campi;
+        });
     }
 }
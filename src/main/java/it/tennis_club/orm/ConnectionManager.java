@@ -5,16 +5,36 @@ import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Gestisce la connessione al database PostgreSQL caricando i parametri
  * da un file di configurazione esterno.
+ *
+ * Le connessioni sono fornite da un {@link ConnectionPool} configurato tramite
+ * le proprietà "db.pool.*": chiudere la connessione ottenuta la restituisce al
+ * pool senza chiudere la connessione fisica.
+ *
+ * Alla chiusura della JVM un unico shutdown hook esegue la sequenza di
+ * chiusura dell'applicazione (vedi {@link #chiudi()}): gli hook della JVM
+ * vengono eseguiti in parallelo, quindi chi deve usare il database alla
+ * chiusura si registra con {@link #allaChiusura(Runnable)} invece di
+ * aggiungere un proprio hook.
  */
 public class ConnectionManager {
-    
+
     private static final Properties properties = new Properties();
 
+    /**
+     * Operazione da eseguire su una connessione all'interno di una transazione.
+     */
+    @FunctionalInterface
+    public interface TransactionCallback<T> {
+        T execute(Connection connection) throws SQLException;
+    }
+
     static {
         try (InputStream input = ConnectionManager.class.getClassLoader().getResourceAsStream("db.properties")) {
             if (input == null) {
@@ -27,34 +47,145 @@ public class ConnectionManager {
             ex.printStackTrace();
         }
     }
-    
+
+    // Dichiarato dopo il caricamento delle proprietà, che Log legge alla
+    // sua inizializzazione
+    private static final Log LOG = Log.get(ConnectionManager.class);
+
+    // Azioni da eseguire alla chiusura prima del pool, nell'ordine di
+    // registrazione
+    private static final List<Runnable> AZIONI_CHIUSURA = new CopyOnWriteArrayList<>();
+
+    private static volatile boolean poolCreato;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(ConnectionManager::chiudi, "shutdown"));
+    }
+
+    /**
+     * Contenitore del pool: viene creato al primo utilizzo.
+     */
+    private static class PoolHolder {
+        private static final ConnectionPool POOL = createPool();
+
+        private static ConnectionPool createPool() {
+            ConnectionPool pool = new ConnectionPool(ConnectionManager::openPhysicalConnection,
+                    ConnectionPool.Config.fromProperties(properties));
+            poolCreato = true;
+            return pool;
+        }
+    }
+
     /**
-     * Ottiene una nuova connessione al database usando i parametri del file properties.
+     * Ottiene una connessione al database dal pool.
      */
     public static Connection getConnection() throws SQLException {
+        return PoolHolder.POOL.getConnection();
+    }
+
+    /**
+     * Esegue un'operazione in un'unica transazione: se l'operazione termina
+     * senza errori la transazione viene confermata, altrimenti viene annullata
+     * e l'eccezione rilanciata. La connessione viene poi restituita al pool.
+     *
+     * @param callback l'operazione da eseguire sulla connessione
+     * @return il risultato dell'operazione
+     * @throws SQLException se l'operazione o il commit falliscono
+     */
+    public static <T> T inTransaction(TransactionCallback<T> callback) throws SQLException {
+        Connection connection = getConnection();
+        try {
+            connection.setAutoCommit(false);
+            T result = callback.execute(connection);
+            connection.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackException) {
+                LOG.avviso("Errore durante il rollback", rollbackException);
+            }
+            throw e;
+        } finally {
+            closeConnection(connection);
+        }
+    }
+
+    /**
+     * Restituisce le statistiche correnti del pool di connessioni
+     * (connessioni attive, inattive, thread in attesa e tempi di attesa).
+     */
+    public static ConnectionPool.Stats getPoolStats() {
+        return PoolHolder.POOL.getStats();
+    }
+
+    /**
+     * Registra un'azione da eseguire alla chiusura dell'applicazione, quando
+     * il pool è ancora aperto. Le azioni vengono eseguite nell'ordine in cui
+     * sono state registrate.
+     *
+     * @param azione l'azione da eseguire
+     */
+    public static void allaChiusura(Runnable azione) {
+        AZIONI_CHIUSURA.add(azione);
+    }
+
+    /**
+     * Sequenza di chiusura dell'applicazione, eseguita dallo shutdown hook:
+     * le azioni registrate con {@link #allaChiusura(Runnable)}, poi la
+     * chiusura del pool (se è stato creato) e infine la scrittura dei
+     * messaggi di log ancora in coda, compresi quelli delle azioni. Un'azione
+     * che fallisce non interrompe la sequenza.
+     */
+    static void chiudi() {
+        for (Runnable azione : AZIONI_CHIUSURA) {
+            try {
+                azione.run();
+            } catch (RuntimeException e) {
+                LOG.errore("Errore durante la chiusura dell'applicazione", e);
+            }
+        }
+        if (poolCreato) {
+            PoolHolder.POOL.close();
+        }
+        Log.flush();
+    }
+
+    /**
+     * Restituisce il valore di una proprietà di db.properties, o il valore di
+     * default se la proprietà non è impostata.
+     */
+    public static String getProperty(String key, String defaultValue) {
+        return properties.getProperty(key, defaultValue);
+    }
+
+    /**
+     * Apre una nuova connessione fisica usando i parametri del file properties.
+     */
+    private static Connection openPhysicalConnection() throws SQLException {
         try {
             Class.forName("org.postgresql.Driver");
         } catch (ClassNotFoundException e) {
             throw new SQLException("Driver PostgreSQL non trovato", e);
         }
-        
+
         return DriverManager.getConnection(
             properties.getProperty("db.url"),
             properties.getProperty("db.user"),
             properties.getProperty("db.password")
         );
     }
-    
+
     /**
-     * Chiude la connessione in modo sicuro.
+     * Chiude la connessione in modo sicuro, restituendola al pool.
      */
     public static void closeConnection(Connection connection) {
         if (connection != null) {
             try {
                 connection.close();
             } catch (SQLException e) {
-                System.err.println("Errore durante la chiusura della connessione: " + e.getMessage());
+                LOG.avviso("Errore durante la chiusura della connessione", e);
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,664 @@
+package it.tennis_club.orm;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool di connessioni JDBC limitato, usato da {@link ConnectionManager}.
+ *
+ * Le connessioni fisiche vengono riutilizzate tra le chiamate dei DAO: il
+ * chiamante riceve un proxy della connessione e la chiusura del proxy
+ * restituisce la connessione fisica al pool invece di chiuderla.
+ *
+ * Il pool gestisce:
+ * - dimensione minima e massima delle connessioni fisiche
+ * - timeout di attesa quando tutte le connessioni sono in uso
+ * - rimozione delle connessioni inattive oltre la dimensione minima
+ * - validazione della connessione al prelievo
+ * - rilevamento delle connessioni non restituite (leak)
+ *
+ * Ogni statement preparato viene contato per le chiamate in corso della
+ * {@link Strumentazione}; durante una registrazione di Java Flight Recorder
+ * o con lo {@link SlowQueryLog} abilitato gli statement vengono misurati da
+ * {@link StatementHandler}.
+ */
+public class ConnectionPool {
+
+    private static final Log LOG = Log.get(ConnectionPool.class);
+
+    // Frame dello stack del prelievo riportati nel log di un possibile leak
+    private static final int LEAK_TRACE_FRAMES = 5;
+
+
+    /**
+     * Crea una nuova connessione fisica al database.
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    /**
+     * Parametri di configurazione del pool.
+     * I valori di default sono pensati per un singolo processo applicativo.
+     */
+    public static class Config {
+        private int minSize = 2;
+        private int maxSize = 10;
+        private long acquireTimeoutMillis = 5_000;
+        private long idleTimeoutMillis = 600_000;
+        private int validationTimeoutSeconds = 2;
+        private long validationIntervalMillis = 500;
+        private long leakDetectionThresholdMillis = 0;
+        private long housekeepingPeriodMillis = 30_000;
+
+        /**
+         * Legge la configurazione dalle proprietà "db.pool.*".
+         * Le chiavi assenti mantengono il valore di default.
+         *
+         * @param properties le proprietà lette da db.properties
+         * @return la configurazione del pool
+         */
+        public static Config fromProperties(Properties properties) {
+            Config config = new Config();
+            config.minSize = intProperty(properties, "db.pool.minSize", config.minSize);
+            config.maxSize = intProperty(properties, "db.pool.maxSize", config.maxSize);
+            config.acquireTimeoutMillis = longProperty(properties, "db.pool.acquireTimeoutMs",
+                    config.acquireTimeoutMillis);
+            config.idleTimeoutMillis = longProperty(properties, "db.pool.idleTimeoutMs", config.idleTimeoutMillis);
+            config.validationTimeoutSeconds = intProperty(properties, "db.pool.validationTimeoutSec",
+                    config.validationTimeoutSeconds);
+            config.validationIntervalMillis = longProperty(properties, "db.pool.validationIntervalMs",
+                    config.validationIntervalMillis);
+            config.leakDetectionThresholdMillis = longProperty(properties, "db.pool.leakDetectionThresholdMs",
+                    config.leakDetectionThresholdMillis);
+            config.housekeepingPeriodMillis = longProperty(properties, "db.pool.housekeepingPeriodMs",
+                    config.housekeepingPeriodMillis);
+            return config;
+        }
+
+        private static int intProperty(Properties properties, String key, int defaultValue) {
+            String value = properties.getProperty(key);
+            return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+        }
+
+        private static long longProperty(Properties properties, String key, long defaultValue) {
+            String value = properties.getProperty(key);
+            return value == null || value.isBlank() ? defaultValue : Long.parseLong(value.trim());
+        }
+
+        public Config minSize(int minSize) {
+            this.minSize = minSize;
+            return this;
+        }
+
+        public Config maxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        public Config acquireTimeoutMillis(long acquireTimeoutMillis) {
+            this.acquireTimeoutMillis = acquireTimeoutMillis;
+            return this;
+        }
+
+        public Config idleTimeoutMillis(long idleTimeoutMillis) {
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            return this;
+        }
+
+        public Config validationTimeoutSeconds(int validationTimeoutSeconds) {
+            this.validationTimeoutSeconds = validationTimeoutSeconds;
+            return this;
+        }
+
+        public Config validationIntervalMillis(long validationIntervalMillis) {
+            this.validationIntervalMillis = validationIntervalMillis;
+            return this;
+        }
+
+        public Config leakDetectionThresholdMillis(long leakDetectionThresholdMillis) {
+            this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+            return this;
+        }
+
+        public Config housekeepingPeriodMillis(long housekeepingPeriodMillis) {
+            this.housekeepingPeriodMillis = housekeepingPeriodMillis;
+            return this;
+        }
+
+        public int getMinSize() {
+            return minSize;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public long getAcquireTimeoutMillis() {
+            return acquireTimeoutMillis;
+        }
+
+        public long getIdleTimeoutMillis() {
+            return idleTimeoutMillis;
+        }
+
+        public long getLeakDetectionThresholdMillis() {
+            return leakDetectionThresholdMillis;
+        }
+    }
+
+    /**
+     * Fotografia delle statistiche del pool in un istante.
+     */
+    public static class Stats {
+        private final int active;
+        private final int idle;
+        private final int waiters;
+        private final long acquired;
+        private final long timeouts;
+        private final long created;
+        private final long destroyed;
+        private final long leaks;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+
+        Stats(int active, int idle, int waiters, long acquired, long timeouts, long created, long destroyed,
+                long leaks, long totalWaitNanos, long maxWaitNanos) {
+            this.active = active;
+            this.idle = idle;
+            this.waiters = waiters;
+            this.acquired = acquired;
+            this.timeouts = timeouts;
+            this.created = created;
+            this.destroyed = destroyed;
+            this.leaks = leaks;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+        }
+
+        /** Connessioni attualmente prestate ai chiamanti. */
+        public int getActive() {
+            return active;
+        }
+
+        /** Connessioni fisiche aperte e disponibili nel pool. */
+        public int getIdle() {
+            return idle;
+        }
+
+        /** Thread in attesa di una connessione. */
+        public int getWaiters() {
+            return waiters;
+        }
+
+        /** Numero totale di connessioni prelevate. */
+        public long getAcquired() {
+            return acquired;
+        }
+
+        /** Numero di richieste scadute per timeout di attesa. */
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        /** Connessioni fisiche aperte dall'avvio del pool. */
+        public long getCreated() {
+            return created;
+        }
+
+        /** Connessioni fisiche chiuse dall'avvio del pool. */
+        public long getDestroyed() {
+            return destroyed;
+        }
+
+        /** Connessioni segnalate come non restituite oltre la soglia. */
+        public long getLeaks() {
+            return leaks;
+        }
+
+        /** Tempo medio di attesa per ottenere una connessione, in millisecondi. */
+        public double getAverageWaitMillis() {
+            return acquired == 0 ? 0.0 : totalWaitNanos / (double) acquired / 1_000_000.0;
+        }
+
+        /** Tempo massimo di attesa osservato, in millisecondi. */
+        public double getMaxWaitMillis() {
+            return maxWaitNanos / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "active=" + active +
+                    ", idle=" + idle +
+                    ", waiters=" + waiters +
+                    ", acquired=" + acquired +
+                    ", timeouts=" + timeouts +
+                    ", created=" + created +
+                    ", destroyed=" + destroyed +
+                    ", leaks=" + leaks +
+                    ", avgWaitMs=" + String.format("%.3f", getAverageWaitMillis()) +
+                    ", maxWaitMs=" + String.format("%.3f", getMaxWaitMillis()) +
+                    '}';
+        }
+    }
+
+    private final ConnectionFactory factory;
+    private final Config config;
+
+    // Connessioni fisiche inattive: la testa contiene quella restituita più di
+    // recente
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> leased = ConcurrentHashMap.newKeySet();
+
+    // Un permesso per ogni connessione che può essere prestata contemporaneamente
+    private final Semaphore permits;
+
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    /**
+     * Crea un nuovo pool.
+     *
+     * @param factory la factory delle connessioni fisiche
+     * @param config  la configurazione del pool
+     */
+    public ConnectionPool(ConnectionFactory factory, Config config) {
+        if (factory == null || config == null) {
+            throw new IllegalArgumentException("Factory e configurazione del pool sono obbligatorie");
+        }
+        if (config.maxSize <= 0 || config.minSize < 0 || config.minSize > config.maxSize) {
+            throw new IllegalArgumentException("Dimensioni del pool non valide: min=" + config.minSize
+                    + ", max=" + config.maxSize);
+        }
+
+        this.factory = factory;
+        this.config = config;
+        this.permits = new Semaphore(config.maxSize, true);
+
+        if (config.housekeepingPeriodMillis > 0) {
+            this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.housekeeper.scheduleWithFixedDelay(this::housekeeping, config.housekeepingPeriodMillis,
+                    config.housekeepingPeriodMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.housekeeper = null;
+        }
+    }
+
+    /**
+     * Preleva una connessione dal pool, attendendo al massimo il timeout
+     * configurato se tutte le connessioni sono in uso.
+     *
+     * @return un proxy della connessione: chiamare close() la restituisce al pool
+     * @throws SQLException se il pool è chiuso, il timeout scade o non è possibile
+     *                      aprire una nuova connessione
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Il pool di connessioni è stato chiuso");
+        }
+
+        long start = System.nanoTime();
+        waiters.incrementAndGet();
+        boolean permitted;
+        try {
+            permitted = permits.tryAcquire(config.acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrotto durante l'attesa di una connessione", e);
+        } finally {
+            waiters.decrementAndGet();
+        }
+
+        if (!permitted) {
+            timeouts.incrementAndGet();
+            throw new SQLException("Timeout di " + config.acquireTimeoutMillis
+                    + " ms scaduto in attesa di una connessione dal pool (" + getStats() + ")");
+        }
+
+        try {
+            PooledConnection pooled = takeValidConnection();
+            pooled.lease();
+            leased.add(pooled);
+
+            long waited = System.nanoTime() - start;
+            acquired.incrementAndGet();
+            totalWaitNanos.addAndGet(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            QueryCounter.connectionAcquired();
+
+            return pooled.newProxy();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Restituisce una fotografia delle statistiche correnti del pool.
+     *
+     * @return le statistiche del pool
+     */
+    public Stats getStats() {
+        return new Stats(leased.size(), idle.size(), waiters.get(), acquired.get(), timeouts.get(),
+                created.get(), destroyed.get(), leaks.get(), totalWaitNanos.get(), maxWaitNanos.get());
+    }
+
+    /**
+     * Chiude il pool e tutte le connessioni inattive.
+     * Le connessioni ancora in uso vengono chiuse alla loro restituzione.
+     */
+    public void close() {
+        closed = true;
+        if (housekeeper != null) {
+            housekeeper.shutdownNow();
+        }
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    /**
+     * Esegue un ciclo di manutenzione: segnala i leak, chiude le connessioni
+     * inattive da troppo tempo e riporta il pool alla dimensione minima.
+     * Viene invocato periodicamente dal thread di manutenzione.
+     */
+    void housekeeping() {
+        try {
+            detectLeaks();
+            evictIdle();
+            fillToMinimum();
+        } catch (RuntimeException e) {
+            LOG.errore("Errore durante la manutenzione del pool di connessioni", e);
+        }
+    }
+
+    private PooledConnection takeValidConnection() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isUsable(pooled)) {
+                return pooled;
+            }
+            destroy(pooled);
+        }
+        return open();
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        // Una connessione appena restituita è quasi certamente valida: si evita un
+        // round trip al database per ogni prelievo
+        long sinceLastUse = System.nanoTime() - pooled.lastReturnedNanos;
+        if (sinceLastUse < TimeUnit.MILLISECONDS.toNanos(config.validationIntervalMillis)) {
+            return true;
+        }
+        try {
+            return pooled.physical.isValid(config.validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection physical = factory.create();
+        if (physical == null) {
+            throw new SQLException("La factory ha restituito una connessione null");
+        }
+        created.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    private void destroy(PooledConnection pooled) {
+        destroyed.incrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            LOG.avviso("Errore durante la chiusura della connessione fisica", e);
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        if (!leased.remove(pooled)) {
+            return;
+        }
+
+        boolean reusable = !closed;
+        if (reusable) {
+            try {
+                reusable = pooled.reset();
+            } catch (SQLException e) {
+                reusable = false;
+            }
+        }
+
+        if (reusable) {
+            pooled.lastReturnedNanos = System.nanoTime();
+            idle.offerFirst(pooled);
+        } else {
+            destroy(pooled);
+        }
+        permits.release();
+    }
+
+    private void detectLeaks() {
+        long threshold = config.leakDetectionThresholdMillis;
+        if (threshold <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (PooledConnection pooled : leased) {
+            if (!pooled.leakReported && now - pooled.leasedAtNanos > TimeUnit.MILLISECONDS.toNanos(threshold)) {
+                pooled.leakReported = true;
+                leaks.incrementAndGet();
+                LOG.avviso("Possibile leak: connessione prelevata e non ancora restituita al pool",
+                        "sogliaMs", threshold, "prelevataDa", leaseSite(pooled.leaseTrace));
+            }
+        }
+    }
+
+    /**
+     * I primi frame dello stack del prelievo esterni al pool, dal più
+     * interno, separati da " < ".
+     */
+    private static String leaseSite(Throwable leaseTrace) {
+        if (leaseTrace == null) {
+            return "?";
+        }
+        StringBuilder sb = new StringBuilder();
+        int frames = 0;
+        for (StackTraceElement frame : leaseTrace.getStackTrace()) {
+            String className = frame.getClassName();
+            if (className.equals(ConnectionPool.class.getName())
+                    || className.startsWith(ConnectionPool.class.getName() + "$")
+                    || className.equals(ConnectionManager.class.getName())) {
+                continue;
+            }
+            if (frames > 0) {
+                sb.append(" < ");
+            }
+            sb.append(frame);
+            if (++frames == LEAK_TRACE_FRAMES) {
+                break;
+            }
+        }
+        return sb.toString();
+    }
+
+    private void evictIdle() {
+        long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.idleTimeoutMillis);
+        long now = System.nanoTime();
+        // Si parte dalla coda, dove si trovano le connessioni inattive da più tempo
+        Iterator<PooledConnection> iterator = idle.descendingIterator();
+        while (iterator.hasNext() && idle.size() + leased.size() > config.minSize) {
+            PooledConnection pooled = iterator.next();
+            if (now - pooled.lastReturnedNanos >= idleTimeoutNanos && idle.remove(pooled)) {
+                destroy(pooled);
+            }
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!closed && idle.size() + leased.size() < config.minSize) {
+            // Un permesso garantisce di non superare mai la dimensione massima
+            if (!permits.tryAcquire()) {
+                return;
+            }
+            try {
+                PooledConnection pooled = open();
+                pooled.lastReturnedNanos = System.nanoTime();
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                LOG.errore("Impossibile aprire una connessione per il pool", e);
+                return;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Connessione fisica gestita dal pool con i metadati del prestito corrente.
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        private volatile long lastReturnedNanos;
+        private volatile long leasedAtNanos;
+        private volatile Throwable leaseTrace;
+        private volatile boolean leakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.lastReturnedNanos = System.nanoTime();
+        }
+
+        void lease() {
+            leasedAtNanos = System.nanoTime();
+            leakReported = false;
+            // Lo stack trace serve solo a individuare il chiamante in caso di leak
+            leaseTrace = config.leakDetectionThresholdMillis > 0
+                    ? new Exception("Connessione prelevata qui")
+                    : null;
+        }
+
+        /**
+         * Riporta la connessione allo stato di default prima di rimetterla nel pool.
+         *
+         * @return false se la connessione non è più utilizzabile
+         */
+        boolean reset() throws SQLException {
+            if (physical.isClosed()) {
+                return false;
+            }
+            if (!physical.getAutoCommit()) {
+                // Una transazione lasciata aperta dal chiamante viene annullata
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            if (physical.isReadOnly()) {
+                physical.setReadOnly(false);
+            }
+            physical.clearWarnings();
+            return true;
+        }
+
+        Connection newProxy() {
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, new LeaseHandler(this));
+        }
+    }
+
+    /**
+     * Handler del proxy consegnato al chiamante: inoltra le chiamate alla
+     * connessione fisica e intercetta close() per restituirla al pool.
+     */
+    private final class LeaseHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean returned;
+
+        LeaseHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + (returned ? ", restituita" : "") + "]";
+                default:
+                    break;
+            }
+
+            if (returned) {
+                throw new SQLException("La connessione è già stata restituita al pool");
+            }
+
+            switch (method.getName()) {
+                case "prepareStatement":
+                case "prepareCall":
+                case "createStatement":
+                    QueryCounter.statementPrepared();
+                    Strumentazione.statementPreparato();
+                    if (StatementHandler.isNecessario()) {
+                        String sql = args != null && args.length > 0 && args[0] instanceof String
+                                ? (String) args[0]
+                                : null;
+                        return StatementHandler.avvolgi(method.getReturnType(), invokePhysical(method, args), sql);
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            return invokePhysical(method, args);
+        }
+
+        private Object invokePhysical(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package it.tennis_club.orm;
+
+import org.postgresql.PGConnection;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Esporta il risultato di una query in formato CSV con COPY ... TO STDOUT.
+ *
+ * Il database produce direttamente il CSV, che il driver scrive sul Writer
+ * man mano che lo riceve: nessuna riga viene convertita in oggetti del
+ * dominio e la memoria usata non dipende dal numero di righe.
+ *
+ * COPY non accetta parametri, quindi i filtri vengono inseriti nella query
+ * come letterali costruiti solo da valori tipizzati (date e ID), mai da
+ * stringhe fornite dall'utente.
+ */
+final class CsvExport {
+
+    private CsvExport() {
+    }
+
+    /**
+     * Esporta in CSV, con intestazione, il risultato della query.
+     *
+     * @param query        la SELECT da esportare
+     * @param destinazione il Writer su cui scrivere il CSV
+     * @return il numero di righe esportate, esclusa l'intestazione
+     * @throws SQLException se si verifica un errore durante l'accesso al
+     *                      database o la scrittura del CSV
+     */
+    static long esporta(String query, Writer destinazione) throws SQLException {
+        Connection connection = null;
+
+        try {
+            connection = ConnectionManager.getConnection();
+            return connection.unwrap(PGConnection.class).getCopyAPI().copyOut(
+                    "COPY (" + query + ") TO STDOUT WITH (FORMAT csv, HEADER true)", destinazione);
+
+        } catch (IOException e) {
+            throw new SQLException("Errore durante la scrittura del CSV: " + e.getMessage(), e);
+
+        } finally {
+            ConnectionManager.closeConnection(connection);
+        }
+    }
+
+    /**
+     * Costruisce la clausola WHERE dei filtri comuni alle esportazioni; i
+     * filtri null vengono ignorati.
+     *
+     * @param colonnaInizio la colonna confrontata con la data finale
+     * @param colonnaFine   la colonna confrontata con la data iniziale (la
+     *                      stessa di colonnaInizio per le entità di un solo
+     *                      giorno)
+     * @param colonnaCampo  la colonna dell'ID del campo
+     * @param dal           la data iniziale, inclusa
+     * @param al            la data finale, inclusa
+     * @param idCampo       l'ID del campo
+     * @return la clausola WHERE, vuota se non ci sono filtri
+     */
+    static String filtro(String colonnaInizio, String colonnaFine, String colonnaCampo,
+            LocalDate dal, LocalDate al, Integer idCampo) {
+        List<String> condizioni = new ArrayList<>();
+        if (dal != null) {
+            condizioni.add(colonnaFine + " >= " + letterale(dal));
+        }
+        if (al != null) {
+            condizioni.add(colonnaInizio + " <= " + letterale(al));
+        }
+        if (idCampo != null) {
+            condizioni.add(colonnaCampo + " = " + idCampo.intValue());
+        }
+        return condizioni.isEmpty() ? "" : " WHERE " + String.join(" AND ", condizioni);
+    }
+
+    private static String letterale(LocalDate data) {
+        // LocalDate.toString() produce sempre il formato ISO AAAA-MM-GG
+        return "DATE '" + data + "'";
+    }
+}
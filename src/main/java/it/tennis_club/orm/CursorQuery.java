@@ -0,0 +1,132 @@
+package it.tennis_club.orm;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+
+/**
+ * Esegue una query leggendo il risultato a blocchi tramite un cursore lato
+ * server, invece di caricare tutte le righe in memoria.
+ *
+ * Il driver PostgreSQL usa il cursore solo con autocommit disattivato e
+ * fetch size positiva: la query viene quindi eseguita in una transazione di
+ * sola lettura e il driver tiene in memoria al massimo "db.fetchSize" righe
+ * alla volta (default 500). Ogni riga viene mappata e passata al chiamante,
+ * che non deve conservarla se vuole mantenere costante la memoria usata.
+ */
+final class CursorQuery {
+
+    private static final Log LOG = Log.get(CursorQuery.class);
+
+    private static final int DEFAULT_FETCH_SIZE = 500;
+
+    /**
+     * Converte la riga corrente del ResultSet in un oggetto.
+     */
+    @FunctionalInterface
+    interface RowMapper<T> {
+        T map(ResultSet resultSet) throws SQLException;
+    }
+
+    /**
+     * Imposta i parametri della query.
+     */
+    @FunctionalInterface
+    interface ParameterSetter {
+        void set(PreparedStatement statement) throws SQLException;
+    }
+
+    private static volatile Integer fetchSize;
+
+    private CursorQuery() {
+    }
+
+    /**
+     * Esegue la query e passa ogni riga mappata all'azione indicata.
+     *
+     * @param query  la query da eseguire
+     * @param mapper la conversione di una riga in oggetto
+     * @param azione l'azione da eseguire per ogni oggetto
+     * @return il numero di righe lette
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    static <T> long forEach(String query, RowMapper<T> mapper, Consumer<? super T> azione) throws SQLException {
+        return forEach(query, statement -> {
+        }, mapper, azione);
+    }
+
+    /**
+     * Esegue la query con i parametri indicati e passa ogni riga mappata
+     * all'azione indicata.
+     *
+     * @param query     la query da eseguire
+     * @param parametri l'impostazione dei parametri della query
+     * @param mapper    la conversione di una riga in oggetto
+     * @param azione    l'azione da eseguire per ogni oggetto
+     * @return il numero di righe lette
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    static <T> long forEach(String query, ParameterSetter parametri, RowMapper<T> mapper,
+            Consumer<? super T> azione) throws SQLException {
+        return ConnectionManager.inTransaction(connection -> {
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+
+            try {
+                connection.setReadOnly(true);
+                statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(getFetchSize());
+                parametri.set(statement);
+                resultSet = statement.executeQuery();
+
+                long righe = 0;
+                while (resultSet.next()) {
+                    azione.accept(mapper.map(resultSet));
+                    righe++;
+                }
+                return righe;
+
+            } finally {
+                closeResources(resultSet, statement);
+            }
+        });
+    }
+
+    /**
+     * Restituisce il numero di righe lette dal database a ogni blocco.
+     */
+    static int getFetchSize() {
+        Integer size = fetchSize;
+        if (size == null) {
+            size = Integer.parseInt(ConnectionManager.getProperty("db.fetchSize",
+                    String.valueOf(DEFAULT_FETCH_SIZE)));
+            fetchSize = size;
+        }
+        return size;
+    }
+
+    /**
+     * Chiude ResultSet e statement. La modalità di sola lettura non può essere
+     * cambiata a transazione aperta: viene ripristinata dal pool alla
+     * restituzione della connessione.
+     */
+    private static void closeResources(ResultSet resultSet, PreparedStatement statement) {
+        if (resultSet != null) {
+            try {
+                resultSet.close();
+            } catch (SQLException e) {
+                LOG.avviso("Errore durante la chiusura del ResultSet", e);
+            }
+        }
+
+        if (statement != null) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                LOG.avviso("Errore durante la chiusura del PreparedStatement", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package it.tennis_club.orm;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Esito di un'importazione massiva di utenti da CSV (vedi
+ * {@link UtenteDAO#importaUtenti(java.io.Reader)}): il numero di utenti
+ * inseriti e l'elenco delle righe scartate con il motivo.
+ */
+public class EsitoImportazione {
+
+    /**
+     * Riga del CSV che non è stata importata.
+     */
+    public static class ErroreRiga {
+
+        private final long riga;
+        private final String email;
+        private final String messaggio;
+
+        public ErroreRiga(long riga, String email, String messaggio) {
+            this.riga = riga;
+            this.email = email;
+            this.messaggio = messaggio;
+        }
+
+        /**
+         * Numero del record nel CSV, a partire da 1 per il primo dopo
+         * l'intestazione.
+         */
+        public long getRiga() {
+            return riga;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        /**
+         * Motivo dello scarto, utile da mostrare all'utente.
+         */
+        public String getMessaggio() {
+            return messaggio;
+        }
+
+        @Override
+        public String toString() {
+            return "ErroreRiga{" +
+                    "riga=" + riga +
+                    ", email='" + email + '\'' +
+                    ", messaggio='" + messaggio + '\'' +
+                    '}';
+        }
+    }
+
+    private final int importati;
+    private final List<ErroreRiga> errori;
+
+    public EsitoImportazione(int importati, List<ErroreRiga> errori) {
+        this.importati = importati;
+        this.errori = Collections.unmodifiableList(errori);
+    }
+
+    /**
+     * Il numero di utenti inseriti nel database.
+     */
+    public int getImportati() {
+        return importati;
+    }
+
+    /**
+     * Le righe scartate, in ordine di posizione nel CSV.
+     */
+    public List<ErroreRiga> getErrori() {
+        return errori;
+    }
+
+    public boolean hasErrori() {
+        return !errori.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "EsitoImportazione{" +
+                "importati=" + importati +
+                ", errori=" + errori.size() +
+                '}';
+    }
+}
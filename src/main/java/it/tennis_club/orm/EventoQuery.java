@@ -0,0 +1,47 @@
+package it.tennis_club.orm;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Evento di Java Flight Recorder per l'esecuzione di uno statement da parte
+ * di un DAO, registrato da {@link StatementHandler}.
+ *
+ * La durata di una query va dall'esecuzione alla chiusura del ResultSet,
+ * quindi comprende la lettura delle righe; quella di un aggiornamento o di
+ * un batch copre la sola esecuzione.
+ */
+@Name("it.tennis_club.Query")
+@Label("Query")
+@Category({ "Tennis Club", "Database" })
+@Description("Esecuzione di uno statement JDBC da parte di un DAO")
+final class EventoQuery extends Event {
+
+    private static final EventType TIPO = EventType.getEventType(EventoQuery.class);
+
+    @Label("Metodo DAO")
+    String metodo;
+
+    @Label("SQL")
+    @Description("Lo statement con i parametri segnaposto, spazi normalizzati")
+    String sql;
+
+    @Label("Righe")
+    @Description("Righe lette o modificate, -1 se non note")
+    long righe = -1;
+
+    @Label("Errore")
+    boolean errore;
+
+    /**
+     * Indica se l'evento è abilitato in almeno una registrazione in corso:
+     * se non lo è, gli statement non vengono intercettati.
+     */
+    static boolean isAbilitato() {
+        return TIPO.isEnabled();
+    }
+}
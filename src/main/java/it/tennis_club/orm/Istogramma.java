@@ -0,0 +1,104 @@
+package it.tennis_club.orm;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Istogramma concorrente delle durate in nanosecondi, con memoria fissa ed
+ * errore relativo massimo di circa il 6%: i valori sotto 32 ns hanno un
+ * intervallo ciascuno, quelli maggiori sono raggruppati in 16 intervalli per
+ * ogni potenza di due.
+ *
+ * La registrazione è un incremento atomico senza lock; i percentili vengono
+ * calcolati su una lettura non atomica dei conteggi, sufficiente per il
+ * monitoraggio.
+ */
+final class Istogramma {
+
+    private static final int VALORI_ESATTI = 32;
+    private static final int INTERVALLI_PER_OTTAVA = 16;
+    private static final int INTERVALLI = VALORI_ESATTI + 58 * INTERVALLI_PER_OTTAVA;
+
+    private final AtomicLongArray conteggi = new AtomicLongArray(INTERVALLI);
+    private final LongAdder campioni = new LongAdder();
+    private final LongAdder somma = new LongAdder();
+    private final AtomicLong massimo = new AtomicLong();
+
+    void registra(long nanos) {
+        long valore = Math.max(0, nanos);
+        conteggi.incrementAndGet(indice(valore));
+        campioni.increment();
+        somma.add(valore);
+        if (valore > massimo.get()) {
+            massimo.accumulateAndGet(valore, Math::max);
+        }
+    }
+
+    long getCampioni() {
+        return campioni.sum();
+    }
+
+    long getSomma() {
+        return somma.sum();
+    }
+
+    long getMassimo() {
+        return massimo.get();
+    }
+
+    /**
+     * Restituisce i percentili richiesti con una sola lettura dei conteggi,
+     * come limite superiore dell'intervallo che li contiene (mai oltre il
+     * massimo osservato).
+     *
+     * @param percentili i percentili, tra 0 e 100, in ordine crescente
+     * @return le durate in nanosecondi, 0 se non ci sono campioni
+     */
+    long[] getPercentili(double... percentili) {
+        long[] copia = new long[INTERVALLI];
+        long totale = 0;
+        for (int i = 0; i < INTERVALLI; i++) {
+            copia[i] = conteggi.get(i);
+            totale += copia[i];
+        }
+
+        long[] risultato = new long[percentili.length];
+        if (totale == 0) {
+            return risultato;
+        }
+        long max = massimo.get();
+        int intervallo = 0;
+        long cumulati = copia[0];
+        for (int p = 0; p < percentili.length; p++) {
+            long posizione = Math.max(1, (long) Math.ceil(percentili[p] / 100.0 * totale));
+            while (cumulati < posizione && intervallo < INTERVALLI - 1) {
+                cumulati += copia[++intervallo];
+            }
+            risultato[p] = Math.min(limiteSuperiore(intervallo), max);
+        }
+        return risultato;
+    }
+
+    private static int indice(long valore) {
+        if (valore < VALORI_ESATTI) {
+            return (int) valore;
+        }
+        // Si conservano i 5 bit più significativi: il primo è sempre 1,
+        // gli altri 4 scelgono uno dei 16 intervalli dell'ottava
+        int bitPiuAlto = 63 - Long.numberOfLeadingZeros(valore);
+        int scorrimento = bitPiuAlto - 4;
+        int mantissa = (int) (valore >>> scorrimento) - INTERVALLI_PER_OTTAVA;
+        return VALORI_ESATTI + (scorrimento - 1) * INTERVALLI_PER_OTTAVA + mantissa;
+    }
+
+    private static long limiteSuperiore(int indice) {
+        if (indice < VALORI_ESATTI) {
+            return indice;
+        }
+        int k = indice - VALORI_ESATTI;
+        int scorrimento = k / INTERVALLI_PER_OTTAVA + 1;
+        long mantissa = INTERVALLI_PER_OTTAVA + k % INTERVALLI_PER_OTTAVA;
+        return ((mantissa + 1) << scorrimento) - 1;
+    }
+}
@@ -2,10 +2,15 @@ package it.tennis_club.orm;
 
 import it.tennis_club.domain_model.Lezione;
 
+import java.io.Writer;
 import java.sql.Connection;
+import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -16,15 +21,35 @@ import java.util.List;
  */
 public class LezioneDAO {
 
-    private final UtenteDAO utenteDAO;
-    private final PrenotazioneDAO prenotazioneDAO;
+    private static final Log LOG = Log.get(LezioneDAO.class);
+
+    // Lezione, prenotazione (con campo e socio) e maestro vengono caricati
+    // con un'unica JOIN, qualunque sia il numero di righe
+    private static final String SELECT_LEZIONE = "SELECT " + ResultSetHydrator.colonneLezione() +
+            " FROM lezione l" + ResultSetHydrator.JOIN_LEZIONE + " ";
+
+    // Query complete dei metodi che filtrano le lezioni, visibili nel package
+    // perché QueryPlanTest ne verifica i piani di esecuzione
+    static final String QUERY_BY_ID = SELECT_LEZIONE + "WHERE l.id = ?";
+
+    static final String QUERY_BY_PRENOTAZIONE = SELECT_LEZIONE + "WHERE l.id_prenotazione = ?";
+
+    static final String QUERY_BY_MAESTRO = SELECT_LEZIONE + "WHERE l.id_maestro = ?";
+
+    static final String UPDATE_BY_ID = "UPDATE lezione SET descrizione = ?, " +
+            "id_prenotazione = ?, id_maestro = ? WHERE id = ?";
+
+    static final String DELETE_BY_ID = "DELETE FROM lezione WHERE id = ?";
 
     /**
-     * Costruttore che inizializza i DAO dipendenti.
+     * La query di {@link #getLezioniDopo(LocalDate, LocalTime, Integer, int)}:
+     * i parametri sono la chiave della pagina precedente se non è la prima e
+     * il limite.
      */
-    public LezioneDAO() {
-        this.utenteDAO = new UtenteDAO();
-        this.prenotazioneDAO = new PrenotazioneDAO();
+    static String queryDopo(boolean primaPagina) {
+        return SELECT_LEZIONE +
+                (primaPagina ? "" : "WHERE (p.data, p.ora_inizio, l.id) > (?, ?, ?) ") +
+                "ORDER BY p.data, p.ora_inizio, l.id LIMIT ?";
     }
 
     /**
@@ -35,41 +60,43 @@ public class LezioneDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public Integer createLezione(Lezione lezione) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        Integer generatedId = null;
-
-        try {
-            connection = ConnectionManager.getConnection();
-            String query = "INSERT INTO lezione (id_prenotazione, id_maestro, descrizione) " +
-                    "VALUES (?, ?, ?)";
-            statement = connection.prepareStatement(query, PreparedStatement.RETURN_GENERATED_KEYS);
-            statement.setInt(1, lezione.getPrenotazione().getId());
-            statement.setInt(2, lezione.getMaestro().getId());
-            statement.setString(3, lezione.getDescrizione());
-
-            int affectedRows = statement.executeUpdate();
-
-            if (affectedRows == 0) {
-                throw new SQLException("Creazione lezione fallita, nessuna riga inserita.");
-            }
+        return Strumentazione.misura("LezioneDAO.createLezione", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            Integer generatedId = null;
 
-            resultSet = statement.getGeneratedKeys();
-            if (resultSet.next()) {
-                generatedId = resultSet.getInt(1);
-                lezione.setId(generatedId);
-            } else {
-                throw new SQLException("Creazione lezione fallita, nessun ID ottenuto.");
-            }
+            try {
+                connection = ConnectionManager.getConnection();
+                String query = "INSERT INTO lezione (id_prenotazione, id_maestro, descrizione) " +
+                        "VALUES (?, ?, ?)";
+                statement = connection.prepareStatement(query, PreparedStatement.RETURN_GENERATED_KEYS);
+                statement.setInt(1, lezione.getPrenotazione().getId());
+                statement.setInt(2, lezione.getMaestro().getId());
+                statement.setString(3, lezione.getDescrizione());
+
+                int affectedRows = statement.executeUpdate();
+
+                if (affectedRows == 0) {
+                    throw new SQLException("Creazione lezione fallita, nessuna riga inserita.");
+                }
+
+                resultSet = statement.getGeneratedKeys();
+                if (resultSet.next()) {
+                    generatedId = resultSet.getInt(1);
+                    lezione.setId(generatedId);
+                } else {
+                    throw new SQLException("Creazione lezione fallita, nessun ID ottenuto.");
+                }
 
-        } catch (SQLException e) {
-            System.err.println("Errore durante la creazione della lezione: " + e.getMessage());
-            throw e;
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
-        return generatedId;
+            } catch (SQLException e) {
+                LOG.errore("Errore durante la creazione della lezione", e);
+                throw e;
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
+            return generatedId;
+        });
     }
 
     /**
@@ -80,25 +107,45 @@ public class LezioneDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public boolean deleteLezione(Integer id) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
+        return Strumentazione.misura("LezioneDAO.deleteLezione", () -> {
+            Connection connection = null;
 
-        try {
-            connection = ConnectionManager.getConnection();
-            String query = "DELETE FROM lezione WHERE id = ?";
+            try {
+                connection = ConnectionManager.getConnection();
+                return deleteLezione(connection, id);
+            } finally {
+                ConnectionManager.closeConnection(connection);
+            }
+        });
+    }
+
+    /**
+     * Elimina una lezione usando una connessione esistente, ad esempio
+     * all'interno di una transazione. La connessione non viene chiusa.
+     * 
+     * @param connection la connessione da usare
+     * @param id         l'ID della lezione da eliminare
+     * @return true se la cancellazione è andata a buon fine, false altrimenti
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public boolean deleteLezione(Connection connection, Integer id) throws SQLException {
+        return Strumentazione.misura("LezioneDAO.deleteLezione(Connection, Integer)", () -> {
+            PreparedStatement statement = null;
 
-            statement = connection.prepareStatement(query);
-            statement.setInt(1, id);
+            try {
+                statement = connection.prepareStatement(DELETE_BY_ID);
+                statement.setInt(1, id);
 
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
+                int affectedRows = statement.executeUpdate();
+                return affectedRows > 0;
 
-        } catch (SQLException e) {
-            System.err.println("Errore durante la cancellazione della lezione: " + e.getMessage());
-            throw e;
-        } finally {
-            closeResources(null, statement, connection);
-        }
+            } catch (SQLException e) {
+                LOG.errore("Errore durante la cancellazione della lezione", e);
+                throw e;
+            } finally {
+                closeResources(null, statement, null);
+            }
+        });
     }
 
     /**
@@ -109,28 +156,28 @@ public class LezioneDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public boolean updateLezione(Lezione lezione) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-
-        try {
-            connection = ConnectionManager.getConnection();
-            String query = "UPDATE lezione SET descrizione = ?, " +
-                    "id_prenotazione = ?, id_maestro = ? WHERE id = ?";
-            statement = connection.prepareStatement(query);
-            statement.setString(1, lezione.getDescrizione());
-            statement.setInt(2, lezione.getPrenotazione().getId());
-            statement.setInt(3, lezione.getMaestro().getId());
-            statement.setInt(4, lezione.getId());
-
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
-
-        } catch (SQLException e) {
-            System.err.println("Errore durante l'aggiornamento della lezione: " + e.getMessage());
-            throw e;
-        } finally {
-            closeResources(null, statement, connection);
-        }
+        return Strumentazione.misura("LezioneDAO.updateLezione", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+
+            try {
+                connection = ConnectionManager.getConnection();
+                statement = connection.prepareStatement(UPDATE_BY_ID);
+                statement.setString(1, lezione.getDescrizione());
+                statement.setInt(2, lezione.getPrenotazione().getId());
+                statement.setInt(3, lezione.getMaestro().getId());
+                statement.setInt(4, lezione.getId());
+
+                int affectedRows = statement.executeUpdate();
+                return affectedRows > 0;
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante l'aggiornamento della lezione", e);
+                throw e;
+            } finally {
+                closeResources(null, statement, connection);
+            }
+        });
     }
 
     /**
@@ -140,31 +187,83 @@ public class LezioneDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public List<Lezione> getAllLezioni() throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Lezione> lezioni = new ArrayList<>();
+        return Strumentazione.misura("LezioneDAO.getAllLezioni", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Lezione> lezioni = new ArrayList<>();
 
-        try {
-            connection = ConnectionManager.getConnection();
-            String query = "SELECT id, id_prenotazione, id_maestro, descrizione " +
-                    "FROM lezione ORDER BY id_prenotazione";
+            try {
+                connection = ConnectionManager.getConnection();
+                String query = SELECT_LEZIONE + "ORDER BY l.id_prenotazione";
+
+                statement = connection.prepareStatement(query);
+                resultSet = statement.executeQuery();
 
-            statement = connection.prepareStatement(query);
-            resultSet = statement.executeQuery();
+                ResultSetHydrator hydrator = new ResultSetHydrator();
+                while (resultSet.next()) {
+                    lezioni.add(hydrator.lezione(resultSet));
+                }
 
-            while (resultSet.next()) {
-                lezioni.add(mapResultSetToLezione(resultSet));
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero delle lezioni", e);
+                throw e;
+            } finally {
+                closeResources(resultSet, statement, connection);
             }
 
-        } catch (SQLException e) {
-            System.err.println("Errore durante il recupero delle lezioni: " + e.getMessage());
-            throw e;
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
+            return lezioni;
+        });
+    }
+
+    /**
+     * Recupera una pagina di lezioni ordinate per data e ora della
+     * prenotazione e per ID, a partire da quella successiva alla chiave
+     * indicata (paginazione keyset).
+     * 
+     * @param data      la data dell'ultima lezione della pagina precedente,
+     *                  null per la prima pagina
+     * @param oraInizio l'ora di inizio dell'ultima lezione della pagina
+     *                  precedente
+     * @param id        l'ID dell'ultima lezione della pagina precedente
+     * @param limite    il numero massimo di lezioni da restituire
+     * @return le lezioni della pagina
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public List<Lezione> getLezioniDopo(LocalDate data, LocalTime oraInizio, Integer id, int limite)
+            throws SQLException {
+        return Strumentazione.misura("LezioneDAO.getLezioniDopo", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Lezione> lezioni = new ArrayList<>();
+
+            try {
+                connection = ConnectionManager.getConnection();
+                statement = connection.prepareStatement(queryDopo(data == null));
+                int indice = 1;
+                if (data != null) {
+                    statement.setDate(indice++, Date.valueOf(data));
+                    statement.setTime(indice++, Time.valueOf(oraInizio));
+                    statement.setInt(indice++, id);
+                }
+                statement.setInt(indice, limite);
+                resultSet = statement.executeQuery();
+
+                ResultSetHydrator hydrator = new ResultSetHydrator();
+                while (resultSet.next()) {
+                    lezioni.add(hydrator.lezione(resultSet));
+                }
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero delle lezioni", e);
+                throw e;
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
 
-        return lezioni;
+            return lezioni;
+        });
     }
 
     /**
@@ -175,31 +274,31 @@ public class LezioneDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public Lezione getLezioneById(Integer id) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        Lezione lezione = null;
-
-        try {
-            connection = ConnectionManager.getConnection();
-            String query = "SELECT id, id_prenotazione, id_maestro, descrizione " +
-                    "FROM lezione WHERE id = ?";
-            statement = connection.prepareStatement(query);
-            statement.setInt(1, id);
-            resultSet = statement.executeQuery();
-
-            if (resultSet.next()) {
-                lezione = mapResultSetToLezione(resultSet);
-            }
+        return Strumentazione.misura("LezioneDAO.getLezioneById", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            Lezione lezione = null;
 
-        } catch (SQLException e) {
-            System.err.println("Errore durante il recupero della lezione per ID: " + e.getMessage());
-            throw e;
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
+            try {
+                connection = ConnectionManager.getConnection();
+                statement = connection.prepareStatement(QUERY_BY_ID);
+                statement.setInt(1, id);
+                resultSet = statement.executeQuery();
+
+                if (resultSet.next()) {
+                    lezione = new ResultSetHydrator().lezione(resultSet);
+                }
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero della lezione per ID", e);
+                throw e;
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
 
-        return lezione;
+            return lezione;
+        });
     }
 
     /**
@@ -210,31 +309,31 @@ public class LezioneDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public Lezione getLezioneByPrenotazione(Integer idPrenotazione) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        Lezione lezione = null;
-
-        try {
-            connection = ConnectionManager.getConnection();
-            String query = "SELECT id, id_prenotazione, id_maestro, descrizione " +
-                    "FROM lezione WHERE id_prenotazione = ?";
-            statement = connection.prepareStatement(query);
-            statement.setInt(1, idPrenotazione);
-            resultSet = statement.executeQuery();
-
-            if (resultSet.next()) {
-                lezione = mapResultSetToLezione(resultSet);
-            }
+        return Strumentazione.misura("LezioneDAO.getLezioneByPrenotazione", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            Lezione lezione = null;
 
-        } catch (SQLException e) {
-            System.err.println("Errore durante il recupero della lezione per prenotazione: " + e.getMessage());
-            throw e;
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
+            try {
+                connection = ConnectionManager.getConnection();
+                statement = connection.prepareStatement(QUERY_BY_PRENOTAZIONE);
+                statement.setInt(1, idPrenotazione);
+                resultSet = statement.executeQuery();
 
-        return lezione;
+                if (resultSet.next()) {
+                    lezione = new ResultSetHydrator().lezione(resultSet);
+                }
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero della lezione per prenotazione", e);
+                throw e;
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
+
+            return lezione;
+        });
     }
 
     /**
@@ -245,53 +344,69 @@ public class LezioneDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public List<Lezione> getLezioniByMaestro(Integer idMaestro) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Lezione> lezioni = new ArrayList<>();
-
-        try {
-            connection = ConnectionManager.getConnection();
-            String query = "SELECT id, id_prenotazione, id_maestro, descrizione " +
-                    "FROM lezione WHERE id_maestro = ?";
-            statement = connection.prepareStatement(query);
-            statement.setInt(1, idMaestro);
-            resultSet = statement.executeQuery();
-
-            while (resultSet.next()) {
-                lezioni.add(mapResultSetToLezione(resultSet));
-            }
+        return Strumentazione.misura("LezioneDAO.getLezioniByMaestro", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Lezione> lezioni = new ArrayList<>();
 
-        } catch (SQLException e) {
-            System.err.println("Errore durante il recupero delle lezioni per maestro: " + e.getMessage());
-            throw e;
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
+            try {
+                connection = ConnectionManager.getConnection();
+                statement = connection.prepareStatement(QUERY_BY_MAESTRO);
+                statement.setInt(1, idMaestro);
+                resultSet = statement.executeQuery();
+
+                ResultSetHydrator hydrator = new ResultSetHydrator();
+                while (resultSet.next()) {
+                    lezioni.add(hydrator.lezione(resultSet));
+                }
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero delle lezioni per maestro", e);
+                throw e;
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
 
-        return lezioni;
+            return lezioni;
+        });
     }
 
     /**
-     * Metodo helper per mappare un ResultSet a un oggetto Lezione.
+     * Esporta in CSV le lezioni con data, campo, maestro e presenze: una riga
+     * per ogni allievo iscritto (o una sola riga senza allievo per le lezioni
+     * senza iscritti), ordinate per data e ora. Le righe vengono scritte man
+     * mano che arrivano dal database (vedi {@link CsvExport}).
      * 
-     * @param resultSet il ResultSet
-     * @return l'oggetto Lezione
-     * @throws SQLException se si verifica un errore durante l'accesso ai dati
+     * @param destinazione il Writer su cui scrivere il CSV
+     * @param dal          la data iniziale inclusa, null per nessun limite
+     * @param al           la data finale inclusa, null per nessun limite
+     * @param idCampo      l'ID del campo, null per tutti i campi
+     * @return il numero di righe esportate
+     * @throws SQLException se si verifica un errore durante l'accesso al
+     *                      database o la scrittura del CSV
      */
-    private Lezione mapResultSetToLezione(ResultSet resultSet) throws SQLException {
-        Lezione lezione = new Lezione();
-        lezione.setId(resultSet.getInt("id"));
-        lezione.setDescrizione(resultSet.getString("descrizione"));
+    public long esportaCsv(Writer destinazione, LocalDate dal, LocalDate al, Integer idCampo) throws SQLException {
+        return Strumentazione.misura("LezioneDAO.esportaCsv", () -> {
+            String query = "SELECT l.id AS id_lezione, p.data, p.ora_inizio, " +
+                    "c.id AS id_campo, c.nome AS campo, " +
+                    "m.id AS id_maestro, m.nome AS nome_maestro, m.cognome AS cognome_maestro, l.descrizione, " +
+                    "a.id AS id_allievo, a.nome AS nome_allievo, a.cognome AS cognome_allievo, " +
+                    "a.email AS email_allievo, al.presente, al.feedback " +
+                    "FROM lezione l" + ResultSetHydrator.JOIN_LEZIONE +
+                    " LEFT JOIN allievo_lezione al ON al.id_lezione = l.id" +
+                    " LEFT JOIN utente a ON a.id = al.id_allievo" +
+                    CsvExport.filtro("p.data", "p.data", "p.id_campo", dal, al, idCampo) +
+                    " ORDER BY p.data, p.ora_inizio, l.id, al.id";
 
-        // Recupero oggetti completi tramite gli ID
-        int idPrenotazione = resultSet.getInt("id_prenotazione");
-        lezione.setPrenotazione(prenotazioneDAO.getPrenotazioneById(idPrenotazione));
-
-        int idMaestro = resultSet.getInt("id_maestro");
-        lezione.setMaestro(utenteDAO.getUtenteById(idMaestro));
+            try {
+                return CsvExport.esporta(query, destinazione);
 
-        return lezione;
+            } catch (SQLException e) {
+                LOG.errore("Errore durante l'esportazione delle lezioni", e);
+                throw e;
+            }
+        });
     }
 
     /**
@@ -302,14 +417,14 @@ public class LezioneDAO {
             try {
                 resultSet.close();
             } catch (SQLException e) {
-                System.err.println("Errore durante la chiusura del ResultSet: " + e.getMessage());
+                LOG.avviso("Errore durante la chiusura del ResultSet", e);
             }
         }
         if (statement != null) {
             try {
                 statement.close();
             } catch (SQLException e) {
-                System.err.println("Errore durante la chiusura del PreparedStatement: " + e.getMessage());
+                LOG.avviso("Errore durante la chiusura del PreparedStatement", e);
             }
         }
         ConnectionManager.closeConnection(connection);
@@ -0,0 +1,275 @@
+package it.tennis_club.orm;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Log asincrono dei servizi e dei DAO.
+ *
+ * Chi scrive nel log non attende mai: il messaggio viene inserito in una
+ * coda circolare senza lock ({@link RingBuffer}) e un thread di scrittura lo
+ * formatta e lo stampa, AVVISO ed ERRORE su System.err e gli altri livelli su
+ * System.out. Se la coda è piena il messaggio viene scartato e conteggiato;
+ * il numero di messaggi scartati viene segnalato nel log appena c'è spazio.
+ *
+ * I messaggi hanno campi strutturati, passati come coppie chiave, valore:
+ *
+ * <pre>
+ * LOG.errore("Errore durante la creazione della prenotazione", e, "idCampo", idCampo, "data", data);
+ * </pre>
+ *
+ * I valori vengono convertiti in testo dal thread di scrittura, quindi vanno
+ * passati valori che non cambiano dopo la chiamata (ID, stringhe, date).
+ *
+ * Il livello minimo (proprietà "log.livello", default INFO) e la capacità
+ * della coda (proprietà "log.capacita", default 8192) vengono letti da
+ * db.properties.
+ */
+public final class Log {
+
+    /**
+     * Livelli dei messaggi, in ordine di gravità.
+     */
+    public enum Livello {
+        DEBUG, INFO, AVVISO, ERRORE
+    }
+
+    private static final int CAPACITA_DEFAULT = 8192;
+
+    // Attesa del thread di scrittura quando la coda è vuota
+    private static final long ATTESA_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long ATTESA_FLUSH_MILLIS = 2_000;
+
+    private static final DateTimeFormatter FORMATO_ORA = DateTimeFormatter
+            .ofPattern("yyyy-MM-dd HH:mm:ss.SSS")
+            .withZone(ZoneId.systemDefault());
+
+    private static volatile Livello livelloMinimo = Livello.valueOf(
+            ConnectionManager.getProperty("log.livello", Livello.INFO.name()).trim().toUpperCase(Locale.ROOT));
+
+    private static final RingBuffer<Messaggio> CODA = new RingBuffer<>(Integer.parseInt(
+            ConnectionManager.getProperty("log.capacita", String.valueOf(CAPACITA_DEFAULT))));
+    private static final LongAdder SCARTATI = new LongAdder();
+
+    // Numero di messaggi scritti, aggiornato dopo la stampa di ogni blocco
+    private static volatile long scritti;
+
+    static {
+        Thread scrittore = new Thread(Log::scrivi, "log-writer");
+        scrittore.setDaemon(true);
+        scrittore.start();
+    }
+
+    private final String nome;
+
+    private Log(String nome) {
+        this.nome = nome;
+    }
+
+    /**
+     * Un messaggio in attesa di essere scritto.
+     */
+    static final class Messaggio {
+        final long istante = System.currentTimeMillis();
+        final String thread = Thread.currentThread().getName();
+        final Livello livello;
+        final String origine;
+        final String testo;
+        final Throwable eccezione;
+        final Object[] campi;
+
+        Messaggio(Livello livello, String origine, String testo, Throwable eccezione, Object[] campi) {
+            this.livello = livello;
+            this.origine = origine;
+            this.testo = testo;
+            this.eccezione = eccezione;
+            this.campi = campi;
+        }
+    }
+
+    /**
+     * Restituisce il log di una classe, identificato dal suo nome semplice.
+     */
+    public static Log get(Class<?> classe) {
+        return new Log(classe.getSimpleName());
+    }
+
+    public static Livello getLivelloMinimo() {
+        return livelloMinimo;
+    }
+
+    public static void setLivelloMinimo(Livello livello) {
+        livelloMinimo = livello;
+    }
+
+    /**
+     * Il numero di messaggi scartati perché la coda era piena.
+     */
+    public static long getScartati() {
+        return SCARTATI.sum();
+    }
+
+    /**
+     * Attende (al massimo 2 secondi) che i messaggi già accodati siano stati
+     * scritti. Chiamato per ultimo dalla sequenza di chiusura di
+     * {@link ConnectionManager}.
+     */
+    public static void flush() {
+        long obiettivo = CODA.getInseriti();
+        long scadenza = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ATTESA_FLUSH_MILLIS);
+        while (scritti < obiettivo && System.nanoTime() < scadenza) {
+            LockSupport.parkNanos(ATTESA_NANOS / 5);
+        }
+    }
+
+    public boolean isAbilitato(Livello livello) {
+        return livello.compareTo(livelloMinimo) >= 0;
+    }
+
+    public void debug(String testo, Object... campi) {
+        accoda(Livello.DEBUG, testo, null, campi);
+    }
+
+    public void info(String testo, Object... campi) {
+        accoda(Livello.INFO, testo, null, campi);
+    }
+
+    public void avviso(String testo, Object... campi) {
+        accoda(Livello.AVVISO, testo, null, campi);
+    }
+
+    public void avviso(String testo, Throwable eccezione, Object... campi) {
+        accoda(Livello.AVVISO, testo, eccezione, campi);
+    }
+
+    public void errore(String testo, Object... campi) {
+        accoda(Livello.ERRORE, testo, null, campi);
+    }
+
+    public void errore(String testo, Throwable eccezione, Object... campi) {
+        accoda(Livello.ERRORE, testo, eccezione, campi);
+    }
+
+    private void accoda(Livello livello, String testo, Throwable eccezione, Object[] campi) {
+        if (!isAbilitato(livello)) {
+            return;
+        }
+        if (!CODA.offri(new Messaggio(livello, nome, testo, eccezione, campi))) {
+            SCARTATI.increment();
+        }
+    }
+
+    /**
+     * Ciclo del thread di scrittura: svuota la coda a blocchi, con una sola
+     * stampa per stream e blocco.
+     */
+    private static void scrivi() {
+        StringBuilder out = new StringBuilder();
+        StringBuilder err = new StringBuilder();
+        long scartatiSegnalati = 0;
+
+        while (true) {
+            long scrittiBlocco = 0;
+            Messaggio messaggio;
+            while ((messaggio = CODA.preleva()) != null) {
+                StringBuilder destinazione = messaggio.livello.compareTo(Livello.AVVISO) >= 0 ? err : out;
+                formatta(messaggio, destinazione);
+                destinazione.append(System.lineSeparator());
+                scrittiBlocco++;
+            }
+
+            long scartati = SCARTATI.sum();
+            if (scartati > scartatiSegnalati) {
+                formatta(new Messaggio(Livello.AVVISO, "Log", "Messaggi di log scartati per coda piena", null,
+                        new Object[] { "scartati", scartati - scartatiSegnalati, "totale", scartati }), err);
+                err.append(System.lineSeparator());
+                scartatiSegnalati = scartati;
+            }
+
+            stampa(System.out, out);
+            stampa(System.err, err);
+            if (scrittiBlocco > 0) {
+                scritti += scrittiBlocco;
+            } else {
+                LockSupport.parkNanos(ATTESA_NANOS);
+            }
+        }
+    }
+
+    private static void stampa(PrintStream stream, StringBuilder testo) {
+        if (testo.length() > 0) {
+            stream.print(testo);
+            stream.flush();
+            testo.setLength(0);
+        }
+    }
+
+    /**
+     * Formatta un messaggio su una riga: ora, livello, thread, origine, testo
+     * e campi come chiave=valore (tra virgolette se contengono spazi).
+     * L'eccezione viene aggiunta come campo "errore" con tipo e messaggio.
+     */
+    static void formatta(Messaggio messaggio, StringBuilder sb) {
+        sb.append(FORMATO_ORA.format(Instant.ofEpochMilli(messaggio.istante)))
+                .append(' ').append(messaggio.livello)
+                .append(" [").append(messaggio.thread).append("] ")
+                .append(messaggio.origine).append(" - ")
+                .append(messaggio.testo);
+
+        Object[] campi = messaggio.campi;
+        if (campi != null) {
+            for (int i = 0; i + 1 < campi.length; i += 2) {
+                sb.append(' ').append(campi[i]).append('=');
+                valore(campi[i + 1], sb);
+            }
+            if (campi.length % 2 != 0) {
+                sb.append(' ').append(campi[campi.length - 1]).append("=?");
+            }
+        }
+        if (messaggio.eccezione != null) {
+            Throwable eccezione = messaggio.eccezione;
+            sb.append(" errore=");
+            valore(eccezione.getClass().getSimpleName() + ": " + eccezione.getMessage(), sb);
+        }
+    }
+
+    private static void valore(Object valore, StringBuilder sb) {
+        String testo = String.valueOf(valore);
+        boolean virgolette = testo.isEmpty();
+        for (int i = 0; i < testo.length() && !virgolette; i++) {
+            char c = testo.charAt(i);
+            virgolette = Character.isWhitespace(c) || c == '"' || c == '=';
+        }
+        if (!virgolette) {
+            sb.append(testo);
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < testo.length(); i++) {
+            char c = testo.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
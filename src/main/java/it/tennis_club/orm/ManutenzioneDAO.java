@@ -3,22 +3,52 @@ package it.tennis_club.orm;
 import it.tennis_club.domain_model.Manutenzione;
 import it.tennis_club.domain_model.Manutenzione.Stato;
 
+import java.io.Writer;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object per la gestione delle manutenzioni nel database.
  */
 public class ManutenzioneDAO {
 
-    private final CampoDAO campoDAO;
-    private final UtenteDAO utenteDAO;
+    private static final Log LOG = Log.get(ManutenzioneDAO.class);
+
+    // Query complete dei metodi che filtrano le manutenzioni, visibili nel
+    // package perché QueryPlanTest ne verifica i piani di esecuzione
+    static final String QUERY_BY_ID = "SELECT id, id_campo, id_manutentore, data_inizio, data_fine, descrizione, " +
+            "stato FROM manutenzione WHERE id = ?";
+
+    static final String QUERY_BY_CAMPO = "SELECT id, id_campo, id_manutentore, data_inizio, data_fine, descrizione, " +
+            "stato FROM manutenzione WHERE id_campo = ? ORDER BY data_inizio DESC";
+
+    // Cerca manutenzioni IN_CORSO o COMPLETATA che coprono la data richiesta:
+    // - Se data_fine è NULL, blocca solo data_inizio (singolo giorno)
+    // - Se data_fine è definita, blocca il range [data_inizio, data_fine]
+    // - Ignora manutenzioni ANNULLATA (permettono prenotazioni)
+    // La data è il secondo, terzo e quarto parametro.
+    static final String QUERY_ATTIVA_BY_DATA_AND_CAMPO = "SELECT id, id_campo, id_manutentore, data_inizio, " +
+            "data_fine, descrizione, stato FROM manutenzione WHERE id_campo = ? " +
+            "AND stato IN ('IN_CORSO', 'COMPLETATA') " +
+            "AND ((data_fine IS NULL AND data_inizio = ?) " +
+            "     OR (data_fine IS NOT NULL AND ? >= data_inizio AND ? <= data_fine))";
+
+    static final String UPDATE_STATO = "UPDATE manutenzione SET stato = ? WHERE id = ?";
+
+    static final String UPDATE_COMPLETATA = "UPDATE manutenzione SET data_fine = ?, stato = 'COMPLETATA' " +
+            "WHERE id = ? RETURNING id, id_campo, id_manutentore, data_inizio, data_fine, descrizione, stato";
+
+    static final String DELETE_BY_ID = "DELETE FROM manutenzione WHERE id = ?";
+
+    private final CampoCache campoCache;
+    private final UtenteCache utenteCache;
 
     public ManutenzioneDAO() {
-        this.campoDAO = new CampoDAO();
-        this.utenteDAO = new UtenteDAO();
+        this.campoCache = CampoCache.getInstance();
+        this.utenteCache = UtenteCache.getInstance();
     }
 
     /**
@@ -29,53 +59,74 @@ public class ManutenzioneDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public Integer createManutenzione(Manutenzione manutenzione) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet generatedKeys = null;
-
-        try {
-            connection = ConnectionManager.getConnection();
-
-            String query = "INSERT INTO manutenzione (id_campo, id_manutentore, data_inizio, data_fine, descrizione, stato) "
-                    +
-                    "VALUES (?, ?, ?, ?, ?, ?)";
-
-            statement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
-            statement.setInt(1, manutenzione.getCampo().getId());
-            statement.setInt(2, manutenzione.getManutentore().getId());
-            statement.setDate(3, Date.valueOf(manutenzione.getDataInizio()));
-
-            if (manutenzione.getDataFine() != null) {
-                statement.setDate(4, Date.valueOf(manutenzione.getDataFine()));
-            } else {
-                statement.setNull(4, Types.DATE);
+        return Strumentazione.misura("ManutenzioneDAO.createManutenzione", () -> {
+            Connection connection = null;
+
+            try {
+                connection = ConnectionManager.getConnection();
+                return createManutenzione(connection, manutenzione);
+            } finally {
+                ConnectionManager.closeConnection(connection);
             }
+        });
+    }
 
-            statement.setString(5, manutenzione.getDescrizione());
-            statement.setString(6, manutenzione.getStato().name());
+    /**
+     * Crea una nuova manutenzione usando una connessione esistente, ad esempio
+     * all'interno di una transazione. La connessione non viene chiusa.
+     * 
+     * @param connection   la connessione da usare
+     * @param manutenzione l'oggetto Manutenzione da inserire
+     * @return l'ID della manutenzione creata
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public Integer createManutenzione(Connection connection, Manutenzione manutenzione) throws SQLException {
+        return Strumentazione.misura("ManutenzioneDAO.createManutenzione(Connection, Manutenzione)", () -> {
+            PreparedStatement statement = null;
+            ResultSet generatedKeys = null;
 
-            int affectedRows = statement.executeUpdate();
+            try {
+                String query = "INSERT INTO manutenzione (id_campo, id_manutentore, data_inizio, data_fine, descrizione, stato) "
+                        +
+                        "VALUES (?, ?, ?, ?, ?, ?)";
+
+                statement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
+                statement.setInt(1, manutenzione.getCampo().getId());
+                statement.setInt(2, manutenzione.getManutentore().getId());
+                statement.setDate(3, Date.valueOf(manutenzione.getDataInizio()));
+
+                if (manutenzione.getDataFine() != null) {
+                    statement.setDate(4, Date.valueOf(manutenzione.getDataFine()));
+                } else {
+                    statement.setNull(4, Types.DATE);
+                }
+
+                statement.setString(5, manutenzione.getDescrizione());
+                statement.setString(6, manutenzione.getStato().name());
+
+                int affectedRows = statement.executeUpdate();
+
+                if (affectedRows == 0) {
+                    throw new SQLException("Creazione manutenzione fallita, nessuna riga inserita.");
+                }
+
+                generatedKeys = statement.getGeneratedKeys();
+                if (generatedKeys.next()) {
+                    Integer id = generatedKeys.getInt(1);
+                    manutenzione.setId(id);
+                    return id;
+                } else {
+                    throw new SQLException("Creazione manutenzione fallita, nessun ID ottenuto.");
+                }
 
-            if (affectedRows == 0) {
-                throw new SQLException("Creazione manutenzione fallita, nessuna riga inserita.");
-            }
+            } catch (SQLException e) {
+                LOG.errore("Errore durante la creazione della manutenzione", e);
+                throw e;
 
-            generatedKeys = statement.getGeneratedKeys();
-            if (generatedKeys.next()) {
-                Integer id = generatedKeys.getInt(1);
-                manutenzione.setId(id);
-                return id;
-            } else {
-                throw new SQLException("Creazione manutenzione fallita, nessun ID ottenuto.");
+            } finally {
+                closeResources(generatedKeys, statement, null);
             }
-
-        } catch (SQLException e) {
-            System.err.println("Errore durante la creazione della manutenzione: " + e.getMessage());
-            throw e;
-
-        } finally {
-            closeResources(generatedKeys, statement, connection);
-        }
+        });
     }
 
     /**
@@ -86,35 +137,34 @@ public class ManutenzioneDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public List<Manutenzione> getManutenzioniByCampo(Integer idCampo) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Manutenzione> manutenzioni = new ArrayList<>();
+        return Strumentazione.misura("ManutenzioneDAO.getManutenzioniByCampo", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Manutenzione> manutenzioni = new ArrayList<>();
 
-        try {
-            connection = ConnectionManager.getConnection();
-
-            String query = "SELECT id, id_campo, id_manutentore, data_inizio, data_fine, descrizione, stato " +
-                    "FROM manutenzione WHERE id_campo = ? ORDER BY data_inizio DESC";
+            try {
+                connection = ConnectionManager.getConnection();
 
-            statement = connection.prepareStatement(query);
-            statement.setInt(1, idCampo);
+                statement = connection.prepareStatement(QUERY_BY_CAMPO);
+                statement.setInt(1, idCampo);
 
-            resultSet = statement.executeQuery();
+                resultSet = statement.executeQuery();
 
-            while (resultSet.next()) {
-                manutenzioni.add(mapResultSetToManutenzione(resultSet));
-            }
+                while (resultSet.next()) {
+                    manutenzioni.add(mapResultSetToManutenzione(resultSet));
+                }
 
-        } catch (SQLException e) {
-            System.err.println("Errore durante il recupero delle manutenzioni: " + e.getMessage());
-            throw e;
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero delle manutenzioni", e);
+                throw e;
 
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
 
-        return manutenzioni;
+            return manutenzioni;
+        });
     }
 
     /**
@@ -125,28 +175,28 @@ public class ManutenzioneDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public boolean updateStatoManutenzione(Integer idManutenzione, Stato nuovoStato) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-
-        try {
-            connection = ConnectionManager.getConnection();
+        return Strumentazione.misura("ManutenzioneDAO.updateStatoManutenzione", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
 
-            String query = "UPDATE manutenzione SET stato = ? WHERE id = ?";
+            try {
+                connection = ConnectionManager.getConnection();
 
-            statement = connection.prepareStatement(query);
-            statement.setString(1, nuovoStato.name());
-            statement.setInt(2, idManutenzione);
+                statement = connection.prepareStatement(UPDATE_STATO);
+                statement.setString(1, nuovoStato.name());
+                statement.setInt(2, idManutenzione);
 
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
+                int affectedRows = statement.executeUpdate();
+                return affectedRows > 0;
 
-        } catch (SQLException e) {
-            System.err.println("Errore durante l'aggiornamento dello stato: " + e.getMessage());
-            throw e;
+            } catch (SQLException e) {
+                LOG.errore("Errore durante l'aggiornamento dello stato", e);
+                throw e;
 
-        } finally {
-            closeResources(null, statement, connection);
-        }
+            } finally {
+                closeResources(null, statement, connection);
+            }
+        });
     }
 
     /**
@@ -157,27 +207,50 @@ public class ManutenzioneDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public void completaManutenzione(Integer idManutenzione, LocalDate dataFine) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
+        Strumentazione.misura("ManutenzioneDAO.completaManutenzione", () -> {
+            Connection connection = null;
 
-        try {
-            connection = ConnectionManager.getConnection();
+            try {
+                connection = ConnectionManager.getConnection();
+                completaManutenzione(connection, idManutenzione, dataFine);
+            } finally {
+                ConnectionManager.closeConnection(connection);
+            }
+        });
+    }
 
-            String query = "UPDATE manutenzione SET data_fine = ?, stato = 'COMPLETATA' WHERE id = ?";
+    /**
+     * Completa una manutenzione usando una connessione esistente, ad esempio
+     * all'interno di una transazione. La connessione non viene chiusa.
+     * 
+     * @param connection     la connessione da usare
+     * @param idManutenzione l'ID della manutenzione
+     * @param dataFine       la data di completamento
+     * @return la manutenzione aggiornata, null se non esiste
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public Manutenzione completaManutenzione(Connection connection, Integer idManutenzione, LocalDate dataFine)
+            throws SQLException {
+        return Strumentazione.misura("ManutenzioneDAO.completaManutenzione(Connection, Integer, LocalDate)", () -> {
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
 
-            statement = connection.prepareStatement(query);
-            statement.setDate(1, Date.valueOf(dataFine));
-            statement.setInt(2, idManutenzione);
+            try {
+                statement = connection.prepareStatement(UPDATE_COMPLETATA);
+                statement.setDate(1, Date.valueOf(dataFine));
+                statement.setInt(2, idManutenzione);
 
-            statement.executeUpdate();
+                resultSet = statement.executeQuery();
+                return resultSet.next() ? mapResultSetToManutenzione(resultSet) : null;
 
-        } catch (SQLException e) {
-            System.err.println("Errore durante il completamento della manutenzione: " + e.getMessage());
-            throw e;
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il completamento della manutenzione", e);
+                throw e;
 
-        } finally {
-            closeResources(null, statement, connection);
-        }
+            } finally {
+                closeResources(resultSet, statement, null);
+            }
+        });
     }
 
     /**
@@ -187,82 +260,143 @@ public class ManutenzioneDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public List<Manutenzione> getAllManutenzioni() throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Manutenzione> manutenzioni = new ArrayList<>();
+        return Strumentazione.misura("ManutenzioneDAO.getAllManutenzioni", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Manutenzione> manutenzioni = new ArrayList<>();
+
+            try {
+                connection = ConnectionManager.getConnection();
+
+                String query = "SELECT id, id_campo, id_manutentore, data_inizio, data_fine, descrizione, stato " +
+                        "FROM manutenzione ORDER BY data_inizio DESC";
+
+                statement = connection.prepareStatement(query);
+                resultSet = statement.executeQuery();
+
+                while (resultSet.next()) {
+                    manutenzioni.add(mapResultSetToManutenzione(resultSet));
+                }
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero di tutte le manutenzioni", e);
+                throw e;
+
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
 
-        try {
-            connection = ConnectionManager.getConnection();
+            return manutenzioni;
+        });
+    }
 
+    /**
+     * Scorre tutte le manutenzioni, nello stesso ordine di
+     * {@link #getAllManutenzioni()}, senza caricarle tutte in memoria: le
+     * righe vengono lette a blocchi tramite un cursore lato server.
+     * 
+     * @param azione l'operazione da eseguire su ogni manutenzione
+     * @return il numero di manutenzioni lette
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public long forEachManutenzione(Consumer<? super Manutenzione> azione) throws SQLException {
+        return Strumentazione.misura("ManutenzioneDAO.forEachManutenzione", () -> {
             String query = "SELECT id, id_campo, id_manutentore, data_inizio, data_fine, descrizione, stato " +
                     "FROM manutenzione ORDER BY data_inizio DESC";
 
-            statement = connection.prepareStatement(query);
-            resultSet = statement.executeQuery();
+            try {
+                return CursorQuery.forEach(query, this::mapResultSetToManutenzione, azione);
 
-            while (resultSet.next()) {
-                manutenzioni.add(mapResultSetToManutenzione(resultSet));
+            } catch (SQLException e) {
+                LOG.errore("Errore durante la lettura delle manutenzioni", e);
+                throw e;
             }
+        });
+    }
 
-        } catch (SQLException e) {
-            System.err.println("Errore durante il recupero di tutte le manutenzioni: " + e.getMessage());
-            throw e;
+    /**
+     * Esporta in CSV le manutenzioni con campo e manutentore, ordinate per
+     * data di inizio. Il filtro per date include le manutenzioni che si
+     * sovrappongono all'intervallo; quelle senza data di fine valgono per il
+     * solo giorno di inizio. Le righe vengono scritte man mano che arrivano
+     * dal database (vedi {@link CsvExport}).
+     * 
+     * @param destinazione il Writer su cui scrivere il CSV
+     * @param dal          la data iniziale inclusa, null per nessun limite
+     * @param al           la data finale inclusa, null per nessun limite
+     * @param idCampo      l'ID del campo, null per tutti i campi
+     * @return il numero di manutenzioni esportate
+     * @throws SQLException se si verifica un errore durante l'accesso al
+     *                      database o la scrittura del CSV
+     */
+    public long esportaCsv(Writer destinazione, LocalDate dal, LocalDate al, Integer idCampo) throws SQLException {
+        return Strumentazione.misura("ManutenzioneDAO.esportaCsv", () -> {
+            String query = "SELECT m.id, c.id AS id_campo, c.nome AS campo, m.data_inizio, m.data_fine, m.stato, " +
+                    "m.descrizione, u.id AS id_manutentore, u.nome AS nome_manutentore, " +
+                    "u.cognome AS cognome_manutentore " +
+                    "FROM manutenzione m JOIN campo c ON c.id = m.id_campo " +
+                    "JOIN utente u ON u.id = m.id_manutentore" +
+                    CsvExport.filtro("m.data_inizio", "coalesce(m.data_fine, m.data_inizio)", "m.id_campo",
+                            dal, al, idCampo) +
+                    " ORDER BY m.data_inizio, m.id";
 
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
+            try {
+                return CsvExport.esporta(query, destinazione);
 
-        return manutenzioni;
+            } catch (SQLException e) {
+                LOG.errore("Errore durante l'esportazione delle manutenzioni", e);
+                throw e;
+            }
+        });
     }
 
     public boolean deleteManutenzioni(Integer id) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-
-        try {
-            connection = ConnectionManager.getConnection();
-            String query = "DELETE FROM manutenzione WHERE id = ?";
+        return Strumentazione.misura("ManutenzioneDAO.deleteManutenzioni", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
 
-            statement = connection.prepareStatement(query);
-            statement.setInt(1, id);
-            int affectedRows = statement.executeUpdate();
+            try {
+                connection = ConnectionManager.getConnection();
+                statement = connection.prepareStatement(DELETE_BY_ID);
+                statement.setInt(1, id);
+                int affectedRows = statement.executeUpdate();
 
-            return affectedRows > 0;
+                return affectedRows > 0;
 
-        } catch (SQLException e) {
-            System.out.println("Errore durante l'eliminazione della manutenzione: " + e.getMessage());
-            throw e;
-        } finally {
-            closeResources(null, statement, connection);
-        }
+            } catch (SQLException e) {
+                LOG.errore("Errore durante l'eliminazione della manutenzione", e);
+                throw e;
+            } finally {
+                closeResources(null, statement, connection);
+            }
+        });
     }
 
     public Manutenzione getManutenzioneById(Integer id) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        Manutenzione manutenzione = null;
+        return Strumentazione.misura("ManutenzioneDAO.getManutenzioneById", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            Manutenzione manutenzione = null;
 
-        try {
-            connection = ConnectionManager.getConnection();
-            String query = "SELECT id, id_campo, id_manutentore, data_inizio, data_fine, descrizione, stato " +
-                    " FROM manutenzione WHERE id = ?";
-
-            statement = connection.prepareStatement(query);
-            statement.setInt(1, id);
-            resultSet = statement.executeQuery();
-
-            if (resultSet.next()) {
-                manutenzione = mapResultSetToManutenzione(resultSet);
+            try {
+                connection = ConnectionManager.getConnection();
+                statement = connection.prepareStatement(QUERY_BY_ID);
+                statement.setInt(1, id);
+                resultSet = statement.executeQuery();
+
+                if (resultSet.next()) {
+                    manutenzione = mapResultSetToManutenzione(resultSet);
+                }
+            } catch (Exception e) {
+                LOG.errore("Errore durante il recupero della manutenzione", e);
+                throw e;
+            } finally {
+                closeResources(resultSet, statement, connection);
             }
-        } catch (Exception e) {
-            System.out.println("Errore durante il recupero della manutenzione: " + e.getMessage());
-            throw e;
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
-        return manutenzione;
+            return manutenzione;
+        });
     }
 
     /**
@@ -277,42 +411,35 @@ public class ManutenzioneDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public Manutenzione getManutenzioneAttivaByDataAndCampo(LocalDate data, Integer idCampo) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        Manutenzione manutenzione = null;
-
-        try {
-            connection = ConnectionManager.getConnection();
-
-            // Query: cerca manutenzioni IN_CORSO o COMPLETATA che coprono la data
-            // richiesta:
-            // - Se data_fine è NULL, blocca solo data_inizio (singolo giorno)
-            // - Se data_fine è definita, blocca il range [data_inizio, data_fine]
-            // - Ignora manutenzioni ANNULLATA (permettono prenotazioni)
-            String query = "SELECT id, id_campo, id_manutentore, data_inizio, data_fine, descrizione, stato " +
-                    " FROM manutenzione WHERE id_campo = ? AND stato IN ('IN_CORSO', 'COMPLETATA') " +
-                    " AND ((data_fine IS NULL AND data_inizio = ?) " +
-                    "      OR (data_fine IS NOT NULL AND ? >= data_inizio AND ? <= data_fine))";
-            statement = connection.prepareStatement(query);
-            statement.setInt(1, idCampo);
-            statement.setDate(2, Date.valueOf(data));
-            statement.setDate(3, Date.valueOf(data));
-            statement.setDate(4, Date.valueOf(data));
-
-            resultSet = statement.executeQuery();
-
-            if (resultSet.next()) {
-                manutenzione = mapResultSetToManutenzione(resultSet);
+        return Strumentazione.misura("ManutenzioneDAO.getManutenzioneAttivaByDataAndCampo", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            Manutenzione manutenzione = null;
+
+            try {
+                connection = ConnectionManager.getConnection();
+
+                statement = connection.prepareStatement(QUERY_ATTIVA_BY_DATA_AND_CAMPO);
+                statement.setInt(1, idCampo);
+                statement.setDate(2, Date.valueOf(data));
+                statement.setDate(3, Date.valueOf(data));
+                statement.setDate(4, Date.valueOf(data));
+
+                resultSet = statement.executeQuery();
+
+                if (resultSet.next()) {
+                    manutenzione = mapResultSetToManutenzione(resultSet);
+                }
+            } catch (Exception e) {
+                LOG.errore("Errore durante il recupero della manutenzione", e);
+                throw e;
+            } finally {
+                closeResources(resultSet, statement, connection);
             }
-        } catch (Exception e) {
-            System.out.println("Errore durante il recupero della manutenzione: " + e.getMessage());
-            throw e;
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
-        return manutenzione;
+            return manutenzione;
 
+        });
     }
 
     /**
@@ -328,10 +455,10 @@ public class ManutenzioneDAO {
 
         // Recupero oggetti completi tramite gli ID
         int idCampo = resultSet.getInt("id_campo");
-        manutenzione.setCampo(campoDAO.getCampoById(idCampo));
+        manutenzione.setCampo(campoCache.getCampoById(idCampo));
 
         int idManutentore = resultSet.getInt("id_manutentore");
-        manutenzione.setManutentore(utenteDAO.getUtenteById(idManutentore));
+        manutenzione.setManutentore(utenteCache.getUtenteById(idManutentore));
 
         manutenzione.setDataInizio(resultSet.getDate("data_inizio").toLocalDate());
 
@@ -358,7 +485,7 @@ public class ManutenzioneDAO {
             try {
                 resultSet.close();
             } catch (SQLException e) {
-                System.err.println("Errore durante la chiusura del ResultSet: " + e.getMessage());
+                LOG.avviso("Errore durante la chiusura del ResultSet", e);
             }
         }
 
@@ -366,7 +493,7 @@ public class ManutenzioneDAO {
             try {
                 statement.close();
             } catch (SQLException e) {
-                System.err.println("Errore durante la chiusura del PreparedStatement: " + e.getMessage());
+                LOG.avviso("Errore durante la chiusura del PreparedStatement", e);
             }
         }
 
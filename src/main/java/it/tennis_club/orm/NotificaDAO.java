@@ -0,0 +1,488 @@
+package it.tennis_club.orm;
+
+import it.tennis_club.domain_model.Notifica;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Data Access Object per la gestione delle notifiche nel database.
+ */
+public class NotificaDAO {
+
+    private static final Log LOG = Log.get(NotificaDAO.class);
+
+    // Query complete dei metodi che filtrano le notifiche, visibili nel
+    // package perché QueryPlanTest ne verifica i piani di esecuzione
+    static final String DELETE_ECCEDENTI = "DELETE FROM notifica WHERE id IN (" +
+            "SELECT id FROM (" +
+            "    SELECT id, row_number() OVER (PARTITION BY id_utente ORDER BY id DESC) AS posizione " +
+            "    FROM notifica WHERE id_utente = ANY (?)) n " +
+            "WHERE posizione > ?) " +
+            "AND stato_consegna <> 'IN_ATTESA'";
+
+    static final String QUERY_CONTA_NON_LETTE = "SELECT id_utente, count(*) AS non_lette FROM notifica " +
+            "WHERE NOT letta GROUP BY id_utente";
+
+    static final String UPDATE_CONSUMA_NON_LETTE = "UPDATE notifica SET letta = TRUE " +
+            "WHERE id_utente = ? AND NOT letta " +
+            "RETURNING id, id_utente, messaggio, creata_il, letta";
+
+    static final String UPDATE_PRELEVA = "UPDATE notifica " +
+            "SET prossimo_tentativo = now() + ? * INTERVAL '1 millisecond' " +
+            "WHERE id IN (" +
+            "    SELECT id FROM notifica " +
+            "    WHERE stato_consegna = 'IN_ATTESA' AND prossimo_tentativo <= now() " +
+            "    ORDER BY prossimo_tentativo, id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, id_utente, messaggio, creata_il, letta, stato_consegna, tentativi";
+
+    static final String UPDATE_CONSEGNATE = "UPDATE notifica SET stato_consegna = 'CONSEGNATA', " +
+            "consegnata_il = now(), ultimo_errore = NULL WHERE id = ANY (?) AND stato_consegna = 'IN_ATTESA'";
+
+    static final String UPDATE_FALLIMENTO = "UPDATE notifica SET tentativi = tentativi + 1, ultimo_errore = ?, " +
+            "stato_consegna = ?, prossimo_tentativo = now() + ? * INTERVAL '1 millisecond' " +
+            "WHERE id = ? AND stato_consegna = 'IN_ATTESA'";
+
+    /**
+     * La query di {@link #getNotificheDopo(Integer, Long, int)}: i parametri
+     * sono l'utente, l'ID dell'ultima notifica della pagina precedente se non
+     * è la prima e il limite.
+     */
+    static String queryDopo(boolean primaPagina) {
+        return "SELECT id, id_utente, messaggio, creata_il, letta FROM notifica " +
+                "WHERE id_utente = ? " +
+                (primaPagina ? "" : "AND id < ? ") +
+                "ORDER BY id DESC LIMIT ?";
+    }
+
+    /**
+     * Inserisce un blocco di notifiche in un'unica transazione e, per ogni
+     * utente coinvolto, elimina le notifiche più vecchie oltre il limite.
+     *
+     * @param notifiche    le notifiche da inserire
+     * @param maxPerUtente il numero massimo di notifiche conservate per utente
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public void inserisci(List<Notifica> notifiche, int maxPerUtente) throws SQLException {
+        Strumentazione.misura("NotificaDAO.inserisci", () -> {
+            if (notifiche.isEmpty()) {
+                return;
+            }
+            // Gli errori vengono già registrati dai singoli passi
+            ConnectionManager.inTransaction(connection -> {
+                inserisci(connection, notifiche, maxPerUtente);
+                return null;
+            });
+        });
+    }
+
+    /**
+     * Inserisce un blocco di notifiche e, per ogni utente coinvolto, elimina
+     * le notifiche più vecchie oltre il limite, usando una connessione
+     * esistente: le notifiche vengono confermate insieme alla transazione del
+     * chiamante. La connessione non viene chiusa.
+     *
+     * @param connection   la connessione da usare
+     * @param notifiche    le notifiche da inserire
+     * @param maxPerUtente il numero massimo di notifiche conservate per utente
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public void inserisci(Connection connection, List<Notifica> notifiche, int maxPerUtente) throws SQLException {
+        Strumentazione.misura("NotificaDAO.inserisci(Connection, List, int)", () -> {
+            if (notifiche.isEmpty()) {
+                return;
+            }
+            inserisci(connection, notifiche);
+            Set<Integer> idUtenti = new LinkedHashSet<>();
+            for (Notifica notifica : notifiche) {
+                idUtenti.add(notifica.getIdUtente());
+            }
+            eliminaEccedenti(connection, idUtenti, maxPerUtente);
+        });
+    }
+
+    /**
+     * Inserisce un blocco di notifiche usando una connessione esistente, ad
+     * esempio all'interno di una transazione. La connessione non viene chiusa.
+     *
+     * @param connection la connessione da usare
+     * @param notifiche  le notifiche da inserire
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public void inserisci(Connection connection, List<Notifica> notifiche) throws SQLException {
+        Strumentazione.misura("NotificaDAO.inserisci(Connection, List)", () -> {
+            PreparedStatement statement = null;
+
+            try {
+                String query = "INSERT INTO notifica (id_utente, messaggio, creata_il) VALUES (?, ?, ?)";
+
+                statement = connection.prepareStatement(query);
+                for (Notifica notifica : notifiche) {
+                    statement.setInt(1, notifica.getIdUtente());
+                    statement.setString(2, notifica.getMessaggio());
+                    statement.setTimestamp(3, Timestamp.valueOf(notifica.getCreataIl() != null
+                            ? notifica.getCreataIl()
+                            : LocalDateTime.now()));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante l'inserimento delle notifiche", e);
+                throw e;
+
+            } finally {
+                closeResources(null, statement, null);
+            }
+        });
+    }
+
+    /**
+     * Elimina le notifiche più vecchie degli utenti indicati, conservando le
+     * più recenti fino al limite. Le notifiche non ancora consegnate ai canali
+     * esterni vengono conservate comunque. La connessione non viene chiusa.
+     *
+     * @param connection   la connessione da usare
+     * @param idUtenti     gli ID degli utenti
+     * @param maxPerUtente il numero massimo di notifiche conservate per utente
+     * @return il numero di notifiche eliminate
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public int eliminaEccedenti(Connection connection, Collection<Integer> idUtenti, int maxPerUtente)
+            throws SQLException {
+        return Strumentazione.misura("NotificaDAO.eliminaEccedenti", () -> {
+            PreparedStatement statement = null;
+
+            try {
+                statement = connection.prepareStatement(DELETE_ECCEDENTI);
+                statement.setArray(1, connection.createArrayOf("integer", idUtenti.toArray()));
+                statement.setInt(2, maxPerUtente);
+                return statement.executeUpdate();
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante l'eliminazione delle notifiche eccedenti", e);
+                throw e;
+
+            } finally {
+                closeResources(null, statement, null);
+            }
+        });
+    }
+
+    /**
+     * Conta le notifiche non lette di ogni utente che ne ha.
+     *
+     * @return il numero di notifiche non lette per ID utente
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public Map<Integer, Integer> contaNonLette() throws SQLException {
+        return Strumentazione.misura("NotificaDAO.contaNonLette", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            Map<Integer, Integer> conteggi = new HashMap<>();
+
+            try {
+                connection = ConnectionManager.getConnection();
+
+                statement = connection.prepareStatement(QUERY_CONTA_NON_LETTE);
+                resultSet = statement.executeQuery();
+
+                while (resultSet.next()) {
+                    conteggi.put(resultSet.getInt("id_utente"), resultSet.getInt("non_lette"));
+                }
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il conteggio delle notifiche", e);
+                throw e;
+
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
+
+            return conteggi;
+        });
+    }
+
+    /**
+     * Segna come lette le notifiche non lette di un utente e le restituisce,
+     * con un'unica query: due letture concorrenti non ricevono mai la stessa
+     * notifica.
+     *
+     * @param idUtente l'ID dell'utente
+     * @return le notifiche consumate, dalla più vecchia
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public List<Notifica> consumaNonLette(Integer idUtente) throws SQLException {
+        return Strumentazione.misura("NotificaDAO.consumaNonLette", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Notifica> notifiche = new ArrayList<>();
+
+            try {
+                connection = ConnectionManager.getConnection();
+
+                statement = connection.prepareStatement(UPDATE_CONSUMA_NON_LETTE);
+                statement.setInt(1, idUtente);
+                resultSet = statement.executeQuery();
+
+                while (resultSet.next()) {
+                    notifiche.add(mapResultSetToNotifica(resultSet));
+                }
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante la lettura delle notifiche", e);
+                throw e;
+
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
+
+            // RETURNING non garantisce l'ordine
+            notifiche.sort(Comparator.comparing(Notifica::getId));
+            return notifiche;
+        });
+    }
+
+    /**
+     * Recupera una pagina delle notifiche di un utente, lette e non lette,
+     * dalla più recente. La paginazione è per chiave: la pagina successiva
+     * parte dall'ID dell'ultima notifica della pagina precedente.
+     *
+     * @param idUtente l'ID dell'utente
+     * @param id       l'ID dell'ultima notifica della pagina precedente, null
+     *                 per la prima pagina
+     * @param limite   il numero massimo di notifiche da restituire
+     * @return le notifiche della pagina
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public List<Notifica> getNotificheDopo(Integer idUtente, Long id, int limite) throws SQLException {
+        return Strumentazione.misura("NotificaDAO.getNotificheDopo", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Notifica> notifiche = new ArrayList<>();
+
+            try {
+                connection = ConnectionManager.getConnection();
+
+                statement = connection.prepareStatement(queryDopo(id == null));
+                int indice = 1;
+                statement.setInt(indice++, idUtente);
+                if (id != null) {
+                    statement.setLong(indice++, id);
+                }
+                statement.setInt(indice, limite);
+                resultSet = statement.executeQuery();
+
+                while (resultSet.next()) {
+                    notifiche.add(mapResultSetToNotifica(resultSet));
+                }
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero delle notifiche", e);
+                throw e;
+
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
+
+            return notifiche;
+        });
+    }
+
+    /**
+     * Preleva un blocco di notifiche da consegnare ai canali esterni, dalla
+     * più vecchia. Le notifiche prelevate restano IN_ATTESA ma il loro
+     * prossimo tentativo viene spostato avanti del tempo di riserva: se chi le
+     * ha prelevate non registra l'esito entro quel tempo (ad esempio
+     * perché l'applicazione è stata chiusa) vengono prelevate di nuovo. Con
+     * SKIP LOCKED più istanze possono prelevare in parallelo senza ricevere la
+     * stessa notifica.
+     *
+     * @param limite        il numero massimo di notifiche da prelevare
+     * @param riservaMillis per quanto tempo le notifiche restano riservate, in
+     *                      millisecondi
+     * @return le notifiche prelevate, dalla più vecchia
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public List<Notifica> prelevaDaConsegnare(int limite, long riservaMillis) throws SQLException {
+        return Strumentazione.misura("NotificaDAO.prelevaDaConsegnare", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Notifica> notifiche = new ArrayList<>();
+
+            try {
+                connection = ConnectionManager.getConnection();
+
+                statement = connection.prepareStatement(UPDATE_PRELEVA);
+                statement.setLong(1, riservaMillis);
+                statement.setInt(2, limite);
+                resultSet = statement.executeQuery();
+
+                while (resultSet.next()) {
+                    Notifica notifica = mapResultSetToNotifica(resultSet);
+                    notifica.setStatoConsegna(Notifica.StatoConsegna.valueOf(resultSet.getString("stato_consegna")));
+                    notifica.setTentativi(resultSet.getInt("tentativi"));
+                    notifiche.add(notifica);
+                }
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il prelievo delle notifiche da consegnare", e);
+                throw e;
+
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
+
+            // RETURNING non garantisce l'ordine
+            notifiche.sort(Comparator.comparing(Notifica::getId));
+            return notifiche;
+        });
+    }
+
+    /**
+     * Segna come consegnate le notifiche indicate.
+     *
+     * @param ids gli ID delle notifiche consegnate
+     * @return il numero di notifiche aggiornate
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public int segnaConsegnate(Collection<Long> ids) throws SQLException {
+        return Strumentazione.misura("NotificaDAO.segnaConsegnate", () -> {
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            Connection connection = null;
+            PreparedStatement statement = null;
+
+            try {
+                connection = ConnectionManager.getConnection();
+
+                statement = connection.prepareStatement(UPDATE_CONSEGNATE);
+                statement.setArray(1, connection.createArrayOf("bigint", ids.toArray()));
+                return statement.executeUpdate();
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante l'aggiornamento delle notifiche consegnate", e);
+                throw e;
+
+            } finally {
+                closeResources(null, statement, connection);
+            }
+        });
+    }
+
+    /**
+     * Registra un tentativo di consegna fallito: la notifica viene riprovata
+     * dopo il ritardo indicato oppure, se definitivo, segnata come FALLITA.
+     *
+     * @param id            l'ID della notifica
+     * @param errore        la descrizione dell'errore
+     * @param ritardoMillis il ritardo del prossimo tentativo in millisecondi
+     * @param definitivo    true se la notifica non va più riprovata
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public void registraFallimento(Long id, String errore, long ritardoMillis, boolean definitivo)
+            throws SQLException {
+        Strumentazione.misura("NotificaDAO.registraFallimento", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+
+            try {
+                connection = ConnectionManager.getConnection();
+
+                statement = connection.prepareStatement(UPDATE_FALLIMENTO);
+                statement.setString(1, errore);
+                statement.setString(2, definitivo
+                        ? Notifica.StatoConsegna.FALLITA.name()
+                        : Notifica.StatoConsegna.IN_ATTESA.name());
+                statement.setLong(3, ritardoMillis);
+                statement.setLong(4, id);
+                statement.executeUpdate();
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante la registrazione della consegna fallita", e, "idNotifica", id);
+                throw e;
+
+            } finally {
+                closeResources(null, statement, connection);
+            }
+        });
+    }
+
+    /**
+     * Elimina tutte le notifiche.
+     *
+     * @return il numero di notifiche eliminate
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public int eliminaTutte() throws SQLException {
+        return Strumentazione.misura("NotificaDAO.eliminaTutte", () -> {
+            Connection connection = null;
+            Statement statement = null;
+
+            try {
+                connection = ConnectionManager.getConnection();
+                statement = connection.createStatement();
+                return statement.executeUpdate("DELETE FROM notifica");
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante l'eliminazione delle notifiche", e);
+                throw e;
+
+            } finally {
+                if (statement != null) {
+                    try {
+                        statement.close();
+                    } catch (SQLException e) {
+                        LOG.avviso("Errore durante la chiusura dello Statement", e);
+                    }
+                }
+                ConnectionManager.closeConnection(connection);
+            }
+        });
+    }
+
+    private Notifica mapResultSetToNotifica(ResultSet resultSet) throws SQLException {
+        return new Notifica(
+                resultSet.getLong("id"),
+                resultSet.getInt("id_utente"),
+                resultSet.getString("messaggio"),
+                resultSet.getTimestamp("creata_il").toLocalDateTime(),
+                resultSet.getBoolean("letta"));
+    }
+
+    private void closeResources(ResultSet resultSet, PreparedStatement statement, Connection connection) {
+        if (resultSet != null) {
+            try {
+                resultSet.close();
+            } catch (SQLException e) {
+                LOG.avviso("Errore durante la chiusura del ResultSet", e);
+            }
+        }
+        if (statement != null) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                LOG.avviso("Errore durante la chiusura del PreparedStatement", e);
+            }
+        }
+        ConnectionManager.closeConnection(connection);
+    }
+}
@@ -0,0 +1,234 @@
+package it.tennis_club.orm;
+
+import it.tennis_club.domain_model.Prenotazione;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Indice in memoria dell'occupazione dei campi, usato per verificare la
+ * disponibilità di un orario senza interrogare il database.
+ *
+ * Per ogni coppia campo/giorno l'indice mantiene una mappa di bit con un bit
+ * per ogni minuto della griglia di prenotazione (dalle 8:00 alle 22:00
+ * comprese): il bit è acceso se esiste una prenotazione che inizia a
+ * quell'ora. La verifica di un orario è quindi la lettura di un singolo bit.
+ *
+ * L'indice viene caricato con una sola query leggera sulle prenotazioni da
+ * oggi in poi e ricaricato alla scadenza del TTL (proprietà
+ * "cache.occupazione.ttlMs", default 5 minuti) o dopo {@link #invalidate()}.
+ * {@link PrenotazioneDAO} lo aggiorna a ogni inserimento, modifica e
+ * cancellazione. Il database resta la fonte di verità: l'indice serve a
+ * evitare le letture, non a garantire l'unicità delle prenotazioni.
+ */
+public class OccupancyIndex {
+
+    /** Primo orario prenotabile. */
+    public static final LocalTime APERTURA = LocalTime.of(8, 0);
+
+    /** Ultimo orario prenotabile. */
+    public static final LocalTime CHIUSURA = LocalTime.of(22, 0);
+
+    private static final int SLOT_PER_GIORNO = (int) Duration.between(APERTURA, CHIUSURA).toMinutes() + 1;
+    private static final int PAROLE_PER_GIORNO = (SLOT_PER_GIORNO + 63) / 64;
+
+    private static final long DEFAULT_TTL_MILLIS = 300000;
+
+    private static OccupancyIndex instance;
+
+    private final PrenotazioneDAO prenotazioneDAO;
+    private final long ttlNanos;
+
+    // Bitmap per campo/giorno; un giorno assente non ha prenotazioni
+    private volatile Map<Long, AtomicLongArray> occupazione;
+    private volatile LocalDate coperturaDal;
+    private volatile long caricatoIl;
+
+    // Modifiche ricevute durante un caricamento, da riapplicare al nuovo indice
+    private List<Modifica> modificheInCaricamento;
+
+    // ReentrantLock e non synchronized: il caricamento esegue una query con il
+    // lock acquisito e un virtual thread in attesa non deve bloccare il carrier
+    private final ReentrantLock caricamentoLock = new ReentrantLock();
+
+    OccupancyIndex(PrenotazioneDAO prenotazioneDAO, long ttlMillis) {
+        this.prenotazioneDAO = prenotazioneDAO;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    /**
+     * Restituisce l'istanza singleton dell'indice.
+     */
+    public static synchronized OccupancyIndex getInstance() {
+        if (instance == null) {
+            long ttl = Long.parseLong(ConnectionManager.getProperty("cache.occupazione.ttlMs",
+                    String.valueOf(DEFAULT_TTL_MILLIS)));
+            instance = new OccupancyIndex(new PrenotazioneDAO(), ttl);
+        }
+        return instance;
+    }
+
+    /**
+     * Verifica se un campo è già prenotato in una data e ora.
+     *
+     * @param idCampo   l'ID del campo
+     * @param data      la data
+     * @param oraInizio l'ora di inizio
+     * @return true se esiste una prenotazione per quel campo, data e ora
+     * @throws SQLException se il caricamento dell'indice fallisce
+     */
+    public boolean isOccupato(int idCampo, LocalDate data, LocalTime oraInizio) throws SQLException {
+        Map<Long, AtomicLongArray> corrente = getOccupazione();
+
+        if (data.isBefore(coperturaDal)) {
+            // Giorni passati: non sono indicizzati, si interroga il database
+            for (Prenotazione p : prenotazioneDAO.getPrenotazioniByDataAndCampo(data, idCampo)) {
+                if (p.getOraInizio().equals(oraInizio)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int slot = slot(oraInizio);
+        if (slot < 0) {
+            return false;
+        }
+        AtomicLongArray bitmap = corrente.get(chiave(idCampo, data));
+        return bitmap != null && (bitmap.get(slot >>> 6) & (1L << slot)) != 0;
+    }
+
+    /**
+     * Segna come occupato un orario appena prenotato.
+     */
+    public void segnaOccupato(int idCampo, LocalDate data, LocalTime oraInizio) {
+        registra(new Modifica(idCampo, data, oraInizio, true));
+    }
+
+    /**
+     * Libera un orario la cui prenotazione è stata cancellata.
+     */
+    public void libera(int idCampo, LocalDate data, LocalTime oraInizio) {
+        registra(new Modifica(idCampo, data, oraInizio, false));
+    }
+
+    /**
+     * Svuota l'indice: il prossimo accesso lo ricaricherà dal database.
+     */
+    public synchronized void invalidate() {
+        occupazione = null;
+    }
+
+    /**
+     * Restituisce la posizione del bit di un orario, o -1 se l'orario è fuori
+     * dalla griglia di prenotazione o non cade esattamente su un minuto.
+     */
+    static int slot(LocalTime ora) {
+        if (ora.isBefore(APERTURA) || ora.isAfter(CHIUSURA) || ora.getSecond() != 0 || ora.getNano() != 0) {
+            return -1;
+        }
+        return (int) Duration.between(APERTURA, ora).toMinutes();
+    }
+
+    private static long chiave(int idCampo, LocalDate data) {
+        return ((long) idCampo << 32) | (data.toEpochDay() & 0xffffffffL);
+    }
+
+    private synchronized void registra(Modifica modifica) {
+        if (occupazione != null) {
+            modifica.applica(occupazione);
+        }
+        if (modificheInCaricamento != null) {
+            modificheInCaricamento.add(modifica);
+        }
+    }
+
+    private Map<Long, AtomicLongArray> getOccupazione() throws SQLException {
+        Map<Long, AtomicLongArray> corrente = occupazione;
+        if (corrente != null && System.nanoTime() - caricatoIl < ttlNanos) {
+            return corrente;
+        }
+
+        caricamentoLock.lock();
+        try {
+            // Un altro thread potrebbe aver già ricaricato l'indice
+            corrente = occupazione;
+            if (corrente != null && System.nanoTime() - caricatoIl < ttlNanos) {
+                return corrente;
+            }
+            return carica();
+        } finally {
+            caricamentoLock.unlock();
+        }
+    }
+
+    private Map<Long, AtomicLongArray> carica() throws SQLException {
+        synchronized (this) {
+            modificheInCaricamento = new ArrayList<>();
+        }
+
+        LocalDate oggi = LocalDate.now();
+        Map<Long, AtomicLongArray> nuova = new ConcurrentHashMap<>();
+        try {
+            // La query viene eseguita senza lock: le modifiche concorrenti
+            // vengono raccolte e riapplicate al termine del caricamento
+            for (Prenotazione p : prenotazioneDAO.getSlotOccupati(oggi)) {
+                new Modifica(p.getCampo().getId(), p.getData(), p.getOraInizio(), true).applica(nuova);
+            }
+        } catch (SQLException e) {
+            synchronized (this) {
+                modificheInCaricamento = null;
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            for (Modifica modifica : modificheInCaricamento) {
+                modifica.applica(nuova);
+            }
+            modificheInCaricamento = null;
+            coperturaDal = oggi;
+            caricatoIl = System.nanoTime();
+            occupazione = nuova;
+        }
+        return nuova;
+    }
+
+    /**
+     * Prenotazione o cancellazione di un singolo orario.
+     */
+    private static class Modifica {
+        final long chiave;
+        final int slot;
+        final boolean occupato;
+
+        Modifica(int idCampo, LocalDate data, LocalTime oraInizio, boolean occupato) {
+            this.chiave = chiave(idCampo, data);
+            this.slot = slot(oraInizio);
+            this.occupato = occupato;
+        }
+
+        void applica(Map<Long, AtomicLongArray> occupazione) {
+            if (slot < 0) {
+                return;
+            }
+            AtomicLongArray bitmap = occupazione.computeIfAbsent(chiave, k -> new AtomicLongArray(PAROLE_PER_GIORNO));
+            int parola = slot >>> 6;
+            long bit = 1L << slot;
+            if (occupato) {
+                bitmap.getAndAccumulate(parola, bit, (a, b) -> a | b);
+            } else {
+                bitmap.getAndAccumulate(parola, bit, (a, b) -> a & ~b);
+            }
+        }
+    }
+}
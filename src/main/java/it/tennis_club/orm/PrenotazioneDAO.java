@@ -1,71 +1,330 @@
 package it.tennis_club.orm;
 
+import it.tennis_club.domain_model.Campo;
 import it.tennis_club.domain_model.Prenotazione;
+import it.tennis_club.domain_model.Utente;
 
+import java.io.Writer;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Date;
 import java.sql.Time;
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object per la gestione delle prenotazioni nel database.
  * Implementa le operazioni CRUD complete e query specifiche per il business.
+ * Ogni lettura carica prenotazione, campo e socio con una sola query.
+ *
+ * La tabella è partizionata per mese sulla data. Gli elenchi per campo, per
+ * socio e completi leggono per default solo le prenotazioni attive, dal primo
+ * giorno del mese corrente meno "prenotazione.mesiAttivi" mesi (default 1), in
+ * modo che il database escluda le partizioni storiche; le varianti con il
+ * parametro storico a true leggono tutte le partizioni non archiviate. Se la
+ * partizione del mese non esiste ancora, gli inserimenti la creano e
+ * riprovano (vedi {@link #creaPartizione(LocalDate)}).
  */
 public class PrenotazioneDAO {
 
-    // Istanze dei DAO necessari per recuperare oggetti completi
-    private final CampoDAO campoDAO;
-    private final UtenteDAO utenteDAO;
+    private static final Log LOG = Log.get(PrenotazioneDAO.class);
 
     /**
-     * Costruttore che inizializza i DAO necessari.
+     * Esito della verifica di disponibilità di un orario.
      */
-    public PrenotazioneDAO() {
-        this.campoDAO = new CampoDAO();
-        this.utenteDAO = new UtenteDAO();
+    public enum DisponibilitaSlot {
+        LIBERO,
+        OCCUPATO,
+        IN_MANUTENZIONE
+    }
+
+    // Proiezione comune a tutte le letture: prenotazione, campo e socio vengono
+    // caricati con un'unica JOIN invece di una query per ogni entità collegata
+    private static final String SELECT_PRENOTAZIONE = "SELECT " + ResultSetHydrator.colonnePrenotazione() +
+            " FROM prenotazione p" + ResultSetHydrator.JOIN_PRENOTAZIONE + " ";
+
+    // Query complete dei metodi che filtrano le prenotazioni, visibili nel
+    // package perché QueryPlanTest ne verifica i piani di esecuzione
+    static final String QUERY_BY_ID = SELECT_PRENOTAZIONE + "WHERE p.id = ?";
+
+    static final String QUERY_BY_DATA = SELECT_PRENOTAZIONE + "WHERE p.data = ? ORDER BY p.ora_inizio";
+
+    static final String QUERY_BY_DATA_AND_CAMPO = SELECT_PRENOTAZIONE +
+            "WHERE p.data = ? AND p.id_campo = ? ORDER BY p.ora_inizio";
+
+    static final String QUERY_BY_DATE_RANGE_AND_CAMPO = SELECT_PRENOTAZIONE +
+            "WHERE p.data >= ? AND p.data <= ? AND p.id_campo = ? ORDER BY p.data, p.ora_inizio";
+
+    static final String QUERY_BY_LEZIONE = SELECT_PRENOTAZIONE +
+            "JOIN lezione l ON l.id_prenotazione = p.id " +
+            "WHERE l.id = ?";
+
+    // Restituisce l'orario precedente per liberarlo nell'indice di occupazione
+    static final String UPDATE_BY_ID = "WITH vecchia AS (SELECT id, id_campo, data, ora_inizio FROM prenotazione " +
+            "WHERE id = ? FOR UPDATE) " +
+            "UPDATE prenotazione p SET data = ?, ora_inizio = ?, id_campo = ?, id_socio = ? " +
+            "FROM vecchia WHERE p.id = vecchia.id " +
+            "RETURNING vecchia.id_campo, vecchia.data, vecchia.ora_inizio";
+
+    static final String DELETE_BY_ID = "DELETE FROM prenotazione WHERE id = ? RETURNING id_campo, data, ora_inizio";
+
+    static final String QUERY_SLOT_OCCUPATI = "SELECT id, id_campo, data, ora_inizio FROM prenotazione WHERE data >= ?";
+
+    static final String DELETE_BY_CAMPO_AND_DATE_RANGE =
+            "DELETE FROM prenotazione WHERE id_campo = ? AND data BETWEEN ? AND ? " +
+            "RETURNING id, id_campo, id_socio, data, ora_inizio";
+
+    static final String QUERY_DISPONIBILITA = "SELECT s.n, " +
+            "EXISTS (SELECT 1 FROM prenotazione p WHERE p.id_campo = s.id_campo " +
+            "        AND p.data = s.data AND p.ora_inizio = s.ora_inizio) AS occupato, " +
+            "EXISTS (SELECT 1 FROM manutenzione m WHERE m.id_campo = s.id_campo " +
+            "        AND m.stato IN ('IN_CORSO', 'COMPLETATA') " +
+            "        AND ((m.data_fine IS NULL AND m.data_inizio = s.data) " +
+            "          OR (m.data_fine IS NOT NULL AND s.data >= m.data_inizio AND s.data <= m.data_fine))) " +
+            "    AS in_manutenzione " +
+            "FROM unnest(?::int[], ?::date[], ?::time[]) WITH ORDINALITY AS s(id_campo, data, ora_inizio, n) " +
+            "ORDER BY s.n";
+
+    // Errore di una riga che non ricade in nessuna partizione (check_violation)
+    private static final String PARTIZIONE_MANCANTE = "23514";
+
+    private static final int DEFAULT_MESI_ATTIVI = 1;
+
+    private static final int MESI_ATTIVI = Integer.parseInt(ConnectionManager.getProperty(
+            "prenotazione.mesiAttivi", String.valueOf(DEFAULT_MESI_ATTIVI)));
+
+    /**
+     * Restituisce la data da cui le prenotazioni sono considerate attive: il
+     * primo giorno del mese corrente meno "prenotazione.mesiAttivi" mesi.
+     */
+    public static LocalDate getInizioPrenotazioniAttive() {
+        return getInizioPrenotazioniAttive(LocalDate.now());
+    }
+
+    /**
+     * Restituisce la data da cui le prenotazioni sono considerate attive
+     * rispetto al giorno indicato invece che a oggi.
+     *
+     * @param oggi il giorno di riferimento
+     */
+    public static LocalDate getInizioPrenotazioniAttive(LocalDate oggi) {
+        return oggi.withDayOfMonth(1).minusMonths(MESI_ATTIVI);
+    }
+
+    /**
+     * La query di {@link #getAllPrenotazioni(boolean)} e
+     * {@link #forEachPrenotazione(boolean, Consumer)}: se non è storica, il
+     * primo parametro è l'inizio delle prenotazioni attive.
+     */
+    static String queryAll(boolean storico) {
+        return SELECT_PRENOTAZIONE +
+                (storico ? "" : "WHERE p.data >= ? ") +
+                "ORDER BY p.data, p.ora_inizio, p.id";
+    }
+
+    /**
+     * La query di {@link #getPrenotazioniDopo(LocalDate, LocalTime, Integer, int, boolean)}:
+     * i parametri sono l'inizio delle prenotazioni attive se non è storica, la
+     * chiave della pagina precedente se non è la prima e il limite.
+     */
+    static String queryDopo(boolean storico, boolean primaPagina) {
+        return SELECT_PRENOTAZIONE + "WHERE TRUE " +
+                (storico ? "" : "AND p.data >= ? ") +
+                (primaPagina ? "" : "AND (p.data, p.ora_inizio, p.id) > (?, ?, ?) ") +
+                "ORDER BY p.data, p.ora_inizio, p.id LIMIT ?";
+    }
+
+    /**
+     * La query di {@link #getPrenotazioniByCampo(Integer, boolean)}: il primo
+     * parametro è il campo, il secondo l'inizio delle prenotazioni attive se
+     * non è storica.
+     */
+    static String queryByCampo(boolean storico) {
+        return SELECT_PRENOTAZIONE +
+                "WHERE p.id_campo = ? " +
+                (storico ? "" : "AND p.data >= ? ") +
+                "ORDER BY p.data, p.ora_inizio";
+    }
+
+    /**
+     * La query di {@link #getPrenotazioniBySocio(Integer, boolean)}, con gli
+     * stessi parametri di {@link #queryByCampo(boolean)}.
+     */
+    static String queryBySocio(boolean storico) {
+        return SELECT_PRENOTAZIONE +
+                "WHERE p.id_socio = ? " +
+                (storico ? "" : "AND p.data >= ? ") +
+                "ORDER BY p.data, p.ora_inizio";
+    }
+
+    /**
+     * Recupera tutte le prenotazioni attive dal database.
+     * Per ogni prenotazione, carica anche gli oggetti Campo e Utente tramite JOIN.
+     * 
+     * @return una lista di tutte le prenotazioni attive
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public List<Prenotazione> getAllPrenotazioni() throws SQLException {
+        return getAllPrenotazioni(false);
     }
 
     /**
      * Recupera tutte le prenotazioni dal database.
-     * Per ogni prenotazione, carica anche gli oggetti Campo e Utente completi.
+     * Per ogni prenotazione, carica anche gli oggetti Campo e Utente tramite JOIN.
      * 
+     * @param storico true per includere le prenotazioni precedenti a
+     *                {@link #getInizioPrenotazioniAttive()}
      * @return una lista di tutte le prenotazioni
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
-    public List<Prenotazione> getAllPrenotazioni() throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Prenotazione> prenotazioni = new ArrayList<>();
+    public List<Prenotazione> getAllPrenotazioni(boolean storico) throws SQLException {
+        return Strumentazione.misura("PrenotazioneDAO.getAllPrenotazioni", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Prenotazione> prenotazioni = new ArrayList<>();
 
-        try {
-            connection = ConnectionManager.getConnection();
+            try {
+                connection = ConnectionManager.getConnection();
 
-            String query = "SELECT id, data, ora_inizio, id_campo, id_socio " +
-                    "FROM prenotazione ORDER BY data, ora_inizio";
+                statement = connection.prepareStatement(queryAll(storico));
+                if (!storico) {
+                    statement.setDate(1, Date.valueOf(getInizioPrenotazioniAttive()));
+                }
+                resultSet = statement.executeQuery();
 
-            statement = connection.prepareStatement(query);
-            resultSet = statement.executeQuery();
+                ResultSetHydrator hydrator = new ResultSetHydrator();
+                while (resultSet.next()) {
+                    Prenotazione prenotazione = hydrator.prenotazione(resultSet);
+                    prenotazioni.add(prenotazione);
+                }
 
-            while (resultSet.next()) {
-                Prenotazione prenotazione = mapResultSetToPrenotazione(resultSet);
-                prenotazioni.add(prenotazione);
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero delle prenotazioni", e);
+                throw e;
+
+            } finally {
+                closeResources(resultSet, statement, connection);
             }
 
-        } catch (SQLException e) {
-            System.err.println("Errore durante il recupero delle prenotazioni: " + e.getMessage());
-            throw e;
+            return prenotazioni;
+        });
+    }
 
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
+    /**
+     * Recupera una pagina di prenotazioni ordinate per data, ora di inizio e
+     * ID, a partire da quella successiva alla chiave indicata (paginazione
+     * keyset: il costo non dipende da quante pagine precedono).
+     * 
+     * @param data      la data dell'ultima prenotazione della pagina
+     *                  precedente, null per la prima pagina
+     * @param oraInizio l'ora di inizio dell'ultima prenotazione della pagina
+     *                  precedente
+     * @param id        l'ID dell'ultima prenotazione della pagina precedente
+     * @param limite    il numero massimo di prenotazioni da restituire
+     * @return le prenotazioni attive della pagina
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public List<Prenotazione> getPrenotazioniDopo(LocalDate data, LocalTime oraInizio, Integer id, int limite)
+            throws SQLException {
+        return getPrenotazioniDopo(data, oraInizio, id, limite, false);
+    }
+
+    /**
+     * Come {@link #getPrenotazioniDopo(LocalDate, LocalTime, Integer, int)},
+     * includendo su richiesta le prenotazioni storiche.
+     * 
+     * @param storico true per includere le prenotazioni precedenti a
+     *                {@link #getInizioPrenotazioniAttive()}
+     */
+    public List<Prenotazione> getPrenotazioniDopo(LocalDate data, LocalTime oraInizio, Integer id, int limite,
+            boolean storico) throws SQLException {
+        return Strumentazione.misura("PrenotazioneDAO.getPrenotazioniDopo", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Prenotazione> prenotazioni = new ArrayList<>();
+
+            try {
+                connection = ConnectionManager.getConnection();
+
+                statement = connection.prepareStatement(queryDopo(storico, data == null));
+                int indice = 1;
+                if (!storico) {
+                    statement.setDate(indice++, Date.valueOf(getInizioPrenotazioniAttive()));
+                }
+                if (data != null) {
+                    statement.setDate(indice++, Date.valueOf(data));
+                    statement.setTime(indice++, Time.valueOf(oraInizio));
+                    statement.setInt(indice++, id);
+                }
+                statement.setInt(indice, limite);
+                resultSet = statement.executeQuery();
+
+                ResultSetHydrator hydrator = new ResultSetHydrator();
+                while (resultSet.next()) {
+                    prenotazioni.add(hydrator.prenotazione(resultSet));
+                }
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero delle prenotazioni", e);
+                throw e;
 
-        return prenotazioni;
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
+
+            return prenotazioni;
+        });
+    }
+
+    /**
+     * Scorre tutte le prenotazioni attive, nello stesso ordine di
+     * {@link #getAllPrenotazioni()}, senza caricarle tutte in memoria: le
+     * righe vengono lette a blocchi tramite un cursore lato server.
+     * 
+     * @param azione l'operazione da eseguire su ogni prenotazione
+     * @return il numero di prenotazioni lette
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public long forEachPrenotazione(Consumer<? super Prenotazione> azione) throws SQLException {
+        return forEachPrenotazione(false, azione);
+    }
+
+    /**
+     * Scorre tutte le prenotazioni come {@link #forEachPrenotazione(Consumer)},
+     * includendo su richiesta quelle storiche.
+     * 
+     * @param storico true per includere le prenotazioni precedenti a
+     *                {@link #getInizioPrenotazioniAttive()}
+     * @param azione  l'operazione da eseguire su ogni prenotazione
+     * @return il numero di prenotazioni lette
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public long forEachPrenotazione(boolean storico, Consumer<? super Prenotazione> azione) throws SQLException {
+        return Strumentazione.misura("PrenotazioneDAO.forEachPrenotazione", () -> {
+            String query = queryAll(storico);
+            LocalDate inizio = getInizioPrenotazioniAttive();
+
+            try {
+                ResultSetHydrator hydrator = new ResultSetHydrator();
+                return CursorQuery.forEach(query, statement -> {
+                    if (!storico) {
+                        statement.setDate(1, Date.valueOf(inizio));
+                    }
+                }, hydrator::prenotazione, azione);
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante la lettura delle prenotazioni", e);
+                throw e;
+            }
+        });
     }
 
     /**
@@ -76,35 +335,34 @@ public class PrenotazioneDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public Prenotazione getPrenotazioneById(Integer id) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        Prenotazione prenotazione = null;
-
-        try {
-            connection = ConnectionManager.getConnection();
+        return Strumentazione.misura("PrenotazioneDAO.getPrenotazioneById", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            Prenotazione prenotazione = null;
 
-            String query = "SELECT id, data, ora_inizio, id_campo, id_socio " +
-                    "FROM prenotazione WHERE id = ?";
+            try {
+                connection = ConnectionManager.getConnection();
 
-            statement = connection.prepareStatement(query);
-            statement.setInt(1, id);
+                statement = connection.prepareStatement(QUERY_BY_ID);
+                statement.setInt(1, id);
 
-            resultSet = statement.executeQuery();
+                resultSet = statement.executeQuery();
 
-            if (resultSet.next()) {
-                prenotazione = mapResultSetToPrenotazione(resultSet);
-            }
+                if (resultSet.next()) {
+                    prenotazione = new ResultSetHydrator().prenotazione(resultSet);
+                }
 
-        } catch (SQLException e) {
-            System.err.println("Errore durante il recupero della prenotazione: " + e.getMessage());
-            throw e;
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero della prenotazione", e);
+                throw e;
 
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
 
-        return prenotazione;
+            return prenotazione;
+        });
     }
 
     /**
@@ -115,116 +373,148 @@ public class PrenotazioneDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public List<Prenotazione> getPrenotazioniByData(LocalDate data) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Prenotazione> prenotazioni = new ArrayList<>();
-
-        try {
-            connection = ConnectionManager.getConnection();
+        return Strumentazione.misura("PrenotazioneDAO.getPrenotazioniByData", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Prenotazione> prenotazioni = new ArrayList<>();
 
-            String query = "SELECT id, data, ora_inizio, id_campo, id_socio " +
-                    "FROM prenotazione WHERE data = ? ORDER BY ora_inizio";
+            try {
+                connection = ConnectionManager.getConnection();
 
-            statement = connection.prepareStatement(query);
-            statement.setDate(1, Date.valueOf(data));
+                statement = connection.prepareStatement(QUERY_BY_DATA);
+                statement.setDate(1, Date.valueOf(data));
 
-            resultSet = statement.executeQuery();
+                resultSet = statement.executeQuery();
 
-            while (resultSet.next()) {
-                Prenotazione prenotazione = mapResultSetToPrenotazione(resultSet);
-                prenotazioni.add(prenotazione);
-            }
+                ResultSetHydrator hydrator = new ResultSetHydrator();
+                while (resultSet.next()) {
+                    Prenotazione prenotazione = hydrator.prenotazione(resultSet);
+                    prenotazioni.add(prenotazione);
+                }
 
-        } catch (SQLException e) {
-            System.err.println("Errore durante il recupero delle prenotazioni per data: " + e.getMessage());
-            throw e;
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero delle prenotazioni per data", e);
+                throw e;
 
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
 
-        return prenotazioni;
+            return prenotazioni;
+        });
     }
 
     /**
-     * Recupera tutte le prenotazioni per un campo specifico.
+     * Recupera le prenotazioni attive per un campo specifico.
      * 
      * @param idCampo l'ID del campo
      * @return una lista di prenotazioni per il campo specificato
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public List<Prenotazione> getPrenotazioniByCampo(Integer idCampo) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Prenotazione> prenotazioni = new ArrayList<>();
+        return getPrenotazioniByCampo(idCampo, false);
+    }
 
-        try {
-            connection = ConnectionManager.getConnection();
+    /**
+     * Recupera tutte le prenotazioni per un campo specifico.
+     * 
+     * @param idCampo l'ID del campo
+     * @param storico true per includere le prenotazioni precedenti a
+     *                {@link #getInizioPrenotazioniAttive()}
+     * @return una lista di prenotazioni per il campo specificato
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public List<Prenotazione> getPrenotazioniByCampo(Integer idCampo, boolean storico) throws SQLException {
+        return Strumentazione.misura("PrenotazioneDAO.getPrenotazioniByCampo", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Prenotazione> prenotazioni = new ArrayList<>();
 
-            String query = "SELECT id, data, ora_inizio, id_campo, id_socio " +
-                    "FROM prenotazione WHERE id_campo = ? ORDER BY data, ora_inizio";
+            try {
+                connection = ConnectionManager.getConnection();
 
-            statement = connection.prepareStatement(query);
-            statement.setInt(1, idCampo);
+                statement = connection.prepareStatement(queryByCampo(storico));
+                statement.setInt(1, idCampo);
+                if (!storico) {
+                    statement.setDate(2, Date.valueOf(getInizioPrenotazioniAttive()));
+                }
 
-            resultSet = statement.executeQuery();
+                resultSet = statement.executeQuery();
 
-            while (resultSet.next()) {
-                Prenotazione prenotazione = mapResultSetToPrenotazione(resultSet);
-                prenotazioni.add(prenotazione);
-            }
+                ResultSetHydrator hydrator = new ResultSetHydrator();
+                while (resultSet.next()) {
+                    Prenotazione prenotazione = hydrator.prenotazione(resultSet);
+                    prenotazioni.add(prenotazione);
+                }
 
-        } catch (SQLException e) {
-            System.err.println("Errore durante il recupero delle prenotazioni per campo: " + e.getMessage());
-            throw e;
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero delle prenotazioni per campo", e);
+                throw e;
 
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
 
-        return prenotazioni;
+            return prenotazioni;
+        });
     }
 
     /**
-     * Recupera tutte le prenotazioni di un socio specifico.
+     * Recupera le prenotazioni attive di un socio specifico.
      * 
      * @param idSocio l'ID del socio
      * @return una lista di prenotazioni del socio specificato
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public List<Prenotazione> getPrenotazioniBySocio(Integer idSocio) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Prenotazione> prenotazioni = new ArrayList<>();
+        return getPrenotazioniBySocio(idSocio, false);
+    }
 
-        try {
-            connection = ConnectionManager.getConnection();
+    /**
+     * Recupera tutte le prenotazioni di un socio specifico.
+     * 
+     * @param idSocio l'ID del socio
+     * @param storico true per includere le prenotazioni precedenti a
+     *                {@link #getInizioPrenotazioniAttive()}
+     * @return una lista di prenotazioni del socio specificato
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public List<Prenotazione> getPrenotazioniBySocio(Integer idSocio, boolean storico) throws SQLException {
+        return Strumentazione.misura("PrenotazioneDAO.getPrenotazioniBySocio", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Prenotazione> prenotazioni = new ArrayList<>();
 
-            String query = "SELECT id, data, ora_inizio, id_campo, id_socio " +
-                    "FROM prenotazione WHERE id_socio = ? ORDER BY data, ora_inizio";
+            try {
+                connection = ConnectionManager.getConnection();
 
-            statement = connection.prepareStatement(query);
-            statement.setInt(1, idSocio);
+                statement = connection.prepareStatement(queryBySocio(storico));
+                statement.setInt(1, idSocio);
+                if (!storico) {
+                    statement.setDate(2, Date.valueOf(getInizioPrenotazioniAttive()));
+                }
 
-            resultSet = statement.executeQuery();
+                resultSet = statement.executeQuery();
 
-            while (resultSet.next()) {
-                Prenotazione prenotazione = mapResultSetToPrenotazione(resultSet);
-                prenotazioni.add(prenotazione);
-            }
+                ResultSetHydrator hydrator = new ResultSetHydrator();
+                while (resultSet.next()) {
+                    Prenotazione prenotazione = hydrator.prenotazione(resultSet);
+                    prenotazioni.add(prenotazione);
+                }
 
-        } catch (SQLException e) {
-            System.err.println("Errore durante il recupero delle prenotazioni per socio: " + e.getMessage());
-            throw e;
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero delle prenotazioni per socio", e);
+                throw e;
 
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
 
-        return prenotazioni;
+            return prenotazioni;
+        });
     }
 
     /**
@@ -237,37 +527,37 @@ public class PrenotazioneDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public List<Prenotazione> getPrenotazioniByDataAndCampo(LocalDate data, Integer idCampo) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Prenotazione> prenotazioni = new ArrayList<>();
-
-        try {
-            connection = ConnectionManager.getConnection();
+        return Strumentazione.misura("PrenotazioneDAO.getPrenotazioniByDataAndCampo", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Prenotazione> prenotazioni = new ArrayList<>();
 
-            String query = "SELECT id, data, ora_inizio, id_campo, id_socio " +
-                    "FROM prenotazione WHERE data = ? AND id_campo = ? ORDER BY ora_inizio";
+            try {
+                connection = ConnectionManager.getConnection();
 
-            statement = connection.prepareStatement(query);
-            statement.setDate(1, Date.valueOf(data));
-            statement.setInt(2, idCampo);
+                statement = connection.prepareStatement(QUERY_BY_DATA_AND_CAMPO);
+                statement.setDate(1, Date.valueOf(data));
+                statement.setInt(2, idCampo);
 
-            resultSet = statement.executeQuery();
+                resultSet = statement.executeQuery();
 
-            while (resultSet.next()) {
-                Prenotazione prenotazione = mapResultSetToPrenotazione(resultSet);
-                prenotazioni.add(prenotazione);
-            }
+                ResultSetHydrator hydrator = new ResultSetHydrator();
+                while (resultSet.next()) {
+                    Prenotazione prenotazione = hydrator.prenotazione(resultSet);
+                    prenotazioni.add(prenotazione);
+                }
 
-        } catch (SQLException e) {
-            System.err.println("Errore durante il recupero delle prenotazioni per data e campo: " + e.getMessage());
-            throw e;
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero delle prenotazioni per data e campo", e);
+                throw e;
 
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
 
-        return prenotazioni;
+            return prenotazioni;
+        });
     }
 
     /**
@@ -282,50 +572,70 @@ public class PrenotazioneDAO {
      */
     public List<Prenotazione> getPrenotazioniByDateRangeAndCampo(LocalDate dataInizio, LocalDate dataFine,
             Integer idCampo) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Prenotazione> prenotazioni = new ArrayList<>();
+        return Strumentazione.misura("PrenotazioneDAO.getPrenotazioniByDateRangeAndCampo", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Prenotazione> prenotazioni = new ArrayList<>();
 
-        try {
-            connection = ConnectionManager.getConnection();
+            try {
+                connection = ConnectionManager.getConnection();
 
-            String query = "SELECT id, data, ora_inizio, id_campo, id_socio " +
-                    "FROM prenotazione WHERE data >= ? AND data <= ? AND id_campo = ? ORDER BY data, ora_inizio";
+                statement = connection.prepareStatement(QUERY_BY_DATE_RANGE_AND_CAMPO);
+                statement.setDate(1, Date.valueOf(dataInizio));
+                statement.setDate(2, Date.valueOf(dataFine));
+                statement.setInt(3, idCampo);
 
-            statement = connection.prepareStatement(query);
-            statement.setDate(1, Date.valueOf(dataInizio));
-            statement.setDate(2, Date.valueOf(dataFine));
-            statement.setInt(3, idCampo);
+                resultSet = statement.executeQuery();
 
-            resultSet = statement.executeQuery();
+                ResultSetHydrator hydrator = new ResultSetHydrator();
+                while (resultSet.next()) {
+                    Prenotazione prenotazione = hydrator.prenotazione(resultSet);
+                    prenotazioni.add(prenotazione);
+                }
 
-            while (resultSet.next()) {
-                Prenotazione prenotazione = mapResultSetToPrenotazione(resultSet);
-                prenotazioni.add(prenotazione);
-            }
-
-        } catch (SQLException e) {
-            System.err
-                    .println("Errore durante il recupero delle prenotazioni per range date e campo: " + e.getMessage());
-            throw e;
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero delle prenotazioni per range date e campo", e);
+                throw e;
 
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
 
-        return prenotazioni;
+            return prenotazioni;
+        });
     }
 
     /**
      * Crea una nuova prenotazione nel database.
+     * L'inserimento è atomico: se il campo è già prenotato per la stessa data e
+     * ora (vincolo di unicità su id_campo, data, ora_inizio) non viene inserita
+     * alcuna riga e il metodo restituisce null, senza bisogno di verificare
+     * prima la disponibilità.
      * 
      * @param prenotazione l'oggetto Prenotazione da inserire (l'ID verrà generato
      *                     automaticamente)
-     * @return l'ID generato per la nuova prenotazione
+     * @return l'ID generato per la nuova prenotazione, null se l'orario è già
+     *         occupato
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public Integer createPrenotazione(Prenotazione prenotazione) throws SQLException {
+        return Strumentazione.misura("PrenotazioneDAO.createPrenotazione", () -> {
+            try {
+                return inserisciPrenotazione(prenotazione);
+            } catch (SQLException e) {
+                if (!isPartizioneMancante(e)) {
+                    throw e;
+                }
+            }
+
+            // Primo inserimento nel mese: crea la partizione e riprova una volta
+            creaPartizione(prenotazione.getData());
+            return inserisciPrenotazione(prenotazione);
+        });
+    }
+
+    private Integer inserisciPrenotazione(Prenotazione prenotazione) throws SQLException {
         Connection connection = null;
         PreparedStatement statement = null;
         ResultSet resultSet = null;
@@ -335,31 +645,30 @@ public class PrenotazioneDAO {
             connection = ConnectionManager.getConnection();
 
             String query = "INSERT INTO prenotazione (data, ora_inizio, id_campo, id_socio) " +
-                    "VALUES (?, ?, ?, ?)";
+                    "VALUES (?, ?, ?, ?) " +
+                    "ON CONFLICT (id_campo, data, ora_inizio) DO NOTHING " +
+                    "RETURNING id";
 
-            statement = connection.prepareStatement(query, PreparedStatement.RETURN_GENERATED_KEYS);
+            statement = connection.prepareStatement(query);
             statement.setDate(1, Date.valueOf(prenotazione.getData()));
             statement.setTime(2, Time.valueOf(prenotazione.getOraInizio()));
             statement.setInt(3, prenotazione.getCampo().getId());
             statement.setInt(4, prenotazione.getSocio().getId());
 
-            int affectedRows = statement.executeUpdate();
-
-            if (affectedRows == 0) {
-                throw new SQLException("Creazione prenotazione fallita, nessuna riga inserita.");
-            }
-
-            // Recupera l'ID generato
-            resultSet = statement.getGeneratedKeys();
+            resultSet = statement.executeQuery();
             if (resultSet.next()) {
-                generatedId = resultSet.getInt(1);
+                generatedId = resultSet.getInt("id");
                 prenotazione.setId(generatedId);
-            } else {
-                throw new SQLException("Creazione prenotazione fallita, nessun ID ottenuto.");
             }
 
+            // In entrambi i casi l'orario risulta occupato nel database
+            OccupancyIndex.getInstance().segnaOccupato(prenotazione.getCampo().getId(),
+                    prenotazione.getData(), prenotazione.getOraInizio());
+
         } catch (SQLException e) {
-            System.err.println("Errore durante la creazione della prenotazione: " + e.getMessage());
+            if (!isPartizioneMancante(e)) {
+                LOG.errore("Errore durante la creazione della prenotazione", e);
+            }
             throw e;
 
         } finally {
@@ -377,31 +686,56 @@ public class PrenotazioneDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public boolean updatePrenotazione(Prenotazione prenotazione) throws SQLException {
+        return Strumentazione.misura("PrenotazioneDAO.updatePrenotazione", () -> {
+            try {
+                return aggiornaPrenotazione(prenotazione);
+            } catch (SQLException e) {
+                if (!isPartizioneMancante(e)) {
+                    throw e;
+                }
+            }
+
+            // Spostamento in un mese senza partizione: la crea e riprova una volta
+            creaPartizione(prenotazione.getData());
+            return aggiornaPrenotazione(prenotazione);
+        });
+    }
+
+    private boolean aggiornaPrenotazione(Prenotazione prenotazione) throws SQLException {
         Connection connection = null;
         PreparedStatement statement = null;
+        ResultSet resultSet = null;
 
         try {
             connection = ConnectionManager.getConnection();
 
-            String query = "UPDATE prenotazione SET data = ?, ora_inizio = ?, " +
-                    "id_campo = ?, id_socio = ? WHERE id = ?";
+            statement = connection.prepareStatement(UPDATE_BY_ID);
+            statement.setInt(1, prenotazione.getId());
+            statement.setDate(2, Date.valueOf(prenotazione.getData()));
+            statement.setTime(3, Time.valueOf(prenotazione.getOraInizio()));
+            statement.setInt(4, prenotazione.getCampo().getId());
+            statement.setInt(5, prenotazione.getSocio().getId());
 
-            statement = connection.prepareStatement(query);
-            statement.setDate(1, Date.valueOf(prenotazione.getData()));
-            statement.setTime(2, Time.valueOf(prenotazione.getOraInizio()));
-            statement.setInt(3, prenotazione.getCampo().getId());
-            statement.setInt(4, prenotazione.getSocio().getId());
-            statement.setInt(5, prenotazione.getId());
+            resultSet = statement.executeQuery();
+            if (!resultSet.next()) {
+                return false;
+            }
 
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
+            OccupancyIndex index = OccupancyIndex.getInstance();
+            index.libera(resultSet.getInt("id_campo"), resultSet.getDate("data").toLocalDate(),
+                    resultSet.getTime("ora_inizio").toLocalTime());
+            index.segnaOccupato(prenotazione.getCampo().getId(), prenotazione.getData(),
+                    prenotazione.getOraInizio());
+            return true;
 
         } catch (SQLException e) {
-            System.err.println("Errore durante l'aggiornamento della prenotazione: " + e.getMessage());
+            if (!isPartizioneMancante(e)) {
+                LOG.errore("Errore durante l'aggiornamento della prenotazione", e);
+            }
             throw e;
 
         } finally {
-            closeResources(null, statement, connection);
+            closeResources(resultSet, statement, connection);
         }
     }
 
@@ -413,27 +747,300 @@ public class PrenotazioneDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public boolean deletePrenotazione(Integer id) throws SQLException {
+        return Strumentazione.misura("PrenotazioneDAO.deletePrenotazione", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+
+            try {
+                connection = ConnectionManager.getConnection();
+
+                statement = connection.prepareStatement(DELETE_BY_ID);
+                statement.setInt(1, id);
+
+                resultSet = statement.executeQuery();
+                if (!resultSet.next()) {
+                    return false;
+                }
+
+                OccupancyIndex.getInstance().libera(resultSet.getInt("id_campo"),
+                        resultSet.getDate("data").toLocalDate(), resultSet.getTime("ora_inizio").toLocalTime());
+                return true;
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante la cancellazione della prenotazione", e);
+                throw e;
+
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
+        });
+    }
+
+    /**
+     * Elimina con una sola query tutte le prenotazioni di un campo in un
+     * intervallo di date (estremi inclusi), usando una connessione esistente
+     * che non viene chiusa. Le lezioni collegate vengono eliminate dal trigger
+     * trg_prenotazione_lezione.
+     * 
+     * L'indice di occupazione non viene aggiornato, perché la transazione del
+     * chiamante potrebbe essere ancora annullata: dopo il commit il chiamante
+     * deve liberare gli orari con {@link OccupancyIndex#libera}.
+     * 
+     * @param connection la connessione da usare
+     * @param idCampo    l'ID del campo
+     * @param dataInizio la prima data dell'intervallo
+     * @param dataFine   l'ultima data dell'intervallo
+     * @return le prenotazioni eliminate, con ID, data, ora di inizio e campo e
+     *         socio valorizzati con il solo ID
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public List<Prenotazione> deletePrenotazioniByCampoAndDateRange(Connection connection, Integer idCampo,
+            LocalDate dataInizio, LocalDate dataFine) throws SQLException {
+        return Strumentazione.misura("PrenotazioneDAO.deletePrenotazioniByCampoAndDateRange", () -> {
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Prenotazione> eliminate = new ArrayList<>();
+
+            try {
+                statement = connection.prepareStatement(DELETE_BY_CAMPO_AND_DATE_RANGE);
+                statement.setInt(1, idCampo);
+                statement.setDate(2, Date.valueOf(dataInizio));
+                statement.setDate(3, Date.valueOf(dataFine));
+                resultSet = statement.executeQuery();
+
+                while (resultSet.next()) {
+                    Campo campo = new Campo();
+                    campo.setId(resultSet.getInt("id_campo"));
+
+                    Utente socio = new Utente();
+                    socio.setId(resultSet.getInt("id_socio"));
+
+                    Prenotazione prenotazione = new Prenotazione();
+                    prenotazione.setId(resultSet.getInt("id"));
+                    prenotazione.setData(resultSet.getDate("data").toLocalDate());
+                    prenotazione.setOraInizio(resultSet.getTime("ora_inizio").toLocalTime());
+                    prenotazione.setCampo(campo);
+                    prenotazione.setSocio(socio);
+                    eliminate.add(prenotazione);
+                }
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante la cancellazione delle prenotazioni", e);
+                throw e;
+
+            } finally {
+                closeResources(resultSet, statement, null);
+            }
+
+            return eliminate;
+        });
+    }
+
+    /**
+     * Recupera gli orari occupati da una data in poi, senza caricare campo e
+     * socio: ogni prenotazione restituita contiene solo ID, data, ora di inizio
+     * e un Campo con il solo ID. Usato per caricare {@link OccupancyIndex}.
+     * 
+     * @param daData la prima data da includere
+     * @return la lista delle prenotazioni dalla data indicata
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public List<Prenotazione> getSlotOccupati(LocalDate daData) throws SQLException {
+        return Strumentazione.misura("PrenotazioneDAO.getSlotOccupati", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Prenotazione> prenotazioni = new ArrayList<>();
+
+            try {
+                connection = ConnectionManager.getConnection();
+
+                statement = connection.prepareStatement(QUERY_SLOT_OCCUPATI);
+                statement.setDate(1, Date.valueOf(daData));
+                resultSet = statement.executeQuery();
+
+                while (resultSet.next()) {
+                    Campo campo = new Campo();
+                    campo.setId(resultSet.getInt("id_campo"));
+
+                    Prenotazione prenotazione = new Prenotazione();
+                    prenotazione.setId(resultSet.getInt("id"));
+                    prenotazione.setData(resultSet.getDate("data").toLocalDate());
+                    prenotazione.setOraInizio(resultSet.getTime("ora_inizio").toLocalTime());
+                    prenotazione.setCampo(campo);
+                    prenotazioni.add(prenotazione);
+                }
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero degli orari occupati", e);
+                throw e;
+
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
+
+            return prenotazioni;
+        });
+    }
+
+    /**
+     * Verifica con una sola query la disponibilità di un insieme di orari.
+     * Per ogni prenotazione indica se l'orario è già occupato o se il campo è
+     * in manutenzione in quella data (con gli stessi criteri di
+     * {@link ManutenzioneDAO#getManutenzioneAttivaByDataAndCampo}).
+     * 
+     * @param prenotazioni le prenotazioni da verificare (campo, data e ora)
+     * @return l'esito della verifica per ogni prenotazione, nello stesso ordine
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public List<DisponibilitaSlot> verificaDisponibilita(List<Prenotazione> prenotazioni) throws SQLException {
+        return Strumentazione.misura("PrenotazioneDAO.verificaDisponibilita", () -> {
+            List<DisponibilitaSlot> esiti = new ArrayList<>();
+            if (prenotazioni.isEmpty()) {
+                return esiti;
+            }
+
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+
+            try {
+                connection = ConnectionManager.getConnection();
+
+                Integer[] campi = new Integer[prenotazioni.size()];
+                Date[] date = new Date[prenotazioni.size()];
+                Time[] ore = new Time[prenotazioni.size()];
+                for (int i = 0; i < prenotazioni.size(); i++) {
+                    Prenotazione prenotazione = prenotazioni.get(i);
+                    campi[i] = prenotazione.getCampo().getId();
+                    date[i] = Date.valueOf(prenotazione.getData());
+                    ore[i] = Time.valueOf(prenotazione.getOraInizio());
+                }
+
+                statement = connection.prepareStatement(QUERY_DISPONIBILITA);
+                statement.setArray(1, connection.createArrayOf("int4", campi));
+                statement.setArray(2, connection.createArrayOf("date", date));
+                statement.setArray(3, connection.createArrayOf("time", ore));
+                resultSet = statement.executeQuery();
+
+                while (resultSet.next()) {
+                    if (resultSet.getBoolean("in_manutenzione")) {
+                        esiti.add(DisponibilitaSlot.IN_MANUTENZIONE);
+                    } else if (resultSet.getBoolean("occupato")) {
+                        esiti.add(DisponibilitaSlot.OCCUPATO);
+                    } else {
+                        esiti.add(DisponibilitaSlot.LIBERO);
+                    }
+                }
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante la verifica della disponibilità", e);
+                throw e;
+
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
+
+            return esiti;
+        });
+    }
+
+    /**
+     * Inserisce più prenotazioni con un batch JDBC in un'unica transazione.
+     * Come in {@link #createPrenotazione(Prenotazione)}, un orario già occupato
+     * non viene inserito e non annulla il resto del batch; qualsiasi altro
+     * errore annulla l'intera transazione.
+     * 
+     * @param prenotazioni le prenotazioni da inserire
+     * @return l'ID generato per ogni prenotazione, nello stesso ordine, o null
+     *         per gli orari già occupati
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public List<Integer> createPrenotazioni(List<Prenotazione> prenotazioni) throws SQLException {
+        return Strumentazione.misura("PrenotazioneDAO.createPrenotazioni", () -> {
+            if (prenotazioni.isEmpty()) {
+                return new ArrayList<>();
+            }
+
+            try {
+                return inserisciPrenotazioni(prenotazioni);
+            } catch (SQLException e) {
+                if (!isPartizioneMancante(e)) {
+                    throw e;
+                }
+            }
+
+            // Il batch è stato annullato: crea le partizioni mancanti e riprova una volta
+            for (LocalDate mese : mesiDistinti(prenotazioni)) {
+                creaPartizione(mese);
+            }
+            return inserisciPrenotazioni(prenotazioni);
+        });
+    }
+
+    private List<Integer> inserisciPrenotazioni(List<Prenotazione> prenotazioni) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
         Connection connection = null;
         PreparedStatement statement = null;
+        ResultSet resultSet = null;
 
         try {
             connection = ConnectionManager.getConnection();
+            connection.setAutoCommit(false);
+
+            String query = "INSERT INTO prenotazione (data, ora_inizio, id_campo, id_socio) " +
+                    "VALUES (?, ?, ?, ?) " +
+                    "ON CONFLICT (id_campo, data, ora_inizio) DO NOTHING";
+
+            statement = connection.prepareStatement(query, new String[] { "id" });
+            for (Prenotazione prenotazione : prenotazioni) {
+                statement.setDate(1, Date.valueOf(prenotazione.getData()));
+                statement.setTime(2, Time.valueOf(prenotazione.getOraInizio()));
+                statement.setInt(3, prenotazione.getCampo().getId());
+                statement.setInt(4, prenotazione.getSocio().getId());
+                statement.addBatch();
+            }
 
-            String query = "DELETE FROM prenotazione WHERE id = ?";
+            int[] righeInserite = statement.executeBatch();
 
-            statement = connection.prepareStatement(query);
-            statement.setInt(1, id);
+            // Le chiavi generate arrivano solo per le righe effettivamente inserite
+            resultSet = statement.getGeneratedKeys();
+            for (int i = 0; i < prenotazioni.size(); i++) {
+                Integer id = null;
+                if (righeInserite[i] > 0 && resultSet.next()) {
+                    id = resultSet.getInt(1);
+                    prenotazioni.get(i).setId(id);
+                }
+                ids.add(id);
+            }
 
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
+            connection.commit();
 
         } catch (SQLException e) {
-            System.err.println("Errore durante la cancellazione della prenotazione: " + e.getMessage());
+            if (!isPartizioneMancante(e)) {
+                LOG.errore("Errore durante la creazione delle prenotazioni", e);
+            }
+            if (connection != null) {
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackException) {
+                    LOG.avviso("Errore durante il rollback", rollbackException);
+                }
+            }
             throw e;
 
         } finally {
-            closeResources(null, statement, connection);
+            closeResources(resultSet, statement, connection);
+        }
+
+        OccupancyIndex index = OccupancyIndex.getInstance();
+        for (Prenotazione prenotazione : prenotazioni) {
+            index.segnaOccupato(prenotazione.getCampo().getId(), prenotazione.getData(),
+                    prenotazione.getOraInizio());
         }
+
+        return ids;
     }
 
     /**
@@ -444,58 +1051,196 @@ public class PrenotazioneDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public Prenotazione getPrenotazioneByLezione(Integer idLezione) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        Prenotazione prenotazione = null;
+        return Strumentazione.misura("PrenotazioneDAO.getPrenotazioneByLezione", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            Prenotazione prenotazione = null;
 
-        try {
-            connection = ConnectionManager.getConnection();
-            String query = "SELECT p.id, p.data, p.ora_inizio, p.id_campo, p.id_socio " +
-                    "FROM prenotazione p JOIN lezione l ON l.id_prenotazione = p.id " +
-                    "WHERE l.id = ?";
-            statement = connection.prepareStatement(query);
-            statement.setInt(1, idLezione);
-            resultSet = statement.executeQuery();
+            try {
+                connection = ConnectionManager.getConnection();
+                statement = connection.prepareStatement(QUERY_BY_LEZIONE);
+                statement.setInt(1, idLezione);
+                resultSet = statement.executeQuery();
 
-            if (resultSet.next()) {
-                prenotazione = mapResultSetToPrenotazione(resultSet);
+                if (resultSet.next()) {
+                    prenotazione = new ResultSetHydrator().prenotazione(resultSet);
+                }
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero della lezione per prenotazione", e);
+                throw e;
+            } finally {
+                closeResources(resultSet, statement, connection);
             }
 
-        } catch (SQLException e) {
-            System.err.println("Errore durante il recupero della lezione per prenotazione: " + e.getMessage());
-            throw e;
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
+            return prenotazione;
+        });
+    }
+
+    /**
+     * Esporta in CSV le prenotazioni, storiche comprese, con campo, socio e
+     * l'eventuale lezione associata, ordinate per data e ora. Le righe
+     * vengono scritte man mano che arrivano dal database (vedi
+     * {@link CsvExport}).
+     * 
+     * @param destinazione il Writer su cui scrivere il CSV
+     * @param dal          la data iniziale inclusa, null per nessun limite
+     * @param al           la data finale inclusa, null per nessun limite
+     * @param idCampo      l'ID del campo, null per tutti i campi
+     * @return il numero di prenotazioni esportate
+     * @throws SQLException se si verifica un errore durante l'accesso al
+     *                      database o la scrittura del CSV
+     */
+    public long esportaCsv(Writer destinazione, LocalDate dal, LocalDate al, Integer idCampo) throws SQLException {
+        return Strumentazione.misura("PrenotazioneDAO.esportaCsv", () -> {
+            String query = "SELECT p.id, p.data, p.ora_inizio, " +
+                    "c.id AS id_campo, c.nome AS campo, c.tipo_superficie, c.is_coperto, " +
+                    "s.id AS id_socio, s.nome AS nome_socio, s.cognome AS cognome_socio, s.email AS email_socio, " +
+                    "l.id AS id_lezione " +
+                    "FROM prenotazione p" + ResultSetHydrator.JOIN_PRENOTAZIONE +
+                    " LEFT JOIN lezione l ON l.id_prenotazione = p.id" +
+                    CsvExport.filtro("p.data", "p.data", "p.id_campo", dal, al, idCampo) +
+                    " ORDER BY p.data, p.ora_inizio, p.id";
 
-        return prenotazione;
+            try {
+                return CsvExport.esporta(query, destinazione);
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante l'esportazione delle prenotazioni", e);
+                throw e;
+            }
+        });
     }
 
     /**
-     * Metodo helper per mappare un ResultSet a un oggetto Prenotazione.
-     * Per recuperare le entità Campo e Utente non si effettua un cast
-     * ma si recuperano gli ID e poi si usano i DAO per ottenere gli oggetti
-     * completi.
+     * Crea la partizione mensile che contiene la data indicata, se non esiste
+     * già. Creazioni concorrenti dello stesso mese vengono serializzate dal
+     * database.
      * 
-     * @param resultSet il ResultSet da mappare
-     * @return l'oggetto Prenotazione
-     * @throws SQLException se si verifica un errore durante l'accesso ai dati
+     * @param data un giorno qualsiasi del mese
+     * @return true se la partizione è stata creata, false se esisteva già
+     * @throws SQLException se si verifica un errore durante l'accesso al database
      */
-    private Prenotazione mapResultSetToPrenotazione(ResultSet resultSet) throws SQLException {
-        Prenotazione prenotazione = new Prenotazione();
-        prenotazione.setId(resultSet.getInt("id"));
-        prenotazione.setData(resultSet.getDate("data").toLocalDate());
-        prenotazione.setOraInizio(resultSet.getTime("ora_inizio").toLocalTime());
+    public boolean creaPartizione(LocalDate data) throws SQLException {
+        return Strumentazione.misura("PrenotazioneDAO.creaPartizione", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+
+            try {
+                connection = ConnectionManager.getConnection();
 
-        // Recupero oggetti completi tramite gli ID
-        int idCampo = resultSet.getInt("id_campo");
-        prenotazione.setCampo(campoDAO.getCampoById(idCampo));
+                String query = "SELECT crea_partizione_prenotazione(?)";
 
-        int idSocio = resultSet.getInt("id_socio");
-        prenotazione.setSocio(utenteDAO.getUtenteById(idSocio));
+                statement = connection.prepareStatement(query);
+                statement.setDate(1, Date.valueOf(data));
+
+                resultSet = statement.executeQuery();
+                return resultSet.next() && resultSet.getBoolean(1);
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante la creazione della partizione delle prenotazioni", e);
+                throw e;
+
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
+        });
+    }
+
+    /**
+     * Recupera i nomi delle partizioni collegate alla tabella prenotazione,
+     * in ordine alfabetico (e quindi cronologico).
+     * 
+     * @return i nomi delle partizioni
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public List<String> getPartizioni() throws SQLException {
+        return Strumentazione.misura("PrenotazioneDAO.getPartizioni", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<String> partizioni = new ArrayList<>();
+
+            try {
+                connection = ConnectionManager.getConnection();
+
+                String query = "SELECT c.relname FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "WHERE i.inhparent = 'prenotazione'::regclass ORDER BY c.relname";
+
+                statement = connection.prepareStatement(query);
+                resultSet = statement.executeQuery();
+
+                while (resultSet.next()) {
+                    partizioni.add(resultSet.getString(1));
+                }
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero delle partizioni delle prenotazioni", e);
+                throw e;
 
-        return prenotazione;
+            } finally {
+                closeResources(resultSet, statement, connection);
+            }
+
+            return partizioni;
+        });
+    }
+
+    /**
+     * Archivia una partizione: la scollega dalla tabella prenotazione e la
+     * sposta nello schema "archivio", in un'unica transazione. Le sue righe
+     * restano consultabili in archivio.&lt;nome&gt; ma non compaiono più in
+     * nessuna query dei DAO; le lezioni collegate restano in lezione.
+     * 
+     * @param nome il nome della partizione, nel formato prenotazione_pAAAA_MM
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public void archiviaPartizione(String nome) throws SQLException {
+        Strumentazione.misura("PrenotazioneDAO.archiviaPartizione", () -> {
+            // Il nome finisce nel DDL: sono ammessi solo i nomi generati da crea_partizione_prenotazione
+            if (!nome.matches("prenotazione_p\\d{4}_\\d{2}")) {
+                throw new IllegalArgumentException("Nome di partizione non valido: " + nome);
+            }
+
+            try {
+                ConnectionManager.inTransaction(connection -> {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("ALTER TABLE prenotazione DETACH PARTITION " + nome);
+                        statement.execute("ALTER TABLE " + nome + " SET SCHEMA archivio");
+                    }
+                    return null;
+                });
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante l'archiviazione della partizione", e, "partizione", nome);
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Indica se l'errore è dovuto a una riga che non ricade in nessuna
+     * partizione esistente.
+     */
+    private static boolean isPartizioneMancante(SQLException e) {
+        return PARTIZIONE_MANCANTE.equals(e.getSQLState());
+    }
+
+    /**
+     * Restituisce il primo giorno di ogni mese distinto delle prenotazioni.
+     */
+    private static List<LocalDate> mesiDistinti(List<Prenotazione> prenotazioni) {
+        List<LocalDate> mesi = new ArrayList<>();
+        for (Prenotazione prenotazione : prenotazioni) {
+            LocalDate mese = prenotazione.getData().withDayOfMonth(1);
+            if (!mesi.contains(mese)) {
+                mesi.add(mese);
+            }
+        }
+        return mesi;
     }
 
     /**
@@ -510,7 +1255,7 @@ public class PrenotazioneDAO {
             try {
                 resultSet.close();
             } catch (SQLException e) {
-                System.err.println("Errore durante la chiusura del ResultSet: " + e.getMessage());
+                LOG.avviso("Errore durante la chiusura del ResultSet", e);
             }
         }
 
@@ -518,7 +1263,7 @@ public class PrenotazioneDAO {
             try {
                 statement.close();
             } catch (SQLException e) {
-                System.err.println("Errore durante la chiusura del PreparedStatement: " + e.getMessage());
+                LOG.avviso("Errore durante la chiusura del PreparedStatement", e);
             }
         }
 
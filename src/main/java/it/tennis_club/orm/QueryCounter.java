@@ -0,0 +1,56 @@
+package it.tennis_club.orm;
+
+/**
+ * Conta, per il thread corrente, le connessioni prelevate dal pool e gli
+ * statement preparati su di esse.
+ *
+ * I contatori sono aggiornati da {@link ConnectionPool} e servono a verificare
+ * quante query esegue un'operazione dei DAO, ad esempio:
+ *
+ * <pre>
+ * QueryCounter.reset();
+ * allievoLezioneDAO.getLezioniByAllievo(idAllievo);
+ * int query = QueryCounter.getQueries();
+ * </pre>
+ */
+public final class QueryCounter {
+
+    private static final ThreadLocal<int[]> COUNTERS = ThreadLocal.withInitial(() -> new int[2]);
+
+    private static final int CONNECTIONS = 0;
+    private static final int QUERIES = 1;
+
+    private QueryCounter() {
+    }
+
+    /**
+     * Azzera i contatori del thread corrente.
+     */
+    public static void reset() {
+        int[] counters = COUNTERS.get();
+        counters[CONNECTIONS] = 0;
+        counters[QUERIES] = 0;
+    }
+
+    /**
+     * Restituisce il numero di connessioni prelevate dal pool dall'ultimo reset.
+     */
+    public static int getConnections() {
+        return COUNTERS.get()[CONNECTIONS];
+    }
+
+    /**
+     * Restituisce il numero di statement preparati dall'ultimo reset.
+     */
+    public static int getQueries() {
+        return COUNTERS.get()[QUERIES];
+    }
+
+    static void connectionAcquired() {
+        COUNTERS.get()[CONNECTIONS]++;
+    }
+
+    static void statementPrepared() {
+        COUNTERS.get()[QUERIES]++;
+    }
+}
@@ -0,0 +1,205 @@
+package it.tennis_club.orm;
+
+import it.tennis_club.domain_model.AllievoLezione;
+import it.tennis_club.domain_model.Campo;
+import it.tennis_club.domain_model.Lezione;
+import it.tennis_club.domain_model.Prenotazione;
+import it.tennis_club.domain_model.Utente;
+import it.tennis_club.domain_model.Utente.Ruolo;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Costruisce gli oggetti del dominio a partire da un ResultSet ottenuto con
+ * una JOIN, senza interrogare di nuovo il database per le entità collegate.
+ *
+ * Le colonne di ogni entità sono selezionate con un prefisso (es. "campo_id",
+ * "socio_nome") tramite i metodi colonne*. Nello stesso ResultSet le istanze
+ * di Campo e Utente con lo stesso ID vengono create una sola volta e
+ * condivise tra le righe: un'istanza di questa classe va quindi usata per un
+ * solo ResultSet.
+ */
+final class ResultSetHydrator {
+
+    /** Prefisso delle colonne del campo della prenotazione. */
+    static final String CAMPO = "campo_";
+
+    /** Prefisso delle colonne del socio della prenotazione. */
+    static final String SOCIO = "socio_";
+
+    /** Prefisso delle colonne della prenotazione. */
+    static final String PRENOTAZIONE = "prenotazione_";
+
+    /** Prefisso delle colonne del maestro della lezione. */
+    static final String MAESTRO = "maestro_";
+
+    /** Prefisso delle colonne della lezione. */
+    static final String LEZIONE = "lezione_";
+
+    /** Prefisso delle colonne dell'allievo di una partecipazione. */
+    static final String ALLIEVO = "allievo_";
+
+    /** JOIN da aggiungere dopo "FROM prenotazione p" per usare colonnePrenotazione(). */
+    static final String JOIN_PRENOTAZIONE = " JOIN campo c ON c.id = p.id_campo" +
+            " JOIN utente s ON s.id = p.id_socio";
+
+    /** JOIN da aggiungere dopo "FROM lezione l" per usare colonneLezione(). */
+    static final String JOIN_LEZIONE = " JOIN prenotazione p ON p.id = l.id_prenotazione" +
+            JOIN_PRENOTAZIONE +
+            " JOIN utente m ON m.id = l.id_maestro";
+
+    private final Map<Integer, Campo> campi = new HashMap<>();
+    private final Map<Integer, Utente> utenti = new HashMap<>();
+    private final Map<Integer, Lezione> lezioni = new HashMap<>();
+
+    /**
+     * Restituisce l'elenco delle colonne di un campo con il prefisso indicato.
+     *
+     * @param alias  l'alias della tabella campo nella query
+     * @param prefix il prefisso da usare per le colonne
+     */
+    static String colonneCampo(String alias, String prefix) {
+        return alias + ".id AS " + prefix + "id, " +
+                alias + ".nome AS " + prefix + "nome, " +
+                alias + ".tipo_superficie AS " + prefix + "tipo_superficie, " +
+                alias + ".is_coperto AS " + prefix + "is_coperto";
+    }
+
+    /**
+     * Restituisce l'elenco delle colonne di un utente con il prefisso indicato.
+     * La password non viene mai letta: le entità collegate non ne hanno bisogno.
+     *
+     * @param alias  l'alias della tabella utente nella query
+     * @param prefix il prefisso da usare per le colonne
+     */
+    static String colonneUtente(String alias, String prefix) {
+        return alias + ".id AS " + prefix + "id, " +
+                alias + ".nome AS " + prefix + "nome, " +
+                alias + ".cognome AS " + prefix + "cognome, " +
+                alias + ".email AS " + prefix + "email, " +
+                alias + ".ruolo AS " + prefix + "ruolo";
+    }
+
+    /**
+     * Restituisce le colonne di una prenotazione completa di campo e socio.
+     * La query deve unire la prenotazione (alias p) con campo (alias c) e
+     * utente socio (alias s), vedi {@link #JOIN_PRENOTAZIONE}.
+     */
+    static String colonnePrenotazione() {
+        return "p.id AS " + PRENOTAZIONE + "id, " +
+                "p.data AS " + PRENOTAZIONE + "data, " +
+                "p.ora_inizio AS " + PRENOTAZIONE + "ora_inizio, " +
+                colonneCampo("c", CAMPO) + ", " +
+                colonneUtente("s", SOCIO);
+    }
+
+    /**
+     * Restituisce le colonne di una lezione completa di prenotazione (con
+     * campo e socio) e maestro. La query deve unire la lezione (alias l) come
+     * indicato in {@link #JOIN_LEZIONE}.
+     */
+    static String colonneLezione() {
+        return "l.id AS " + LEZIONE + "id, " +
+                "l.descrizione AS " + LEZIONE + "descrizione, " +
+                colonnePrenotazione() + ", " +
+                colonneUtente("m", MAESTRO);
+    }
+
+    /**
+     * Restituisce le colonne di una partecipazione completa di lezione e
+     * allievo. La query deve unire allievo_lezione (alias al) con la lezione
+     * (alias l, vedi {@link #JOIN_LEZIONE}) e con l'utente allievo (alias a).
+     */
+    static String colonneAllievoLezione() {
+        return "al.id, al.presente, al.feedback, " +
+                colonneLezione() + ", " +
+                colonneUtente("a", ALLIEVO);
+    }
+
+    /**
+     * Mappa il campo della riga corrente, riutilizzando l'istanza già creata
+     * se lo stesso campo è comparso in una riga precedente.
+     */
+    Campo campo(ResultSet resultSet, String prefix) throws SQLException {
+        int id = resultSet.getInt(prefix + "id");
+        Campo campo = campi.get(id);
+        if (campo == null) {
+            campo = new Campo();
+            campo.setId(id);
+            campo.setNome(resultSet.getString(prefix + "nome"));
+            campo.setTipoSuperficie(resultSet.getString(prefix + "tipo_superficie"));
+            campo.setIsCoperto(resultSet.getBoolean(prefix + "is_coperto"));
+            campi.put(id, campo);
+        }
+        return campo;
+    }
+
+    /**
+     * Mappa l'utente della riga corrente, riutilizzando l'istanza già creata
+     * se lo stesso utente è comparso in una riga precedente.
+     */
+    Utente utente(ResultSet resultSet, String prefix) throws SQLException {
+        int id = resultSet.getInt(prefix + "id");
+        Utente utente = utenti.get(id);
+        if (utente == null) {
+            utente = new Utente();
+            utente.setId(id);
+            utente.setNome(resultSet.getString(prefix + "nome"));
+            utente.setCognome(resultSet.getString(prefix + "cognome"));
+            utente.setEmail(resultSet.getString(prefix + "email"));
+            utente.setRuolo(Ruolo.valueOf(resultSet.getString(prefix + "ruolo")));
+            utenti.put(id, utente);
+        }
+        return utente;
+    }
+
+    /**
+     * Mappa la prenotazione della riga corrente con il relativo campo e socio.
+     * Richiede le colonne di {@link #colonnePrenotazione()}.
+     */
+    Prenotazione prenotazione(ResultSet resultSet) throws SQLException {
+        Prenotazione prenotazione = new Prenotazione();
+        prenotazione.setId(resultSet.getInt(PRENOTAZIONE + "id"));
+        prenotazione.setData(resultSet.getDate(PRENOTAZIONE + "data").toLocalDate());
+        prenotazione.setOraInizio(resultSet.getTime(PRENOTAZIONE + "ora_inizio").toLocalTime());
+        prenotazione.setCampo(campo(resultSet, CAMPO));
+        prenotazione.setSocio(utente(resultSet, SOCIO));
+        return prenotazione;
+    }
+
+    /**
+     * Mappa la lezione della riga corrente con prenotazione e maestro,
+     * riutilizzando l'istanza già creata se la stessa lezione è comparsa in
+     * una riga precedente. Richiede le colonne di {@link #colonneLezione()}.
+     */
+    Lezione lezione(ResultSet resultSet) throws SQLException {
+        int id = resultSet.getInt(LEZIONE + "id");
+        Lezione lezione = lezioni.get(id);
+        if (lezione == null) {
+            lezione = new Lezione();
+            lezione.setId(id);
+            lezione.setDescrizione(resultSet.getString(LEZIONE + "descrizione"));
+            lezione.setPrenotazione(prenotazione(resultSet));
+            lezione.setMaestro(utente(resultSet, MAESTRO));
+            lezioni.put(id, lezione);
+        }
+        return lezione;
+    }
+
+    /**
+     * Mappa la partecipazione della riga corrente con lezione e allievo.
+     * Richiede le colonne di {@link #colonneAllievoLezione()}.
+     */
+    AllievoLezione allievoLezione(ResultSet resultSet) throws SQLException {
+        AllievoLezione allievoLezione = new AllievoLezione();
+        allievoLezione.setId(resultSet.getInt("id"));
+        allievoLezione.setPresente(resultSet.getBoolean("presente"));
+        allievoLezione.setFeedback(resultSet.getString("feedback"));
+        allievoLezione.setLezione(lezione(resultSet));
+        allievoLezione.setAllievo(utente(resultSet, ALLIEVO));
+        return allievoLezione;
+    }
+}
@@ -0,0 +1,115 @@
+package it.tennis_club.orm;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Coda circolare limitata e senza lock, con molti produttori e un solo
+ * consumatore, usata da {@link Log}.
+ *
+ * Ogni cella ha un numero di sequenza che indica se è libera per la
+ * posizione di scrittura corrente o se contiene un elemento da leggere: i
+ * produttori si contendono la posizione con una sola compare-and-set e non
+ * attendono mai, se la coda è piena l'inserimento fallisce subito.
+ *
+ * @param <T> il tipo degli elementi
+ */
+final class RingBuffer<T> {
+
+    private final int maschera;
+    private final AtomicReferenceArray<T> elementi;
+    private final AtomicLongArray sequenze;
+
+    // Prossima posizione di scrittura, contesa dai produttori
+    private final AtomicLong coda = new AtomicLong();
+
+    // Prossima posizione di lettura: la modifica solo il consumatore, ma
+    // viene letta da flush() in altri thread
+    private volatile long testa;
+
+    /**
+     * @param capacita la capacità minima, arrotondata alla potenza di due
+     *                 successiva
+     */
+    RingBuffer(int capacita) {
+        if (capacita <= 0 || capacita > 1 << 30) {
+            throw new IllegalArgumentException("Capacità non valida: " + capacita);
+        }
+        int dimensione = capacita == 1 ? 1 : Integer.highestOneBit(capacita - 1) << 1;
+        this.maschera = dimensione - 1;
+        this.elementi = new AtomicReferenceArray<>(dimensione);
+        this.sequenze = new AtomicLongArray(dimensione);
+        for (int i = 0; i < dimensione; i++) {
+            sequenze.set(i, i);
+        }
+    }
+
+    /**
+     * Inserisce un elemento senza mai bloccare.
+     *
+     * @return false se la coda è piena
+     */
+    boolean offri(T elemento) {
+        long posizione = coda.get();
+        while (true) {
+            long differenza = sequenze.get(indice(posizione)) - posizione;
+            if (differenza == 0) {
+                if (coda.compareAndSet(posizione, posizione + 1)) {
+                    break;
+                }
+                posizione = coda.get();
+            } else if (differenza < 0) {
+                // La cella contiene ancora un elemento di un giro precedente
+                return false;
+            } else {
+                // Un altro produttore ha già preso questa posizione
+                posizione = coda.get();
+            }
+        }
+        int indice = indice(posizione);
+        elementi.set(indice, elemento);
+        sequenze.set(indice, posizione + 1);
+        return true;
+    }
+
+    /**
+     * Preleva il prossimo elemento. Va chiamato da un solo thread.
+     *
+     * @return l'elemento, o null se la coda è vuota
+     */
+    T preleva() {
+        long posizione = testa;
+        int indice = indice(posizione);
+        if (sequenze.get(indice) != posizione + 1) {
+            return null;
+        }
+        T elemento = elementi.get(indice);
+        elementi.set(indice, null);
+        sequenze.set(indice, posizione + maschera + 1);
+        testa = posizione + 1;
+        return elemento;
+    }
+
+    /**
+     * Il numero di elementi inseriti dalla creazione.
+     */
+    long getInseriti() {
+        return coda.get();
+    }
+
+    /**
+     * Il numero di elementi prelevati dalla creazione.
+     */
+    long getPrelevati() {
+        return testa;
+    }
+
+    int getCapacita() {
+        return maschera + 1;
+    }
+
+    private int indice(long posizione) {
+        return (int) (posizione & maschera);
+    }
+}
@@ -0,0 +1,392 @@
+package it.tennis_club.orm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Registro delle query lente eseguite dai DAO, alimentato da
+ * {@link StatementHandler}.
+ *
+ * Ogni statement viene ridotto a un'impronta (letterali e liste di parametri
+ * sostituiti da segnaposto, spazi e maiuscole normalizzati), così le
+ * esecuzioni della stessa query con valori diversi vengono aggregate. Per
+ * ogni coppia metodo del DAO e impronta si tengono esecuzioni, tempo totale,
+ * massimo, righe e forme dei parametri (i tipi, mai i valori).
+ *
+ * Le esecuzioni oltre la soglia (proprietà "slowquery.sogliaMs", default
+ * 100) e quelle fallite vengono sempre registrate e scritte nel log; quelle
+ * rapide solo a campione (proprietà "slowquery.campionamento", default 0.01)
+ * e pesate per l'inverso del tasso, così il report stima il tempo totale di
+ * ogni query senza misurarle tutte. Le impronte sono al massimo
+ * "slowquery.maxImpronte" (default 500): le query successive non vengono
+ * aggregate.
+ *
+ * Il registro è disabilitato per default (proprietà "slowquery.abilitato"):
+ * da disabilitato il pool non intercetta gli statement.
+ */
+public final class SlowQueryLog {
+
+    private static final Log LOG = Log.get(SlowQueryLog.class);
+
+    private static final int MAX_FORME = 5;
+    private static final int MAX_SQL_LOG = 500;
+
+    private static final Pattern COMMENTI = Pattern.compile("--[^\n]*|/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern STRINGHE = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMERI = Pattern.compile("(?<![\\w$.])-?\\d+(?:\\.\\d+)?(?![\\w$])");
+    private static final Pattern SPAZI = Pattern.compile("\\s+");
+    private static final Pattern LISTE = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern RIGHE_VALUES = Pattern.compile("(\\(\\?\\.\\.\\.\\)|\\(\\?\\))(?:\\s*,\\s*\\1)+");
+
+    private static volatile boolean abilitato = Boolean.parseBoolean(
+            ConnectionManager.getProperty("slowquery.abilitato", "false"));
+    private static volatile long sogliaNanos = Long.parseLong(
+            ConnectionManager.getProperty("slowquery.sogliaMs", "100")) * 1_000_000L;
+    private static volatile double campionamento = Double.parseDouble(
+            ConnectionManager.getProperty("slowquery.campionamento", "0.01"));
+    private static final int MAX_IMPRONTE = Integer.parseInt(
+            ConnectionManager.getProperty("slowquery.maxImpronte", "500"));
+
+    // Impronte già calcolate, per testo dello statement
+    private static final ConcurrentMap<String, String> IMPRONTE = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Aggregato> AGGREGATI = new ConcurrentHashMap<>();
+    private static final LongAdder NON_AGGREGATE = new LongAdder();
+
+    private SlowQueryLog() {
+    }
+
+    /**
+     * Una riga del report: le esecuzioni di una query da parte di un metodo
+     * di un DAO.
+     */
+    public static final class Voce {
+
+        private final String metodo;
+        private final String impronta;
+        private final long esecuzioni;
+        private final long lente;
+        private final long errori;
+        private final long tempoTotaleNanos;
+        private final long maxNanos;
+        private final long righe;
+        private final List<String> formeParametri;
+        private double quota;
+
+        private Voce(String metodo, String impronta, Aggregato aggregato) {
+            this.metodo = metodo;
+            this.impronta = impronta;
+            this.esecuzioni = aggregato.esecuzioni.sum();
+            this.lente = aggregato.lente.sum();
+            this.errori = aggregato.errori.sum();
+            this.tempoTotaleNanos = aggregato.tempoNanos.sum();
+            this.maxNanos = aggregato.maxNanos.get();
+            this.righe = aggregato.righe.sum();
+            this.formeParametri = List.copyOf(aggregato.forme);
+        }
+
+        /**
+         * Il metodo del DAO, nella forma "Classe.metodo".
+         */
+        public String getMetodo() {
+            return metodo;
+        }
+
+        public String getImpronta() {
+            return impronta;
+        }
+
+        /**
+         * Il numero stimato di esecuzioni, comprese quelle non campionate.
+         */
+        public long getEsecuzioni() {
+            return esecuzioni;
+        }
+
+        /**
+         * Il numero di esecuzioni oltre la soglia.
+         */
+        public long getLente() {
+            return lente;
+        }
+
+        public long getErrori() {
+            return errori;
+        }
+
+        /**
+         * Il tempo totale stimato passato nel database, in millisecondi.
+         */
+        public double getTempoTotaleMillis() {
+            return tempoTotaleNanos / 1_000_000.0;
+        }
+
+        public double getMediaMillis() {
+            return esecuzioni == 0 ? 0 : tempoTotaleNanos / (double) esecuzioni / 1_000_000.0;
+        }
+
+        public double getMaxMillis() {
+            return maxNanos / 1_000_000.0;
+        }
+
+        /**
+         * Il numero medio stimato di righe lette o modificate per esecuzione.
+         */
+        public double getRigheMedie() {
+            return esecuzioni == 0 ? 0 : (double) righe / esecuzioni;
+        }
+
+        /**
+         * La percentuale del tempo totale di tutte le query aggregate.
+         */
+        public double getQuota() {
+            return quota;
+        }
+
+        /**
+         * Le forme dei parametri osservate (al massimo 5), ad es.
+         * "(Int, Date)".
+         */
+        public List<String> getFormeParametri() {
+            return formeParametri;
+        }
+
+        @Override
+        public String toString() {
+            return "Voce{" +
+                    "metodo='" + metodo + '\'' +
+                    ", impronta='" + impronta + '\'' +
+                    ", esecuzioni=" + esecuzioni +
+                    ", tempoTotaleMs=" + String.format(Locale.ROOT, "%.3f", getTempoTotaleMillis()) +
+                    '}';
+        }
+    }
+
+    /**
+     * Contatori cumulativi di una query, già pesati per il campionamento.
+     */
+    private static final class Aggregato {
+        final LongAdder esecuzioni = new LongAdder();
+        final LongAdder lente = new LongAdder();
+        final LongAdder errori = new LongAdder();
+        final LongAdder tempoNanos = new LongAdder();
+        final LongAdder righe = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+        final Set<String> forme = ConcurrentHashMap.newKeySet();
+    }
+
+    public static boolean isAbilitato() {
+        return abilitato;
+    }
+
+    /**
+     * Abilita o disabilita il registro. Le query aggregate restano nel
+     * report fino a {@link #reset()}.
+     */
+    public static void setAbilitato(boolean abilitato) {
+        SlowQueryLog.abilitato = abilitato;
+    }
+
+    public static long getSogliaMillis() {
+        return sogliaNanos / 1_000_000L;
+    }
+
+    public static void setSogliaMillis(long sogliaMillis) {
+        if (sogliaMillis < 0) {
+            throw new IllegalArgumentException("La soglia non può essere negativa");
+        }
+        SlowQueryLog.sogliaNanos = sogliaMillis * 1_000_000L;
+    }
+
+    public static double getCampionamento() {
+        return campionamento;
+    }
+
+    /**
+     * Imposta la frazione delle esecuzioni rapide da registrare: 0 registra
+     * solo quelle lente e fallite, 1 tutte.
+     */
+    public static void setCampionamento(double campionamento) {
+        if (campionamento < 0 || campionamento > 1) {
+            throw new IllegalArgumentException("Il campionamento deve essere tra 0 e 1");
+        }
+        SlowQueryLog.campionamento = campionamento;
+    }
+
+    /**
+     * Svuota il report.
+     */
+    public static void reset() {
+        AGGREGATI.clear();
+        NON_AGGREGATE.reset();
+    }
+
+    /**
+     * Il numero di esecuzioni non aggregate perché il limite di impronte è
+     * stato raggiunto.
+     */
+    public static long getNonAggregate() {
+        return NON_AGGREGATE.sum();
+    }
+
+    /**
+     * Restituisce le query che hanno occupato più tempo nel database.
+     *
+     * @param limite il numero massimo di query
+     * @return le query in ordine di tempo totale stimato decrescente
+     */
+    public static List<Voce> getReport(int limite) {
+        List<Voce> voci = new ArrayList<>();
+        AGGREGATI.forEach((chiave, aggregato) -> {
+            int separatore = chiave.indexOf('\n');
+            voci.add(new Voce(chiave.substring(0, separatore), chiave.substring(separatore + 1), aggregato));
+        });
+
+        double totale = 0;
+        for (Voce voce : voci) {
+            totale += voce.tempoTotaleNanos;
+        }
+        for (Voce voce : voci) {
+            voce.quota = totale == 0 ? 0 : voce.tempoTotaleNanos * 100.0 / totale;
+        }
+
+        voci.sort(Comparator.comparingLong((Voce voce) -> voce.tempoTotaleNanos).reversed());
+        return Collections.unmodifiableList(voci.subList(0, Math.min(limite, voci.size())));
+    }
+
+    /**
+     * Restituisce il report come tabella di testo, seguita dalle impronte
+     * complete delle query elencate.
+     *
+     * @param limite il numero massimo di query
+     */
+    public static String report(int limite) {
+        List<Voce> voci = getReport(limite);
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-3s %-45s %10s %7s %6s %11s %6s %9s %9s %8s%n", "#", "metodo",
+                "esecuzioni", "lente", "errori", "totale ms", "quota", "media ms", "max ms", "righe"));
+        for (int i = 0; i < voci.size(); i++) {
+            Voce voce = voci.get(i);
+            sb.append(String.format(Locale.ROOT, "%-3d %-45s %10d %7d %6d %11.1f %5.1f%% %9.3f %9.3f %8.1f%n",
+                    i + 1, voce.getMetodo(), voce.getEsecuzioni(), voce.getLente(), voce.getErrori(),
+                    voce.getTempoTotaleMillis(), voce.getQuota(), voce.getMediaMillis(), voce.getMaxMillis(),
+                    voce.getRigheMedie()));
+        }
+        if (!voci.isEmpty()) {
+            sb.append(System.lineSeparator());
+        }
+        for (int i = 0; i < voci.size(); i++) {
+            Voce voce = voci.get(i);
+            sb.append(i + 1).append(". ").append(voce.getImpronta());
+            if (!voce.getFormeParametri().isEmpty()) {
+                sb.append(" ").append(String.join(" | ", voce.getFormeParametri()));
+            }
+            sb.append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Riduce uno statement alla sua impronta: commenti rimossi, letterali
+     * sostituiti da "?", liste di segnaposto ridotte a "(?...)", spazi
+     * normalizzati e tutto in minuscolo.
+     */
+    static String impronta(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String impronta = COMMENTI.matcher(sql).replaceAll(" ");
+        impronta = STRINGHE.matcher(impronta).replaceAll("?");
+        impronta = NUMERI.matcher(impronta).replaceAll("?");
+        impronta = SPAZI.matcher(impronta).replaceAll(" ").trim().toLowerCase(Locale.ROOT);
+        impronta = LISTE.matcher(impronta).replaceAll("(?...)");
+        // Gli inserimenti di più righe in un solo statement
+        return RIGHE_VALUES.matcher(impronta).replaceAll("$1, ...");
+    }
+
+    /**
+     * Registra un'esecuzione terminata. Le esecuzioni rapide e riuscite
+     * vengono scartate, salvo quelle estratte dal campionamento.
+     *
+     * @param metodo    il metodo del DAO, o null se non individuato
+     * @param sql       lo statement eseguito
+     * @param parametri la forma dei parametri, o null se non ci sono
+     * @param durata    la durata in nanosecondi
+     * @param righe     le righe lette o modificate, -1 se non note
+     * @param errore    true se l'esecuzione è fallita
+     */
+    static void registra(String metodo, String sql, String parametri, long durata, long righe, boolean errore) {
+        boolean lenta = durata >= sogliaNanos;
+        long peso = 1;
+        if (!lenta && !errore) {
+            double tasso = campionamento;
+            if (tasso <= 0 || (tasso < 1 && ThreadLocalRandom.current().nextDouble() >= tasso)) {
+                return;
+            }
+            peso = Math.round(1 / tasso);
+        }
+
+        String metodoDao = metodo != null ? metodo : "?";
+        String impronta = improntaInCache(sql);
+
+        if (lenta || errore) {
+            String testo = impronta.length() > MAX_SQL_LOG ? impronta.substring(0, MAX_SQL_LOG) + "..." : impronta;
+            String durataMillis = String.format(Locale.ROOT, "%.1f", durata / 1_000_000.0);
+            LOG.avviso(errore ? "Query fallita" : "Query lenta", "metodo", metodoDao, "durataMs", durataMillis,
+                    "righe", righe < 0 ? "?" : righe, "sql", testo, "parametri", parametri);
+        }
+
+        String chiave = metodoDao + "\n" + impronta;
+        Aggregato aggregato = AGGREGATI.get(chiave);
+        if (aggregato == null) {
+            if (AGGREGATI.size() >= MAX_IMPRONTE) {
+                NON_AGGREGATE.increment();
+                return;
+            }
+            aggregato = AGGREGATI.computeIfAbsent(chiave, k -> new Aggregato());
+        }
+
+        aggregato.esecuzioni.add(peso);
+        aggregato.tempoNanos.add(durata * peso);
+        if (righe > 0) {
+            aggregato.righe.add(righe * peso);
+        }
+        if (lenta) {
+            aggregato.lente.increment();
+        }
+        if (errore) {
+            aggregato.errori.increment();
+        }
+        if (durata > aggregato.maxNanos.get()) {
+            aggregato.maxNanos.accumulateAndGet(durata, Math::max);
+        }
+        if (parametri != null && aggregato.forme.size() < MAX_FORME) {
+            aggregato.forme.add(parametri);
+        }
+    }
+
+    private static String improntaInCache(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String impronta = IMPRONTE.get(sql);
+        if (impronta == null) {
+            impronta = impronta(sql);
+            // Gli statement con i valori nel testo non si ripetono: oltre il
+            // limite l'impronta viene ricalcolata ogni volta
+            if (IMPRONTE.size() < MAX_IMPRONTE * 2) {
+                IMPRONTE.put(sql, impronta);
+            }
+        }
+        return impronta;
+    }
+}
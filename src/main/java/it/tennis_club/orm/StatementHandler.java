@@ -0,0 +1,271 @@
+package it.tennis_club.orm;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Handler del proxy degli statement consegnati da {@link ConnectionPool}
+ * quando almeno uno tra {@link EventoQuery} e {@link SlowQueryLog} è attivo.
+ *
+ * Inoltra le chiamate allo statement fisico e misura ogni esecuzione,
+ * attribuita al metodo del DAO più vicino nello stack. L'esecuzione di una query
+ * resta aperta fino alla chiusura del ResultSet (o dello statement), per
+ * contarne le righe: la sua durata comprende la lettura dei risultati.
+ */
+final class StatementHandler implements InvocationHandler {
+
+    private static final Pattern SPAZI = Pattern.compile("\\s+");
+
+    private final Object statement;
+    private final String sql;
+
+    // Tipi dei parametri impostati, raccolti solo per il registro delle
+    // query lente
+    private final List<String> parametri;
+    private int batch;
+
+    private Esecuzione inCorso;
+
+    private StatementHandler(Object statement, String sql) {
+        this.statement = statement;
+        this.sql = sql;
+        this.parametri = SlowQueryLog.isAbilitato() ? new ArrayList<>() : null;
+    }
+
+    /**
+     * Indica se gli statement vanno avvolti, cioè se c'è qualcosa da misurare.
+     */
+    static boolean isNecessario() {
+        return EventoQuery.isAbilitato() || SlowQueryLog.isAbilitato();
+    }
+
+    /**
+     * Avvolge uno statement appena creato.
+     *
+     * @param tipo      l'interfaccia dello statement (Statement,
+     *                  PreparedStatement o CallableStatement)
+     * @param statement lo statement fisico
+     * @param sql       il testo dello statement preparato, null per uno
+     *                  Statement semplice
+     */
+    static Object avvolgi(Class<?> tipo, Object statement, String sql) {
+        return Proxy.newProxyInstance(StatementHandler.class.getClassLoader(), new Class<?>[] { tipo },
+                new StatementHandler(statement, sql));
+    }
+
+    /**
+     * Un'esecuzione in corso di uno statement.
+     */
+    private static final class Esecuzione {
+        final long inizio = System.nanoTime();
+        final EventoQuery evento = new EventoQuery();
+        final String metodo;
+        final String sql;
+        final String parametri;
+        long righe = -1;
+        boolean errore;
+        boolean conclusa;
+
+        Esecuzione(String metodo, String sql, String parametri) {
+            this.metodo = metodo;
+            this.sql = sql;
+            this.parametri = parametri;
+            evento.begin();
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String nome = method.getName();
+        if (!nome.startsWith("execute")) {
+            if (parametri != null) {
+                registraParametro(nome, args);
+            }
+            if (nome.equals("close")) {
+                concludi(inCorso);
+            }
+            return invokeStatement(method, args, null);
+        }
+
+        concludi(inCorso);
+        if (!EventoQuery.isAbilitato() && !SlowQueryLog.isAbilitato()) {
+            return invokeStatement(method, args, null);
+        }
+
+        // Il metodo del DAO va individuato ora: alla chiusura del ResultSet
+        // lo stack potrebbe trovarsi in un metodo di servizio del DAO
+        String sqlEseguito = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+        Esecuzione esecuzione = new Esecuzione(Strumentazione.metodoDao(), sqlEseguito, formaParametri());
+        Object risultato = invokeStatement(method, args, esecuzione);
+
+        if (risultato instanceof ResultSet) {
+            inCorso = esecuzione;
+            esecuzione.righe = 0;
+            return Proxy.newProxyInstance(StatementHandler.class.getClassLoader(),
+                    new Class<?>[] { ResultSet.class }, new ResultSetHandler(this, (ResultSet) risultato, esecuzione));
+        }
+        esecuzione.righe = righe(risultato);
+        concludi(esecuzione);
+        return risultato;
+    }
+
+    private Object invokeStatement(Method method, Object[] args, Esecuzione esecuzione) throws Throwable {
+        try {
+            return method.invoke(statement, args);
+        } catch (InvocationTargetException e) {
+            if (esecuzione != null) {
+                esecuzione.errore = true;
+                concludi(esecuzione);
+            }
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Conclude un'esecuzione e la registra nell'evento e nel registro delle
+     * query lente. Un'esecuzione già conclusa viene ignorata.
+     */
+    private void concludi(Esecuzione esecuzione) {
+        if (esecuzione == null || esecuzione.conclusa) {
+            return;
+        }
+        esecuzione.conclusa = true;
+        if (esecuzione == inCorso) {
+            inCorso = null;
+        }
+        long durata = System.nanoTime() - esecuzione.inizio;
+
+        EventoQuery evento = esecuzione.evento;
+        evento.end();
+        if (evento.shouldCommit()) {
+            evento.metodo = esecuzione.metodo;
+            evento.sql = esecuzione.sql == null ? null : SPAZI.matcher(esecuzione.sql.trim()).replaceAll(" ");
+            evento.righe = esecuzione.righe;
+            evento.errore = esecuzione.errore;
+            evento.commit();
+        }
+        if (SlowQueryLog.isAbilitato()) {
+            SlowQueryLog.registra(esecuzione.metodo, esecuzione.sql, esecuzione.parametri, durata, esecuzione.righe,
+                    esecuzione.errore);
+        }
+    }
+
+    /**
+     * Registra il tipo di un parametro impostato con un metodo setXxx(indice,
+     * valore), o azzera i parametri.
+     */
+    private void registraParametro(String nome, Object[] args) {
+        if (nome.equals("clearParameters")) {
+            parametri.clear();
+            return;
+        }
+        if (nome.equals("addBatch") && (args == null || args.length == 0)) {
+            batch++;
+            return;
+        }
+        if (!nome.startsWith("set") || args == null || args.length < 2 || !(args[0] instanceof Integer)) {
+            return;
+        }
+
+        String tipo;
+        if (nome.equals("setNull")) {
+            tipo = "null";
+        } else if (nome.equals("setObject")) {
+            tipo = args[1] == null ? "null" : args[1].getClass().getSimpleName();
+        } else {
+            tipo = nome.substring(3);
+        }
+
+        int indice = (Integer) args[0] - 1;
+        if (indice < 0) {
+            return;
+        }
+        while (parametri.size() <= indice) {
+            parametri.add("?");
+        }
+        parametri.set(indice, tipo);
+    }
+
+    /**
+     * La forma dei parametri, ad es. "(Int, Date)" o "(Int, Date) x 20" per un
+     * batch; null se non ci sono parametri. Azzera il conteggio del batch.
+     */
+    private String formaParametri() {
+        if (parametri == null) {
+            return null;
+        }
+        String forma = parametri.isEmpty() ? null : "(" + String.join(", ", parametri) + ")";
+        if (batch > 0) {
+            forma = (forma != null ? forma : "()") + " x " + batch;
+            batch = 0;
+        }
+        return forma;
+    }
+
+    private static long righe(Object risultato) {
+        if (risultato instanceof Integer || risultato instanceof Long) {
+            return ((Number) risultato).longValue();
+        }
+        long totale = 0;
+        if (risultato instanceof int[]) {
+            for (int righe : (int[]) risultato) {
+                totale += Math.max(0, righe);
+            }
+            return totale;
+        }
+        if (risultato instanceof long[]) {
+            for (long righe : (long[]) risultato) {
+                totale += Math.max(0, righe);
+            }
+            return totale;
+        }
+        // execute(): il numero di righe non è noto senza leggere i risultati
+        return -1;
+    }
+
+    /**
+     * Handler del proxy di un ResultSet: conta le righe lette e conclude
+     * l'esecuzione alla chiusura.
+     */
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final StatementHandler statement;
+        private final ResultSet resultSet;
+        private final Esecuzione esecuzione;
+
+        ResultSetHandler(StatementHandler statement, ResultSet resultSet, Esecuzione esecuzione) {
+            this.statement = statement;
+            this.resultSet = resultSet;
+            this.esecuzione = esecuzione;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object risultato;
+            try {
+                risultato = method.invoke(resultSet, args);
+            } catch (InvocationTargetException e) {
+                esecuzione.errore = true;
+                throw e.getCause();
+            }
+            switch (method.getName()) {
+                case "next":
+                    if (Boolean.TRUE.equals(risultato)) {
+                        esecuzione.righe++;
+                    }
+                    break;
+                case "close":
+                    statement.concludi(esecuzione);
+                    break;
+                default:
+                    break;
+            }
+            return risultato;
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package it.tennis_club.orm;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Strumentazione dei metodi dei DAO e dei servizi: per ogni metodo registra
+ * numero di chiamate, errori, istogramma delle durate e statement JDBC
+ * preparati per chiamata. Le statistiche si leggono con
+ * {@link #getStatistiche()} o come tabella con {@link #dump()}.
+ *
+ * I metodi dei servizi e dei DAO avvolgono il proprio corpo in
+ * {@link #misura(String, Operazione)}:
+ *
+ * <pre>
+ * return Strumentazione.misura("PrenotazioneService.creaPrenotazione", () -&gt; {
+ *     ...
+ * });
+ * </pre>
+ *
+ * La chiamata è in errore se il corpo lancia un'eccezione. Gli overload di
+ * un metodo usano nomi distinti, con i tipi dei parametri tra parentesi (ad
+ * es. "PrenotazioneService.getPrenotazioni(String, int)"); un overload che
+ * si limita a delegare a un altro non viene misurato a parte. L'attesa di
+ * una connessione dal pool rientra nella durata del metodo che la preleva ed
+ * è riportata anche da {@link ConnectionManager#getPoolStats()}.
+ *
+ * Gli statement vengono contati da {@link ConnectionPool} per tutte le
+ * chiamate in corso sul thread, quindi una chiamata a un servizio include
+ * quelli dei DAO che ha usato.
+ *
+ * La strumentazione è disabilitata per default (proprietà
+ * "strumentazione.abilitata" di db.properties, modificabile a runtime con
+ * {@link #setAbilitata(boolean)}): da disabilitata {@link #misura(String,
+ * Operazione)} costa una lettura di un campo volatile.
+ */
+public final class Strumentazione {
+
+    private static final String SUFFISSO_DAO = "DAO";
+
+    // Le lambda dei DAO vengono saltate: nello stack segue il metodo che le
+    // esegue
+    private static final String PREFISSO_LAMBDA = "lambda$";
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    private static volatile boolean abilitata = Boolean.parseBoolean(
+            ConnectionManager.getProperty("strumentazione.abilitata", "false"));
+
+    private static final ConcurrentMap<String, Contatori> METODI = new ConcurrentHashMap<>();
+
+    // Ultima chiamata iniziata e non ancora terminata sul thread corrente
+    private static final ThreadLocal<Chiamata> CORRENTE = new ThreadLocal<>();
+
+    private Strumentazione() {
+    }
+
+    /**
+     * Il corpo di un metodo misurato che restituisce un valore.
+     */
+    @FunctionalInterface
+    public interface Operazione<T, E extends Exception> {
+        T esegui() throws E;
+    }
+
+    /**
+     * Il corpo di un metodo misurato senza valore di ritorno.
+     */
+    @FunctionalInterface
+    public interface Azione<E extends Exception> {
+        void esegui() throws E;
+    }
+
+    /**
+     * Una chiamata in corso di un metodo strumentato.
+     */
+    public static final class Chiamata {
+
+        // Chiamata restituita quando la strumentazione è disabilitata
+        private static final Chiamata NESSUNA = new Chiamata(null, null);
+
+        private final String metodo;
+        private final Chiamata padre;
+        private final long inizio;
+        private int statement;
+        private boolean errore;
+        private boolean terminata;
+
+        private Chiamata(String metodo, Chiamata padre) {
+            this.metodo = metodo;
+            this.padre = padre;
+            this.inizio = metodo != null ? System.nanoTime() : 0;
+        }
+
+        /**
+         * Segna la chiamata come terminata con un errore.
+         */
+        public void errore() {
+            errore = true;
+        }
+
+        /**
+         * Termina la chiamata e ne registra durata, esito e statement. Le
+         * chiamate successive non hanno effetto.
+         */
+        public void fine() {
+            if (metodo == null || terminata) {
+                return;
+            }
+            terminata = true;
+            long durata = System.nanoTime() - inizio;
+
+            // Le chiamate iniziate con inizia() possono terminare in ordine
+            // diverso da quello di inizio: si risale fino alla prima chiamata
+            // ancora in corso
+            if (CORRENTE.get() == this) {
+                Chiamata attiva = padre;
+                while (attiva != null && attiva.terminata) {
+                    attiva = attiva.padre;
+                }
+                if (attiva == null) {
+                    CORRENTE.remove();
+                } else {
+                    CORRENTE.set(attiva);
+                }
+            }
+
+            METODI.computeIfAbsent(metodo, chiave -> new Contatori()).registra(durata, statement, errore);
+        }
+    }
+
+    /**
+     * Statistiche di un metodo, lette in un istante.
+     */
+    public static final class Statistiche {
+
+        private final long chiamate;
+        private final long errori;
+        private final long statement;
+        private final long maxStatement;
+        private final long durataTotaleNanos;
+        private final long p50Nanos;
+        private final long p95Nanos;
+        private final long p99Nanos;
+        private final long maxNanos;
+
+        private Statistiche(Contatori contatori) {
+            this.chiamate = contatori.durate.getCampioni();
+            this.errori = contatori.errori.sum();
+            this.statement = contatori.statement.sum();
+            this.maxStatement = contatori.maxStatement.get();
+            this.durataTotaleNanos = contatori.durate.getSomma();
+            long[] percentili = contatori.durate.getPercentili(50, 95, 99);
+            this.p50Nanos = percentili[0];
+            this.p95Nanos = percentili[1];
+            this.p99Nanos = percentili[2];
+            this.maxNanos = contatori.durate.getMassimo();
+        }
+
+        public long getChiamate() {
+            return chiamate;
+        }
+
+        public long getErrori() {
+            return errori;
+        }
+
+        /**
+         * Il numero totale di statement JDBC preparati durante le chiamate.
+         */
+        public long getStatement() {
+            return statement;
+        }
+
+        /**
+         * Il numero medio di statement per chiamata.
+         */
+        public double getStatementPerChiamata() {
+            return chiamate == 0 ? 0 : (double) statement / chiamate;
+        }
+
+        /**
+         * Il numero massimo di statement preparati in una sola chiamata.
+         */
+        public long getMaxStatement() {
+            return maxStatement;
+        }
+
+        public long getDurataTotaleNanos() {
+            return durataTotaleNanos;
+        }
+
+        public double getDurataMediaNanos() {
+            return chiamate == 0 ? 0 : (double) durataTotaleNanos / chiamate;
+        }
+
+        public long getP50Nanos() {
+            return p50Nanos;
+        }
+
+        public long getP95Nanos() {
+            return p95Nanos;
+        }
+
+        public long getP99Nanos() {
+            return p99Nanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Statistiche{" +
+                    "chiamate=" + chiamate +
+                    ", errori=" + errori +
+                    ", statement=" + statement +
+                    ", p99Nanos=" + p99Nanos +
+                    '}';
+        }
+    }
+
+    /**
+     * Contatori cumulativi di un metodo.
+     */
+    private static final class Contatori {
+        final Istogramma durate = new Istogramma();
+        final LongAdder errori = new LongAdder();
+        final LongAdder statement = new LongAdder();
+        final AtomicLong maxStatement = new AtomicLong();
+
+        void registra(long durata, int statementChiamata, boolean errore) {
+            durate.registra(durata);
+            statement.add(statementChiamata);
+            if (statementChiamata > maxStatement.get()) {
+                maxStatement.accumulateAndGet(statementChiamata, Math::max);
+            }
+            if (errore) {
+                errori.increment();
+            }
+        }
+    }
+
+    /**
+     * Esegue il corpo di un metodo misurandolo come una chiamata: la chiamata
+     * è in errore se il corpo lancia un'eccezione, che viene rilanciata.
+     *
+     * @param metodo     il nome del metodo, nella forma "Classe.metodo"
+     * @param operazione il corpo del metodo
+     * @return il valore restituito dal corpo
+     * @throws E l'eccezione lanciata dal corpo
+     */
+    public static <T, E extends Exception> T misura(String metodo, Operazione<T, E> operazione) throws E {
+        Chiamata chiamata = inizia(metodo);
+        try {
+            return operazione.esegui();
+        } catch (Throwable e) {
+            chiamata.errore();
+            throw e;
+        } finally {
+            chiamata.fine();
+        }
+    }
+
+    /**
+     * Come {@link #misura(String, Operazione)}, per un corpo senza valore di
+     * ritorno.
+     */
+    public static <E extends Exception> void misura(String metodo, Azione<E> azione) throws E {
+        Chiamata chiamata = inizia(metodo);
+        try {
+            azione.esegui();
+        } catch (Throwable e) {
+            chiamata.errore();
+            throw e;
+        } finally {
+            chiamata.fine();
+        }
+    }
+
+    /**
+     * Inizia la misura di una chiamata; va sempre terminata con
+     * {@link Chiamata#fine()} in un blocco finally. Di norma si usa
+     * {@link #misura(String, Operazione)}.
+     *
+     * @param metodo il nome del metodo, nella forma "Classe.metodo"
+     * @return la chiamata in corso (senza effetti se la strumentazione è
+     *         disabilitata)
+     */
+    public static Chiamata inizia(String metodo) {
+        if (!abilitata) {
+            return Chiamata.NESSUNA;
+        }
+        Chiamata chiamata = new Chiamata(metodo, CORRENTE.get());
+        CORRENTE.set(chiamata);
+        return chiamata;
+    }
+
+    public static boolean isAbilitata() {
+        return abilitata;
+    }
+
+    /**
+     * Abilita o disabilita la strumentazione. Le statistiche raccolte
+     * restano disponibili fino a {@link #reset()}.
+     */
+    public static void setAbilitata(boolean abilitata) {
+        Strumentazione.abilitata = abilitata;
+    }
+
+    /**
+     * Azzera le statistiche di tutti i metodi.
+     */
+    public static void reset() {
+        METODI.clear();
+    }
+
+    /**
+     * Restituisce le statistiche di tutti i metodi chiamati, ordinate per
+     * nome.
+     */
+    public static Map<String, Statistiche> getStatistiche() {
+        Map<String, Statistiche> statistiche = new TreeMap<>();
+        METODI.forEach((metodo, contatori) -> statistiche.put(metodo, new Statistiche(contatori)));
+        return Collections.unmodifiableMap(statistiche);
+    }
+
+    /**
+     * Restituisce le statistiche di un metodo, o null se non è mai stato
+     * chiamato.
+     */
+    public static Statistiche getStatistiche(String metodo) {
+        Contatori contatori = METODI.get(metodo);
+        return contatori == null ? null : new Statistiche(contatori);
+    }
+
+    /**
+     * Restituisce le statistiche come tabella di testo, una riga per metodo,
+     * con le durate in millisecondi.
+     */
+    public static String dump() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-50s %9s %7s %9s %9s %9s %9s %9s %8s %6s%n", "metodo", "chiamate",
+                "errori", "media ms", "p50 ms", "p95 ms", "p99 ms", "max ms", "stmt/ch", "stmt"));
+        getStatistiche().forEach((metodo, s) -> sb.append(String.format(Locale.ROOT,
+                "%-50s %9d %7d %9.3f %9.3f %9.3f %9.3f %9.3f %8.2f %6d%n", metodo, s.getChiamate(), s.getErrori(),
+                s.getDurataMediaNanos() / 1e6, s.getP50Nanos() / 1e6, s.getP95Nanos() / 1e6,
+                s.getP99Nanos() / 1e6, s.getMaxNanos() / 1e6, s.getStatementPerChiamata(), s.getMaxStatement())));
+        return sb.toString();
+    }
+
+    /**
+     * Il metodo del DAO più vicino nello stack del thread corrente, nella
+     * forma "Classe.metodo", o null se non c'è nessun DAO nello stack.
+     */
+    static String metodoDao() {
+        return STACK_WALKER.walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(Strumentazione.class.getPackageName() + ".")
+                        && frame.getClassName().endsWith(SUFFISSO_DAO)
+                        && !frame.getMethodName().startsWith(PREFISSO_LAMBDA))
+                .findFirst()
+                .map(frame -> nomeSemplice(frame.getClassName()) + "." + frame.getMethodName())
+                .orElse(null));
+    }
+
+    /**
+     * Conta uno statement preparato per tutte le chiamate in corso sul
+     * thread corrente.
+     */
+    static void statementPreparato() {
+        for (Chiamata chiamata = CORRENTE.get(); chiamata != null; chiamata = chiamata.padre) {
+            if (!chiamata.terminata) {
+                chiamata.statement++;
+            }
+        }
+    }
+
+    private static String nomeSemplice(String nomeClasse) {
+        return nomeClasse.substring(nomeClasse.lastIndexOf('.') + 1);
+    }
+}
@@ -0,0 +1,232 @@
+package it.tennis_club.orm;
+
+import it.tennis_club.domain_model.Utente;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache in memoria degli utenti letti per ID, posta davanti a
+ * {@link UtenteDAO#getUtenteById(Integer)}.
+ *
+ * La cache ha una dimensione massima (proprietà "cache.utente.maxSize",
+ * default 500): oltre il limite viene rimosso l'utente usato meno di recente.
+ * Ogni voce scade dopo il TTL (proprietà "cache.utente.ttlMs", default 5
+ * minuti). {@link UtenteDAO} invalida la voce quando un utente cambia ruolo o
+ * viene eliminato.
+ *
+ * La password non viene mai conservata: gli utenti restituiti ne sono privi e
+ * sono copie, quindi i chiamanti possono modificarli senza alterare la cache.
+ */
+public class UtenteCache {
+
+    private static final int DEFAULT_MAX_SIZE = 500;
+    private static final long DEFAULT_TTL_MILLIS = 300000;
+
+    private static UtenteCache instance;
+
+    private final UtenteDAO utenteDAO;
+    private final int maxSize;
+    private final long ttlNanos;
+
+    // In ordine di accesso: il primo elemento è quello usato meno di recente
+    private final LinkedHashMap<Integer, Voce> voci;
+
+    // Incrementata a ogni invalidazione: un caricamento iniziato prima di
+    // un'invalidazione non deve reinserire dati non più validi
+    private long versione;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long loads;
+    private long totalLoadNanos;
+
+    UtenteCache(UtenteDAO utenteDAO, int maxSize, long ttlMillis) {
+        this.utenteDAO = utenteDAO;
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.voci = new LinkedHashMap<Integer, Voce>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Voce> eldest) {
+                if (size() > UtenteCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Restituisce l'istanza singleton della cache.
+     */
+    public static synchronized UtenteCache getInstance() {
+        if (instance == null) {
+            int maxSize = Integer.parseInt(ConnectionManager.getProperty("cache.utente.maxSize",
+                    String.valueOf(DEFAULT_MAX_SIZE)));
+            long ttl = Long.parseLong(ConnectionManager.getProperty("cache.utente.ttlMs",
+                    String.valueOf(DEFAULT_TTL_MILLIS)));
+            instance = new UtenteCache(new UtenteDAO(), maxSize, ttl);
+        }
+        return instance;
+    }
+
+    /**
+     * Recupera un utente tramite il suo ID, caricandolo dal database solo se
+     * non è presente in cache o se la voce è scaduta.
+     *
+     * @param id l'ID dell'utente
+     * @return una copia dell'utente senza password, null se non esiste
+     * @throws SQLException se il caricamento dal database fallisce
+     */
+    public Utente getUtenteById(Integer id) throws SQLException {
+        long versioneLettura;
+        synchronized (this) {
+            Voce voce = voci.get(id);
+            if (voce != null && System.nanoTime() - voce.caricataIl < ttlNanos) {
+                hits++;
+                return copia(voce.utente);
+            }
+            if (voce != null) {
+                voci.remove(id);
+            }
+            misses++;
+            versioneLettura = versione;
+        }
+
+        // Il caricamento avviene fuori dal lock per non bloccare le altre letture
+        long inizio = System.nanoTime();
+        Utente caricato = utenteDAO.getUtenteById(id);
+        long fine = System.nanoTime();
+
+        if (caricato == null) {
+            synchronized (this) {
+                loads++;
+                totalLoadNanos += fine - inizio;
+            }
+            return null;
+        }
+
+        Utente senzaPassword = copia(caricato);
+        synchronized (this) {
+            loads++;
+            totalLoadNanos += fine - inizio;
+            if (versioneLettura == versione) {
+                voci.put(id, new Voce(senzaPassword, fine));
+            }
+        }
+        return copia(senzaPassword);
+    }
+
+    /**
+     * Rimuove un utente dalla cache.
+     *
+     * @param id l'ID dell'utente da rimuovere
+     */
+    public synchronized void invalidate(Integer id) {
+        versione++;
+        voci.remove(id);
+    }
+
+    /**
+     * Svuota completamente la cache.
+     */
+    public synchronized void invalidateAll() {
+        versione++;
+        voci.clear();
+    }
+
+    /**
+     * Restituisce una fotografia delle statistiche correnti della cache.
+     */
+    public synchronized Stats getStats() {
+        return new Stats(voci.size(), hits, misses, evictions, loads, totalLoadNanos);
+    }
+
+    private static Utente copia(Utente utente) {
+        Utente copia = new Utente();
+        copia.setId(utente.getId());
+        copia.setNome(utente.getNome());
+        copia.setCognome(utente.getCognome());
+        copia.setEmail(utente.getEmail());
+        copia.setRuolo(utente.getRuolo());
+        return copia;
+    }
+
+    private static class Voce {
+        final Utente utente;
+        final long caricataIl;
+
+        Voce(Utente utente, long caricataIl) {
+            this.utente = utente;
+            this.caricataIl = caricataIl;
+        }
+    }
+
+    /**
+     * Statistiche della cache in un dato istante.
+     */
+    public static class Stats {
+        private final int size;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long loads;
+        private final long totalLoadNanos;
+
+        Stats(int size, long hits, long misses, long evictions, long loads, long totalLoadNanos) {
+            this.size = size;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.loads = loads;
+            this.totalLoadNanos = totalLoadNanos;
+        }
+
+        /** Utenti attualmente in cache. */
+        public int getSize() {
+            return size;
+        }
+
+        /** Letture servite dalla memoria. */
+        public long getHits() {
+            return hits;
+        }
+
+        /** Letture che hanno richiesto il caricamento dal database. */
+        public long getMisses() {
+            return misses;
+        }
+
+        /** Percentuale di letture servite dalla memoria, tra 0 e 1. */
+        public double getHitRatio() {
+            long totale = hits + misses;
+            return totale == 0 ? 0.0 : hits / (double) totale;
+        }
+
+        /** Utenti rimossi per il limite di dimensione. */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /** Tempo medio di caricamento di un utente dal database, in millisecondi. */
+        public double getAverageLoadMillis() {
+            return loads == 0 ? 0.0 : totalLoadNanos / (double) loads / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "size=" + size +
+                    ", hits=" + hits +
+                    ", misses=" + misses +
+                    ", hitRatio=" + String.format("%.2f", getHitRatio()) +
+                    ", evictions=" + evictions +
+                    ", avgLoadMs=" + String.format("%.2f", getAverageLoadMillis()) +
+                    '}';
+        }
+    }
+}
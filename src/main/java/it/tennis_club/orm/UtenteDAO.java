@@ -2,7 +2,10 @@ package it.tennis_club.orm;
 
 import it.tennis_club.domain_model.Utente;
 import it.tennis_club.domain_model.Utente.Ruolo;
+import org.postgresql.PGConnection;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -10,12 +13,39 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object per la gestione degli utenti nel database.
  */
 public class UtenteDAO {
 
+    private static final Log LOG = Log.get(UtenteDAO.class);
+
+    // Query complete dei metodi che filtrano gli utenti, visibili nel package
+    // perché QueryPlanTest ne verifica i piani di esecuzione
+    static final String QUERY_LOGIN = "SELECT id, nome, cognome, email, password, ruolo " +
+            "FROM utente " +
+            "WHERE email = ? AND password = ?";
+
+    static final String QUERY_BY_ID = "SELECT id, nome, cognome, email, password, ruolo " +
+            "FROM utente WHERE id = ?";
+
+    static final String UPDATE_RUOLO = "UPDATE utente SET ruolo = ?::ruolo_utente WHERE id = ?";
+
+    static final String DELETE_BY_ID = "DELETE FROM utente WHERE id = ?";
+
+    /**
+     * La query di {@link #getUtentiDopo(Integer, int)}: i parametri sono l'ID
+     * dell'ultimo utente della pagina precedente se non è la prima e il
+     * limite.
+     */
+    static String queryDopo(boolean primaPagina) {
+        return "SELECT id, nome, cognome, email, ruolo FROM utente " +
+                (primaPagina ? "" : "WHERE id > ? ") +
+                "ORDER BY id LIMIT ?";
+    }
+
     /**
      * Registra un nuovo utente nel database.
      * 
@@ -25,57 +55,155 @@ public class UtenteDAO {
      *                      o se l'email è già presente nel database
      */
     public Integer registrazione(Utente nuovoUtente) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-
-        try {
-            connection = ConnectionManager.getConnection();
-            String query = "INSERT INTO utente (nome, cognome, email, password, ruolo) " +
-                    "VALUES (?, ?, ?, ?, ?::ruolo_utente)";
-
-            statement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
-            statement.setString(1, nuovoUtente.getNome());
-            statement.setString(2, nuovoUtente.getCognome());
-            statement.setString(3, nuovoUtente.getEmail());
-            statement.setString(4, nuovoUtente.getPassword());
-            statement.setString(5, nuovoUtente.getRuolo().toString());
-
-            int affectedRows = statement.executeUpdate();
-            if (affectedRows == 0) {
-                throw new SQLException("Registrazione fallita: nessuna riga inserita");
-            }
+        return Strumentazione.misura("UtenteDAO.registrazione", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+
+            try {
+                connection = ConnectionManager.getConnection();
+                String query = "INSERT INTO utente (nome, cognome, email, password, ruolo) " +
+                        "VALUES (?, ?, ?, ?, ?::ruolo_utente)";
+
+                statement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
+                statement.setString(1, nuovoUtente.getNome());
+                statement.setString(2, nuovoUtente.getCognome());
+                statement.setString(3, nuovoUtente.getEmail());
+                statement.setString(4, nuovoUtente.getPassword());
+                statement.setString(5, nuovoUtente.getRuolo().toString());
+
+                int affectedRows = statement.executeUpdate();
+                if (affectedRows == 0) {
+                    throw new SQLException("Registrazione fallita: nessuna riga inserita");
+                }
 
-            resultSet = statement.getGeneratedKeys();
-            if (resultSet.next()) {
-                Integer idGenerato = resultSet.getInt(1);
-                nuovoUtente.setId(idGenerato);
-            } else {
-                throw new SQLException("Registrazione fallita: ID non generato");
-            }
+                resultSet = statement.getGeneratedKeys();
+                if (resultSet.next()) {
+                    Integer idGenerato = resultSet.getInt(1);
+                    nuovoUtente.setId(idGenerato);
+                } else {
+                    throw new SQLException("Registrazione fallita: ID non generato");
+                }
 
-        } catch (SQLException e) {
-            System.err.println("Errore durante la registrazione: " + e.getMessage());
-            throw e;
-        } finally {
-            if (resultSet != null) {
-                try {
-                    resultSet.close();
-                } catch (SQLException e) {
-                    System.err.println("Errore durante la chiusura del ResultSet: " + e.getMessage());
+            } catch (SQLException e) {
+                LOG.errore("Errore durante la registrazione", e);
+                throw e;
+            } finally {
+                if (resultSet != null) {
+                    try {
+                        resultSet.close();
+                    } catch (SQLException e) {
+                        LOG.avviso("Errore durante la chiusura del ResultSet", e);
+                    }
                 }
-            }
-            if (statement != null) {
-                try {
-                    statement.close();
-                } catch (SQLException e) {
-                    System.err.println("Errore durante la chiusura del PreparedStatement: " + e.getMessage());
+                if (statement != null) {
+                    try {
+                        statement.close();
+                    } catch (SQLException e) {
+                        LOG.avviso("Errore durante la chiusura del PreparedStatement", e);
+                    }
                 }
+                ConnectionManager.closeConnection(connection);
             }
-            ConnectionManager.closeConnection(connection);
-        }
 
-        return nuovoUtente.getId();
+            return nuovoUtente.getId();
+        });
+    }
+
+    /**
+     * Importa in blocco gli utenti di un file CSV con intestazione e colonne
+     * nome, cognome, email, password, ruolo.
+     *
+     * Il CSV viene trasferito con COPY in una tabella temporanea; le righe
+     * vengono poi validate e inserite in utente con poche istruzioni SQL,
+     * nella stessa transazione. Una riga non valida (campo vuoto o troppo
+     * lungo, ruolo inesistente, email ripetuta nel file o già registrata)
+     * viene scartata e riportata nell'esito senza interrompere l'importazione;
+     * un CSV malformato annulla invece l'intera importazione.
+     *
+     * @param csv il contenuto del file CSV
+     * @return il numero di utenti inseriti e le righe scartate
+     * @throws SQLException se il CSV è malformato o si verifica un errore
+     *                      durante l'accesso al database
+     */
+    public EsitoImportazione importaUtenti(Reader csv) throws SQLException {
+        return Strumentazione.misura("UtenteDAO.importaUtenti", () -> {
+            try {
+                return ConnectionManager.inTransaction(connection -> {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("CREATE TEMPORARY TABLE utente_import (" +
+                                "riga BIGINT GENERATED ALWAYS AS IDENTITY, " +
+                                "nome TEXT, cognome TEXT, email TEXT, password TEXT, ruolo TEXT, errore TEXT" +
+                                ") ON COMMIT DROP");
+
+                        // Le righe ricevono l'identità nell'ordine del file
+                        try {
+                            connection.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                                    "COPY utente_import (nome, cognome, email, password, ruolo) " +
+                                            "FROM STDIN WITH (FORMAT csv, HEADER true)", csv);
+                        } catch (IOException e) {
+                            throw new SQLException("Errore durante la lettura del CSV: " + e.getMessage(), e);
+                        }
+
+                        // Il primo controllo violato è il motivo dello scarto
+                        statement.executeUpdate("UPDATE utente_import SET errore = CASE " +
+                                "WHEN coalesce(trim(nome), '') = '' THEN 'Il nome non può essere vuoto' " +
+                                "WHEN coalesce(trim(cognome), '') = '' THEN 'Il cognome non può essere vuoto' " +
+                                "WHEN coalesce(trim(email), '') = '' THEN 'L''email non può essere vuota' " +
+                                "WHEN coalesce(password, '') = '' THEN 'La password non può essere vuota' " +
+                                "WHEN length(trim(nome)) > 100 OR length(trim(cognome)) > 100 " +
+                                "    THEN 'Nome e cognome non possono superare 100 caratteri' " +
+                                "WHEN length(trim(email)) > 150 THEN 'L''email non può superare 150 caratteri' " +
+                                "WHEN length(password) > 255 THEN 'La password non può superare 255 caratteri' " +
+                                "WHEN upper(trim(coalesce(ruolo, ''))) NOT IN " +
+                                "    (SELECT unnest(enum_range(NULL::ruolo_utente))::text) " +
+                                "    THEN 'Ruolo non valido: ' || coalesce(ruolo, '') " +
+                                "END");
+
+                        statement.executeUpdate("UPDATE utente_import i " +
+                                "SET errore = 'Email ripetuta nel file (riga ' || d.prima || ')' " +
+                                "FROM (SELECT riga, min(riga) OVER (PARTITION BY trim(email)) AS prima " +
+                                "      FROM utente_import WHERE errore IS NULL) d " +
+                                "WHERE i.riga = d.riga AND d.riga <> d.prima");
+
+                        // ON CONFLICT copre anche le email registrate in parallelo durante l'importazione
+                        statement.executeUpdate("WITH inseriti AS (" +
+                                "    INSERT INTO utente (nome, cognome, email, password, ruolo) " +
+                                "    SELECT trim(nome), trim(cognome), trim(email), password, " +
+                                "           upper(trim(ruolo))::ruolo_utente " +
+                                "    FROM utente_import WHERE errore IS NULL ORDER BY riga " +
+                                "    ON CONFLICT (email) DO NOTHING " +
+                                "    RETURNING email) " +
+                                "UPDATE utente_import i SET errore = 'L''email è già registrata nel sistema' " +
+                                "WHERE i.errore IS NULL " +
+                                "AND NOT EXISTS (SELECT 1 FROM inseriti n WHERE n.email = trim(i.email))");
+
+                        int importati;
+                        try (ResultSet resultSet = statement.executeQuery(
+                                "SELECT count(*) FROM utente_import WHERE errore IS NULL")) {
+                            resultSet.next();
+                            importati = resultSet.getInt(1);
+                        }
+
+                        List<EsitoImportazione.ErroreRiga> errori = new ArrayList<>();
+                        try (ResultSet resultSet = statement.executeQuery(
+                                "SELECT riga, email, errore FROM utente_import "
+                                        + "WHERE errore IS NOT NULL ORDER BY riga")) {
+                            while (resultSet.next()) {
+                                errori.add(new EsitoImportazione.ErroreRiga(resultSet.getLong("riga"),
+                                        resultSet.getString("email"), resultSet.getString("errore")));
+                            }
+                        }
+
+                        return new EsitoImportazione(importati, errori);
+                    }
+                });
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante l'importazione degli utenti", e);
+                throw e;
+            }
+        });
     }
 
     /**
@@ -87,69 +215,67 @@ public class UtenteDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public Utente login(String email, String password) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        Utente utente = null;
-
-        try {
-            // Ottiene la connessione dal ConnectionManager
-            connection = ConnectionManager.getConnection();
-
-            // Prepara la query SQL con parametri per prevenire SQL injection
-            String query = "SELECT id, nome, cognome, email, password, ruolo " +
-                    "FROM utente " +
-                    "WHERE email = ? AND password = ?";
-
-            statement = connection.prepareStatement(query);
-            statement.setString(1, email);
-            statement.setString(2, password);
-
-            // Esegue la query
-            resultSet = statement.executeQuery();
-
-            // Se trova un risultato, crea l'oggetto Utente
-            if (resultSet.next()) {
-                utente = new Utente();
-                utente.setId(resultSet.getInt("id"));
-                utente.setNome(resultSet.getString("nome"));
-                utente.setCognome(resultSet.getString("cognome"));
-                utente.setEmail(resultSet.getString("email"));
-                utente.setPassword(resultSet.getString("password"));
-
-                // Converte la stringa del ruolo nell'enum Ruolo
-                String ruoloStr = resultSet.getString("ruolo");
-                utente.setRuolo(Ruolo.valueOf(ruoloStr));
-            }
+        return Strumentazione.misura("UtenteDAO.login", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            Utente utente = null;
+
+            try {
+                // Ottiene la connessione dal ConnectionManager
+                connection = ConnectionManager.getConnection();
+
+                // Query SQL con parametri per prevenire SQL injection
+                statement = connection.prepareStatement(QUERY_LOGIN);
+                statement.setString(1, email);
+                statement.setString(2, password);
+
+                // Esegue la query
+                resultSet = statement.executeQuery();
+
+                // Se trova un risultato, crea l'oggetto Utente
+                if (resultSet.next()) {
+                    utente = new Utente();
+                    utente.setId(resultSet.getInt("id"));
+                    utente.setNome(resultSet.getString("nome"));
+                    utente.setCognome(resultSet.getString("cognome"));
+                    utente.setEmail(resultSet.getString("email"));
+                    utente.setPassword(resultSet.getString("password"));
+
+                    // Converte la stringa del ruolo nell'enum Ruolo
+                    String ruoloStr = resultSet.getString("ruolo");
+                    utente.setRuolo(Ruolo.valueOf(ruoloStr));
+                }
 
-        } catch (SQLException e) {
-            // Rilancia l'eccezione dopo averla loggata
-            System.err.println("Errore durante il login: " + e.getMessage());
-            throw e;
-
-        } finally {
-            // Chiude le risorse in ordine inverso di apertura
-            if (resultSet != null) {
-                try {
-                    resultSet.close();
-                } catch (SQLException e) {
-                    System.err.println("Errore durante la chiusura del ResultSet: " + e.getMessage());
+            } catch (SQLException e) {
+                // Rilancia l'eccezione dopo averla loggata
+                LOG.errore("Errore durante il login", e);
+                throw e;
+
+            } finally {
+                // Chiude le risorse in ordine inverso di apertura
+                if (resultSet != null) {
+                    try {
+                        resultSet.close();
+                    } catch (SQLException e) {
+                        LOG.avviso("Errore durante la chiusura del ResultSet", e);
+                    }
                 }
-            }
 
-            if (statement != null) {
-                try {
-                    statement.close();
-                } catch (SQLException e) {
-                    System.err.println("Errore durante la chiusura del PreparedStatement: " + e.getMessage());
+                if (statement != null) {
+                    try {
+                        statement.close();
+                    } catch (SQLException e) {
+                        LOG.avviso("Errore durante la chiusura del PreparedStatement", e);
+                    }
                 }
-            }
 
-            // Chiude la connessione usando il ConnectionManager
-            ConnectionManager.closeConnection(connection);
-        }
+                // Chiude la connessione usando il ConnectionManager
+                ConnectionManager.closeConnection(connection);
+            }
 
-        return utente;
+            return utente;
+        });
     }
 
     /**
@@ -160,59 +286,58 @@ public class UtenteDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public Utente getUtenteById(Integer id) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        Utente utente = null;
-
-        try {
-            connection = ConnectionManager.getConnection();
-
-            String query = "SELECT id, nome, cognome, email, password, ruolo " +
-                    "FROM utente WHERE id = ?";
-
-            statement = connection.prepareStatement(query);
-            statement.setInt(1, id);
-
-            resultSet = statement.executeQuery();
-
-            if (resultSet.next()) {
-                utente = new Utente();
-                utente.setId(resultSet.getInt("id"));
-                utente.setNome(resultSet.getString("nome"));
-                utente.setCognome(resultSet.getString("cognome"));
-                utente.setEmail(resultSet.getString("email"));
-                utente.setPassword(resultSet.getString("password"));
-
-                String ruoloStr = resultSet.getString("ruolo");
-                utente.setRuolo(Ruolo.valueOf(ruoloStr));
-            }
-
-        } catch (SQLException e) {
-            System.err.println("Errore durante il recupero dell'utente: " + e.getMessage());
-            throw e;
+        return Strumentazione.misura("UtenteDAO.getUtenteById", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            Utente utente = null;
+
+            try {
+                connection = ConnectionManager.getConnection();
+
+                statement = connection.prepareStatement(QUERY_BY_ID);
+                statement.setInt(1, id);
+
+                resultSet = statement.executeQuery();
+
+                if (resultSet.next()) {
+                    utente = new Utente();
+                    utente.setId(resultSet.getInt("id"));
+                    utente.setNome(resultSet.getString("nome"));
+                    utente.setCognome(resultSet.getString("cognome"));
+                    utente.setEmail(resultSet.getString("email"));
+                    utente.setPassword(resultSet.getString("password"));
+
+                    String ruoloStr = resultSet.getString("ruolo");
+                    utente.setRuolo(Ruolo.valueOf(ruoloStr));
+                }
 
-        } finally {
-            if (resultSet != null) {
-                try {
-                    resultSet.close();
-                } catch (SQLException e) {
-                    System.err.println("Errore durante la chiusura del ResultSet: " + e.getMessage());
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero dell'utente", e);
+                throw e;
+
+            } finally {
+                if (resultSet != null) {
+                    try {
+                        resultSet.close();
+                    } catch (SQLException e) {
+                        LOG.avviso("Errore durante la chiusura del ResultSet", e);
+                    }
                 }
-            }
 
-            if (statement != null) {
-                try {
-                    statement.close();
-                } catch (SQLException e) {
-                    System.err.println("Errore durante la chiusura del PreparedStatement: " + e.getMessage());
+                if (statement != null) {
+                    try {
+                        statement.close();
+                    } catch (SQLException e) {
+                        LOG.avviso("Errore durante la chiusura del PreparedStatement", e);
+                    }
                 }
-            }
 
-            ConnectionManager.closeConnection(connection);
-        }
+                ConnectionManager.closeConnection(connection);
+            }
 
-        return utente;
+            return utente;
+        });
     }
 
     /**
@@ -223,61 +348,63 @@ public class UtenteDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public List<Utente> getUtentiByRuolo(Ruolo ruolo) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Utente> utenti = new ArrayList<>();
+        return Strumentazione.misura("UtenteDAO.getUtentiByRuolo", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Utente> utenti = new ArrayList<>();
 
-        try {
-            connection = ConnectionManager.getConnection();
+            try {
+                connection = ConnectionManager.getConnection();
 
-            String query = "SELECT id, nome, cognome, email, password, ruolo " +
-                    "FROM utente WHERE ruolo = ?::ruolo_utente";
+                String query = "SELECT id, nome, cognome, email, password, ruolo " +
+                        "FROM utente WHERE ruolo = ?::ruolo_utente";
 
-            statement = connection.prepareStatement(query);
-            statement.setString(1, ruolo.toString());
+                statement = connection.prepareStatement(query);
+                statement.setString(1, ruolo.toString());
 
-            resultSet = statement.executeQuery();
+                resultSet = statement.executeQuery();
 
-            while (resultSet.next()) {
-                Utente utente = new Utente();
-                utente.setId(resultSet.getInt("id"));
-                utente.setNome(resultSet.getString("nome"));
-                utente.setCognome(resultSet.getString("cognome"));
-                utente.setEmail(resultSet.getString("email"));
-                utente.setPassword(resultSet.getString("password"));
+                while (resultSet.next()) {
+                    Utente utente = new Utente();
+                    utente.setId(resultSet.getInt("id"));
+                    utente.setNome(resultSet.getString("nome"));
+                    utente.setCognome(resultSet.getString("cognome"));
+                    utente.setEmail(resultSet.getString("email"));
+                    utente.setPassword(resultSet.getString("password"));
 
-                String ruoloStr = resultSet.getString("ruolo");
-                utente.setRuolo(Ruolo.valueOf(ruoloStr));
+                    String ruoloStr = resultSet.getString("ruolo");
+                    utente.setRuolo(Ruolo.valueOf(ruoloStr));
 
-                utenti.add(utente);
-            }
-
-        } catch (SQLException e) {
-            System.err.println("Errore durante il recupero degli utenti per ruolo: " + e.getMessage());
-            throw e;
+                    utenti.add(utente);
+                }
 
-        } finally {
-            if (resultSet != null) {
-                try {
-                    resultSet.close();
-                } catch (SQLException e) {
-                    System.err.println("Errore durante la chiusura del ResultSet: " + e.getMessage());
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero degli utenti per ruolo", e);
+                throw e;
+
+            } finally {
+                if (resultSet != null) {
+                    try {
+                        resultSet.close();
+                    } catch (SQLException e) {
+                        LOG.avviso("Errore durante la chiusura del ResultSet", e);
+                    }
                 }
-            }
 
-            if (statement != null) {
-                try {
-                    statement.close();
-                } catch (SQLException e) {
-                    System.err.println("Errore durante la chiusura del PreparedStatement: " + e.getMessage());
+                if (statement != null) {
+                    try {
+                        statement.close();
+                    } catch (SQLException e) {
+                        LOG.avviso("Errore durante la chiusura del PreparedStatement", e);
+                    }
                 }
-            }
 
-            ConnectionManager.closeConnection(connection);
-        }
+                ConnectionManager.closeConnection(connection);
+            }
 
-        return utenti;
+            return utenti;
+        });
     }
 
     /**
@@ -287,131 +414,240 @@ public class UtenteDAO {
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
     public List<Utente> getAllUtenti() throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Utente> utenti = new ArrayList<>();
+        return Strumentazione.misura("UtenteDAO.getAllUtenti", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Utente> utenti = new ArrayList<>();
 
-        try {
-            connection = ConnectionManager.getConnection();
-
-            String query = "SELECT id, nome, cognome, email, password, ruolo " +
-                    "FROM utente ORDER BY id";
+            try {
+                connection = ConnectionManager.getConnection();
 
-            statement = connection.prepareStatement(query);
-            resultSet = statement.executeQuery();
+                String query = "SELECT id, nome, cognome, email, password, ruolo " +
+                        "FROM utente ORDER BY id";
 
-            while (resultSet.next()) {
-                Utente utente = new Utente();
-                utente.setId(resultSet.getInt("id"));
-                utente.setNome(resultSet.getString("nome"));
-                utente.setCognome(resultSet.getString("cognome"));
-                utente.setEmail(resultSet.getString("email"));
-                utente.setPassword(resultSet.getString("password"));
+                statement = connection.prepareStatement(query);
+                resultSet = statement.executeQuery();
 
-                String ruoloStr = resultSet.getString("ruolo");
-                utente.setRuolo(Ruolo.valueOf(ruoloStr));
+                while (resultSet.next()) {
+                    Utente utente = new Utente();
+                    utente.setId(resultSet.getInt("id"));
+                    utente.setNome(resultSet.getString("nome"));
+                    utente.setCognome(resultSet.getString("cognome"));
+                    utente.setEmail(resultSet.getString("email"));
+                    utente.setPassword(resultSet.getString("password"));
 
-                utenti.add(utente);
-            }
+                    String ruoloStr = resultSet.getString("ruolo");
+                    utente.setRuolo(Ruolo.valueOf(ruoloStr));
 
-        } catch (SQLException e) {
-            System.err.println("Errore durante il recupero di tutti gli utenti: " + e.getMessage());
-            throw e;
+                    utenti.add(utente);
+                }
 
-        } finally {
-            if (resultSet != null) {
-                try {
-                    resultSet.close();
-                } catch (SQLException e) {
-                    System.err.println("Errore durante la chiusura del ResultSet: " + e.getMessage());
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero di tutti gli utenti", e);
+                throw e;
+
+            } finally {
+                if (resultSet != null) {
+                    try {
+                        resultSet.close();
+                    } catch (SQLException e) {
+                        LOG.avviso("Errore durante la chiusura del ResultSet", e);
+                    }
                 }
-            }
 
-            if (statement != null) {
-                try {
-                    statement.close();
-                } catch (SQLException e) {
-                    System.err.println("Errore durante la chiusura del PreparedStatement: " + e.getMessage());
+                if (statement != null) {
+                    try {
+                        statement.close();
+                    } catch (SQLException e) {
+                        LOG.avviso("Errore durante la chiusura del PreparedStatement", e);
+                    }
                 }
-            }
 
-            ConnectionManager.closeConnection(connection);
-        }
+                ConnectionManager.closeConnection(connection);
+            }
 
-        return utenti;
+            return utenti;
+        });
     }
 
     /**
-     * Aggiorna il ruolo di un utente.
+     * Scorre tutti gli utenti, ordinati per ID, senza caricarli tutti in
+     * memoria: le righe vengono lette a blocchi tramite un cursore lato
+     * server. La password non viene letta.
      * 
-     * @param id         l'ID dell'utente da aggiornare
-     * @param nuovoRuolo il nuovo ruolo da assegnare
-     * @return true se l'aggiornamento è avvenuto con successo, false altrimenti
+     * @param azione l'operazione da eseguire su ogni utente
+     * @return il numero di utenti letti
      * @throws SQLException se si verifica un errore durante l'accesso al database
      */
-    public boolean updateRuolo(Integer id, Ruolo nuovoRuolo) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
+    public long forEachUtente(Consumer<? super Utente> azione) throws SQLException {
+        return Strumentazione.misura("UtenteDAO.forEachUtente", () -> {
+            String query = "SELECT id, nome, cognome, email, ruolo " +
+                    "FROM utente ORDER BY id";
 
-        try {
-            connection = ConnectionManager.getConnection();
+            try {
+                return CursorQuery.forEach(query, this::mapResultSetToUtenteSenzaPassword, azione);
 
-            String query = "UPDATE utente SET ruolo = ?::ruolo_utente WHERE id = ?";
+            } catch (SQLException e) {
+                LOG.errore("Errore durante la lettura degli utenti", e);
+                throw e;
+            }
+        });
+    }
 
-            statement = connection.prepareStatement(query);
-            statement.setString(1, nuovoRuolo.toString());
-            statement.setInt(2, id);
+    /**
+     * Recupera una pagina di utenti ordinati per ID, a partire da quello
+     * successivo all'ID indicato (paginazione keyset). La password non viene
+     * letta.
+     * 
+     * @param id     l'ID dell'ultimo utente della pagina precedente, null per
+     *               la prima pagina
+     * @param limite il numero massimo di utenti da restituire
+     * @return gli utenti della pagina
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public List<Utente> getUtentiDopo(Integer id, int limite) throws SQLException {
+        return Strumentazione.misura("UtenteDAO.getUtentiDopo", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            List<Utente> utenti = new ArrayList<>();
+
+            try {
+                connection = ConnectionManager.getConnection();
+
+                statement = connection.prepareStatement(queryDopo(id == null));
+                int indice = 1;
+                if (id != null) {
+                    statement.setInt(indice++, id);
+                }
+                statement.setInt(indice, limite);
+                resultSet = statement.executeQuery();
 
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
+                while (resultSet.next()) {
+                    utenti.add(mapResultSetToUtenteSenzaPassword(resultSet));
+                }
 
-        } catch (SQLException e) {
-            System.err.println("Errore durante l'aggiornamento del ruolo: " + e.getMessage());
-            throw e;
+            } catch (SQLException e) {
+                LOG.errore("Errore durante il recupero degli utenti", e);
+                throw e;
+
+            } finally {
+                if (resultSet != null) {
+                    try {
+                        resultSet.close();
+                    } catch (SQLException e) {
+                        LOG.avviso("Errore durante la chiusura del ResultSet", e);
+                    }
+                }
 
-        } finally {
-            if (statement != null) {
-                try {
-                    statement.close();
-                } catch (SQLException e) {
-                    System.err.println("Errore durante la chiusura del PreparedStatement: " + e.getMessage());
+                if (statement != null) {
+                    try {
+                        statement.close();
+                    } catch (SQLException e) {
+                        LOG.avviso("Errore durante la chiusura del PreparedStatement", e);
+                    }
                 }
+
+                ConnectionManager.closeConnection(connection);
             }
 
-            ConnectionManager.closeConnection(connection);
-        }
+            return utenti;
+        });
     }
 
-    public boolean deleteUtente(Integer id) throws SQLException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-
-        try {
-            connection = ConnectionManager.getConnection();
-
-            String query = "DELETE FROM utente WHERE id = ?";
-
-            statement = connection.prepareStatement(query);
-            statement.setInt(1, id);
+    /**
+     * Mappa la riga corrente in un utente senza password.
+     */
+    private Utente mapResultSetToUtenteSenzaPassword(ResultSet resultSet) throws SQLException {
+        Utente utente = new Utente();
+        utente.setId(resultSet.getInt("id"));
+        utente.setNome(resultSet.getString("nome"));
+        utente.setCognome(resultSet.getString("cognome"));
+        utente.setEmail(resultSet.getString("email"));
+        utente.setRuolo(Ruolo.valueOf(resultSet.getString("ruolo")));
+        return utente;
+    }
 
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
+    /**
+     * Aggiorna il ruolo di un utente e lo rimuove da {@link UtenteCache}.
+     * 
+     * @param id         l'ID dell'utente da aggiornare
+     * @param nuovoRuolo il nuovo ruolo da assegnare
+     * @return true se l'aggiornamento è avvenuto con successo, false altrimenti
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public boolean updateRuolo(Integer id, Ruolo nuovoRuolo) throws SQLException {
+        return Strumentazione.misura("UtenteDAO.updateRuolo", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+
+            try {
+                connection = ConnectionManager.getConnection();
+
+                statement = connection.prepareStatement(UPDATE_RUOLO);
+                statement.setString(1, nuovoRuolo.toString());
+                statement.setInt(2, id);
+
+                int affectedRows = statement.executeUpdate();
+                UtenteCache.getInstance().invalidate(id);
+                return affectedRows > 0;
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante l'aggiornamento del ruolo", e);
+                throw e;
+
+            } finally {
+                if (statement != null) {
+                    try {
+                        statement.close();
+                    } catch (SQLException e) {
+                        LOG.avviso("Errore durante la chiusura del PreparedStatement", e);
+                    }
+                }
 
-        } catch (SQLException e) {
-            System.err.println("Errore durante la cancellazione dell'utente: " + e.getMessage());
-            throw e;
+                ConnectionManager.closeConnection(connection);
+            }
+        });
+    }
 
-        } finally {
-            if (statement != null) {
-                try {
-                    statement.close();
-                } catch (SQLException e) {
-                    System.err.println("Errore durante la chiusura del PreparedStatement: " + e.getMessage());
+    /**
+     * Elimina un utente dal database e lo rimuove da {@link UtenteCache}.
+     * 
+     * @param id l'ID dell'utente da eliminare
+     * @return true se la cancellazione è avvenuta con successo, false altrimenti
+     * @throws SQLException se si verifica un errore durante l'accesso al database
+     */
+    public boolean deleteUtente(Integer id) throws SQLException {
+        return Strumentazione.misura("UtenteDAO.deleteUtente", () -> {
+            Connection connection = null;
+            PreparedStatement statement = null;
+
+            try {
+                connection = ConnectionManager.getConnection();
+
+                statement = connection.prepareStatement(DELETE_BY_ID);
+                statement.setInt(1, id);
+
+                int affectedRows = statement.executeUpdate();
+                UtenteCache.getInstance().invalidate(id);
+                return affectedRows > 0;
+
+            } catch (SQLException e) {
+                LOG.errore("Errore durante la cancellazione dell'utente", e);
+                throw e;
+
+            } finally {
+                if (statement != null) {
+                    try {
+                        statement.close();
+                    } catch (SQLException e) {
+                        LOG.avviso("Errore durante la chiusura del PreparedStatement", e);
+                    }
                 }
-            }
 
-            ConnectionManager.closeConnection(connection);
-        }
+                ConnectionManager.closeConnection(connection);
+            }
+        });
     }
 }
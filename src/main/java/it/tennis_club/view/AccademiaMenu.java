@@ -171,8 +171,7 @@ public class AccademiaMenu {
     private void visualizzaTutteLeLezioni() {
         CLIUtils.printSubHeader("Tutte le Lezioni");
         try {
-            List<Lezione> lezioni = accademiaService.getLezioni();
-            stampaListaLezioni(lezioni);
+            sfogliaLezioni();
         } catch (AccademiaException e) {
             CLIUtils.printError(e.getMessage());
         }
@@ -208,7 +207,7 @@ public class AccademiaMenu {
     private void dettaglioLezione() {
         CLIUtils.printSubHeader("Dettaglio Lezione");
         try {
-            stampaListaLezioni(accademiaService.getLezioni());
+            sfogliaLezioni();
             System.out.println();
             Integer idLezione = CLIUtils.readIntOptional("ID Lezione (vuoto per annullare): ");
             if (idLezione == null) {
@@ -244,7 +243,7 @@ public class AccademiaMenu {
     private void modificaDescrizione() {
         CLIUtils.printSubHeader("Modifica Descrizione Lezione");
         try {
-            stampaListaLezioni(accademiaService.getLezioni());
+            sfogliaLezioni();
             System.out.println();
             Integer idLezione = CLIUtils.readIntOptional("ID Lezione (vuoto per annullare): ");
             if (idLezione == null) {
@@ -272,7 +271,7 @@ public class AccademiaMenu {
     private void eliminaLezione() {
         CLIUtils.printSubHeader("Elimina Lezione");
         try {
-            stampaListaLezioni(accademiaService.getLezioni());
+            sfogliaLezioni();
             System.out.println();
             Integer idLezione = CLIUtils.readIntOptional("ID Lezione (vuoto per annullare): ");
             if (idLezione == null) {
@@ -316,7 +315,7 @@ public class AccademiaMenu {
 
         try {
             // Mostra la lista delle lezioni
-            stampaListaLezioni(accademiaService.getLezioni());
+            sfogliaLezioni();
             System.out.println();
 
             Integer idLezione = CLIUtils.readIntOptional("ID Lezione (vuoto per annullare): ");
@@ -359,7 +358,7 @@ public class AccademiaMenu {
         CLIUtils.printSubHeader("Rimuovi Allievo da Lezione");
 
         try {
-            stampaListaLezioni(accademiaService.getLezioni());
+            sfogliaLezioni();
             System.out.println();
 
             Integer idLezione = CLIUtils.readIntOptional("ID Lezione (vuoto per annullare): ");
@@ -401,7 +400,7 @@ public class AccademiaMenu {
     private void visualizzaAllieviLezione() {
         CLIUtils.printSubHeader("Allievi della Lezione");
         try {
-            stampaListaLezioni(accademiaService.getLezioni());
+            sfogliaLezioni();
             System.out.println();
             Integer idLezione = CLIUtils.readIntOptional("ID Lezione (vuoto per annullare): ");
             if (idLezione == null) {
@@ -503,7 +502,7 @@ public class AccademiaMenu {
     private void segnaPresenza() {
         CLIUtils.printSubHeader("Segna Presenza Allievo");
         try {
-            stampaListaLezioni(accademiaService.getLezioni());
+            sfogliaLezioni();
             System.out.println();
             Integer idLezione = CLIUtils.readIntOptional("ID Lezione (vuoto per annullare): ");
             if (idLezione == null) {
@@ -543,7 +542,7 @@ public class AccademiaMenu {
     private void aggiungiFeedback() {
         CLIUtils.printSubHeader("Aggiungi Feedback Allievo");
         try {
-            stampaListaLezioni(accademiaService.getLezioni());
+            sfogliaLezioni();
             System.out.println();
             Integer idLezione = CLIUtils.readIntOptional("ID Lezione (vuoto per annullare): ");
             if (idLezione == null) {
@@ -577,6 +576,14 @@ public class AccademiaMenu {
         CLIUtils.waitForEnter();
     }
 
+    /**
+     * Helper per mostrare tutte le lezioni una pagina alla volta.
+     */
+    private void sfogliaLezioni() throws AccademiaException {
+        CLIUtils.sfogliaPagine(token -> accademiaService.getLezioni(token, CLIUtils.DIMENSIONE_PAGINA),
+                this::stampaListaLezioni);
+    }
+
     /**
      * Helper per stampare lista lezioni.
      */
@@ -1,9 +1,20 @@
 package it.tennis_club.view;
 
+import it.tennis_club.business_logic.AuthService;
+import it.tennis_club.business_logic.AuthenticationException;
 import it.tennis_club.business_logic.SessionManager;
 import it.tennis_club.domain_model.Utente;
+import it.tennis_club.orm.EsitoImportazione;
+import it.tennis_club.orm.SlowQueryLog;
+import it.tennis_club.orm.Strumentazione;
 import it.tennis_club.orm.UtenteDAO;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
 import java.sql.SQLException;
 import java.util.List;
 
@@ -13,12 +24,17 @@ import java.util.List;
  */
 public class AdminMenu {
 
+    // Numero di query mostrate nel report delle query lente
+    private static final int DIMENSIONE_REPORT_QUERY = 15;
+
     private final UtenteDAO utenteDAO;
+    private final AuthService authService;
     private final AuthMenu authMenu;
     private final SessionManager sessionManager;
 
     public AdminMenu() {
         this.utenteDAO = new UtenteDAO();
+        this.authService = new AuthService(utenteDAO);
         this.authMenu = new AuthMenu();
         this.sessionManager = SessionManager.getInstance();
     }
@@ -44,6 +60,9 @@ public class AdminMenu {
             System.out.println("2. Modifica ruolo utente");
             System.out.println("3. Crea nuovo utente");
             System.out.println("4. Cancella utente");
+            System.out.println("5. Importa utenti da CSV");
+            System.out.println("6. Statistiche di strumentazione");
+            System.out.println("7. Report query lente");
             System.out.println();
             System.out.println("0. Torna al menu principale");
             System.out.println();
@@ -55,6 +74,9 @@ public class AdminMenu {
                 case 2 -> modificaRuolo();
                 case 3 -> creaNuovoUtente();
                 case 4 -> cancellaUtente();
+                case 5 -> importaUtenti();
+                case 6 -> statisticheStrumentazione();
+                case 7 -> reportQueryLente();
                 case 0 -> running = false;
                 default -> CLIUtils.printError("Opzione non valida");
             }
@@ -68,10 +90,9 @@ public class AdminMenu {
         CLIUtils.printSubHeader("Lista Utenti");
 
         try {
-            List<Utente> utenti = utenteDAO.getAllUtenti();
-            stampaListaUtenti(utenti);
-        } catch (SQLException e) {
-            CLIUtils.printError("Errore durante il recupero degli utenti: " + e.getMessage());
+            sfogliaUtenti();
+        } catch (AuthenticationException e) {
+            CLIUtils.printError(e.getMessage());
         }
 
         CLIUtils.waitForEnter();
@@ -85,10 +106,9 @@ public class AdminMenu {
 
         // Prima mostra la lista degli utenti
         try {
-            List<Utente> utenti = utenteDAO.getAllUtenti();
-            stampaListaUtenti(utenti);
-        } catch (SQLException e) {
-            CLIUtils.printError("Errore durante il recupero degli utenti: " + e.getMessage());
+            sfogliaUtenti();
+        } catch (AuthenticationException e) {
+            CLIUtils.printError(e.getMessage());
             CLIUtils.waitForEnter();
             return;
         }
@@ -199,10 +219,9 @@ public class AdminMenu {
 
         // Prima mostra la lista degli utenti
         try {
-            List<Utente> utenti = utenteDAO.getAllUtenti();
-            stampaListaUtenti(utenti);
-        } catch (SQLException e) {
-            CLIUtils.printError("Errore durante il recupero degli utenti: " + e.getMessage());
+            sfogliaUtenti();
+        } catch (AuthenticationException e) {
+            CLIUtils.printError(e.getMessage());
             CLIUtils.waitForEnter();
             return;
         }
@@ -246,6 +265,133 @@ public class AdminMenu {
         CLIUtils.waitForEnter();
     }
 
+    /**
+     * Importa gli utenti da un file CSV e mostra le righe scartate.
+     */
+    private void importaUtenti() {
+        CLIUtils.printSubHeader("Importa Utenti da CSV");
+        CLIUtils.printInfo("Formato: intestazione e colonne nome,cognome,email,password,ruolo");
+
+        String percorso = CLIUtils.readStringOptional("Percorso del file (vuoto per annullare): ");
+        if (percorso == null) {
+            CLIUtils.printWarning("Operazione annullata.");
+            CLIUtils.waitForEnter();
+            return;
+        }
+
+        EsitoImportazione esito;
+        try (Reader csv = Files.newBufferedReader(Paths.get(percorso), StandardCharsets.UTF_8)) {
+            esito = authService.importaUtenti(csv);
+        } catch (IOException | InvalidPathException e) {
+            CLIUtils.printError("Impossibile leggere il file: " + e.getMessage());
+            CLIUtils.waitForEnter();
+            return;
+        } catch (AuthenticationException e) {
+            CLIUtils.printError(e.getMessage());
+            CLIUtils.waitForEnter();
+            return;
+        }
+
+        CLIUtils.printSuccess("Utenti importati: " + esito.getImportati());
+        if (esito.hasErrori()) {
+            CLIUtils.printWarning("Righe scartate: " + esito.getErrori().size());
+            System.out.println();
+            CLIUtils.printTableHeader("Riga", "Email", "Motivo");
+            for (EsitoImportazione.ErroreRiga errore : esito.getErrori()) {
+                CLIUtils.printTableRow(
+                        String.valueOf(errore.getRiga()),
+                        CLIUtils.truncate(errore.getEmail(), 25),
+                        CLIUtils.truncate(errore.getMessaggio(), 40));
+            }
+            CLIUtils.printTableFooter(3);
+        }
+
+        CLIUtils.waitForEnter();
+    }
+
+    /**
+     * Mostra le statistiche per metodo di DAO e servizi e permette di
+     * abilitare, disabilitare o azzerare la strumentazione.
+     */
+    private void statisticheStrumentazione() {
+        CLIUtils.printSubHeader("Statistiche di Strumentazione");
+
+        if (Strumentazione.getStatistiche().isEmpty()) {
+            CLIUtils.printInfo("Nessuna chiamata registrata.");
+        } else {
+            System.out.print(Strumentazione.dump());
+        }
+        System.out.println();
+
+        if (Strumentazione.isAbilitata()) {
+            CLIUtils.printInfo("La strumentazione è abilitata.");
+            if (CLIUtils.readConfirm("Disabilitarla?")) {
+                Strumentazione.setAbilitata(false);
+                CLIUtils.printSuccess("Strumentazione disabilitata.");
+            }
+        } else {
+            CLIUtils.printWarning("La strumentazione è disabilitata.");
+            if (CLIUtils.readConfirm("Abilitarla?")) {
+                Strumentazione.setAbilitata(true);
+                CLIUtils.printSuccess("Strumentazione abilitata.");
+            }
+        }
+        if (!Strumentazione.getStatistiche().isEmpty() && CLIUtils.readConfirm("Azzerare le statistiche?")) {
+            Strumentazione.reset();
+            CLIUtils.printSuccess("Statistiche azzerate.");
+        }
+
+        CLIUtils.waitForEnter();
+    }
+
+    /**
+     * Mostra le query dei DAO che occupano più tempo nel database e permette
+     * di abilitare, disabilitare o azzerare il registro delle query lente.
+     */
+    private void reportQueryLente() {
+        CLIUtils.printSubHeader("Report Query Lente");
+        CLIUtils.printInfo("Soglia: " + SlowQueryLog.getSogliaMillis() + " ms, campionamento delle query rapide: "
+                + SlowQueryLog.getCampionamento());
+
+        if (SlowQueryLog.getReport(1).isEmpty()) {
+            CLIUtils.printInfo("Nessuna query registrata.");
+        } else {
+            System.out.print(SlowQueryLog.report(DIMENSIONE_REPORT_QUERY));
+        }
+        if (SlowQueryLog.getNonAggregate() > 0) {
+            CLIUtils.printWarning("Query non aggregate per il limite di impronte: " + SlowQueryLog.getNonAggregate());
+        }
+        System.out.println();
+
+        if (SlowQueryLog.isAbilitato()) {
+            CLIUtils.printInfo("Il registro delle query lente è abilitato.");
+            if (CLIUtils.readConfirm("Disabilitarlo?")) {
+                SlowQueryLog.setAbilitato(false);
+                CLIUtils.printSuccess("Registro disabilitato.");
+            }
+        } else {
+            CLIUtils.printWarning("Il registro delle query lente è disabilitato.");
+            if (CLIUtils.readConfirm("Abilitarlo?")) {
+                SlowQueryLog.setAbilitato(true);
+                CLIUtils.printSuccess("Registro abilitato.");
+            }
+        }
+        if (!SlowQueryLog.getReport(1).isEmpty() && CLIUtils.readConfirm("Azzerare il report?")) {
+            SlowQueryLog.reset();
+            CLIUtils.printSuccess("Report azzerato.");
+        }
+
+        CLIUtils.waitForEnter();
+    }
+
+    /**
+     * Mostra tutti gli utenti una pagina alla volta.
+     */
+    private void sfogliaUtenti() throws AuthenticationException {
+        CLIUtils.sfogliaPagine(token -> authService.getUtenti(token, CLIUtils.DIMENSIONE_PAGINA),
+                this::stampaListaUtenti);
+    }
+
     private void stampaListaUtenti(List<Utente> utenti) {
         if (utenti.isEmpty()) {
             CLIUtils.printInfo("Nessun utente trovato.");
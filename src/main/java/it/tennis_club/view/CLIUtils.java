@@ -1,10 +1,14 @@
 package it.tennis_club.view;
 
+import it.tennis_club.business_logic.Pagina;
+
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.List;
 import java.util.Scanner;
+import java.util.function.Consumer;
 
 /**
  * Utility condivise per la CLI del Tennis Club Manager.
@@ -344,6 +348,41 @@ public class CLIUtils {
         return s.substring(0, maxLen - 3) + "...";
     }
 
+    // Numero di righe per pagina negli elenchi paginati
+    public static final int DIMENSIONE_PAGINA = 20;
+
+    /**
+     * Caricamento di una pagina di un elenco a partire dal token della
+     * pagina precedente (null per la prima).
+     */
+    @FunctionalInterface
+    public interface CaricaPagina<T, E extends Exception> {
+        Pagina<T> carica(String token) throws E;
+    }
+
+    /**
+     * Mostra un elenco una pagina alla volta, chiedendo all'utente se
+     * proseguire con la pagina successiva.
+     */
+    public static <T, E extends Exception> void sfogliaPagine(CaricaPagina<T, E> caricaPagina,
+            Consumer<List<T>> stampaPagina) throws E {
+        String token = null;
+        int numero = 1;
+        while (true) {
+            Pagina<T> pagina = caricaPagina.carica(token);
+            stampaPagina.accept(pagina.getElementi());
+            if (!pagina.hasSuccessiva()) {
+                return;
+            }
+            printInfo("Pagina " + numero + " - sono disponibili altri risultati.");
+            if (!readConfirm("Mostrare la pagina successiva?")) {
+                return;
+            }
+            token = pagina.getTokenSuccessivo();
+            numero++;
+        }
+    }
+
     /**
      * Chiude lo scanner (da chiamare alla fine dell'applicazione).
      */
@@ -0,0 +1,102 @@
+package it.tennis_club.view;
+
+import it.tennis_club.business_logic.AccademiaException;
+import it.tennis_club.business_logic.AccademiaService;
+import it.tennis_club.business_logic.CampoException;
+import it.tennis_club.business_logic.CampoService;
+import it.tennis_club.business_logic.PrenotazioneException;
+import it.tennis_club.business_logic.PrenotazioneService;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Esportazione CSV non interattiva di prenotazioni, lezioni e manutenzioni,
+ * pensata per essere eseguita da uno scheduler (ad es. ogni notte).
+ *
+ * Uso:
+ * EsportazioneCLI prenotazioni|lezioni|manutenzioni file [--dal AAAA-MM-GG] [--al AAAA-MM-GG] [--campo ID]
+ *
+ * Il file viene scritto in un file temporaneo nella stessa cartella e
+ * rinominato solo a esportazione completata, così un errore non lascia un
+ * CSV parziale al posto di quello della notte precedente.
+ */
+public class EsportazioneCLI {
+
+    private static final String USO = "Uso: EsportazioneCLI prenotazioni|lezioni|manutenzioni file " +
+            "[--dal AAAA-MM-GG] [--al AAAA-MM-GG] [--campo ID]";
+
+    /**
+     * Entry point dell'esportazione. Termina con codice 0 in caso di
+     * successo, 1 in caso di errore e 2 se gli argomenti non sono validi.
+     */
+    public static void main(String[] args) {
+        if (args.length < 2 || args.length % 2 != 0) {
+            System.err.println(USO);
+            System.exit(2);
+        }
+
+        String tipo = args[0];
+        Path file = Paths.get(args[1]);
+        LocalDate dal = null;
+        LocalDate al = null;
+        Integer idCampo = null;
+
+        try {
+            for (int i = 2; i < args.length; i += 2) {
+                switch (args[i]) {
+                    case "--dal" -> dal = LocalDate.parse(args[i + 1]);
+                    case "--al" -> al = LocalDate.parse(args[i + 1]);
+                    case "--campo" -> idCampo = Integer.valueOf(args[i + 1]);
+                    default -> throw new IllegalArgumentException("Opzione sconosciuta: " + args[i]);
+                }
+            }
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            System.err.println("Argomento non valido: " + e.getMessage());
+            System.err.println(USO);
+            System.exit(2);
+        }
+
+        try {
+            long righe = esporta(tipo, file, dal, al, idCampo);
+            System.out.println("Esportazione completata: " + righe + " righe in " + file);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USO);
+            System.exit(2);
+        } catch (Exception e) {
+            System.err.println("Esportazione fallita: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static long esporta(String tipo, Path file, LocalDate dal, LocalDate al, Integer idCampo)
+            throws IOException, PrenotazioneException, AccademiaException, CampoException {
+        Path cartella = file.toAbsolutePath().getParent();
+        Path temporaneo = Files.createTempFile(cartella, file.getFileName().toString(), ".tmp");
+
+        try {
+            long righe;
+            try (Writer writer = Files.newBufferedWriter(temporaneo, StandardCharsets.UTF_8)) {
+                righe = switch (tipo) {
+                    case "prenotazioni" -> new PrenotazioneService().esportaPrenotazioni(writer, dal, al, idCampo);
+                    case "lezioni" -> new AccademiaService().esportaLezioni(writer, dal, al, idCampo);
+                    case "manutenzioni" -> new CampoService().esportaManutenzioni(writer, dal, al, idCampo);
+                    default -> throw new IllegalArgumentException("Tipo di esportazione sconosciuto: " + tipo);
+                };
+            }
+            Files.move(temporaneo, file, StandardCopyOption.REPLACE_EXISTING);
+            return righe;
+
+        } finally {
+            Files.deleteIfExists(temporaneo);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import it.tennis_club.business_logic.PrenotazioneService;
 import it.tennis_club.business_logic.PrenotazioneException;
 import it.tennis_club.business_logic.CampoService;
 import it.tennis_club.business_logic.CampoException;
+import it.tennis_club.business_logic.EsitoPrenotazione;
 import it.tennis_club.business_logic.SessionManager;
 import it.tennis_club.domain_model.Campo;
 import it.tennis_club.domain_model.Prenotazione;
@@ -47,6 +48,7 @@ public class PrenotazioneMenu {
                 System.out.println("2. Le mie prenotazioni");
                 System.out.println("3. Verifica disponibilità campo");
                 System.out.println("4. Cancella prenotazione");
+                System.out.println("5. Prenotazione settimanale");
 
                 System.out.println();
                 System.out.println("0. Torna al menu principale");
@@ -59,6 +61,7 @@ public class PrenotazioneMenu {
                     case 2 -> miePrenotazioni();
                     case 3 -> verificaDisponibilita();
                     case 4 -> cancellaPrenotazione();
+                    case 5 -> prenotazioneSettimanale();
 
                     case 0 -> running = false;
                     default -> CLIUtils.printError("Opzione non valida");
@@ -130,6 +133,56 @@ public class PrenotazioneMenu {
         CLIUtils.waitForEnter();
     }
 
+    /**
+     * Prenota lo stesso campo e orario ogni settimana in un intervallo di date.
+     */
+    private void prenotazioneSettimanale() {
+        CLIUtils.printSubHeader("Prenotazione Settimanale");
+
+        Utente utente = sessionManager.getCurrentUser();
+        if (utente == null) {
+            CLIUtils.printError("Devi effettuare il login per prenotare.");
+            CLIUtils.waitForEnter();
+            return;
+        }
+
+        try {
+            List<Campo> campi = campoService.getCampi();
+            stampaListaCampi(campi);
+
+            Integer idCampo = CLIUtils.readIntOptional("ID Campo (vuoto per annullare): ");
+            if (idCampo == null) {
+                CLIUtils.printWarning("Operazione annullata.");
+                return;
+            }
+            Campo campo = campoService.getCampoPerId(idCampo);
+
+            LocalDate dataInizio = CLIUtils.readDate("Data prima prenotazione");
+            LocalDate dataFine = CLIUtils.readDate("Data ultima prenotazione");
+            LocalTime ora = CLIUtils.readTime("Ora inizio");
+
+            List<EsitoPrenotazione> esiti = prenotazioneService.creaPrenotazioniSettimanali(dataInizio, dataFine,
+                    ora, campo, utente);
+
+            int create = 0;
+            for (EsitoPrenotazione esito : esiti) {
+                if (esito.isCreata()) {
+                    create++;
+                    CLIUtils.printSuccess(esito.getPrenotazione().getData() + ": " + esito.getMessaggio());
+                } else {
+                    CLIUtils.printWarning(esito.getPrenotazione().getData() + ": " + esito.getMessaggio());
+                }
+            }
+            System.out.println();
+            System.out.println("Prenotazioni create: " + create + " su " + esiti.size());
+
+        } catch (CampoException | PrenotazioneException e) {
+            CLIUtils.printError(e.getMessage());
+        }
+
+        CLIUtils.waitForEnter();
+    }
+
     /**
      * Mostra le prenotazioni dell'utente corrente.
      */
@@ -286,8 +339,9 @@ public class PrenotazioneMenu {
         CLIUtils.printSubHeader("Tutte le Prenotazioni");
 
         try {
-            List<Prenotazione> prenotazioni = prenotazioneService.getPrenotazioni();
-            stampaListaPrenotazioni(prenotazioni);
+            CLIUtils.sfogliaPagine(
+                    token -> prenotazioneService.getPrenotazioni(token, CLIUtils.DIMENSIONE_PAGINA),
+                    this::stampaListaPrenotazioni);
         } catch (PrenotazioneException e) {
             CLIUtils.printError(e.getMessage());
         }
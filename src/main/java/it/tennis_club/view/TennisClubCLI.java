@@ -1,5 +1,7 @@
 package it.tennis_club.view;
 
+import it.tennis_club.business_logic.NotificaDispatcher;
+import it.tennis_club.business_logic.PartizioniManager;
 import it.tennis_club.business_logic.SessionManager;
 import it.tennis_club.domain_model.Utente;
 
@@ -207,6 +209,11 @@ public class TennisClubCLI {
      * Entry point per avviare la CLI.
      */
     public static void main(String[] args) {
+        // Avvia la manutenzione periodica delle partizioni delle prenotazioni
+        PartizioniManager.getInstance();
+        // Avvia la consegna delle notifiche ai canali esterni
+        NotificaDispatcher.getInstance();
+
         TennisClubCLI cli = new TennisClubCLI();
         cli.start();
     }
@@ -0,0 +1,38 @@
+package it.tennis_club.view.http;
+
+/**
+ * Errore di una richiesta all'API HTTP, con lo stato HTTP da restituire al
+ * client. Il messaggio viene inviato nel corpo della risposta.
+ */
+class ApiException extends Exception {
+
+    private final int stato;
+
+    ApiException(int stato, String message) {
+        super(message);
+        this.stato = stato;
+    }
+
+    static ApiException richiestaNonValida(String message) {
+        return new ApiException(400, message);
+    }
+
+    static ApiException nonAutenticato() {
+        return new ApiException(401, "Autenticazione richiesta");
+    }
+
+    static ApiException nonAutorizzato() {
+        return new ApiException(403, "Operazione non consentita");
+    }
+
+    static ApiException nonTrovato() {
+        return new ApiException(404, "Risorsa non trovata");
+    }
+
+    /**
+     * Lo stato HTTP della risposta.
+     */
+    int getStato() {
+        return stato;
+    }
+}
@@ -0,0 +1,124 @@
+package it.tennis_club.view.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import it.tennis_club.business_logic.AccademiaException;
+import it.tennis_club.business_logic.AuthenticationException;
+import it.tennis_club.business_logic.CampoException;
+import it.tennis_club.business_logic.PrenotazioneException;
+import it.tennis_club.orm.Log;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Gestore di base degli endpoint dell'API HTTP.
+ *
+ * Le sottoclassi implementano {@link #gestisci(Richiesta)} restituendo il
+ * corpo della risposta; questa classe si occupa di convertirlo in JSON e di
+ * trasformare le eccezioni in risposte di errore {"errore": "..."}:
+ * - {@link ApiException}: lo stato indicato dall'eccezione;
+ * - eccezioni dei servizi: 400, con il messaggio del servizio;
+ * - qualsiasi altro errore: 500, con un messaggio generico (il dettaglio
+ *   viene scritto solo nel log del server).
+ */
+abstract class ApiHandler implements HttpHandler {
+
+    private static final Log LOG = Log.get(ApiHandler.class);
+
+    /**
+     * Corpo e stato della risposta a una richiesta.
+     */
+    static class Risposta {
+
+        private final int stato;
+        private final Object corpo;
+
+        private Risposta(int stato, Object corpo) {
+            this.stato = stato;
+            this.corpo = corpo;
+        }
+
+        static Risposta ok(Object corpo) {
+            return new Risposta(200, corpo);
+        }
+
+        static Risposta creata(Object corpo) {
+            return new Risposta(201, corpo);
+        }
+
+        static Risposta vuota() {
+            return new Risposta(204, null);
+        }
+    }
+
+    private final String contesto;
+    private final int maxCorpoByte;
+
+    /**
+     * @param contesto     il percorso gestito, ad es. "/api/prenotazioni"
+     * @param maxCorpoByte la dimensione massima del corpo delle richieste
+     */
+    ApiHandler(String contesto, int maxCorpoByte) {
+        this.contesto = contesto;
+        this.maxCorpoByte = maxCorpoByte;
+    }
+
+    String getContesto() {
+        return contesto;
+    }
+
+    /**
+     * Gestisce una richiesta e restituisce la risposta.
+     *
+     * @throws ApiException (404) se nessun endpoint corrisponde alla richiesta,
+     *                      o un altro stato per errori della richiesta
+     * @throws Exception    le eccezioni dei servizi, convertite in risposte di
+     *                      errore
+     */
+    abstract Risposta gestisci(Richiesta richiesta) throws Exception;
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        Risposta risposta;
+        try {
+            risposta = gestisci(new Richiesta(exchange, contesto, maxCorpoByte));
+        } catch (ApiException e) {
+            risposta = errore(e.getStato(), e.getMessage());
+        } catch (PrenotazioneException | AccademiaException | CampoException | AuthenticationException e) {
+            risposta = errore(400, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            // Percorso o parametri con codifica URL non valida
+            risposta = errore(400, "Richiesta non valida: " + e.getMessage());
+        } catch (Exception e) {
+            LOG.errore("Errore durante la gestione della richiesta", e, "metodo", exchange.getRequestMethod(),
+                    "uri", exchange.getRequestURI().toString());
+            risposta = errore(500, "Errore interno del server");
+        }
+
+        try {
+            scrivi(exchange, risposta);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static Risposta errore(int stato, String messaggio) {
+        return new Risposta(stato, Map.of("errore", messaggio == null ? "" : messaggio));
+    }
+
+    private static void scrivi(HttpExchange exchange, Risposta risposta) throws IOException {
+        if (risposta.corpo == null) {
+            exchange.sendResponseHeaders(risposta.stato, -1);
+            return;
+        }
+        byte[] corpo = Json.scrivi(risposta.corpo).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(risposta.stato, corpo.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(corpo);
+        }
+    }
+}
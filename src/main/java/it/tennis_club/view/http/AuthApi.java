@@ -0,0 +1,74 @@
+package it.tennis_club.view.http;
+
+import it.tennis_club.business_logic.AuthService;
+import it.tennis_club.business_logic.SessionManager;
+import it.tennis_club.domain_model.Utente;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Endpoint di autenticazione (/api/auth):
+ * - POST /login {email, password}: apre una sessione e restituisce il suo ID,
+ *   da inviare nelle richieste successive come "Authorization: Bearer ID";
+ * - POST /logout: chiude la sessione della richiesta;
+ * - POST /registrazione {nome, cognome, email, password}: registra un nuovo
+ *   socio, che poi effettua il login;
+ * - GET /utente: l'utente della sessione;
+ * - GET /utenti?token=&amp;dimensione=: elenco paginato degli utenti (solo
+ *   ADMIN).
+ */
+class AuthApi extends ApiHandler {
+
+    private final AuthService authService;
+
+    AuthApi(AuthService authService, int maxCorpoByte) {
+        super("/api/auth", maxCorpoByte);
+        this.authService = authService;
+    }
+
+    @Override
+    Risposta gestisci(Richiesta richiesta) throws Exception {
+        if (richiesta.corrisponde("POST", "login")) {
+            String sessionId = authService.apriSessione(richiesta.getTesto("email"), richiesta.getTesto("password"));
+            if (sessionId == null) {
+                throw new ApiException(401, "Email o password non corretti");
+            }
+            Map<String, Object> corpo = new LinkedHashMap<>();
+            corpo.put("sessionId", sessionId);
+            corpo.put("utente", Rappresentazioni.utente(SessionManager.getInstance().getUser(sessionId)));
+            return Risposta.ok(corpo);
+        }
+
+        if (richiesta.corrisponde("POST", "logout")) {
+            richiesta.getUtente();
+            authService.chiudiSessione(richiesta.getSessionId());
+            return Risposta.vuota();
+        }
+
+        if (richiesta.corrisponde("POST", "registrazione")) {
+            // Come nella registrazione pubblica da terminale, il ruolo è sempre SOCIO
+            Utente nuovoUtente = new Utente();
+            nuovoUtente.setNome(richiesta.getTesto("nome"));
+            nuovoUtente.setCognome(richiesta.getTesto("cognome"));
+            nuovoUtente.setEmail(richiesta.getTesto("email"));
+            nuovoUtente.setPassword(richiesta.getTesto("password"));
+            nuovoUtente.setRuolo(Utente.Ruolo.SOCIO);
+            Integer id = authService.registrazioneSenzaSessione(nuovoUtente);
+            return Risposta.creata(Map.of("id", id));
+        }
+
+        if (richiesta.corrisponde("GET", "utente")) {
+            return Risposta.ok(Rappresentazioni.utente(richiesta.getUtente()));
+        }
+
+        if (richiesta.corrisponde("GET", "utenti")) {
+            richiesta.getUtente(Utente.Ruolo.ADMIN);
+            return Risposta.ok(Rappresentazioni.pagina(
+                    authService.getUtenti(richiesta.getParametro("token"), richiesta.getDimensionePagina()),
+                    Rappresentazioni::utente));
+        }
+
+        throw ApiException.nonTrovato();
+    }
+}
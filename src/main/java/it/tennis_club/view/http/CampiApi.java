@@ -0,0 +1,65 @@
+package it.tennis_club.view.http;
+
+import it.tennis_club.business_logic.CampoService;
+import it.tennis_club.domain_model.Utente;
+
+import java.util.Map;
+
+/**
+ * Endpoint dei campi (/api/campi):
+ * - GET [?coperti=true | ?superficie=]: elenco dei campi, eventualmente
+ *   filtrato;
+ * - GET /{id}: un campo;
+ * - GET /{id}/manutenzioni: le manutenzioni di un campo;
+ * - POST /{id}/manutenzioni {dataInizio, descrizione}: apre una
+ *   manutenzione.
+ *
+ * I permessi sulle manutenzioni (ADMIN e MANUTENTORE) sono verificati da
+ * {@link CampoService}.
+ */
+class CampiApi extends ApiHandler {
+
+    private final CampoService campoService;
+
+    CampiApi(CampoService campoService, int maxCorpoByte) {
+        super("/api/campi", maxCorpoByte);
+        this.campoService = campoService;
+    }
+
+    @Override
+    Risposta gestisci(Richiesta richiesta) throws Exception {
+        if (richiesta.corrisponde("GET")) {
+            richiesta.getUtente();
+            String superficie = richiesta.getParametro("superficie");
+            if ("true".equals(richiesta.getParametro("coperti"))) {
+                return Risposta.ok(Rappresentazioni.lista(campoService.getCampiCoperti(), Rappresentazioni::campo));
+            }
+            if (superficie != null) {
+                return Risposta.ok(Rappresentazioni.lista(campoService.getCampiPerTipoSuperficie(superficie),
+                        Rappresentazioni::campo));
+            }
+            return Risposta.ok(Rappresentazioni.lista(campoService.getCampi(), Rappresentazioni::campo));
+        }
+
+        if (richiesta.corrisponde("GET", "*")) {
+            richiesta.getUtente();
+            return Risposta.ok(Rappresentazioni.campo(campoService.getCampoPerId(richiesta.getId(0))));
+        }
+
+        if (richiesta.corrisponde("GET", "*", "manutenzioni")) {
+            Utente utente = richiesta.getUtente();
+            return Risposta.ok(Rappresentazioni.lista(
+                    campoService.getManutenzioniPerCampo(utente, richiesta.getId(0)),
+                    Rappresentazioni::manutenzione));
+        }
+
+        if (richiesta.corrisponde("POST", "*", "manutenzioni")) {
+            Utente utente = richiesta.getUtente();
+            Integer id = campoService.creaManutenzione(utente, richiesta.getId(0), richiesta.getData("dataInizio"),
+                    richiesta.getTesto("descrizione"));
+            return Risposta.creata(Map.of("id", id));
+        }
+
+        throw ApiException.nonTrovato();
+    }
+}
@@ -0,0 +1,275 @@
+package it.tennis_club.view.http;
+
+import java.math.BigDecimal;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conversione minima da e verso JSON per l'API HTTP, senza dipendenze
+ * esterne.
+ *
+ * In scrittura sono supportati null, stringhe, numeri, booleani, enum, date
+ * e orari (come stringhe ISO), mappe e liste. In lettura gli oggetti
+ * diventano {@code Map<String, Object>} (nell'ordine del testo), gli array
+ * {@code List<Object>}, i numeri {@link BigDecimal}.
+ */
+final class Json {
+
+    // Limite di annidamento in lettura, per non esaurire lo stack con input ostili
+    private static final int MAX_PROFONDITA = 32;
+
+    private Json() {
+    }
+
+    /**
+     * Converte un valore in testo JSON.
+     *
+     * @param valore il valore da convertire
+     * @return il testo JSON
+     * @throws IllegalArgumentException se il valore contiene un tipo non
+     *                                  supportato
+     */
+    static String scrivi(Object valore) {
+        StringBuilder sb = new StringBuilder();
+        scrivi(valore, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Legge un testo JSON.
+     *
+     * @param testo il testo da leggere
+     * @return il valore letto
+     * @throws IllegalArgumentException se il testo non è JSON valido
+     */
+    static Object leggi(String testo) {
+        Lettore lettore = new Lettore(testo);
+        Object valore = lettore.valore(0);
+        lettore.spazi();
+        if (lettore.pos < testo.length()) {
+            throw lettore.errore("contenuto inatteso dopo il valore");
+        }
+        return valore;
+    }
+
+    private static void scrivi(Object valore, StringBuilder sb) {
+        if (valore == null) {
+            sb.append("null");
+        } else if (valore instanceof String || valore instanceof Enum<?> || valore instanceof TemporalAccessor) {
+            stringa(valore.toString(), sb);
+        } else if (valore instanceof Boolean || valore instanceof Integer || valore instanceof Long
+                || valore instanceof BigDecimal) {
+            sb.append(valore);
+        } else if (valore instanceof Map) {
+            Map<?, ?> mappa = (Map<?, ?>) valore;
+            sb.append('{');
+            boolean primo = true;
+            for (Map.Entry<?, ?> voce : mappa.entrySet()) {
+                if (!primo) {
+                    sb.append(',');
+                }
+                primo = false;
+                stringa(String.valueOf(voce.getKey()), sb);
+                sb.append(':');
+                scrivi(voce.getValue(), sb);
+            }
+            sb.append('}');
+        } else if (valore instanceof Iterable) {
+            Iterable<?> elementi = (Iterable<?>) valore;
+            sb.append('[');
+            boolean primo = true;
+            for (Object elemento : elementi) {
+                if (!primo) {
+                    sb.append(',');
+                }
+                primo = false;
+                scrivi(elemento, sb);
+            }
+            sb.append(']');
+        } else {
+            throw new IllegalArgumentException("Tipo non convertibile in JSON: " + valore.getClass().getName());
+        }
+    }
+
+    private static void stringa(String s, StringBuilder sb) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Parser a discesa ricorsiva.
+     */
+    private static class Lettore {
+
+        private final String testo;
+        private int pos;
+
+        Lettore(String testo) {
+            this.testo = testo;
+        }
+
+        Object valore(int profondita) {
+            if (profondita > MAX_PROFONDITA) {
+                throw errore("annidamento eccessivo");
+            }
+            spazi();
+            if (pos >= testo.length()) {
+                throw errore("fine inattesa del testo");
+            }
+            char c = testo.charAt(pos);
+            return switch (c) {
+                case '{' -> oggetto(profondita);
+                case '[' -> array(profondita);
+                case '"' -> stringa();
+                case 't' -> parola("true", Boolean.TRUE);
+                case 'f' -> parola("false", Boolean.FALSE);
+                case 'n' -> parola("null", null);
+                default -> numero();
+            };
+        }
+
+        private Map<String, Object> oggetto(int profondita) {
+            Map<String, Object> mappa = new LinkedHashMap<>();
+            pos++;
+            spazi();
+            if (consuma('}')) {
+                return mappa;
+            }
+            do {
+                spazi();
+                if (pos >= testo.length() || testo.charAt(pos) != '"') {
+                    throw errore("attesa una chiave");
+                }
+                String chiave = stringa();
+                spazi();
+                if (!consuma(':')) {
+                    throw errore("atteso ':'");
+                }
+                mappa.put(chiave, valore(profondita + 1));
+                spazi();
+            } while (consuma(','));
+            if (!consuma('}')) {
+                throw errore("atteso '}'");
+            }
+            return mappa;
+        }
+
+        private List<Object> array(int profondita) {
+            List<Object> lista = new ArrayList<>();
+            pos++;
+            spazi();
+            if (consuma(']')) {
+                return lista;
+            }
+            do {
+                lista.add(valore(profondita + 1));
+                spazi();
+            } while (consuma(','));
+            if (!consuma(']')) {
+                throw errore("atteso ']'");
+            }
+            return lista;
+        }
+
+        private String stringa() {
+            StringBuilder sb = new StringBuilder();
+            pos++;
+            while (pos < testo.length()) {
+                char c = testo.charAt(pos++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= testo.length()) {
+                    break;
+                }
+                char escape = testo.charAt(pos++);
+                switch (escape) {
+                    case '"', '\\', '/' -> sb.append(escape);
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'u' -> {
+                        if (pos + 4 > testo.length()) {
+                            throw errore("sequenza \\u incompleta");
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(testo.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw errore("sequenza \\u non valida");
+                        }
+                        pos += 4;
+                    }
+                    default -> throw errore("sequenza di escape non valida");
+                }
+            }
+            throw errore("stringa non terminata");
+        }
+
+        private Object parola(String parola, Object valore) {
+            if (!testo.startsWith(parola, pos)) {
+                throw errore("valore non valido");
+            }
+            pos += parola.length();
+            return valore;
+        }
+
+        private BigDecimal numero() {
+            int inizio = pos;
+            while (pos < testo.length() && "+-0123456789.eE".indexOf(testo.charAt(pos)) >= 0) {
+                pos++;
+            }
+            if (inizio == pos) {
+                throw errore("valore non valido");
+            }
+            try {
+                return new BigDecimal(testo.substring(inizio, pos));
+            } catch (NumberFormatException e) {
+                throw errore("numero non valido");
+            }
+        }
+
+        private boolean consuma(char c) {
+            if (pos < testo.length() && testo.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void spazi() {
+            while (pos < testo.length() && Character.isWhitespace(testo.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        IllegalArgumentException errore(String messaggio) {
+            return new IllegalArgumentException("JSON non valido alla posizione " + pos + ": " + messaggio);
+        }
+    }
+}
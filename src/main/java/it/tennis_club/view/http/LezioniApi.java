@@ -0,0 +1,83 @@
+package it.tennis_club.view.http;
+
+import it.tennis_club.business_logic.AccademiaService;
+import it.tennis_club.business_logic.CampoService;
+import it.tennis_club.domain_model.Campo;
+import it.tennis_club.domain_model.Utente;
+import it.tennis_club.domain_model.Utente.Ruolo;
+
+import java.util.List;
+
+/**
+ * Endpoint dell'accademia (/api/lezioni):
+ * - GET ?token=&amp;dimensione=: elenco paginato delle lezioni;
+ * - GET /mie: le lezioni dell'allievo, o quelle tenute dal maestro;
+ * - GET /{id}: una lezione;
+ * - POST {data, ora, idCampo, descrizione}: crea una lezione tenuta
+ *   dall'utente (solo MAESTRO);
+ * - GET /{id}/allievi: gli iscritti a una lezione (MAESTRO e ADMIN);
+ * - POST /{id}/allievi: iscrive l'utente alla lezione;
+ * - DELETE /{id}/allievi: annulla l'iscrizione dell'utente.
+ */
+class LezioniApi extends ApiHandler {
+
+    private final AccademiaService accademiaService;
+    private final CampoService campoService;
+
+    LezioniApi(AccademiaService accademiaService, CampoService campoService, int maxCorpoByte) {
+        super("/api/lezioni", maxCorpoByte);
+        this.accademiaService = accademiaService;
+        this.campoService = campoService;
+    }
+
+    @Override
+    Risposta gestisci(Richiesta richiesta) throws Exception {
+        if (richiesta.corrisponde("GET")) {
+            richiesta.getUtente();
+            return Risposta.ok(Rappresentazioni.pagina(
+                    accademiaService.getLezioni(richiesta.getParametro("token"), richiesta.getDimensionePagina()),
+                    Rappresentazioni::lezione));
+        }
+
+        if (richiesta.corrisponde("GET", "mie")) {
+            Utente utente = richiesta.getUtente();
+            return Risposta.ok(Rappresentazioni.lista(utente.getRuolo() == Ruolo.MAESTRO
+                    ? accademiaService.getLezionePerMaestro(utente)
+                    : accademiaService.getLezioniAllievo(utente),
+                    Rappresentazioni::lezione));
+        }
+
+        if (richiesta.corrisponde("GET", "*")) {
+            richiesta.getUtente();
+            return Risposta.ok(Rappresentazioni.lezione(accademiaService.getLezionePerId(richiesta.getId(0))));
+        }
+
+        if (richiesta.corrisponde("POST")) {
+            Utente maestro = richiesta.getUtente(Ruolo.MAESTRO);
+            Campo campo = campoService.getCampoPerId(richiesta.getIntero("idCampo"));
+            Integer id = accademiaService.creaLezione(richiesta.getData("data"), richiesta.getOra("ora"), campo,
+                    maestro, richiesta.getTestoFacoltativo("descrizione"));
+            return Risposta.creata(Rappresentazioni.lezione(accademiaService.getLezionePerId(id)));
+        }
+
+        if (richiesta.corrisponde("GET", "*", "allievi")) {
+            richiesta.getUtente(Ruolo.MAESTRO, Ruolo.ADMIN);
+            List<Utente> allievi = accademiaService.getAllievi(richiesta.getId(0));
+            return Risposta.ok(Rappresentazioni.lista(allievi, Rappresentazioni::utente));
+        }
+
+        if (richiesta.corrisponde("POST", "*", "allievi")) {
+            Utente utente = richiesta.getUtente();
+            accademiaService.aggiungiAllievo(richiesta.getId(0), utente);
+            return Risposta.vuota();
+        }
+
+        if (richiesta.corrisponde("DELETE", "*", "allievi")) {
+            Utente utente = richiesta.getUtente();
+            accademiaService.rimuoviAllievo(richiesta.getId(0), utente.getId());
+            return Risposta.vuota();
+        }
+
+        throw ApiException.nonTrovato();
+    }
+}
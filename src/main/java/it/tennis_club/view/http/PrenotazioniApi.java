@@ -0,0 +1,113 @@
+package it.tennis_club.view.http;
+
+import it.tennis_club.business_logic.CampoService;
+import it.tennis_club.business_logic.PrenotazioneService;
+import it.tennis_club.domain_model.Campo;
+import it.tennis_club.domain_model.Prenotazione;
+import it.tennis_club.domain_model.Utente;
+import it.tennis_club.domain_model.Utente.Ruolo;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Map;
+
+/**
+ * Endpoint delle prenotazioni (/api/prenotazioni):
+ * - GET /mie: le prenotazioni dell'utente;
+ * - GET /disponibilita?data=&amp;ora=&amp;idCampo=: verifica se un campo è
+ *   libero;
+ * - POST {data, oraInizio, idCampo}: prenota un campo a nome dell'utente
+ *   (solo SOCIO e ALLIEVO, come da terminale);
+ * - DELETE /{id}: cancella una prenotazione dell'utente (ADMIN: qualsiasi);
+ * - GET /{id}: una prenotazione dell'utente (personale del circolo:
+ *   qualsiasi);
+ * - GET ?data=[&amp;idCampo=] oppure ?token=&amp;dimensione=: elenchi completi,
+ *   riservati al personale del circolo (ADMIN, MAESTRO, MANUTENTORE).
+ */
+class PrenotazioniApi extends ApiHandler {
+
+    private final PrenotazioneService prenotazioneService;
+    private final CampoService campoService;
+
+    PrenotazioniApi(PrenotazioneService prenotazioneService, CampoService campoService, int maxCorpoByte) {
+        super("/api/prenotazioni", maxCorpoByte);
+        this.prenotazioneService = prenotazioneService;
+        this.campoService = campoService;
+    }
+
+    @Override
+    Risposta gestisci(Richiesta richiesta) throws Exception {
+        if (richiesta.corrisponde("GET", "mie")) {
+            Utente utente = richiesta.getUtente();
+            return Risposta.ok(Rappresentazioni.lista(prenotazioneService.getPrenotazioniPerSocio(utente),
+                    Rappresentazioni::prenotazione));
+        }
+
+        if (richiesta.corrisponde("GET", "disponibilita")) {
+            richiesta.getUtente();
+            LocalDate data = richiesta.getParametroData("data");
+            LocalTime ora = richiesta.getParametroOra("ora");
+            Integer idCampo = richiesta.getParametroIntero("idCampo");
+            if (data == null || ora == null || idCampo == null) {
+                throw ApiException.richiestaNonValida("I parametri 'data', 'ora' e 'idCampo' sono obbligatori");
+            }
+            Campo campo = campoService.getCampoPerId(idCampo);
+            boolean disponibile = prenotazioneService.isCampoDisponibile(data, ora, campo);
+            return Risposta.ok(Map.of("disponibile", disponibile));
+        }
+
+        if (richiesta.corrisponde("POST")) {
+            Utente utente = richiesta.getUtente(Ruolo.SOCIO, Ruolo.ALLIEVO);
+            Campo campo = campoService.getCampoPerId(richiesta.getIntero("idCampo"));
+            Integer id = prenotazioneService.creaPrenotazione(richiesta.getData("data"),
+                    richiesta.getOra("oraInizio"), campo, utente);
+            return Risposta.creata(Rappresentazioni.prenotazione(prenotazioneService.getPrenotazionePerId(id)));
+        }
+
+        if (richiesta.corrisponde("DELETE", "*")) {
+            Utente utente = richiesta.getUtente();
+            Prenotazione prenotazione = prenotazioneService.getPrenotazionePerId(richiesta.getId(0));
+            if (!isTitolare(utente, prenotazione) && utente.getRuolo() != Ruolo.ADMIN) {
+                throw ApiException.nonAutorizzato();
+            }
+            prenotazioneService.cancellaPrenotazione(prenotazione.getId());
+            return Risposta.vuota();
+        }
+
+        if (richiesta.corrisponde("GET", "*")) {
+            Utente utente = richiesta.getUtente();
+            Prenotazione prenotazione = prenotazioneService.getPrenotazionePerId(richiesta.getId(0));
+            if (!isTitolare(utente, prenotazione) && !isPersonale(utente)) {
+                throw ApiException.nonAutorizzato();
+            }
+            return Risposta.ok(Rappresentazioni.prenotazione(prenotazione));
+        }
+
+        if (richiesta.corrisponde("GET")) {
+            richiesta.getUtente(Ruolo.ADMIN, Ruolo.MAESTRO, Ruolo.MANUTENTORE);
+            LocalDate data = richiesta.getParametroData("data");
+            if (data == null) {
+                return Risposta.ok(Rappresentazioni.pagina(
+                        prenotazioneService.getPrenotazioni(richiesta.getParametro("token"),
+                                richiesta.getDimensionePagina()),
+                        Rappresentazioni::prenotazione));
+            }
+            Integer idCampo = richiesta.getParametroIntero("idCampo");
+            return Risposta.ok(Rappresentazioni.lista(idCampo == null
+                    ? prenotazioneService.getPrenotazioniPerData(data)
+                    : prenotazioneService.getPrenotazioniPerDataECampo(data, campoService.getCampoPerId(idCampo)),
+                    Rappresentazioni::prenotazione));
+        }
+
+        throw ApiException.nonTrovato();
+    }
+
+    private static boolean isTitolare(Utente utente, Prenotazione prenotazione) {
+        return prenotazione.getSocio() != null && utente.getId().equals(prenotazione.getSocio().getId());
+    }
+
+    private static boolean isPersonale(Utente utente) {
+        return utente.getRuolo() == Ruolo.ADMIN || utente.getRuolo() == Ruolo.MAESTRO
+                || utente.getRuolo() == Ruolo.MANUTENTORE;
+    }
+}
@@ -0,0 +1,108 @@
+package it.tennis_club.view.http;
+
+import it.tennis_club.business_logic.Pagina;
+import it.tennis_club.domain_model.Campo;
+import it.tennis_club.domain_model.Lezione;
+import it.tennis_club.domain_model.Manutenzione;
+import it.tennis_club.domain_model.Prenotazione;
+import it.tennis_club.domain_model.Utente;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Conversione degli oggetti del dominio nelle strutture restituite come JSON
+ * dall'API HTTP. La password degli utenti non viene mai inclusa.
+ */
+final class Rappresentazioni {
+
+    private Rappresentazioni() {
+    }
+
+    static Map<String, Object> utente(Utente utente) {
+        if (utente == null) {
+            return null;
+        }
+        Map<String, Object> mappa = new LinkedHashMap<>();
+        mappa.put("id", utente.getId());
+        mappa.put("nome", utente.getNome());
+        mappa.put("cognome", utente.getCognome());
+        mappa.put("email", utente.getEmail());
+        mappa.put("ruolo", utente.getRuolo());
+        return mappa;
+    }
+
+    static Map<String, Object> campo(Campo campo) {
+        if (campo == null) {
+            return null;
+        }
+        Map<String, Object> mappa = new LinkedHashMap<>();
+        mappa.put("id", campo.getId());
+        mappa.put("nome", campo.getNome());
+        mappa.put("tipoSuperficie", campo.getTipoSuperficie());
+        mappa.put("coperto", campo.getIsCoperto());
+        return mappa;
+    }
+
+    static Map<String, Object> prenotazione(Prenotazione prenotazione) {
+        if (prenotazione == null) {
+            return null;
+        }
+        Map<String, Object> mappa = new LinkedHashMap<>();
+        mappa.put("id", prenotazione.getId());
+        mappa.put("data", prenotazione.getData());
+        mappa.put("oraInizio", prenotazione.getOraInizio());
+        mappa.put("campo", campo(prenotazione.getCampo()));
+        mappa.put("socio", utente(prenotazione.getSocio()));
+        return mappa;
+    }
+
+    static Map<String, Object> lezione(Lezione lezione) {
+        if (lezione == null) {
+            return null;
+        }
+        Map<String, Object> mappa = new LinkedHashMap<>();
+        mappa.put("id", lezione.getId());
+        mappa.put("prenotazione", prenotazione(lezione.getPrenotazione()));
+        mappa.put("maestro", utente(lezione.getMaestro()));
+        mappa.put("descrizione", lezione.getDescrizione());
+        return mappa;
+    }
+
+    static Map<String, Object> manutenzione(Manutenzione manutenzione) {
+        if (manutenzione == null) {
+            return null;
+        }
+        Map<String, Object> mappa = new LinkedHashMap<>();
+        mappa.put("id", manutenzione.getId());
+        mappa.put("campo", campo(manutenzione.getCampo()));
+        mappa.put("manutentore", utente(manutenzione.getManutentore()));
+        mappa.put("dataInizio", manutenzione.getDataInizio());
+        mappa.put("dataFine", manutenzione.getDataFine());
+        mappa.put("descrizione", manutenzione.getDescrizione());
+        mappa.put("stato", manutenzione.getStato());
+        return mappa;
+    }
+
+    static <T> List<Map<String, Object>> lista(List<T> elementi, Function<T, Map<String, Object>> conversione) {
+        List<Map<String, Object>> lista = new ArrayList<>(elementi.size());
+        for (T elemento : elementi) {
+            lista.add(conversione.apply(elemento));
+        }
+        return lista;
+    }
+
+    /**
+     * Una pagina di un elenco paginato: gli elementi e il token della pagina
+     * successiva (null sull'ultima pagina).
+     */
+    static <T> Map<String, Object> pagina(Pagina<T> pagina, Function<T, Map<String, Object>> conversione) {
+        Map<String, Object> mappa = new LinkedHashMap<>();
+        mappa.put("elementi", lista(pagina.getElementi(), conversione));
+        mappa.put("tokenSuccessivo", pagina.getTokenSuccessivo());
+        return mappa;
+    }
+}
@@ -0,0 +1,301 @@
+package it.tennis_club.view.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import it.tennis_club.business_logic.SessionManager;
+import it.tennis_club.domain_model.Utente;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Una richiesta all'API HTTP: metodo, percorso, parametri, corpo JSON e
+ * utente autenticato.
+ *
+ * L'utente è quello della sessione indicata nell'intestazione
+ * "Authorization: Bearer &lt;sessionId&gt;"; ogni richiesta porta la propria
+ * sessione, quindi richieste concorrenti di utenti diversi non condividono
+ * alcuno stato.
+ */
+class Richiesta {
+
+    private static final String PREFISSO_BEARER = "Bearer ";
+
+    // Dimensione delle pagine degli elenchi se il client non la indica
+    private static final int DIMENSIONE_PAGINA_PREDEFINITA = 20;
+
+    private final HttpExchange exchange;
+    private final List<String> segmenti;
+    private final Map<String, String> parametri;
+    private final int maxCorpoByte;
+
+    private Map<String, Object> corpo;
+
+    Richiesta(HttpExchange exchange, String contesto, int maxCorpoByte) {
+        this.exchange = exchange;
+        this.maxCorpoByte = maxCorpoByte;
+        this.segmenti = segmenti(exchange.getRequestURI().getRawPath(), contesto);
+        this.parametri = parametri(exchange.getRequestURI().getRawQuery());
+    }
+
+    String getMetodo() {
+        return exchange.getRequestMethod();
+    }
+
+    /**
+     * I segmenti del percorso successivi a quello del gestore, ad es. ["12",
+     * "allievi"] per /api/lezioni/12/allievi.
+     */
+    List<String> getSegmenti() {
+        return segmenti;
+    }
+
+    /**
+     * Verifica che metodo e segmenti del percorso corrispondano; un segmento
+     * "*" corrisponde a qualsiasi valore.
+     */
+    boolean corrisponde(String metodo, String... percorso) {
+        if (!metodo.equals(getMetodo()) || percorso.length != segmenti.size()) {
+            return false;
+        }
+        for (int i = 0; i < percorso.length; i++) {
+            if (!percorso[i].equals("*") && !percorso[i].equals(segmenti.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * L'ID di sessione presentato dal client, o null se assente.
+     */
+    String getSessionId() {
+        String autorizzazione = exchange.getRequestHeaders().getFirst("Authorization");
+        if (autorizzazione == null || !autorizzazione.startsWith(PREFISSO_BEARER)) {
+            return null;
+        }
+        return autorizzazione.substring(PREFISSO_BEARER.length()).trim();
+    }
+
+    /**
+     * L'utente della sessione presentata dal client.
+     *
+     * @throws ApiException (401) se la sessione è assente, scaduta o non
+     *                      valida
+     */
+    Utente getUtente() throws ApiException {
+        Utente utente = SessionManager.getInstance().getUser(getSessionId());
+        if (utente == null) {
+            throw ApiException.nonAutenticato();
+        }
+        return utente;
+    }
+
+    /**
+     * L'utente della sessione, che deve avere uno dei ruoli indicati.
+     *
+     * @throws ApiException (401) se non autenticato, (403) se il ruolo non è
+     *                      tra quelli ammessi
+     */
+    Utente getUtente(Utente.Ruolo... ruoli) throws ApiException {
+        Utente utente = getUtente();
+        for (Utente.Ruolo ruolo : ruoli) {
+            if (utente.getRuolo() == ruolo) {
+                return utente;
+            }
+        }
+        throw ApiException.nonAutorizzato();
+    }
+
+    /**
+     * Un parametro della query string, o null se assente.
+     */
+    String getParametro(String nome) {
+        return parametri.get(nome);
+    }
+
+    Integer getParametroIntero(String nome) throws ApiException {
+        return intero(nome, getParametro(nome));
+    }
+
+    LocalDate getParametroData(String nome) throws ApiException {
+        return data(nome, getParametro(nome));
+    }
+
+    LocalTime getParametroOra(String nome) throws ApiException {
+        return ora(nome, getParametro(nome));
+    }
+
+    /**
+     * La dimensione di pagina richiesta con il parametro "dimensione"; i
+     * servizi ne verificano il limite massimo.
+     */
+    int getDimensionePagina() throws ApiException {
+        Integer dimensione = getParametroIntero("dimensione");
+        return dimensione == null ? DIMENSIONE_PAGINA_PREDEFINITA : dimensione;
+    }
+
+    /**
+     * Un segmento del percorso convertito in ID numerico.
+     *
+     * @throws ApiException (404) se il segmento non è un numero
+     */
+    Integer getId(int indice) throws ApiException {
+        try {
+            return Integer.valueOf(segmenti.get(indice));
+        } catch (NumberFormatException e) {
+            throw ApiException.nonTrovato();
+        }
+    }
+
+    /**
+     * Una stringa obbligatoria del corpo JSON.
+     */
+    String getTesto(String campo) throws ApiException {
+        Object valore = getCorpo().get(campo);
+        if (!(valore instanceof String)) {
+            throw ApiException.richiestaNonValida("Il campo '" + campo + "' è obbligatorio");
+        }
+        return (String) valore;
+    }
+
+    /**
+     * Una stringa facoltativa del corpo JSON, null se assente.
+     */
+    String getTestoFacoltativo(String campo) throws ApiException {
+        Object valore = getCorpo().get(campo);
+        if (valore != null && !(valore instanceof String)) {
+            throw ApiException.richiestaNonValida("Il campo '" + campo + "' deve essere una stringa");
+        }
+        return (String) valore;
+    }
+
+    Integer getIntero(String campo) throws ApiException {
+        Object valore = getCorpo().get(campo);
+        if (valore instanceof BigDecimal) {
+            try {
+                return ((BigDecimal) valore).intValueExact();
+            } catch (ArithmeticException e) {
+                // Gestito sotto come valore non valido
+            }
+        }
+        throw ApiException.richiestaNonValida("Il campo '" + campo + "' deve essere un numero intero");
+    }
+
+    LocalDate getData(String campo) throws ApiException {
+        return data(campo, getTesto(campo));
+    }
+
+    LocalTime getOra(String campo) throws ApiException {
+        return ora(campo, getTesto(campo));
+    }
+
+    /**
+     * Il corpo della richiesta letto come oggetto JSON; un corpo vuoto
+     * equivale a un oggetto vuoto.
+     *
+     * @throws ApiException (400) se il corpo non è un oggetto JSON valido,
+     *                      (413) se supera la dimensione massima
+     */
+    Map<String, Object> getCorpo() throws ApiException {
+        if (corpo == null) {
+            corpo = leggiCorpo();
+        }
+        return corpo;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> leggiCorpo() throws ApiException {
+        byte[] byteLetti;
+        try (InputStream in = exchange.getRequestBody()) {
+            byteLetti = in.readNBytes(maxCorpoByte + 1);
+        } catch (IOException e) {
+            throw ApiException.richiestaNonValida("Impossibile leggere il corpo della richiesta");
+        }
+        if (byteLetti.length > maxCorpoByte) {
+            throw new ApiException(413, "Il corpo della richiesta supera " + maxCorpoByte + " byte");
+        }
+
+        String testo = new String(byteLetti, StandardCharsets.UTF_8);
+        if (testo.isBlank()) {
+            return Collections.emptyMap();
+        }
+        try {
+            Object valore = Json.leggi(testo);
+            if (!(valore instanceof Map)) {
+                throw ApiException.richiestaNonValida("Il corpo della richiesta deve essere un oggetto JSON");
+            }
+            return (Map<String, Object>) valore;
+        } catch (IllegalArgumentException e) {
+            throw ApiException.richiestaNonValida(e.getMessage());
+        }
+    }
+
+    private static Integer intero(String nome, String valore) throws ApiException {
+        if (valore == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(valore);
+        } catch (NumberFormatException e) {
+            throw ApiException.richiestaNonValida("Il parametro '" + nome + "' deve essere un numero intero");
+        }
+    }
+
+    private static LocalDate data(String nome, String valore) throws ApiException {
+        if (valore == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(valore);
+        } catch (DateTimeParseException e) {
+            throw ApiException.richiestaNonValida("Il campo '" + nome + "' deve essere una data AAAA-MM-GG");
+        }
+    }
+
+    private static LocalTime ora(String nome, String valore) throws ApiException {
+        if (valore == null) {
+            return null;
+        }
+        try {
+            return LocalTime.parse(valore);
+        } catch (DateTimeParseException e) {
+            throw ApiException.richiestaNonValida("Il campo '" + nome + "' deve essere un orario HH:MM");
+        }
+    }
+
+    static List<String> segmenti(String percorso, String contesto) {
+        List<String> segmenti = new ArrayList<>();
+        for (String segmento : percorso.substring(Math.min(contesto.length(), percorso.length())).split("/")) {
+            if (!segmento.isEmpty()) {
+                segmenti.add(URLDecoder.decode(segmento, StandardCharsets.UTF_8));
+            }
+        }
+        return Collections.unmodifiableList(segmenti);
+    }
+
+    static Map<String, String> parametri(String query) {
+        Map<String, String> parametri = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return parametri;
+        }
+        for (String coppia : query.split("&")) {
+            int uguale = coppia.indexOf('=');
+            String nome = uguale < 0 ? coppia : coppia.substring(0, uguale);
+            String valore = uguale < 0 ? "" : coppia.substring(uguale + 1);
+            parametri.putIfAbsent(URLDecoder.decode(nome, StandardCharsets.UTF_8),
+                    URLDecoder.decode(valore, StandardCharsets.UTF_8));
+        }
+        return parametri;
+    }
+}
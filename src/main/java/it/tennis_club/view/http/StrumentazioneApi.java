@@ -0,0 +1,79 @@
+package it.tennis_club.view.http;
+
+import it.tennis_club.domain_model.Utente;
+import it.tennis_club.orm.Strumentazione;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Endpoint della strumentazione di DAO e servizi (/api/strumentazione),
+ * riservato agli ADMIN:
+ * - GET: stato della strumentazione e statistiche per metodo, con le durate
+ *   in millisecondi;
+ * - POST /abilita, POST /disabilita: abilita o disabilita la
+ *   strumentazione;
+ * - DELETE: azzera le statistiche.
+ */
+class StrumentazioneApi extends ApiHandler {
+
+    StrumentazioneApi(int maxCorpoByte) {
+        super("/api/strumentazione", maxCorpoByte);
+    }
+
+    @Override
+    Risposta gestisci(Richiesta richiesta) throws Exception {
+        richiesta.getUtente(Utente.Ruolo.ADMIN);
+
+        if (richiesta.corrisponde("GET")) {
+            List<Map<String, Object>> metodi = new ArrayList<>();
+            Strumentazione.getStatistiche().forEach((metodo, statistiche) -> metodi.add(metodo(metodo, statistiche)));
+            Map<String, Object> corpo = new LinkedHashMap<>();
+            corpo.put("abilitata", Strumentazione.isAbilitata());
+            corpo.put("metodi", metodi);
+            return Risposta.ok(corpo);
+        }
+
+        if (richiesta.corrisponde("POST", "abilita")) {
+            Strumentazione.setAbilitata(true);
+            return Risposta.vuota();
+        }
+
+        if (richiesta.corrisponde("POST", "disabilita")) {
+            Strumentazione.setAbilitata(false);
+            return Risposta.vuota();
+        }
+
+        if (richiesta.corrisponde("DELETE")) {
+            Strumentazione.reset();
+            return Risposta.vuota();
+        }
+
+        throw ApiException.nonTrovato();
+    }
+
+    private static Map<String, Object> metodo(String metodo, Strumentazione.Statistiche statistiche) {
+        Map<String, Object> mappa = new LinkedHashMap<>();
+        mappa.put("metodo", metodo);
+        mappa.put("chiamate", statistiche.getChiamate());
+        mappa.put("errori", statistiche.getErrori());
+        mappa.put("mediaMs", millisecondi(statistiche.getDurataMediaNanos()));
+        mappa.put("p50Ms", millisecondi(statistiche.getP50Nanos()));
+        mappa.put("p95Ms", millisecondi(statistiche.getP95Nanos()));
+        mappa.put("p99Ms", millisecondi(statistiche.getP99Nanos()));
+        mappa.put("maxMs", millisecondi(statistiche.getMaxNanos()));
+        mappa.put("statement", statistiche.getStatement());
+        mappa.put("statementPerChiamata",
+                BigDecimal.valueOf(statistiche.getStatementPerChiamata()).setScale(2, RoundingMode.HALF_UP));
+        mappa.put("maxStatement", statistiche.getMaxStatement());
+        return mappa;
+    }
+
+    private static BigDecimal millisecondi(double nanos) {
+        return BigDecimal.valueOf(nanos / 1_000_000.0).setScale(3, RoundingMode.HALF_UP);
+    }
+}
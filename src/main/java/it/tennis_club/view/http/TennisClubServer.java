@@ -0,0 +1,119 @@
+package it.tennis_club.view.http;
+
+import com.sun.net.httpserver.HttpServer;
+import it.tennis_club.business_logic.AccademiaService;
+import it.tennis_club.business_logic.AuthService;
+import it.tennis_club.business_logic.CampoService;
+import it.tennis_club.business_logic.NotificaDispatcher;
+import it.tennis_club.business_logic.PartizioniManager;
+import it.tennis_club.business_logic.PrenotazioneService;
+import it.tennis_club.orm.ConnectionManager;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Server HTTP del Tennis Club, alternativo all'interfaccia da terminale, che
+ * espone i servizi come API JSON per molti utenti collegati insieme.
+ *
+ * È basato sul server HTTP incluso nel JDK (nessuna dipendenza aggiuntiva)
+ * e gestisce ogni richiesta in un virtual thread: una richiesta in attesa
+ * del database o di una connessione del pool non occupa un thread della
+ * piattaforma, quindi il numero di richieste concorrenti è limitato dal pool
+ * di connessioni e non dai thread.
+ *
+ * Le proprietà "http.port" (default 8080), "http.backlog" (default 0, il
+ * valore di sistema) e "http.maxBodyBytes" (default 64 KB) vengono lette da
+ * db.properties.
+ */
+public class TennisClubServer {
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_BACKLOG = 0;
+    private static final int DEFAULT_MAX_BODY_BYTES = 64 * 1024;
+
+    // Secondi concessi alle richieste in corso alla chiusura del server
+    private static final int ATTESA_CHIUSURA_SECONDI = 2;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Crea il server sulla porta indicata, senza avviarlo.
+     *
+     * @param porta        la porta TCP (0 per una porta libera qualsiasi)
+     * @param backlog      la coda delle connessioni in attesa (0 per il valore
+     *                     di sistema)
+     * @param maxCorpoByte la dimensione massima del corpo delle richieste
+     * @throws IOException se non è possibile aprire la porta
+     */
+    public TennisClubServer(int porta, int backlog, int maxCorpoByte) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(porta), backlog);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        CampoService campoService = new CampoService();
+        PrenotazioneService prenotazioneService = new PrenotazioneService();
+        List<ApiHandler> handlers = List.of(
+                new AuthApi(new AuthService(), maxCorpoByte),
+                new CampiApi(campoService, maxCorpoByte),
+                new PrenotazioniApi(prenotazioneService, campoService, maxCorpoByte),
+                new LezioniApi(new AccademiaService(), campoService, maxCorpoByte),
+                new StrumentazioneApi(maxCorpoByte));
+        for (ApiHandler handler : handlers) {
+            server.createContext(handler.getContesto(), handler);
+        }
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Avvia il server.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Arresta il server, attendendo per qualche secondo le richieste in corso.
+     */
+    public void stop() {
+        server.stop(ATTESA_CHIUSURA_SECONDI);
+        executor.shutdown();
+    }
+
+    /**
+     * La porta su cui il server è in ascolto.
+     */
+    public int getPorta() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Entry point del server HTTP. Termina con codice 1 se non è possibile
+     * avviare il server.
+     */
+    public static void main(String[] args) {
+        int porta = Integer.parseInt(ConnectionManager.getProperty("http.port", String.valueOf(DEFAULT_PORT)));
+        int backlog = Integer.parseInt(ConnectionManager.getProperty("http.backlog",
+                String.valueOf(DEFAULT_BACKLOG)));
+        int maxCorpoByte = Integer.parseInt(ConnectionManager.getProperty("http.maxBodyBytes",
+                String.valueOf(DEFAULT_MAX_BODY_BYTES)));
+
+        // Come per la CLI, le partizioni dei mesi futuri devono esistere e le
+        // notifiche vengono consegnate in background
+        PartizioniManager.getInstance();
+        NotificaDispatcher.getInstance();
+
+        try {
+            TennisClubServer tennisClubServer = new TennisClubServer(porta, backlog, maxCorpoByte);
+            Runtime.getRuntime().addShutdownHook(new Thread(tennisClubServer::stop, "http-shutdown"));
+            tennisClubServer.start();
+            System.out.println("Server HTTP del Tennis Club in ascolto sulla porta " + tennisClubServer.getPorta());
+        } catch (IOException e) {
+            System.err.println("Impossibile avviare il server HTTP: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -15,7 +15,8 @@ INSERT INTO campo (nome, tipo_superficie, is_coperto) VALUES
 ('Campo 1', 'Terra', TRUE),
 ('Campo 2', 'Cemento', FALSE);
 
--- Inserimento Prenotazioni di test
+-- Inserimento Prenotazioni di test (la partizione del mese potrebbe non esistere ancora)
+SELECT crea_partizione_prenotazione('2026-01-01');
 INSERT INTO prenotazione (data, ora_inizio, id_campo, id_socio) VALUES
 ('2026-01-15', '09:00', 1, 2),  -- Luigi prenota Campo 1 alle 9:00
 ('2026-01-15', '10:00', 2, 2),  -- Luigi prenota Campo 2 alle 10:00
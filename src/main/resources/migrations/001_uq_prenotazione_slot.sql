@@ -0,0 +1,4 @@
+-- 001_uq_prenotazione_slot.sql
+-- Un campo non può essere prenotato due volte alla stessa ora.
+-- Necessaria solo per database creati prima dell'introduzione del vincolo in schema.sql.
+ALTER TABLE prenotazione ADD CONSTRAINT uq_prenotazione_slot UNIQUE (id_campo, data, ora_inizio);
@@ -0,0 +1,34 @@
+-- 002_indici.sql
+-- Indici per i filtri più frequenti dei DAO (già inclusi in schema.sql per i nuovi database).
+-- CONCURRENTLY evita di bloccare le scritture durante la creazione: lo script va
+-- eseguito fuori da una transazione (ad es. psql senza --single-transaction).
+--
+-- Le ricerche per campo, per campo e data e per intervallo di date di un campo
+-- usano già il vincolo uq_prenotazione_slot (id_campo, data, ora_inizio).
+-- Le ricerche di allievo_lezione per lezione usano il vincolo UNIQUE (id_lezione, id_allievo)
+-- e quelle di lezione per prenotazione il vincolo UNIQUE su id_prenotazione.
+
+-- Prenotazioni per data, elenco ordinato e paginazione keyset (data, ora_inizio, id)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_prenotazione_data_ora
+    ON prenotazione (data, ora_inizio, id);
+
+-- Prenotazioni di un socio, ordinate per data e ora; serve anche la cancellazione in cascata dell'utente
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_prenotazione_socio
+    ON prenotazione (id_socio, data, ora_inizio);
+
+-- Lezioni di un maestro
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_lezione_maestro
+    ON lezione (id_maestro);
+
+-- Lezioni di un allievo
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allievo_lezione_allievo
+    ON allievo_lezione (id_allievo);
+
+-- Manutenzioni di un campo, ordinate per data di inizio
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_manutenzione_campo_data
+    ON manutenzione (id_campo, data_inizio DESC);
+
+-- Verifica delle manutenzioni attive che coprono una data (le annullate non bloccano le prenotazioni)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_manutenzione_attiva
+    ON manutenzione (id_campo, data_inizio, data_fine)
+    WHERE stato IN ('IN_CORSO', 'COMPLETATA');
@@ -0,0 +1,103 @@
+-- 003_partizioni_prenotazione.sql
+-- Trasforma prenotazione in una tabella partizionata per mese sulla data
+-- (già inclusa in schema.sql per i nuovi database). Le righe esistenti vengono
+-- copiate nelle nuove partizioni in un'unica transazione: la tabella resta
+-- bloccata per tutta la durata, quindi va eseguita a servizio fermo.
+--
+-- La chiave primaria di una tabella partizionata deve contenere la colonna di
+-- partizionamento, quindi diventa (id, data) e lezione non può più avere una
+-- foreign key verso prenotazione(id): il vincolo e la cancellazione in cascata
+-- sono sostituiti da due trigger.
+BEGIN;
+
+-- Schema in cui vengono spostate le partizioni archiviate
+CREATE SCHEMA IF NOT EXISTS archivio;
+
+ALTER TABLE lezione DROP CONSTRAINT IF EXISTS lezione_id_prenotazione_fkey;
+
+ALTER TABLE prenotazione RENAME TO prenotazione_old;
+ALTER TABLE prenotazione_old RENAME CONSTRAINT prenotazione_pkey TO prenotazione_old_pkey;
+ALTER TABLE prenotazione_old RENAME CONSTRAINT uq_prenotazione_slot TO uq_prenotazione_old_slot;
+ALTER INDEX IF EXISTS idx_prenotazione_data_ora RENAME TO idx_prenotazione_old_data_ora;
+ALTER INDEX IF EXISTS idx_prenotazione_socio RENAME TO idx_prenotazione_old_socio;
+
+CREATE TABLE prenotazione (
+    id INTEGER NOT NULL DEFAULT nextval('prenotazione_id_seq'),
+    data DATE NOT NULL,
+    ora_inizio TIME NOT NULL,
+    id_campo INTEGER NOT NULL REFERENCES campo(id) ON DELETE CASCADE,
+    id_socio INTEGER NOT NULL REFERENCES utente(id) ON DELETE CASCADE,
+    CONSTRAINT prenotazione_pkey PRIMARY KEY (id, data),
+    CONSTRAINT uq_prenotazione_slot UNIQUE (id_campo, data, ora_inizio)
+) PARTITION BY RANGE (data);
+
+-- La sequenza sopravvive alla rimozione della vecchia tabella
+ALTER SEQUENCE prenotazione_id_seq OWNED BY prenotazione.id;
+
+CREATE INDEX idx_prenotazione_data_ora ON prenotazione (data, ora_inizio, id);
+CREATE INDEX idx_prenotazione_socio ON prenotazione (id_socio, data, ora_inizio);
+
+-- Crea la partizione mensile che contiene il giorno indicato, se non esiste.
+-- Restituisce true se la partizione è stata creata.
+CREATE OR REPLACE FUNCTION crea_partizione_prenotazione(giorno DATE) RETURNS BOOLEAN AS $$
+DECLARE
+    inizio DATE := date_trunc('month', giorno)::date;
+    nome TEXT := 'prenotazione_p' || to_char(inizio, 'YYYY_MM');
+BEGIN
+    -- Serializza le creazioni concorrenti della stessa partizione
+    PERFORM pg_advisory_xact_lock(hashtext('prenotazione_partizioni'));
+    IF to_regclass(nome) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+    EXECUTE format('CREATE TABLE %I PARTITION OF prenotazione FOR VALUES FROM (%L) TO (%L)',
+                   nome, inizio, (inizio + INTERVAL '1 month')::date);
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Partizioni dal mese della prenotazione più vecchia fino a tre mesi da oggi
+SELECT crea_partizione_prenotazione(mese::date)
+FROM generate_series(
+        date_trunc('month', LEAST((SELECT min(data) FROM prenotazione_old), CURRENT_DATE)),
+        date_trunc('month', CURRENT_DATE) + INTERVAL '3 months',
+        INTERVAL '1 month') AS mese;
+
+INSERT INTO prenotazione (id, data, ora_inizio, id_campo, id_socio)
+SELECT id, data, ora_inizio, id_campo, id_socio FROM prenotazione_old;
+
+DROP TABLE prenotazione_old;
+
+-- Sostituisce la foreign key lezione.id_prenotazione
+CREATE OR REPLACE FUNCTION verifica_prenotazione_lezione() RETURNS TRIGGER AS $$
+BEGIN
+    -- Lo stesso lock di una foreign key: la prenotazione non può essere cancellata in parallelo
+    PERFORM 1 FROM prenotazione WHERE id = NEW.id_prenotazione FOR KEY SHARE;
+    IF NOT FOUND THEN
+        RAISE EXCEPTION 'La prenotazione % non esiste', NEW.id_prenotazione
+            USING ERRCODE = 'foreign_key_violation';
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_lezione_prenotazione
+    BEFORE INSERT OR UPDATE OF id_prenotazione ON lezione
+    FOR EACH ROW EXECUTE FUNCTION verifica_prenotazione_lezione();
+
+-- Sostituisce ON DELETE CASCADE da prenotazione a lezione
+CREATE OR REPLACE FUNCTION elimina_lezione_prenotazione() RETURNS TRIGGER AS $$
+BEGIN
+    -- Lo spostamento in un altro mese è una cancellazione seguita da un
+    -- inserimento nella nuova partizione: la lezione va mantenuta
+    IF NOT EXISTS (SELECT 1 FROM prenotazione WHERE id = OLD.id) THEN
+        DELETE FROM lezione WHERE id_prenotazione = OLD.id;
+    END IF;
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_prenotazione_lezione
+    AFTER DELETE ON prenotazione
+    FOR EACH ROW EXECUTE FUNCTION elimina_lezione_prenotazione();
+
+COMMIT;
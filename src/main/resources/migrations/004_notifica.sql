@@ -0,0 +1,22 @@
+-- 004_notifica.sql
+-- Tabella delle notifiche agli utenti (già inclusa in schema.sql per i nuovi
+-- database). Prima le notifiche erano conservate solo in memoria e andavano
+-- perse al riavvio.
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS notifica (
+    id BIGSERIAL PRIMARY KEY,
+    id_utente INTEGER NOT NULL REFERENCES utente(id) ON DELETE CASCADE,
+    messaggio TEXT NOT NULL,
+    creata_il TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    letta BOOLEAN NOT NULL DEFAULT FALSE
+);
+
+-- Notifiche di un utente dalla più recente (paginazione keyset); serve anche
+-- la cancellazione in cascata dell'utente
+CREATE INDEX IF NOT EXISTS idx_notifica_utente ON notifica (id_utente, id DESC);
+
+-- Conteggio delle notifiche non lette all'avvio e loro consumo
+CREATE INDEX IF NOT EXISTS idx_notifica_non_letta ON notifica (id_utente) WHERE NOT letta;
+
+COMMIT;
@@ -0,0 +1,25 @@
+-- 005_consegna_notifiche.sql
+-- La tabella notifica diventa anche la coda di uscita (outbox) delle
+-- notifiche: le righe vengono scritte nella stessa transazione della
+-- cancellazione che le genera e un thread in background le consegna ai canali
+-- esterni (file, spool di posta). Già incluso in schema.sql per i nuovi
+-- database.
+BEGIN;
+
+-- Le notifiche già presenti sono considerate consegnate, così all'avvio non
+-- vengono inviate di nuovo; le nuove righe partono da IN_ATTESA
+ALTER TABLE notifica ADD COLUMN IF NOT EXISTS stato_consegna VARCHAR(20) NOT NULL DEFAULT 'CONSEGNATA'
+    CHECK (stato_consegna IN ('IN_ATTESA', 'CONSEGNATA', 'FALLITA'));
+ALTER TABLE notifica ALTER COLUMN stato_consegna SET DEFAULT 'IN_ATTESA';
+
+ALTER TABLE notifica ADD COLUMN IF NOT EXISTS tentativi INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE notifica ADD COLUMN IF NOT EXISTS prossimo_tentativo TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+ALTER TABLE notifica ADD COLUMN IF NOT EXISTS ultimo_errore TEXT;
+ALTER TABLE notifica ADD COLUMN IF NOT EXISTS consegnata_il TIMESTAMP;
+
+-- Prelievo delle notifiche da consegnare: l'indice parziale contiene solo le
+-- righe in attesa, quindi resta piccolo anche con molte notifiche consegnate
+CREATE INDEX IF NOT EXISTS idx_notifica_da_consegnare ON notifica (prossimo_tentativo, id)
+    WHERE stato_consegna = 'IN_ATTESA';
+
+COMMIT;
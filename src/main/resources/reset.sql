@@ -1,5 +1,6 @@
 -- reset.sql
 -- Elimina le tabelle se esistono per resettare il database
+DROP TABLE IF EXISTS notifica CASCADE;
 DROP TABLE IF EXISTS allievo_lezione CASCADE;
 DROP TABLE IF EXISTS lezione CASCADE;
 DROP TABLE IF EXISTS manutenzione CASCADE;
@@ -7,3 +8,7 @@ DROP TABLE IF EXISTS prenotazione CASCADE;
 DROP TABLE IF EXISTS campo CASCADE;
 DROP TABLE IF EXISTS utente CASCADE;
 DROP TYPE IF EXISTS ruolo_utente;
+DROP FUNCTION IF EXISTS crea_partizione_prenotazione(DATE);
+DROP FUNCTION IF EXISTS verifica_prenotazione_lezione();
+DROP FUNCTION IF EXISTS elimina_lezione_prenotazione();
+DROP SCHEMA IF EXISTS archivio CASCADE;
@@ -22,14 +22,42 @@ CREATE TABLE campo (
     is_coperto BOOLEAN NOT NULL DEFAULT FALSE
 );
 
--- Tabella Prenotazione
+-- Tabella Prenotazione, partizionata per mese sulla data (vedi crea_partizione_prenotazione)
 CREATE TABLE prenotazione (
-    id SERIAL PRIMARY KEY,
+    id SERIAL,
     data DATE NOT NULL,
     ora_inizio TIME NOT NULL,
     id_campo INTEGER NOT NULL REFERENCES campo(id) ON DELETE CASCADE,
-    id_socio INTEGER NOT NULL REFERENCES utente(id) ON DELETE CASCADE
-);
+    id_socio INTEGER NOT NULL REFERENCES utente(id) ON DELETE CASCADE,
+    CONSTRAINT prenotazione_pkey PRIMARY KEY (id, data), -- La chiave di una tabella partizionata deve contenere la data
+    CONSTRAINT uq_prenotazione_slot UNIQUE (id_campo, data, ora_inizio) -- Un campo non può essere prenotato due volte alla stessa ora
+) PARTITION BY RANGE (data);
+
+-- Schema in cui vengono spostate le partizioni archiviate
+CREATE SCHEMA IF NOT EXISTS archivio;
+
+-- Crea la partizione mensile che contiene il giorno indicato, se non esiste.
+-- Restituisce true se la partizione è stata creata.
+CREATE OR REPLACE FUNCTION crea_partizione_prenotazione(giorno DATE) RETURNS BOOLEAN AS $$
+DECLARE
+    inizio DATE := date_trunc('month', giorno)::date;
+    nome TEXT := 'prenotazione_p' || to_char(inizio, 'YYYY_MM');
+BEGIN
+    -- Serializza le creazioni concorrenti della stessa partizione
+    PERFORM pg_advisory_xact_lock(hashtext('prenotazione_partizioni'));
+    IF to_regclass(nome) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+    EXECUTE format('CREATE TABLE %I PARTITION OF prenotazione FOR VALUES FROM (%L) TO (%L)',
+                   nome, inizio, (inizio + INTERVAL '1 month')::date);
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Partizioni dal mese scorso a tre mesi da oggi; le successive vengono create
+-- dal PartizioniManager o al primo inserimento nel mese
+SELECT crea_partizione_prenotazione((date_trunc('month', CURRENT_DATE) + make_interval(months => m))::date)
+FROM generate_series(-1, 3) AS m;
 
 -- Tabella Manutenzione
 CREATE TABLE manutenzione (
@@ -45,11 +73,44 @@ CREATE TABLE manutenzione (
 -- Tabella Lezione
 CREATE TABLE lezione (
     id SERIAL PRIMARY KEY,
-    id_prenotazione INTEGER NOT NULL UNIQUE REFERENCES prenotazione(id) ON DELETE CASCADE,
+    id_prenotazione INTEGER NOT NULL UNIQUE, -- Verificato dai trigger: non può esistere una FK verso una tabella partizionata senza la data
     id_maestro INTEGER NOT NULL REFERENCES utente(id) ON DELETE CASCADE,
     descrizione TEXT
 );
 
+-- Sostituisce la foreign key lezione.id_prenotazione
+CREATE OR REPLACE FUNCTION verifica_prenotazione_lezione() RETURNS TRIGGER AS $$
+BEGIN
+    -- Lo stesso lock di una foreign key: la prenotazione non può essere cancellata in parallelo
+    PERFORM 1 FROM prenotazione WHERE id = NEW.id_prenotazione FOR KEY SHARE;
+    IF NOT FOUND THEN
+        RAISE EXCEPTION 'La prenotazione % non esiste', NEW.id_prenotazione
+            USING ERRCODE = 'foreign_key_violation';
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_lezione_prenotazione
+    BEFORE INSERT OR UPDATE OF id_prenotazione ON lezione
+    FOR EACH ROW EXECUTE FUNCTION verifica_prenotazione_lezione();
+
+-- Sostituisce ON DELETE CASCADE da prenotazione a lezione
+CREATE OR REPLACE FUNCTION elimina_lezione_prenotazione() RETURNS TRIGGER AS $$
+BEGIN
+    -- Lo spostamento in un altro mese è una cancellazione seguita da un
+    -- inserimento nella nuova partizione: la lezione va mantenuta
+    IF NOT EXISTS (SELECT 1 FROM prenotazione WHERE id = OLD.id) THEN
+        DELETE FROM lezione WHERE id_prenotazione = OLD.id;
+    END IF;
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_prenotazione_lezione
+    AFTER DELETE ON prenotazione
+    FOR EACH ROW EXECUTE FUNCTION elimina_lezione_prenotazione();
+
 -- Tabella Allievo Lezione
 CREATE TABLE allievo_lezione (
     id SERIAL PRIMARY KEY,
@@ -60,3 +121,34 @@ CREATE TABLE allievo_lezione (
     data_iscrizione TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     UNIQUE(id_lezione, id_allievo)  -- Un allievo non può essere iscritto due volte alla stessa lezione
 );
+
+-- Tabella Notifica: messaggi per gli utenti, consumati alla lettura (vedi migrations/004_notifica.sql)
+CREATE TABLE notifica (
+    id BIGSERIAL PRIMARY KEY,
+    id_utente INTEGER NOT NULL REFERENCES utente(id) ON DELETE CASCADE,
+    messaggio TEXT NOT NULL,
+    creata_il TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    letta BOOLEAN NOT NULL DEFAULT FALSE,
+    -- Consegna ai canali esterni (vedi NotificaDispatcher)
+    stato_consegna VARCHAR(20) NOT NULL DEFAULT 'IN_ATTESA'
+        CHECK (stato_consegna IN ('IN_ATTESA', 'CONSEGNATA', 'FALLITA')),
+    tentativi INTEGER NOT NULL DEFAULT 0,
+    prossimo_tentativo TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    ultimo_errore TEXT,
+    consegnata_il TIMESTAMP
+);
+
+-- Notifiche di un utente dalla più recente (paginazione keyset) e conteggio delle non lette
+CREATE INDEX idx_notifica_utente ON notifica (id_utente, id DESC);
+CREATE INDEX idx_notifica_non_letta ON notifica (id_utente) WHERE NOT letta;
+-- Notifiche da consegnare, in ordine di tentativo (vedi migrations/005_consegna_notifiche.sql)
+CREATE INDEX idx_notifica_da_consegnare ON notifica (prossimo_tentativo, id) WHERE stato_consegna = 'IN_ATTESA';
+
+-- Indici per i filtri più frequenti (vedi migrations/002_indici.sql)
+CREATE INDEX idx_prenotazione_data_ora ON prenotazione (data, ora_inizio, id);
+CREATE INDEX idx_prenotazione_socio ON prenotazione (id_socio, data, ora_inizio);
+CREATE INDEX idx_lezione_maestro ON lezione (id_maestro);
+CREATE INDEX idx_allievo_lezione_allievo ON allievo_lezione (id_allievo);
+CREATE INDEX idx_manutenzione_campo_data ON manutenzione (id_campo, data_inizio DESC);
+CREATE INDEX idx_manutenzione_attiva ON manutenzione (id_campo, data_inizio, data_fine)
+    WHERE stato IN ('IN_CORSO', 'COMPLETATA');
@@ -1,6 +1,7 @@
 package it.tennis_club.business_logic;
 
 import it.tennis_club.domain_model.Utente;
+import it.tennis_club.orm.UtenteDAO;
 import org.junit.jupiter.api.*;
 
 import java.util.ArrayList;
@@ -264,4 +265,92 @@ class AuthServiceTest {
         assertTrue(authService.eliminaUtente(utente.getId()), "L'utente dovrebbe essere eliminato");
     }
 
+    // ===== TEST PAGINAZIONE =====
+
+    @Test
+    @Order(17)
+    @DisplayName("Gli utenti vengono restituiti a pagine tramite token")
+    void testPaginazioneUtenti() throws AuthenticationException {
+        AuthService service = new AuthService(new FakeUtenteDAO(5));
+
+        Pagina<Utente> prima = service.getUtenti(null, 2);
+        assertEquals(List.of(1, 2), ids(prima), "La prima pagina dovrebbe contenere i primi due utenti");
+        assertTrue(prima.hasSuccessiva(), "Dovrebbe esserci una pagina successiva");
+
+        Pagina<Utente> seconda = service.getUtenti(prima.getTokenSuccessivo(), 2);
+        assertEquals(List.of(3, 4), ids(seconda));
+
+        Pagina<Utente> terza = service.getUtenti(seconda.getTokenSuccessivo(), 2);
+        assertEquals(List.of(5), ids(terza));
+        assertFalse(terza.hasSuccessiva(), "L'ultima pagina non dovrebbe avere un token");
+    }
+
+    @Test
+    @Order(18)
+    @DisplayName("Token e dimensione di pagina non validi sono rifiutati")
+    void testPaginazioneParametriNonValidi() {
+        AuthService service = new AuthService(new FakeUtenteDAO(5));
+
+        assertThrows(AuthenticationException.class, () -> service.getUtenti("non-valido", 2));
+        assertThrows(AuthenticationException.class, () -> service.getUtenti(null, 0));
+        assertThrows(AuthenticationException.class, () -> service.getUtenti(null, 1000));
+    }
+
+    @Test
+    @Order(19)
+    @DisplayName("Le sessioni aperte per l'API non diventano la sessione corrente")
+    void testApriSessione() throws AuthenticationException {
+        AuthService service = new AuthService(new FakeUtenteDAO(5));
+        SessionManager sessionManager = SessionManager.getInstance();
+
+        String sessionId = service.apriSessione("utente3@test.it", "segreta");
+
+        assertNotNull(sessionId, "Le credenziali valide dovrebbero aprire una sessione");
+        assertEquals(3, sessionManager.getUser(sessionId).getId());
+        assertFalse(sessionManager.isUserLoggedIn(), "La sessione non dovrebbe diventare quella corrente");
+        assertNull(service.apriSessione("utente3@test.it", "sbagliata"),
+                "Le credenziali non valide non dovrebbero aprire sessioni");
+
+        assertTrue(service.chiudiSessione(sessionId));
+        assertNull(sessionManager.getUser(sessionId), "La sessione chiusa non dovrebbe essere più valida");
+    }
+
+    private static List<Integer> ids(Pagina<Utente> pagina) {
+        List<Integer> ids = new ArrayList<>();
+        for (Utente utente : pagina.getElementi()) {
+            ids.add(utente.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * DAO finto con utenti numerati da 1 a n.
+     */
+    private static class FakeUtenteDAO extends UtenteDAO {
+        private final int utenti;
+
+        FakeUtenteDAO(int utenti) {
+            this.utenti = utenti;
+        }
+
+        @Override
+        public List<Utente> getUtentiDopo(Integer id, int limite) {
+            List<Utente> risultato = new ArrayList<>();
+            for (int i = id == null ? 1 : id + 1; i <= utenti && risultato.size() < limite; i++) {
+                risultato.add(new Utente(i, "Nome" + i, "Cognome" + i, "utente" + i + "@test.it", null,
+                        Utente.Ruolo.SOCIO));
+            }
+            return risultato;
+        }
+
+        @Override
+        public Utente login(String email, String password) {
+            for (int i = 1; i <= utenti; i++) {
+                if (email.equals("utente" + i + "@test.it") && password.equals("segreta")) {
+                    return new Utente(i, "Nome" + i, "Cognome" + i, email, null, Utente.Ruolo.SOCIO);
+                }
+            }
+            return null;
+        }
+    }
 }
@@ -2,15 +2,19 @@ package it.tennis_club.business_logic;
 
 import it.tennis_club.domain_model.Campo;
 import it.tennis_club.domain_model.Manutenzione;
+import it.tennis_club.domain_model.Prenotazione;
 import it.tennis_club.domain_model.Utente;
 import it.tennis_club.orm.CampoDAO;
 import it.tennis_club.orm.ManutenzioneDAO;
+import it.tennis_club.orm.PrenotazioneDAO;
+import it.tennis_club.orm.QueryCounter;
 import it.tennis_club.orm.UtenteDAO;
 
 import org.junit.jupiter.api.*;
 
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -381,4 +385,43 @@ public class CampoServiceTest {
                 System.out.println("Recuperate " + manutenzioni.size() + " manutenzioni dal database");
         }
 
+        @Test
+        @Order(17)
+        @DisplayName("Test cancellazione delle prenotazioni in un'unica transazione")
+        public void testCreaManutenzioneCancellaPrenotazioni() throws SQLException, CampoException {
+                PrenotazioneDAO prenotazioneDAO = new PrenotazioneDAO();
+                NotificationService notificationService = NotificationService.getInstance();
+                Utente socio = utenteDAO.getUtentiByRuolo(Utente.Ruolo.SOCIO).get(0);
+                LocalDate data = LocalDate.now().plusYears(3);
+
+                List<Integer> idsPrenotazioni = new ArrayList<>();
+                for (int ora = 9; ora <= 11; ora++) {
+                        Integer id = prenotazioneDAO.createPrenotazione(
+                                        new Prenotazione(null, data, LocalTime.of(ora, 0), campoTest, socio));
+                        assertNotNull(id, "La prenotazione di test dovrebbe essere creata");
+                        idsPrenotazioni.add(id);
+                }
+                notificationService.getAndClearNotifications(socio.getId());
+                // Il campo viene caricato in cache prima di contare le query
+                campoService.getCampoPerId(campoTest.getId());
+
+                QueryCounter.reset();
+                Integer idManutenzione = campoService.creaManutenzione(utenteTest, campoTest.getId(), data,
+                                "Manutenzione con prenotazioni");
+                idsManutenzioniTest.add(idManutenzione);
+
+                assertEquals(1, QueryCounter.getConnections(), "Dovrebbe essere usata una sola connessione");
+                assertEquals(4, QueryCounter.getQueries(),
+                                "Inserimento, cancellazione, scrittura delle notifiche e pulizia delle più vecchie "
+                                                + "dovrebbero richiedere una query ciascuno");
+
+                for (Integer id : idsPrenotazioni) {
+                        assertNull(prenotazioneDAO.getPrenotazioneById(id),
+                                        "La prenotazione " + id + " dovrebbe essere stata cancellata");
+                }
+                assertEquals(idsPrenotazioni.size(), notificationService.getNotificationCount(socio.getId()),
+                                "Il socio dovrebbe ricevere una notifica per ogni prenotazione cancellata");
+                notificationService.getAndClearNotifications(socio.getId());
+        }
+
 }
@@ -0,0 +1,232 @@
+package it.tennis_club.business_logic;
+
+import it.tennis_club.domain_model.Notifica;
+import it.tennis_club.orm.NotificaDAO;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per NotificaDispatcher.
+ * Le notifiche da consegnare vengono fornite da un DAO finto e consegnate a
+ * canali finti, quindi questi test non richiedono il database.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class NotificaDispatcherTest {
+
+    private FakeNotificaDAO notificaDAO;
+    private FakeCanale canale;
+
+    @BeforeEach
+    void setUp() {
+        notificaDAO = new FakeNotificaDAO();
+        canale = new FakeCanale();
+    }
+
+    /**
+     * Crea un dispatcher senza thread di consegna in background.
+     */
+    private NotificaDispatcher dispatcher(int dimensioneBlocco, int maxTentativi, CanaleNotifiche... canali) {
+        return new NotificaDispatcher(notificaDAO, List.of(canali), dimensioneBlocco, maxTentativi, 1000, 8000,
+                60_000, 0);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Le notifiche vengono prelevate a blocchi e consegnate a tutti i canali")
+    void testConsegnaABlocchi() throws SQLException {
+        for (int i = 1; i <= 5; i++) {
+            notificaDAO.aggiungi(i, "Messaggio " + i);
+        }
+        FakeCanale secondo = new FakeCanale();
+        NotificaDispatcher dispatcher = dispatcher(2, 3, canale, secondo);
+
+        assertEquals(2, dispatcher.consegnaBlocco());
+        assertEquals(2, dispatcher.consegnaBlocco());
+        assertEquals(1, dispatcher.consegnaBlocco());
+        assertEquals(0, dispatcher.consegnaBlocco(), "Non dovrebbero esserci altre notifiche da consegnare");
+
+        assertEquals(Set.of(1L, 2L, 3L, 4L, 5L), canale.consegnate.keySet());
+        assertEquals(Set.of(1L, 2L, 3L, 4L, 5L), secondo.consegnate.keySet());
+        assertEquals(5, notificaDAO.consegnate.size());
+        assertEquals(5, dispatcher.getConsegnate());
+        assertEquals(List.of(2, 2, 1, 0), notificaDAO.prelievi, "I blocchi non dovrebbero superare la dimensione");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Una consegna fallita viene riprovata con un ritardo e poi segnata come fallita")
+    void testTentativiEFallimento() throws SQLException {
+        notificaDAO.aggiungi(1, "Da riprovare");
+        notificaDAO.aggiungi(2, "Consegnata");
+        canale.errori.put(1L, 3);
+        NotificaDispatcher dispatcher = dispatcher(10, 3, canale);
+
+        dispatcher.consegnaBlocco();
+        assertEquals(List.of(2L), notificaDAO.consegnate);
+        Notifica notifica = notificaDAO.notifiche.get(0);
+        assertEquals(1, notifica.getTentativi());
+        assertEquals(Notifica.StatoConsegna.IN_ATTESA, notifica.getStatoConsegna());
+        assertTrue(notificaDAO.ritardi.get(0) >= 500 && notificaDAO.ritardi.get(0) <= 1000,
+                "Il primo tentativo dovrebbe essere riprovato dopo circa il ritardo base");
+        assertTrue(notificaDAO.errori.get(0).startsWith("fake:"), "L'errore dovrebbe indicare il canale");
+
+        dispatcher.consegnaBlocco();
+        dispatcher.consegnaBlocco();
+        assertEquals(3, notifica.getTentativi());
+        assertEquals(Notifica.StatoConsegna.FALLITA, notifica.getStatoConsegna(),
+                "Dopo l'ultimo tentativo la notifica non dovrebbe essere più riprovata");
+        assertEquals(0, dispatcher.consegnaBlocco());
+        assertEquals(3, dispatcher.getTentativiFalliti());
+        assertEquals(1, dispatcher.getFallite());
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Il ritardo raddoppia a ogni tentativo fino al massimo")
+    void testRitardo() {
+        NotificaDispatcher dispatcher = dispatcher(10, 3, canale);
+        for (int tentativi = 1; tentativi <= 40; tentativi++) {
+            long massimo = Math.min(8000, 1000L << Math.min(tentativi - 1, 30));
+            long ritardo = dispatcher.ritardo(tentativi);
+            assertTrue(ritardo >= massimo / 2 && ritardo <= massimo,
+                    "Ritardo " + ritardo + " fuori dall'intervallo per il tentativo " + tentativi);
+        }
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Il thread in background consegna le notifiche senza bloccare chi le scrive")
+    void testConsegnaInBackground() throws InterruptedException {
+        for (int i = 1; i <= 50; i++) {
+            notificaDAO.aggiungi(i, "Messaggio " + i);
+        }
+        NotificaDispatcher dispatcher = new NotificaDispatcher(notificaDAO, List.of(canale), 20, 3, 1000, 8000,
+                60_000, 10);
+        try {
+            long scadenza = System.currentTimeMillis() + 5000;
+            while (dispatcher.getConsegnate() < 50 && System.currentTimeMillis() < scadenza) {
+                Thread.sleep(10);
+            }
+            assertEquals(50, dispatcher.getConsegnate());
+            assertEquals(50, canale.consegnate.size());
+        } finally {
+            dispatcher.ferma();
+        }
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("Il canale file aggiunge una riga per ogni notifica")
+    void testCanaleFile() throws IOException {
+        Path cartella = Files.createTempDirectory("notifiche");
+        Path file = cartella.resolve("consegne").resolve("notifiche.log");
+        try {
+            CanaleFile canaleFile = new CanaleFile(file);
+            canaleFile.consegna(new Notifica(1L, 7, "Prima\nriga", LocalDateTime.of(2030, 1, 2, 10, 0), false));
+            canaleFile.consegna(new Notifica(2L, 8, "Seconda", LocalDateTime.of(2030, 1, 2, 11, 0), false));
+
+            List<String> righe = Files.readAllLines(file, StandardCharsets.UTF_8);
+            assertEquals(List.of("1\t7\t2030-01-02T10:00\tPrima riga", "2\t8\t2030-01-02T11:00\tSeconda"),
+                    righe);
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(file.getParent());
+            Files.deleteIfExists(cartella);
+        }
+    }
+
+    /**
+     * Canale finto che registra le consegne e può fallire un numero di volte
+     * stabilito per notifica.
+     */
+    private static class FakeCanale implements CanaleNotifiche {
+        final Map<Long, Integer> consegnate = new ConcurrentHashMap<>();
+        final Map<Long, Integer> errori = new ConcurrentHashMap<>();
+
+        @Override
+        public String getNome() {
+            return "fake";
+        }
+
+        @Override
+        public void consegna(Notifica notifica) throws IOException {
+            Integer rimasti = errori.computeIfPresent(notifica.getId(), (id, n) -> n > 0 ? n - 1 : null);
+            if (rimasti != null) {
+                throw new IOException("Canale non disponibile");
+            }
+            consegnate.merge(notifica.getId(), 1, Integer::sum);
+        }
+    }
+
+    /**
+     * DAO finto che conserva le notifiche in memoria. I ritardi non vengono
+     * attesi: una notifica riprovata può essere prelevata subito.
+     */
+    private static class FakeNotificaDAO extends NotificaDAO {
+        final List<Notifica> notifiche = new ArrayList<>();
+        final List<Long> consegnate = new ArrayList<>();
+        final List<Integer> prelievi = new ArrayList<>();
+        final List<Long> ritardi = new ArrayList<>();
+        final List<String> errori = new ArrayList<>();
+        final Map<Long, Boolean> riservate = new HashMap<>();
+        long prossimoId = 1;
+
+        synchronized void aggiungi(Integer idUtente, String messaggio) {
+            notifiche.add(new Notifica(prossimoId++, idUtente, messaggio, LocalDateTime.now(), false));
+        }
+
+        @Override
+        public synchronized List<Notifica> prelevaDaConsegnare(int limite, long riservaMillis) {
+            List<Notifica> blocco = new ArrayList<>();
+            for (Notifica notifica : notifiche) {
+                if (blocco.size() < limite && notifica.getStatoConsegna() == Notifica.StatoConsegna.IN_ATTESA
+                        && riservate.putIfAbsent(notifica.getId(), true) == null) {
+                    blocco.add(notifica);
+                }
+            }
+            prelievi.add(blocco.size());
+            return blocco;
+        }
+
+        @Override
+        public synchronized int segnaConsegnate(Collection<Long> ids) {
+            for (Notifica notifica : notifiche) {
+                if (ids.contains(notifica.getId())) {
+                    notifica.setStatoConsegna(Notifica.StatoConsegna.CONSEGNATA);
+                }
+            }
+            consegnate.addAll(ids);
+            return ids.size();
+        }
+
+        @Override
+        public synchronized void registraFallimento(Long id, String errore, long ritardoMillis, boolean definitivo) {
+            for (Notifica notifica : notifiche) {
+                if (notifica.getId().equals(id)) {
+                    notifica.setTentativi(notifica.getTentativi() + 1);
+                    if (definitivo) {
+                        notifica.setStatoConsegna(Notifica.StatoConsegna.FALLITA);
+                    }
+                }
+            }
+            riservate.remove(id);
+            ritardi.add(ritardoMillis);
+            errori.add(errore);
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package it.tennis_club.business_logic;
+
+import it.tennis_club.domain_model.Notifica;
+import it.tennis_club.orm.ConnectionPool;
+import it.tennis_club.orm.NotificaDAO;
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per NotificationService.
+ * Le notifiche vengono salvate da un DAO finto, quindi questi test non
+ * richiedono il database.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class NotificationServiceTest {
+
+    private FakeNotificaDAO notificaDAO;
+
+    @BeforeEach
+    void setUp() {
+        notificaDAO = new FakeNotificaDAO();
+    }
+
+    /**
+     * Crea un servizio senza thread di scrittura in background.
+     */
+    private NotificationService servizio(int maxPerUtente, int maxInAttesa) {
+        return new NotificationService(notificaDAO, maxPerUtente, maxInAttesa, 0);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("I conteggi vengono caricati una sola volta e letti dalla memoria")
+    void testConteggiInMemoria() {
+        notificaDAO.aggiungi(1, "vecchia", false);
+        notificaDAO.aggiungi(1, "già letta", true);
+        NotificationService service = servizio(100, 100);
+
+        assertTrue(service.hasNotifications(1));
+        assertEquals(1, service.getNotificationCount(1));
+        assertFalse(service.hasNotifications(2));
+        assertEquals(0, service.getNotificationCount(2));
+        assertFalse(service.hasNotifications(null));
+        assertTrue(service.getAndClearNotifications(2).isEmpty());
+
+        assertEquals(1, notificaDAO.query, "Dopo il caricamento iniziale il database non dovrebbe essere interrogato");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Le notifiche vengono contate subito e scritte a blocchi in seguito")
+    void testScritturaDifferita() {
+        NotificationService service = servizio(1000, 2000);
+
+        for (int i = 0; i < 1200; i++) {
+            service.addNotification(i % 3 + 1, "Messaggio " + i);
+        }
+        service.addNotification(1, "  ");
+        service.addNotification(null, "Senza destinatario");
+
+        assertEquals(400, service.getNotificationCount(1));
+        assertEquals(0, notificaDAO.inserimenti, "Nessuna notifica dovrebbe essere stata ancora scritta");
+        assertEquals(1200, service.getInAttesa());
+
+        assertTrue(service.scrivi());
+
+        assertEquals(List.of(500, 500, 200), notificaDAO.blocchi, "Le notifiche vanno scritte a blocchi di 500");
+        assertEquals(0, service.getInAttesa());
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("La lettura consuma le notifiche, comprese quelle ancora in coda")
+    void testLetturaEConsumo() {
+        NotificationService service = servizio(100, 100);
+        service.addNotification(1, "Prima");
+        service.addNotification(1, "Seconda");
+        service.addNotification(2, "Altro utente");
+
+        assertEquals(List.of("Prima", "Seconda"), service.getAndClearNotifications(1));
+        assertFalse(service.hasNotifications(1), "Dopo la lettura non dovrebbero esserci notifiche");
+        assertTrue(service.getAndClearNotifications(1).isEmpty());
+        assertEquals(1, service.getNotificationCount(2), "Le notifiche degli altri utenti non cambiano");
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Per ogni utente vengono conservate solo le notifiche più recenti")
+    void testLimitePerUtente() {
+        NotificationService service = servizio(3, 100);
+        for (int i = 1; i <= 5; i++) {
+            service.addNotification(1, "Messaggio " + i);
+        }
+
+        assertEquals(3, service.getNotificationCount(1), "Il conteggio non dovrebbe superare il limite");
+        assertEquals(List.of("Messaggio 3", "Messaggio 4", "Messaggio 5"), service.getAndClearNotifications(1));
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("Con la coda piena la notifica viene scritta da chi la aggiunge")
+    void testLimiteGlobale() {
+        NotificationService service = servizio(100, 2);
+        service.addNotification(1, "a");
+        service.addNotification(2, "b");
+        assertEquals(0, notificaDAO.inserimenti);
+
+        service.addNotification(3, "c");
+
+        assertEquals(1, notificaDAO.inserimenti, "La coda piena dovrebbe essere scritta subito");
+        assertTrue(service.getInAttesa() <= 2, "La coda non dovrebbe superare il limite");
+        assertEquals(0, service.getScartate());
+    }
+
+    @Test
+    @Order(6)
+    @DisplayName("Se il database non risponde le notifiche restano in coda e vengono riprovate")
+    void testErroreScrittura() {
+        NotificationService service = servizio(100, 2);
+        service.addNotification(1, "a");
+        service.addNotification(1, "b");
+
+        notificaDAO.errore = true;
+        assertFalse(service.scrivi());
+        assertEquals(2, service.getInAttesa(), "Il blocco non scritto dovrebbe tornare in coda");
+
+        // Coda piena e database non raggiungibile: la notifica viene scartata
+        service.addNotification(1, "c");
+        assertEquals(1, service.getScartate());
+        assertEquals(2, service.getNotificationCount(1));
+
+        notificaDAO.errore = false;
+        assertEquals(List.of("a", "b"), service.getAndClearNotifications(1),
+                "Le notifiche in coda dovrebbero essere scritte nell'ordine originale");
+    }
+
+    @Test
+    @Order(7)
+    @DisplayName("Le notifiche vengono lette a pagine, dalla più recente")
+    void testPaginazione() throws NotificaException {
+        NotificationService service = servizio(100, 100);
+        for (int i = 1; i <= 5; i++) {
+            service.addNotification(1, "Messaggio " + i);
+        }
+
+        Pagina<Notifica> prima = service.getNotifiche(1, null, 2);
+        assertEquals("Messaggio 5", prima.getElementi().get(0).getMessaggio());
+        assertTrue(prima.hasSuccessiva());
+
+        Pagina<Notifica> seconda = service.getNotifiche(1, prima.getTokenSuccessivo(), 2);
+        assertEquals("Messaggio 3", seconda.getElementi().get(0).getMessaggio());
+
+        Pagina<Notifica> terza = service.getNotifiche(1, seconda.getTokenSuccessivo(), 2);
+        assertEquals(1, terza.getElementi().size());
+        assertFalse(terza.hasSuccessiva());
+
+        assertEquals(5, service.getNotificationCount(1), "La lettura a pagine non consuma le notifiche");
+        assertThrows(NotificaException.class, () -> service.getNotifiche(1, "non-valido", 2));
+        assertThrows(NotificaException.class, () -> service.getNotifiche(1, null, 0));
+    }
+
+    @Test
+    @Order(8)
+    @DisplayName("Le notifiche aggiunte in parallelo vengono tutte contate e scritte")
+    void testAggiunteConcorrenti() throws Exception {
+        NotificationService service = servizio(10_000, 64);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    service.addNotification(1, "Messaggio " + i);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(4000, service.getNotificationCount(1));
+        assertEquals(4000, service.getAndClearNotifications(1).size());
+        assertEquals(0, service.getNotificationCount(1));
+    }
+
+    @Test
+    @Order(9)
+    @DisplayName("Alla chiusura le notifiche in coda vengono scritte prima di chiudere il pool")
+    void testChiusura() {
+        ConnectionPool pool = new ConnectionPool(NotificationServiceTest::connessioneFinta,
+                new ConnectionPool.Config().minSize(0).maxSize(1).acquireTimeoutMillis(50)
+                        .housekeepingPeriodMillis(0));
+        notificaDAO.pool = pool;
+        NotificationService service = new NotificationService(notificaDAO, 100, 100, 60_000);
+        service.addNotification(1, "Prima");
+        service.addNotification(2, "Seconda");
+        assertEquals(2, service.getInAttesa());
+
+        // Stesso ordine della sequenza di chiusura di ConnectionManager
+        service.chiudi();
+        pool.close();
+
+        assertEquals(0, service.getInAttesa());
+        assertEquals(List.of("Prima", "Seconda"), notificaDAO.notifiche.stream().map(Notifica::getMessaggio).toList(),
+                "Le notifiche in coda dovrebbero essere state scritte");
+
+        // Con il pool già chiuso la notifica non potrebbe più essere scritta
+        service.addNotification(1, "Dopo la chiusura");
+        assertFalse(service.scrivi());
+        assertEquals(1, service.getInAttesa());
+    }
+
+    private static Connection connessioneFinta() {
+        return (Connection) Proxy.newProxyInstance(NotificationServiceTest.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (p, method, args) -> {
+                    switch (method.getName()) {
+                        case "getAutoCommit":
+                        case "isValid":
+                            return true;
+                        case "isClosed":
+                        case "isReadOnly":
+                            return false;
+                        case "hashCode":
+                            return System.identityHashCode(p);
+                        case "equals":
+                            return p == args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    /**
+     * DAO finto che conserva le notifiche in memoria. Se è impostato un pool,
+     * ogni scrittura preleva una connessione, come il DAO reale.
+     */
+    private static class FakeNotificaDAO extends NotificaDAO {
+        final List<Notifica> notifiche = new ArrayList<>();
+        final List<Integer> blocchi = new ArrayList<>();
+        long prossimoId = 1;
+        int inserimenti;
+        int query;
+        volatile boolean errore;
+        ConnectionPool pool;
+
+        synchronized void aggiungi(Integer idUtente, String messaggio, boolean letta) {
+            notifiche.add(new Notifica(prossimoId++, idUtente, messaggio, null, letta));
+        }
+
+        @Override
+        public synchronized void inserisci(List<Notifica> blocco, int maxPerUtente) throws SQLException {
+            if (errore) {
+                throw new SQLException("Database non raggiungibile");
+            }
+            if (pool != null) {
+                pool.getConnection().close();
+            }
+            inserimenti++;
+            blocchi.add(blocco.size());
+            for (Notifica notifica : blocco) {
+                aggiungi(notifica.getIdUtente(), notifica.getMessaggio(), false);
+            }
+            // Conserva le notifiche più recenti di ogni utente
+            Map<Integer, Integer> conservate = new HashMap<>();
+            notifiche.sort(Comparator.comparing(Notifica::getId).reversed());
+            notifiche.removeIf(n -> conservate.merge(n.getIdUtente(), 1, Integer::sum) > maxPerUtente);
+            notifiche.sort(Comparator.comparing(Notifica::getId));
+        }
+
+        @Override
+        public synchronized Map<Integer, Integer> contaNonLette() {
+            query++;
+            Map<Integer, Integer> conteggi = new HashMap<>();
+            for (Notifica notifica : notifiche) {
+                if (!notifica.isLetta()) {
+                    conteggi.merge(notifica.getIdUtente(), 1, Integer::sum);
+                }
+            }
+            return conteggi;
+        }
+
+        @Override
+        public synchronized List<Notifica> consumaNonLette(Integer idUtente) {
+            query++;
+            List<Notifica> consumate = new ArrayList<>();
+            for (Notifica notifica : notifiche) {
+                if (notifica.getIdUtente().equals(idUtente) && !notifica.isLetta()) {
+                    notifica.setLetta(true);
+                    consumate.add(notifica);
+                }
+            }
+            return consumate;
+        }
+
+        @Override
+        public synchronized List<Notifica> getNotificheDopo(Integer idUtente, Long id, int limite) {
+            query++;
+            List<Notifica> pagina = new ArrayList<>();
+            for (int i = notifiche.size() - 1; i >= 0 && pagina.size() < limite; i--) {
+                Notifica notifica = notifiche.get(i);
+                if (notifica.getIdUtente().equals(idUtente) && (id == null || notifica.getId() < id)) {
+                    pagina.add(notifica);
+                }
+            }
+            return pagina;
+        }
+
+        @Override
+        public synchronized int eliminaTutte() {
+            int eliminate = notifiche.size();
+            notifiche.clear();
+            return eliminate;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package it.tennis_club.business_logic;
+
+import org.junit.jupiter.api.*;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per la lettura a pagine di {@link Pagina}, su un elenco in memoria.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class PaginaTest {
+
+    private static final List<Integer> ELEMENTI = List.of(1, 2, 3, 4, 5);
+
+    private final List<Integer> limiti = new ArrayList<>();
+
+    private Pagina<Integer> leggi(String token, int dimensione) throws SQLException {
+        return Pagina.leggi(token, dimensione, 1, chiave -> {
+            int dopo = chiave != null ? Integer.parseInt(chiave[0]) : 0;
+            return limite -> {
+                limiti.add(limite);
+                return ELEMENTI.stream().filter(n -> n > dopo).limit(limite).toList();
+            };
+        }, ultimo -> new Object[] { ultimo });
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Le pagine si susseguono tramite il token fino all'ultima")
+    void testPagine() throws SQLException {
+        Pagina<Integer> prima = leggi(null, 2);
+        assertEquals(List.of(1, 2), prima.getElementi());
+        assertTrue(prima.hasSuccessiva());
+
+        Pagina<Integer> seconda = leggi(prima.getTokenSuccessivo(), 2);
+        assertEquals(List.of(3, 4), seconda.getElementi());
+
+        Pagina<Integer> terza = leggi(seconda.getTokenSuccessivo(), 2);
+        assertEquals(List.of(5), terza.getElementi());
+        assertFalse(terza.hasSuccessiva(), "L'ultima pagina non dovrebbe avere un token");
+
+        assertEquals(List.of(3, 3, 3), limiti, "Dovrebbe essere letto un elemento in più della dimensione");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Dimensioni e token non validi vengono rifiutati senza leggere")
+    void testParametriNonValidi() {
+        assertThrows(IllegalArgumentException.class, () -> leggi(null, 0));
+        assertThrows(IllegalArgumentException.class, () -> leggi(null, Pagina.MAX_DIMENSIONE + 1));
+        assertThrows(IllegalArgumentException.class, () -> leggi("non-valido", 2));
+        assertThrows(IllegalArgumentException.class, () -> leggi(PageToken.codifica("x"), 2),
+                "Un token con una chiave non convertibile non dovrebbe essere accettato");
+        assertTrue(limiti.isEmpty(), "Il DAO non dovrebbe essere interrogato");
+    }
+}
@@ -0,0 +1,130 @@
+package it.tennis_club.business_logic;
+
+import it.tennis_club.orm.PrenotazioneDAO;
+import org.junit.jupiter.api.*;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per la classe PartizioniManager.
+ * Le partizioni sono simulate da un DAO finto, quindi questi test non
+ * richiedono il database.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class PartizioniManagerTest {
+
+    private static final LocalDate OGGI = LocalDate.of(2026, 10, 16);
+
+    private FakePrenotazioneDAO prenotazioneDAO;
+    private PartizioniManager partizioniManager;
+
+    @BeforeEach
+    void setUp() {
+        prenotazioneDAO = new FakePrenotazioneDAO();
+        // Thread in background disabilitato: i test invocano le operazioni esplicitamente
+        partizioniManager = new PartizioniManager(prenotazioneDAO, 3, 12, 0, () -> OGGI);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Vengono create solo le partizioni mancanti dal mese corrente ai mesi futuri")
+    void testCreaPartizioniFuture() throws SQLException {
+        prenotazioneDAO.partizioni.add("prenotazione_p2026_10");
+
+        int create = partizioniManager.creaPartizioniFuture();
+
+        assertEquals(3, create, "La partizione del mese corrente esisteva già");
+        assertEquals(Arrays.asList("prenotazione_p2026_10", "prenotazione_p2026_11", "prenotazione_p2026_12",
+                "prenotazione_p2027_01"), prenotazioneDAO.partizioni);
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Vengono archiviate solo le partizioni precedenti all'orizzonte")
+    void testArchiviaPartizioniScadute() throws SQLException {
+        prenotazioneDAO.partizioni.addAll(Arrays.asList("prenotazione_p2025_08", "prenotazione_p2025_09",
+                "prenotazione_p2025_10", "prenotazione_p2026_10", "prenotazione_speciale"));
+
+        List<String> archiviate = partizioniManager.archiviaPartizioniScadute();
+
+        assertEquals(Arrays.asList("prenotazione_p2025_08", "prenotazione_p2025_09"), archiviate);
+        assertEquals(Arrays.asList("prenotazione_p2025_10", "prenotazione_p2026_10", "prenotazione_speciale"),
+                prenotazioneDAO.partizioni, "Le partizioni recenti e quelle con altri nomi dovrebbero restare");
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Un errore su una partizione non interrompe l'archiviazione delle altre")
+    void testArchiviazioneConErrore() throws SQLException {
+        prenotazioneDAO.partizioni.addAll(Arrays.asList("prenotazione_p2024_01", "prenotazione_p2024_02"));
+        prenotazioneDAO.inErrore = "prenotazione_p2024_01";
+
+        List<String> archiviate = partizioniManager.archiviaPartizioniScadute();
+
+        assertEquals(List.of("prenotazione_p2024_02"), archiviate);
+        assertTrue(prenotazioneDAO.partizioni.contains("prenotazione_p2024_01"),
+                "La partizione in errore dovrebbe restare collegata");
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("L'orizzonte non supera mai l'inizio delle prenotazioni attive")
+    void testLimiteArchiviazione() {
+        assertEquals(LocalDate.of(2025, 10, 1), partizioniManager.getLimiteArchiviazione());
+
+        PartizioniManager orizzonteBreve = new PartizioniManager(prenotazioneDAO, 3, 1, 0, () -> OGGI);
+        assertEquals(PrenotazioneDAO.getInizioPrenotazioniAttive(OGGI), orizzonteBreve.getLimiteArchiviazione(),
+                "Le partizioni attive non dovrebbero mai essere archiviate");
+
+        // Anche l'inizio delle prenotazioni attive segue l'orologio del manager
+        LocalDate passato = LocalDate.of(2020, 3, 10);
+        PartizioniManager nelPassato = new PartizioniManager(prenotazioneDAO, 3, 1, 0, () -> passato);
+        assertEquals(PrenotazioneDAO.getInizioPrenotazioniAttive(passato), nelPassato.getLimiteArchiviazione());
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("Il mese viene estratto solo dai nomi delle partizioni mensili")
+    void testGetMese() {
+        assertEquals(LocalDate.of(2026, 1, 1), PartizioniManager.getMese("prenotazione_p2026_01"));
+        assertNull(PartizioniManager.getMese("prenotazione_default"));
+        assertNull(PartizioniManager.getMese("prenotazione_p2026_1"));
+    }
+
+    /**
+     * DAO finto che mantiene l'elenco delle partizioni in memoria.
+     */
+    private static class FakePrenotazioneDAO extends PrenotazioneDAO {
+        final List<String> partizioni = new ArrayList<>();
+        String inErrore;
+
+        @Override
+        public boolean creaPartizione(LocalDate data) {
+            String nome = String.format("prenotazione_p%04d_%02d", data.getYear(), data.getMonthValue());
+            if (partizioni.contains(nome)) {
+                return false;
+            }
+            partizioni.add(nome);
+            return true;
+        }
+
+        @Override
+        public List<String> getPartizioni() {
+            return new ArrayList<>(partizioni);
+        }
+
+        @Override
+        public void archiviaPartizione(String nome) throws SQLException {
+            if (nome.equals(inErrore)) {
+                throw new SQLException("Partizione bloccata");
+            }
+            partizioni.remove(nome);
+        }
+    }
+}
@@ -6,14 +6,21 @@ import it.tennis_club.domain_model.Utente;
 import it.tennis_club.orm.CampoDAO;
 import it.tennis_club.orm.UtenteDAO;
 import it.tennis_club.orm.PrenotazioneDAO;
+import it.tennis_club.orm.QueryCounter;
 
 import org.junit.jupiter.api.*;
 
+import java.io.StringWriter;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -364,4 +371,154 @@ public class PrenotazioneServiceTest {
                 System.out.println("Recuperate " + prenotazioni.size() + " prenotazioni totali");
         }
 
+        @Test
+        @Order(16)
+        @DisplayName("Test prenotazioni concorrenti dello stesso orario")
+        public void testPrenotazioniConcorrenti() throws Exception {
+                int tentativi = 16;
+                ExecutorService executor = Executors.newFixedThreadPool(tentativi);
+                CountDownLatch partenza = new CountDownLatch(1);
+                List<Future<Integer>> risultati = new ArrayList<>();
+
+                for (int i = 0; i < tentativi; i++) {
+                        risultati.add(executor.submit(() -> {
+                                partenza.await();
+                                try {
+                                        return prenotazioneService.creaPrenotazione(dataTest, oraTest, campoTest,
+                                                        utenteTest);
+                                } catch (PrenotazioneException e) {
+                                        assertTrue(e.getMessage().contains("già prenotato"),
+                                                        "Il conflitto dovrebbe essere segnalato come campo già prenotato");
+                                        return null;
+                                }
+                        }));
+                }
+                partenza.countDown();
+
+                int riuscite = 0;
+                for (Future<Integer> risultato : risultati) {
+                        Integer id = risultato.get(30, TimeUnit.SECONDS);
+                        if (id != null) {
+                                idsPrenotazioniTest.add(id);
+                                riuscite++;
+                        }
+                }
+                executor.shutdown();
+
+                assertEquals(1, riuscite, "Solo una prenotazione concorrente dovrebbe riuscire");
+
+                long prenotazioniSlot = prenotazioneDAO.getPrenotazioniByDataAndCampo(dataTest, campoTest.getId())
+                                .stream()
+                                .filter(p -> p.getOraInizio().equals(oraTest))
+                                .count();
+                assertEquals(1, prenotazioniSlot, "Nel database dovrebbe esserci una sola prenotazione per l'orario");
+        }
+
+        @Test
+        @Order(17)
+        @DisplayName("Test prenotazioni settimanali con orario già occupato")
+        public void testCreaPrenotazioniSettimanali() throws PrenotazioneException {
+                LocalDate dataInizio = dataTest.plusYears(1);
+                LocalDate dataFine = dataInizio.plusWeeks(3);
+
+                // La terza settimana è già prenotata
+                Integer idEsistente = prenotazioneService.creaPrenotazione(dataInizio.plusWeeks(2), oraTest,
+                                campoTest, utenteTest);
+                idsPrenotazioniTest.add(idEsistente);
+
+                QueryCounter.reset();
+                List<EsitoPrenotazione> esiti = prenotazioneService.creaPrenotazioniSettimanali(dataInizio, dataFine,
+                                oraTest, campoTest, utenteTest);
+
+                assertEquals(4, esiti.size(), "Dovrebbe esserci un esito per ogni settimana");
+                assertEquals(2, QueryCounter.getQueries(),
+                                "Verifica e inserimento dovrebbero richiedere una query ciascuno");
+
+                for (EsitoPrenotazione esito : esiti) {
+                        if (esito.isCreata()) {
+                                idsPrenotazioniTest.add(esito.getPrenotazione().getId());
+                        }
+                }
+                assertEquals(EsitoPrenotazione.Stato.CREATA, esiti.get(0).getStato());
+                assertEquals(EsitoPrenotazione.Stato.CREATA, esiti.get(1).getStato());
+                assertEquals(EsitoPrenotazione.Stato.GIA_PRENOTATA, esiti.get(2).getStato());
+                assertEquals(EsitoPrenotazione.Stato.CREATA, esiti.get(3).getStato());
+                assertNotNull(esiti.get(0).getPrenotazione().getId(), "La prenotazione creata dovrebbe avere un ID");
+        }
+
+        @Test
+        @Order(18)
+        @DisplayName("Test prenotazioni multiple con richieste non valide e duplicate")
+        public void testCreaPrenotazioniBatchEsitiMisti() throws PrenotazioneException {
+                LocalDate data = dataTest.plusYears(2);
+                List<Prenotazione> richieste = new ArrayList<>();
+                richieste.add(new Prenotazione(null, data, oraTest, campoTest, utenteTest));
+                richieste.add(new Prenotazione(null, LocalDate.now().minusDays(1), oraTest, campoTest, utenteTest));
+                richieste.add(new Prenotazione(null, data, oraTest, campoTest, utenteTest));
+                richieste.add(null);
+
+                List<EsitoPrenotazione> esiti = prenotazioneService.creaPrenotazioniBatch(richieste);
+
+                for (EsitoPrenotazione esito : esiti) {
+                        if (esito.isCreata()) {
+                                idsPrenotazioniTest.add(esito.getPrenotazione().getId());
+                        }
+                }
+                assertEquals(EsitoPrenotazione.Stato.CREATA, esiti.get(0).getStato());
+                assertEquals(EsitoPrenotazione.Stato.NON_VALIDA, esiti.get(1).getStato());
+                assertTrue(esiti.get(1).getMessaggio().contains("passata"));
+                assertEquals(EsitoPrenotazione.Stato.GIA_PRENOTATA, esiti.get(2).getStato(),
+                                "Un orario ripetuto nella stessa richiesta dovrebbe essere prenotato una sola volta");
+                assertEquals(EsitoPrenotazione.Stato.NON_VALIDA, esiti.get(3).getStato(),
+                                "Una richiesta null dovrebbe essere scartata come non valida");
+                assertNull(esiti.get(3).getPrenotazione());
+        }
+
+        @Test
+        @Order(19)
+        @DisplayName("Le pagine di prenotazioni coprono tutte le prenotazioni senza duplicati")
+        void testPaginazionePrenotazioni() throws PrenotazioneException {
+                int totale = prenotazioneService.getPrenotazioni().size();
+
+                List<Integer> lette = new ArrayList<>();
+                Prenotazione precedente = null;
+                String token = null;
+                do {
+                        Pagina<Prenotazione> pagina = prenotazioneService.getPrenotazioni(token, 7);
+                        assertTrue(pagina.getElementi().size() <= 7, "La pagina non dovrebbe superare la dimensione");
+                        for (Prenotazione prenotazione : pagina.getElementi()) {
+                                if (precedente != null) {
+                                        int confronto = precedente.getData().compareTo(prenotazione.getData());
+                                        if (confronto == 0) {
+                                                confronto = precedente.getOraInizio()
+                                                                .compareTo(prenotazione.getOraInizio());
+                                        }
+                                        if (confronto == 0) {
+                                                confronto = precedente.getId().compareTo(prenotazione.getId());
+                                        }
+                                        assertTrue(confronto < 0, "Le prenotazioni dovrebbero essere ordinate");
+                                }
+                                lette.add(prenotazione.getId());
+                                precedente = prenotazione;
+                        }
+                        token = pagina.getTokenSuccessivo();
+                } while (token != null);
+
+                assertEquals(totale, lette.size(), "Ogni prenotazione dovrebbe comparire una sola volta");
+        }
+
+        @Test
+        @Order(20)
+        @DisplayName("L'esportazione rifiuta un intervallo di date invertito")
+        void testEsportazioneIntervalloNonValido() {
+                LocalDate oggi = LocalDate.now();
+
+                assertThrows(PrenotazioneException.class,
+                                () -> prenotazioneService.esportaPrenotazioni(new StringWriter(), oggi, oggi.minusDays(1),
+                                                null),
+                                "Una data iniziale successiva alla finale dovrebbe essere rifiutata");
+                assertThrows(PrenotazioneException.class,
+                                () -> prenotazioneService.esportaPrenotazioni(null, null, null, null),
+                                "Una destinazione nulla dovrebbe essere rifiutata");
+        }
 }
@@ -3,6 +3,14 @@ package it.tennis_club.business_logic;
 import it.tennis_club.domain_model.Utente;
 import org.junit.jupiter.api.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -233,4 +241,110 @@ class SessionManagerTest {
         // Verifica che sia lo stesso utente
         assertEquals(utente1.getId(), utente2.getId(), "Dovrebbe essere lo stesso utente");
     }
+
+    @Test
+    @Order(17)
+    @DisplayName("Una sessione inattiva oltre il timeout scade")
+    void testSessionExpiry() {
+        AtomicLong orologio = new AtomicLong();
+        SessionManager manager = new SessionManager(1000, 10, 0, orologio::get);
+
+        String id = manager.createSession(testUtente);
+        orologio.addAndGet(TimeUnit.MILLISECONDS.toNanos(900));
+        assertNotNull(manager.getUser(id), "La sessione dovrebbe essere ancora valida");
+
+        // L'accesso precedente ha rinnovato la sessione
+        orologio.addAndGet(TimeUnit.MILLISECONDS.toNanos(900));
+        assertNotNull(manager.getUser(id), "L'accesso dovrebbe rinnovare la sessione");
+
+        orologio.addAndGet(TimeUnit.MILLISECONDS.toNanos(1001));
+        assertNull(manager.getUser(id), "La sessione dovrebbe essere scaduta");
+        assertFalse(manager.isUserLoggedIn(), "L'utente corrente non dovrebbe più essere loggato");
+        assertEquals(1, manager.getExpiredSessionsCount());
+    }
+
+    @Test
+    @Order(18)
+    @DisplayName("La pulizia rimuove le sessioni scadute senza accessi")
+    void testCleanExpiredSessions() {
+        AtomicLong orologio = new AtomicLong();
+        SessionManager manager = new SessionManager(1000, 10, 0, orologio::get);
+
+        manager.createSession(testUtente);
+        orologio.addAndGet(TimeUnit.MILLISECONDS.toNanos(600));
+        String recente = manager.createSession(testUtente);
+        orologio.addAndGet(TimeUnit.MILLISECONDS.toNanos(600));
+
+        assertEquals(1, manager.cleanExpiredSessions(), "Solo la prima sessione dovrebbe essere scaduta");
+        assertNotNull(manager.getUser(recente), "La sessione recente dovrebbe restare valida");
+    }
+
+    @Test
+    @Order(19)
+    @DisplayName("Oltre il limite viene rimossa la sessione inattiva da più tempo")
+    void testMaxSessionsEviction() {
+        AtomicLong orologio = new AtomicLong();
+        SessionManager manager = new SessionManager(60000, 2, 0, orologio::get);
+
+        String prima = manager.createSession(testUtente);
+        orologio.incrementAndGet();
+        String seconda = manager.createSession(testUtente);
+        orologio.incrementAndGet();
+
+        // La prima sessione viene usata, quindi la meno recente diventa la seconda
+        manager.getUser(prima);
+        orologio.incrementAndGet();
+        String terza = manager.createSession(testUtente);
+
+        assertEquals(2, manager.getActiveSessionsCount(), "Il limite di sessioni dovrebbe essere rispettato");
+        assertNotNull(manager.getUser(prima));
+        assertNull(manager.getUser(seconda), "La sessione inattiva da più tempo dovrebbe essere rimossa");
+        assertNotNull(manager.getUser(terza));
+        assertEquals(1, manager.getEvictedSessionsCount());
+    }
+
+    @Test
+    @Order(20)
+    @DisplayName("Creazioni e letture concorrenti rispettano il limite di sessioni")
+    void testConcurrentSessions() throws Exception {
+        SessionManager manager = new SessionManager(60000, 50, 0, System::nanoTime);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> risultati = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                risultati.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        String id = manager.createSession(testUtente);
+                        manager.getUser(id);
+                        if (i % 3 == 0) {
+                            manager.invalidateSession(id);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> risultato : risultati) {
+                risultato.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(manager.getActiveSessionsCount() <= 50, "Il limite di sessioni dovrebbe essere rispettato");
+    }
+
+    @Test
+    @Order(21)
+    @DisplayName("Una sessione non corrente non cambia l'utente corrente")
+    void testCreateSessionNonCorrente() {
+        SessionManager manager = new SessionManager(60000, 10, 0, System::nanoTime);
+        String corrente = manager.createSession(testUtente);
+        Utente altro = new Utente(2, "Luigi", "Verdi", "luigi.verdi@test.it", "password", Utente.Ruolo.SOCIO);
+
+        String id = manager.createSession(altro, false);
+
+        assertSame(altro, manager.getUser(id), "La sessione dovrebbe essere utilizzabile tramite il suo ID");
+        assertSame(testUtente, manager.getCurrentUser(), "L'utente corrente non dovrebbe cambiare");
+        assertTrue(manager.invalidateSession(id));
+        assertSame(testUtente, manager.getUser(corrente));
+    }
 }
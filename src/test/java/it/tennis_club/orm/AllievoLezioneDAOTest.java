@@ -431,4 +431,52 @@ public class AllievoLezioneDAOTest {
 
         assertFalse(success, "L'aggiunta del feedback dovrebbe fallire per combinazione inesistente");
     }
+
+    @Test
+    @Order(14)
+    @DisplayName("Verifica che le lezioni di un allievo siano caricate con una sola query")
+    void testGetLezioniByAllievoNumeroQuery() throws SQLException {
+        List<Utente> allievi = getAllievi();
+        Integer idAllievo = allievi.get(0).getId();
+        for (int i = 0; i < 3; i++) {
+            aggiungiAllievoSafe(createTestLezione().getId(), idAllievo);
+        }
+
+        QueryCounter.reset();
+        List<Lezione> lezioni = allievoLezioneDAO.getLezioniByAllievo(idAllievo);
+
+        assertTrue(lezioni.size() >= 3, "L'allievo dovrebbe partecipare ad almeno 3 lezioni");
+        assertEquals(1, QueryCounter.getQueries(), "Dovrebbe essere eseguita una sola query");
+        assertEquals(1, QueryCounter.getConnections(), "Dovrebbe essere usata una sola connessione");
+        for (Lezione lezione : lezioni) {
+            assertNotNull(lezione.getPrenotazione().getCampo(), "Il campo dovrebbe essere caricato");
+            assertNotNull(lezione.getPrenotazione().getSocio(), "Il socio dovrebbe essere caricato");
+            assertNotNull(lezione.getMaestro(), "Il maestro dovrebbe essere caricato");
+        }
+    }
+
+    @Test
+    @Order(15)
+    @DisplayName("Verifica che i dettagli degli allievi di una lezione siano caricati con una sola query")
+    void testGetAllieviLezioneNumeroQuery() throws SQLException {
+        Lezione lezione = createTestLezione();
+        List<Utente> allievi = getAllievi();
+        assertTrue(allievi.size() >= 2, "Servono almeno 2 allievi per questo test");
+        aggiungiAllievoSafe(lezione.getId(), allievi.get(0).getId());
+        aggiungiAllievoSafe(lezione.getId(), allievi.get(1).getId());
+
+        QueryCounter.reset();
+        List<AllievoLezione> dettagli = allievoLezioneDAO.getAllieviLezione(lezione.getId());
+
+        assertEquals(2, dettagli.size(), "La lezione dovrebbe avere 2 allievi");
+        assertEquals(1, QueryCounter.getQueries(), "Dovrebbe essere eseguita una sola query");
+        assertSame(dettagli.get(0).getLezione(), dettagli.get(1).getLezione(),
+                "La lezione dovrebbe essere caricata una sola volta");
+
+        QueryCounter.reset();
+        List<Utente> allieviLezione = allievoLezioneDAO.getAllieviByLezione(lezione.getId());
+
+        assertEquals(2, allieviLezione.size(), "La lezione dovrebbe avere 2 allievi");
+        assertEquals(1, QueryCounter.getQueries(), "Dovrebbe essere eseguita una sola query");
+    }
 }
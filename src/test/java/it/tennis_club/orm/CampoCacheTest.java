@@ -0,0 +1,101 @@
+package it.tennis_club.orm;
+
+import it.tennis_club.domain_model.Campo;
+import org.junit.jupiter.api.*;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per CampoCache.
+ * La cache viene alimentata da un DAO finto, quindi questi test
+ * non richiedono il database.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class CampoCacheTest {
+
+    private FakeCampoDAO campoDAO;
+
+    @BeforeEach
+    void setUp() {
+        campoDAO = new FakeCampoDAO();
+        campoDAO.campi.add(new Campo(1, "Campo Centrale", "Terra", false));
+        campoDAO.campi.add(new Campo(2, "Campo Coperto", "Cemento", true));
+        campoDAO.campi.add(new Campo(3, "Campo Est", "Terra", true));
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("I campi vengono caricati una sola volta e serviti dalla memoria")
+    void testCaricamentoUnico() throws SQLException {
+        CampoCache cache = new CampoCache(campoDAO, 60000);
+
+        assertEquals(3, cache.getAllCampi().size());
+        assertEquals("Campo Coperto", cache.getCampoById(2).getNome());
+        assertEquals(2, cache.getCampiCoperti().size());
+        assertEquals(2, cache.getCampiByTipoSuperficie("Terra").size());
+        assertNull(cache.getCampoById(99), "Un campo inesistente dovrebbe restituire null");
+
+        assertEquals(1, campoDAO.caricamenti, "Il DAO dovrebbe essere interrogato una sola volta");
+        assertEquals(1, cache.getMisses());
+        assertEquals(4, cache.getHits());
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("L'invalidazione forza il ricaricamento dei campi")
+    void testInvalidazione() throws SQLException {
+        CampoCache cache = new CampoCache(campoDAO, 60000);
+        cache.getAllCampi();
+
+        campoDAO.campi.add(new Campo(4, "Campo Nuovo", "Erba", false));
+        assertNull(cache.getCampoById(4), "Prima dell'invalidazione il nuovo campo non è visibile");
+
+        cache.invalidate();
+
+        assertNotNull(cache.getCampoById(4), "Dopo l'invalidazione il nuovo campo dovrebbe essere visibile");
+        assertEquals(2, campoDAO.caricamenti);
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Alla scadenza del TTL i campi vengono ricaricati")
+    void testScadenzaTtl() throws SQLException {
+        CampoCache cache = new CampoCache(campoDAO, 0);
+
+        cache.getAllCampi();
+        cache.getAllCampi();
+
+        assertEquals(2, campoDAO.caricamenti);
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Modificare un campo restituito non altera la cache")
+    void testCopieDifensive() throws SQLException {
+        CampoCache cache = new CampoCache(campoDAO, 60000);
+
+        cache.getCampoById(1).setNome("Modificato");
+        cache.getAllCampi().get(0).setNome("Modificato");
+
+        assertEquals("Campo Centrale", cache.getCampoById(1).getNome());
+    }
+
+    /**
+     * DAO finto che restituisce una lista di campi in memoria.
+     */
+    private static class FakeCampoDAO extends CampoDAO {
+        final List<Campo> campi = new ArrayList<>();
+        int caricamenti;
+
+        @Override
+        public List<Campo> getAllCampi() {
+            caricamenti++;
+            return new ArrayList<>(campi);
+        }
+    }
+}
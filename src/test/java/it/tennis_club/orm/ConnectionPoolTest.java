@@ -0,0 +1,240 @@
+package it.tennis_club.orm;
+
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per ConnectionPool.
+ * Il pool viene esercitato con connessioni finte, quindi questi test
+ * non richiedono il database.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ConnectionPoolTest {
+
+    private List<FakeConnection> fisiche;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() {
+        fisiche = new ArrayList<>();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private ConnectionPool creaPool(ConnectionPool.Config config) {
+        // Manutenzione disabilitata: i test la invocano esplicitamente
+        config.housekeepingPeriodMillis(0);
+        pool = new ConnectionPool(() -> {
+            FakeConnection fake = new FakeConnection();
+            fisiche.add(fake);
+            return fake.proxy;
+        }, config);
+        return pool;
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("La connessione fisica viene riutilizzata dopo la restituzione")
+    void testRiutilizzoConnessione() throws SQLException {
+        creaPool(new ConnectionPool.Config().minSize(0).maxSize(2));
+
+        Connection prima = pool.getConnection();
+        prima.close();
+        Connection seconda = pool.getConnection();
+        seconda.close();
+
+        assertEquals(1, fisiche.size(), "Dovrebbe essere stata aperta una sola connessione fisica");
+        assertFalse(fisiche.get(0).closed.get(), "La connessione fisica non dovrebbe essere chiusa");
+        assertTrue(prima.isClosed(), "Il proxy restituito dovrebbe risultare chiuso");
+        assertNotSame(prima, seconda, "Ogni prelievo dovrebbe restituire un nuovo proxy");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Il pool non supera la dimensione massima e rispetta il timeout")
+    void testTimeoutPoolEsaurito() throws SQLException {
+        creaPool(new ConnectionPool.Config().minSize(0).maxSize(2).acquireTimeoutMillis(50));
+
+        Connection c1 = pool.getConnection();
+        Connection c2 = pool.getConnection();
+
+        assertThrows(SQLException.class, () -> pool.getConnection(),
+                "Con il pool esaurito la richiesta dovrebbe scadere");
+
+        ConnectionPool.Stats stats = pool.getStats();
+        assertEquals(2, stats.getActive());
+        assertEquals(1, stats.getTimeouts());
+        assertEquals(2, fisiche.size(), "Non dovrebbero essere aperte più di 2 connessioni");
+
+        c1.close();
+        c2.close();
+
+        stats = pool.getStats();
+        assertEquals(0, stats.getActive());
+        assertEquals(2, stats.getIdle());
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Una connessione non valida viene sostituita al prelievo")
+    void testValidazioneAlPrelievo() throws SQLException {
+        creaPool(new ConnectionPool.Config().minSize(0).maxSize(2).validationIntervalMillis(0));
+
+        pool.getConnection().close();
+        fisiche.get(0).valid.set(false);
+
+        Connection connection = pool.getConnection();
+        assertTrue(connection.isValid(1), "Dovrebbe essere restituita una connessione valida");
+        connection.close();
+
+        assertEquals(2, fisiche.size(), "Dovrebbe essere stata aperta una nuova connessione");
+        assertTrue(fisiche.get(0).closed.get(), "La connessione non valida dovrebbe essere chiusa");
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Le connessioni inattive oltre il minimo vengono chiuse")
+    void testRimozioneConnessioniInattive() throws SQLException {
+        creaPool(new ConnectionPool.Config().minSize(1).maxSize(3).idleTimeoutMillis(0));
+
+        Connection c1 = pool.getConnection();
+        Connection c2 = pool.getConnection();
+        Connection c3 = pool.getConnection();
+        c1.close();
+        c2.close();
+        c3.close();
+        assertEquals(3, pool.getStats().getIdle());
+
+        pool.housekeeping();
+
+        assertEquals(1, pool.getStats().getIdle(), "Dovrebbe restare solo la dimensione minima");
+        assertEquals(2, pool.getStats().getDestroyed());
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("La manutenzione porta il pool alla dimensione minima")
+    void testRiempimentoMinimo() {
+        creaPool(new ConnectionPool.Config().minSize(2).maxSize(4));
+
+        pool.housekeeping();
+
+        assertEquals(2, pool.getStats().getIdle());
+        assertEquals(2, fisiche.size());
+    }
+
+    @Test
+    @Order(6)
+    @DisplayName("Una connessione non restituita viene segnalata come leak")
+    void testRilevamentoLeak() throws SQLException, InterruptedException {
+        creaPool(new ConnectionPool.Config().minSize(0).maxSize(2).leakDetectionThresholdMillis(1));
+
+        Connection connection = pool.getConnection();
+        Thread.sleep(10);
+        pool.housekeeping();
+        pool.housekeeping();
+
+        assertEquals(1, pool.getStats().getLeaks(), "Il leak dovrebbe essere segnalato una sola volta");
+        connection.close();
+    }
+
+    @Test
+    @Order(7)
+    @DisplayName("Una transazione lasciata aperta viene annullata alla restituzione")
+    void testResetTransazione() throws SQLException {
+        creaPool(new ConnectionPool.Config().minSize(0).maxSize(1));
+
+        Connection connection = pool.getConnection();
+        connection.setAutoCommit(false);
+        connection.close();
+
+        assertTrue(fisiche.get(0).rolledBack.get(), "La transazione aperta dovrebbe essere annullata");
+        assertTrue(fisiche.get(0).autoCommit.get(), "L'autocommit dovrebbe essere ripristinato");
+    }
+
+    @Test
+    @Order(8)
+    @DisplayName("Un proxy restituito non può più essere usato")
+    void testUsoDopoChiusura() throws SQLException {
+        creaPool(new ConnectionPool.Config().minSize(0).maxSize(1));
+
+        Connection connection = pool.getConnection();
+        connection.close();
+
+        assertThrows(SQLException.class, () -> connection.prepareStatement("SELECT 1"));
+        assertDoesNotThrow(connection::close, "Una doppia chiusura non dovrebbe sollevare eccezioni");
+        assertEquals(1, pool.getStats().getIdle(), "La doppia chiusura non dovrebbe duplicare la connessione");
+    }
+
+    @Test
+    @Order(9)
+    @DisplayName("Connessioni prelevate e statement preparati vengono contati per thread")
+    void testContatoreQuery() throws SQLException {
+        creaPool(new ConnectionPool.Config().minSize(0).maxSize(1));
+
+        QueryCounter.reset();
+        Connection connection = pool.getConnection();
+        connection.prepareStatement("SELECT 1");
+        connection.createStatement();
+        connection.setAutoCommit(false);
+        connection.close();
+
+        assertEquals(1, QueryCounter.getConnections());
+        assertEquals(2, QueryCounter.getQueries(), "Solo gli statement dovrebbero essere contati");
+    }
+
+    /**
+     * Connessione fisica finta che registra le chiamate rilevanti per il pool.
+     */
+    private static class FakeConnection {
+        final AtomicBoolean closed = new AtomicBoolean();
+        final AtomicBoolean valid = new AtomicBoolean(true);
+        final AtomicBoolean autoCommit = new AtomicBoolean(true);
+        final AtomicBoolean rolledBack = new AtomicBoolean();
+        final Connection proxy;
+
+        FakeConnection() {
+            proxy = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { Connection.class }, (p, method, args) -> {
+                        switch (method.getName()) {
+                            case "close":
+                                closed.set(true);
+                                return null;
+                            case "isClosed":
+                                return closed.get();
+                            case "isValid":
+                                return valid.get() && !closed.get();
+                            case "getAutoCommit":
+                                return autoCommit.get();
+                            case "setAutoCommit":
+                                autoCommit.set((Boolean) args[0]);
+                                return null;
+                            case "rollback":
+                                rolledBack.set(true);
+                                return null;
+                            case "isReadOnly":
+                                return false;
+                            case "hashCode":
+                                return System.identityHashCode(p);
+                            case "equals":
+                                return p == args[0];
+                            default:
+                                return null;
+                        }
+                    });
+        }
+    }
+}
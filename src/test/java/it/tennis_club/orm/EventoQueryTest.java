@@ -0,0 +1,222 @@
+package it.tennis_club.orm;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.*;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per EventoQuery.
+ * Gli eventi vengono registrati con Java Flight Recorder su un pool di
+ * connessioni finte, quindi questi test non richiedono il database.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class EventoQueryTest {
+
+    private static final String EVENTO = "it.tennis_club.Query";
+
+    private ConnectionPool pool;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        pool = new ConnectionPool(EventoQueryTest::connessioneFinta,
+                new ConnectionPool.Config().minSize(0).maxSize(1).housekeepingPeriodMillis(0));
+        file = Files.createTempFile("eventi", ".jfr");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        pool.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Il profilo distribuito con l'applicazione abilita gli eventi del Tennis Club")
+    void testProfilo() throws Exception {
+        try (InputStream in = getClass().getResourceAsStream("/tennis_club.jfc")) {
+            assertNotNull(in, "Il profilo tennis_club.jfc dovrebbe essere tra le risorse");
+            Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+            Configuration configurazione = Configuration.create(reader);
+
+            assertEquals("true", configurazione.getSettings().get(EVENTO + "#enabled"));
+            assertEquals("true", configurazione.getSettings().get("it.tennis_club.Prenotazione#enabled"));
+            assertEquals("true", configurazione.getSettings().get("it.tennis_club.Login#enabled"));
+            assertEquals("true", configurazione.getSettings().get("it.tennis_club.Manutenzione#enabled"));
+        }
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Una query registra SQL, righe lette e metodo del DAO")
+    void testEventoQuery() throws Exception {
+        List<RecordedEvent> eventi = registra(() -> new FintoDAO(pool).leggi());
+
+        assertEquals(1, eventi.size(), "Dovrebbe essere registrato un evento");
+        RecordedEvent evento = eventi.get(0);
+        assertEquals("SELECT id FROM campo WHERE id = ?", evento.getString("sql"),
+                "Gli spazi dello statement dovrebbero essere normalizzati");
+        assertEquals(3, evento.getLong("righe"));
+        assertEquals("EventoQueryTest$FintoDAO.leggi", evento.getString("metodo"));
+        assertFalse(evento.getBoolean("errore"));
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Un aggiornamento registra le righe modificate e gli errori")
+    void testEventoAggiornamento() throws Exception {
+        List<RecordedEvent> eventi = registra(() -> {
+            FintoDAO dao = new FintoDAO(pool);
+            dao.aggiorna();
+            assertThrows(SQLException.class, dao::fallisci);
+        });
+
+        assertEquals(2, eventi.size(), "Dovrebbero essere registrati due eventi");
+        assertEquals(2, eventi.get(0).getLong("righe"));
+        assertFalse(eventi.get(0).getBoolean("errore"));
+        assertTrue(eventi.get(1).getBoolean("errore"), "L'esecuzione fallita dovrebbe essere segnata");
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Senza registrazioni in corso gli statement non vengono intercettati")
+    void testNessunaRegistrazione() throws SQLException {
+        try (Connection connection = pool.getConnection();
+                PreparedStatement ps = connection.prepareStatement("SELECT 1")) {
+            String handler = Proxy.getInvocationHandler(ps).getClass().getName();
+            assertFalse(handler.startsWith(ConnectionPool.class.getName()),
+                    "Lo statement non dovrebbe essere avvolto dal pool");
+        }
+    }
+
+    @FunctionalInterface
+    private interface Operazione {
+        void esegui() throws Exception;
+    }
+
+    private List<RecordedEvent> registra(Operazione operazione) throws Exception {
+        try (Recording recording = new Recording()) {
+            recording.enable(EVENTO).withThreshold(Duration.ZERO);
+            recording.start();
+            operazione.esegui();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(evento -> evento.getEventType().getName().equals(EVENTO))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * DAO di prova: il nome termina con "DAO" ed è nel package orm, come
+     * quelli reali.
+     */
+    private static class FintoDAO {
+        private final ConnectionPool pool;
+
+        FintoDAO(ConnectionPool pool) {
+            this.pool = pool;
+        }
+
+        void leggi() throws SQLException {
+            try (Connection connection = pool.getConnection();
+                    PreparedStatement ps = connection.prepareStatement("SELECT id\n  FROM campo\n WHERE id = ?")) {
+                ps.setInt(1, 1);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rs.getInt("id");
+                    }
+                }
+            }
+        }
+
+        void aggiorna() throws SQLException {
+            try (Connection connection = pool.getConnection();
+                    PreparedStatement ps = connection.prepareStatement("UPDATE campo SET coperto = false")) {
+                ps.executeUpdate();
+            }
+        }
+
+        void fallisci() throws SQLException {
+            try (Connection connection = pool.getConnection();
+                    PreparedStatement ps = connection.prepareStatement("UPDATE errore SET x = 1")) {
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private static Connection connessioneFinta() {
+        return (Connection) Proxy.newProxyInstance(EventoQueryTest.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (p, method, args) -> {
+                    switch (method.getName()) {
+                        case "prepareStatement":
+                            return statementFinto((String) args[0]);
+                        case "getAutoCommit":
+                            return true;
+                        case "isClosed":
+                        case "isReadOnly":
+                            return false;
+                        case "isValid":
+                            return true;
+                        case "hashCode":
+                            return System.identityHashCode(p);
+                        case "equals":
+                            return p == args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private static PreparedStatement statementFinto(String sql) {
+        return (PreparedStatement) Proxy.newProxyInstance(EventoQueryTest.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class }, (p, method, args) -> {
+                    switch (method.getName()) {
+                        case "executeQuery":
+                            return resultSetFinto(3);
+                        case "executeUpdate":
+                            if (sql.contains("errore")) {
+                                throw new SQLException("Errore simulato");
+                            }
+                            return 2;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private static ResultSet resultSetFinto(int righe) {
+        AtomicInteger lette = new AtomicInteger();
+        return (ResultSet) Proxy.newProxyInstance(EventoQueryTest.class.getClassLoader(),
+                new Class<?>[] { ResultSet.class }, (p, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return lette.incrementAndGet() <= righe;
+                        case "getInt":
+                            return lette.get();
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
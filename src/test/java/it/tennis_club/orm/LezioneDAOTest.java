@@ -321,4 +321,22 @@ public class LezioneDAOTest {
         boolean success = lezioneDAO.deleteLezione(9999);
         assertFalse(success, "L'eliminazione di una lezione inesistente dovrebbe fallire");
     }
+
+    @Test
+    @Order(11)
+    @DisplayName("Verifica che le lezioni di un maestro siano caricate con una sola query")
+    void testGetLezioniByMaestroNumeroQuery() throws SQLException {
+        Utente maestro = getMaestri().get(0);
+        createTestLezione(maestro);
+        createTestLezione(maestro);
+
+        QueryCounter.reset();
+        List<Lezione> lezioni = lezioneDAO.getLezioniByMaestro(maestro.getId());
+
+        assertTrue(lezioni.size() >= 2, "Il maestro dovrebbe avere almeno 2 lezioni");
+        assertEquals(1, QueryCounter.getQueries(), "Dovrebbe essere eseguita una sola query");
+        assertEquals(1, QueryCounter.getConnections(), "Dovrebbe essere usata una sola connessione");
+        assertSame(lezioni.get(0).getMaestro(), lezioni.get(1).getMaestro(),
+                "Il maestro dovrebbe essere caricato una sola volta");
+    }
 }
@@ -0,0 +1,100 @@
+package it.tennis_club.orm;
+
+import org.junit.jupiter.api.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per Log: formato dei messaggi, filtro per livello e conteggio dei
+ * messaggi scartati.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class LogTest {
+
+    private static final Log LOG = Log.get(LogTest.class);
+
+    private Log.Livello livelloOriginale;
+
+    @BeforeEach
+    void setUp() {
+        livelloOriginale = Log.getLivelloMinimo();
+    }
+
+    @AfterEach
+    void tearDown() {
+        Log.setLivelloMinimo(livelloOriginale);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Il messaggio viene formattato su una riga con i campi chiave=valore")
+    void testFormato() {
+        Log.Messaggio messaggio = new Log.Messaggio(Log.Livello.ERRORE, "PrenotazioneDAO",
+                "Errore durante la creazione della prenotazione", new SQLException("duplicate key"),
+                new Object[] { "idCampo", 3, "note", "campo \"centrale\"", "vuoto", "" });
+
+        StringBuilder sb = new StringBuilder();
+        Log.formatta(messaggio, sb);
+        String riga = sb.toString();
+
+        assertTrue(riga.matches("\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}\\.\\d{3} .*"),
+                "La riga dovrebbe iniziare con data e ora: " + riga);
+        assertTrue(riga.contains(" ERRORE [" + Thread.currentThread().getName() + "] PrenotazioneDAO - "
+                + "Errore durante la creazione della prenotazione"), riga);
+        assertTrue(riga.contains(" idCampo=3 "), riga);
+        assertTrue(riga.contains(" note=\"campo \\\"centrale\\\"\""), "I valori con spazi vanno tra virgolette: "
+                + riga);
+        assertTrue(riga.contains(" vuoto=\"\""), riga);
+        assertTrue(riga.endsWith(" errore=\"SQLException: duplicate key\""), riga);
+        assertFalse(riga.contains("\n"), "Il messaggio dovrebbe stare su una riga");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Un campo senza valore non fa fallire la formattazione")
+    void testCampoSenzaValore() {
+        StringBuilder sb = new StringBuilder();
+        Log.formatta(new Log.Messaggio(Log.Livello.INFO, "X", "testo", null, new Object[] { "a", 1, "b" }), sb);
+        assertTrue(sb.toString().endsWith("testo a=1 b=?"), sb.toString());
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("I messaggi sotto il livello minimo vengono ignorati")
+    void testLivelloMinimo() {
+        Log.setLivelloMinimo(Log.Livello.AVVISO);
+        assertFalse(LOG.isAbilitato(Log.Livello.DEBUG));
+        assertFalse(LOG.isAbilitato(Log.Livello.INFO));
+        assertTrue(LOG.isAbilitato(Log.Livello.AVVISO));
+        assertTrue(LOG.isAbilitato(Log.Livello.ERRORE));
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Con la coda piena i messaggi vengono scartati e conteggiati, senza bloccare")
+    void testScartati() {
+        Log.setLivelloMinimo(Log.Livello.DEBUG);
+        long scartatiPrima = Log.getScartati();
+
+        // Il thread di scrittura legge System.out e System.err a ogni blocco
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            // Molti più messaggi della capacità della coda, senza attese
+            for (int i = 0; i < 200_000; i++) {
+                LOG.debug("Messaggio di prova", "i", i);
+            }
+            assertTrue(Log.getScartati() > scartatiPrima, "Alcuni messaggi dovrebbero essere stati scartati");
+            Log.flush();
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+        }
+    }
+}
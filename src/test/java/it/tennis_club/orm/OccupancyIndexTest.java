@@ -0,0 +1,138 @@
+package it.tennis_club.orm;
+
+import it.tennis_club.domain_model.Campo;
+import it.tennis_club.domain_model.Prenotazione;
+import org.junit.jupiter.api.*;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per OccupancyIndex.
+ * L'indice viene caricato da un DAO finto, quindi questi test
+ * non richiedono il database.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class OccupancyIndexTest {
+
+    private static final LocalDate DOMANI = LocalDate.now().plusDays(1);
+
+    private FakePrenotazioneDAO prenotazioneDAO;
+
+    @BeforeEach
+    void setUp() {
+        prenotazioneDAO = new FakePrenotazioneDAO();
+        prenotazioneDAO.aggiungi(1, DOMANI, LocalTime.of(10, 0));
+        prenotazioneDAO.aggiungi(1, DOMANI, LocalTime.of(22, 0));
+        prenotazioneDAO.aggiungi(2, DOMANI, LocalTime.of(8, 0));
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("L'indice viene caricato una volta e risponde dalla memoria")
+    void testCaricamento() throws SQLException {
+        OccupancyIndex index = new OccupancyIndex(prenotazioneDAO, 60000);
+
+        assertTrue(index.isOccupato(1, DOMANI, LocalTime.of(10, 0)));
+        assertTrue(index.isOccupato(1, DOMANI, LocalTime.of(22, 0)), "L'ultimo orario della griglia dovrebbe essere indicizzato");
+        assertTrue(index.isOccupato(2, DOMANI, LocalTime.of(8, 0)), "Il primo orario della griglia dovrebbe essere indicizzato");
+        assertFalse(index.isOccupato(1, DOMANI, LocalTime.of(10, 1)));
+        assertFalse(index.isOccupato(2, DOMANI, LocalTime.of(10, 0)));
+        assertFalse(index.isOccupato(1, DOMANI.plusDays(1), LocalTime.of(10, 0)));
+
+        assertEquals(1, prenotazioneDAO.caricamenti, "Il DAO dovrebbe essere interrogato una sola volta");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Prenotazioni e cancellazioni aggiornano l'indice")
+    void testAggiornamento() throws SQLException {
+        OccupancyIndex index = new OccupancyIndex(prenotazioneDAO, 60000);
+        index.isOccupato(1, DOMANI, LocalTime.of(10, 0));
+
+        index.segnaOccupato(3, DOMANI, LocalTime.of(15, 30));
+        index.libera(1, DOMANI, LocalTime.of(10, 0));
+
+        assertTrue(index.isOccupato(3, DOMANI, LocalTime.of(15, 30)));
+        assertFalse(index.isOccupato(1, DOMANI, LocalTime.of(10, 0)));
+        assertTrue(index.isOccupato(1, DOMANI, LocalTime.of(22, 0)), "Gli altri orari non dovrebbero cambiare");
+        assertEquals(1, prenotazioneDAO.caricamenti);
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Le modifiche durante il caricamento non vengono perse")
+    void testModificheDuranteCaricamento() throws SQLException {
+        OccupancyIndex index = new OccupancyIndex(prenotazioneDAO, 60000);
+        prenotazioneDAO.durante = () -> {
+            index.segnaOccupato(4, DOMANI, LocalTime.of(9, 0));
+            index.libera(2, DOMANI, LocalTime.of(8, 0));
+        };
+
+        assertTrue(index.isOccupato(4, DOMANI, LocalTime.of(9, 0)));
+        assertFalse(index.isOccupato(2, DOMANI, LocalTime.of(8, 0)));
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("L'indice viene ricaricato alla scadenza del TTL e dopo l'invalidazione")
+    void testRicaricamento() throws SQLException {
+        OccupancyIndex scaduto = new OccupancyIndex(prenotazioneDAO, 0);
+        scaduto.isOccupato(1, DOMANI, LocalTime.of(10, 0));
+        scaduto.isOccupato(1, DOMANI, LocalTime.of(10, 0));
+        assertEquals(2, prenotazioneDAO.caricamenti);
+
+        OccupancyIndex index = new OccupancyIndex(prenotazioneDAO, 60000);
+        index.isOccupato(1, DOMANI, LocalTime.of(10, 0));
+        prenotazioneDAO.aggiungi(5, DOMANI, LocalTime.of(11, 0));
+        index.invalidate();
+
+        assertTrue(index.isOccupato(5, DOMANI, LocalTime.of(11, 0)));
+        assertEquals(4, prenotazioneDAO.caricamenti);
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("Gli orari fuori dalla griglia non sono indicizzati")
+    void testSlotFuoriGriglia() {
+        assertEquals(0, OccupancyIndex.slot(LocalTime.of(8, 0)));
+        assertEquals(840, OccupancyIndex.slot(LocalTime.of(22, 0)));
+        assertEquals(-1, OccupancyIndex.slot(LocalTime.of(7, 59)));
+        assertEquals(-1, OccupancyIndex.slot(LocalTime.of(22, 1)));
+        assertEquals(-1, OccupancyIndex.slot(LocalTime.of(10, 0, 30)));
+    }
+
+    /**
+     * DAO finto che restituisce orari occupati in memoria.
+     */
+    private static class FakePrenotazioneDAO extends PrenotazioneDAO {
+        final List<Prenotazione> prenotazioni = new ArrayList<>();
+        int caricamenti;
+        Runnable durante;
+
+        void aggiungi(int idCampo, LocalDate data, LocalTime ora) {
+            Campo campo = new Campo();
+            campo.setId(idCampo);
+            Prenotazione prenotazione = new Prenotazione();
+            prenotazione.setCampo(campo);
+            prenotazione.setData(data);
+            prenotazione.setOraInizio(ora);
+            prenotazioni.add(prenotazione);
+        }
+
+        @Override
+        public List<Prenotazione> getSlotOccupati(LocalDate daData) {
+            caricamenti++;
+            List<Prenotazione> risultato = new ArrayList<>(prenotazioni);
+            if (durante != null) {
+                durante.run();
+            }
+            return risultato;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import it.tennis_club.domain_model.Campo;
 import it.tennis_club.domain_model.Utente;
 import org.junit.jupiter.api.*;
 
+import java.io.StringWriter;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalTime;
@@ -322,4 +323,115 @@ class PrenotazioneDAOTest {
 
         assertFalse(success, "L'eliminazione di una prenotazione inesistente dovrebbe fallire");
     }
+
+    @Test
+    @Order(13)
+    @DisplayName("Verifica che campo e socio condivisi tra righe siano la stessa istanza")
+    void testDeduplicazioneCampoESocio() throws SQLException {
+        Prenotazione prima = createTestPrenotazione();
+        Prenotazione seconda = new Prenotazione();
+        seconda.setData(prima.getData());
+        seconda.setOraInizio(prima.getOraInizio().plusHours(1));
+        seconda.setCampo(prima.getCampo());
+        seconda.setSocio(prima.getSocio());
+        idsPrenotazioniCreate.add(prenotazioneDAO.createPrenotazione(seconda));
+
+        List<Prenotazione> prenotazioni = prenotazioneDAO.getPrenotazioniByDataAndCampo(
+                prima.getData(), prima.getCampo().getId());
+
+        assertEquals(2, prenotazioni.size(), "Dovrebbero esserci due prenotazioni");
+        assertSame(prenotazioni.get(0).getCampo(), prenotazioni.get(1).getCampo(),
+                "Il campo dovrebbe essere caricato una sola volta");
+        assertSame(prenotazioni.get(0).getSocio(), prenotazioni.get(1).getSocio(),
+                "Il socio dovrebbe essere caricato una sola volta");
+        assertNull(prenotazioni.get(0).getSocio().getPassword(),
+                "La password del socio non dovrebbe essere caricata");
+    }
+
+    @Test
+    @Order(14)
+    @DisplayName("La lettura a cursore restituisce le stesse prenotazioni di getAllPrenotazioni")
+    void testForEachPrenotazione() throws SQLException {
+        createTestPrenotazione();
+
+        List<Prenotazione> attese = prenotazioneDAO.getAllPrenotazioni();
+        List<Integer> lette = new ArrayList<>();
+        long righe = prenotazioneDAO.forEachPrenotazione(prenotazione -> lette.add(prenotazione.getId()));
+
+        assertEquals(attese.size(), righe, "Il numero di righe lette dovrebbe corrispondere");
+        for (int i = 0; i < attese.size(); i++) {
+            assertEquals(attese.get(i).getId(), lette.get(i), "L'ordine delle prenotazioni dovrebbe corrispondere");
+        }
+    }
+
+    @Test
+    @Order(15)
+    @DisplayName("Una prenotazione in un mese senza partizione crea la partizione")
+    void testCreazionePartizioneSuRichiesta() throws SQLException {
+        Prenotazione modello = createTestPrenotazione();
+
+        // Oltre i mesi creati in anticipo dallo schema e dal PartizioniManager
+        Prenotazione lontana = new Prenotazione();
+        lontana.setData(LocalDate.now().plusYears(5));
+        lontana.setOraInizio(LocalTime.of(9, 0));
+        lontana.setCampo(modello.getCampo());
+        lontana.setSocio(modello.getSocio());
+
+        Integer id = prenotazioneDAO.createPrenotazione(lontana);
+        assertNotNull(id, "La prenotazione dovrebbe essere creata");
+        idsPrenotazioniCreate.add(id);
+
+        assertFalse(prenotazioneDAO.creaPartizione(lontana.getData()),
+                "La partizione del mese dovrebbe già esistere");
+        assertNotNull(prenotazioneDAO.getPrenotazioneById(id), "La prenotazione dovrebbe essere leggibile");
+    }
+
+    @Test
+    @Order(16)
+    @DisplayName("Le prenotazioni storiche sono escluse salvo richiesta esplicita")
+    void testPrenotazioniStoriche() throws SQLException {
+        Prenotazione modello = createTestPrenotazione();
+
+        Prenotazione storica = new Prenotazione();
+        storica.setData(PrenotazioneDAO.getInizioPrenotazioniAttive().minusDays(1));
+        storica.setOraInizio(LocalTime.of(21, 0));
+        storica.setCampo(modello.getCampo());
+        storica.setSocio(modello.getSocio());
+
+        Integer id = prenotazioneDAO.createPrenotazione(storica);
+        assertNotNull(id, "La prenotazione storica dovrebbe essere creata");
+        idsPrenotazioniCreate.add(id);
+
+        int idSocio = modello.getSocio().getId();
+        assertTrue(prenotazioneDAO.getPrenotazioniBySocio(idSocio).stream()
+                .noneMatch(p -> p.getId().equals(id)), "La prenotazione storica non dovrebbe essere attiva");
+        assertTrue(prenotazioneDAO.getPrenotazioniBySocio(idSocio, true).stream()
+                .anyMatch(p -> p.getId().equals(id)), "Lo storico dovrebbe includere la prenotazione");
+        assertTrue(prenotazioneDAO.getPrenotazioniBySocio(idSocio).stream()
+                .anyMatch(p -> p.getId().equals(modello.getId())), "La prenotazione futura dovrebbe essere attiva");
+    }
+
+    @Test
+    @Order(17)
+    @DisplayName("L'esportazione CSV applica i filtri per data e campo")
+    void testEsportaCsv() throws SQLException {
+        Prenotazione prenotazione = createTestPrenotazione();
+        LocalDate data = prenotazione.getData();
+        Integer idCampo = prenotazione.getCampo().getId();
+
+        StringWriter csv = new StringWriter();
+        long righe = prenotazioneDAO.esportaCsv(csv, data, data, idCampo);
+
+        String[] linee = csv.toString().split("\n");
+        assertEquals(prenotazioneDAO.getPrenotazioniByDataAndCampo(data, idCampo).size(), righe,
+                "Dovrebbero essere esportate solo le prenotazioni del giorno e del campo");
+        assertEquals(righe + 1, linee.length, "Il CSV dovrebbe contenere l'intestazione e una riga per prenotazione");
+        assertTrue(linee[0].startsWith("id,data,ora_inizio,id_campo"), "La prima riga dovrebbe essere l'intestazione");
+        assertTrue(csv.toString().contains("\n" + prenotazione.getId() + "," + data + ","),
+                "La prenotazione creata dovrebbe essere esportata");
+
+        StringWriter vuoto = new StringWriter();
+        assertEquals(0, prenotazioneDAO.esportaCsv(vuoto, data.plusYears(50), null, null),
+                "Nessuna prenotazione dovrebbe essere esportata");
+    }
 }
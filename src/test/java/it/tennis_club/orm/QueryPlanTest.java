@@ -0,0 +1,441 @@
+package it.tennis_club.orm;
+
+import org.junit.jupiter.api.*;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test di regressione dei piani di esecuzione delle query dei DAO.
+ *
+ * Il database viene popolato con un volume realistico di dati (100.000
+ * prenotazioni, 5.000 utenti, 10.000 lezioni, 200.000 notifiche) all'interno
+ * di una transazione che viene annullata alla fine, quindi i dati esistenti
+ * non vengono modificati. Per ogni query viene eseguito EXPLAIN sul testo
+ * usato dal DAO e il test fallisce se la tabella filtrata viene letta con una
+ * scansione sequenziale invece che tramite un indice (vedi
+ * migrations/002_indici.sql). Sono escluse le letture di tabelle intere
+ * (elenchi completi ed esportazioni) e quelle dei campi, che sono pochi.
+ *
+ * Questi test richiedono che il database PostgreSQL sia in esecuzione e
+ * configurato correttamente in db.properties.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class QueryPlanTest {
+
+    private static final String UTENTI = "email LIKE 'piano.%@test.invalid'";
+    private static final String CAMPI = "nome LIKE 'Piano %'";
+
+    private static Connection connection;
+
+    private static int idCampo;
+    private static int idSocio;
+    private static int idMaestro;
+    private static int idAllievo;
+    private static int idLezione;
+    private static int idPrenotazione;
+    private static int idManutenzione;
+    private static long idNotifica;
+    private static LocalDate data;
+
+    @BeforeAll
+    static void popolaDatabase() throws SQLException {
+        connection = ConnectionManager.getConnection();
+        connection.setAutoCommit(false);
+
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("INSERT INTO utente (nome, cognome, email, password, ruolo) " +
+                    "SELECT 'Piano', 'Utente ' || g, 'piano.' || g || '@test.invalid', 'password', " +
+                    "       (CASE WHEN g % 25 = 0 THEN 'MAESTRO' ELSE 'SOCIO' END)::ruolo_utente " +
+                    "FROM generate_series(0, 4999) g");
+
+            statement.executeUpdate("INSERT INTO campo (nome, tipo_superficie, is_coperto) " +
+                    "SELECT 'Piano ' || g, 'Terra rossa', g % 2 = 0 FROM generate_series(0, 49) g");
+
+            statement.execute("SELECT crea_partizione_prenotazione(" +
+                    "(date_trunc('month', CURRENT_DATE) + make_interval(months => m))::date) " +
+                    "FROM generate_series(-24, 1) m");
+
+            // 50 campi x 730 giorni x 14 ore: ogni g corrisponde a un orario distinto
+            statement.executeUpdate("WITH c AS (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n " +
+                    "                FROM campo WHERE " + CAMPI + "), " +
+                    "     s AS (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n " +
+                    "                FROM utente WHERE " + UTENTI + ") " +
+                    "INSERT INTO prenotazione (data, ora_inizio, id_campo, id_socio) " +
+                    "SELECT CURRENT_DATE - 700 + (g / 50) % 730, make_time(8 + g / 36500, 0, 0), c.id, s.id " +
+                    "FROM generate_series(0, 99999) g " +
+                    "JOIN c ON c.n = g % 50 " +
+                    "JOIN s ON s.n = g % 5000");
+
+            statement.executeUpdate("WITH m AS (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n " +
+                    "                FROM utente WHERE " + UTENTI + " AND ruolo = 'MAESTRO'), " +
+                    "     p AS (SELECT p.id, row_number() OVER (ORDER BY p.id) - 1 AS n " +
+                    "                FROM prenotazione p JOIN campo c ON c.id = p.id_campo WHERE c." + CAMPI + ") " +
+                    "INSERT INTO lezione (id_prenotazione, id_maestro, descrizione) " +
+                    "SELECT p.id, m.id, 'Lezione di prova' FROM p JOIN m ON m.n = (p.n / 10) % 200 " +
+                    "WHERE p.n % 10 = 0");
+
+            statement.executeUpdate("WITH a AS (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n " +
+                    "                FROM utente WHERE " + UTENTI + " AND ruolo = 'SOCIO'), " +
+                    "     l AS (SELECT l.id, row_number() OVER (ORDER BY l.id) - 1 AS n " +
+                    "                FROM lezione l JOIN utente m ON m.id = l.id_maestro WHERE m." + UTENTI + ") " +
+                    "INSERT INTO allievo_lezione (id_lezione, id_allievo) " +
+                    "SELECT l.id, a.id FROM l CROSS JOIN generate_series(0, 2) k " +
+                    "JOIN a ON a.n = (l.n * 3 + k) % 4800");
+
+            statement.executeUpdate("WITH c AS (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n " +
+                    "                FROM campo WHERE " + CAMPI + "), " +
+                    "     u AS (SELECT min(id) AS id FROM utente WHERE " + UTENTI + ") " +
+                    "INSERT INTO manutenzione (id_campo, id_manutentore, data_inizio, data_fine, descrizione, stato) " +
+                    "SELECT c.id, u.id, CURRENT_DATE - 700 + (g * 7) % 730, " +
+                    "       CASE WHEN g % 2 = 0 THEN NULL ELSE CURRENT_DATE - 698 + (g * 7) % 730 END, " +
+                    "       'Manutenzione di prova', " +
+                    "       (ARRAY['IN_CORSO', 'COMPLETATA', 'ANNULLATA'])[1 + g % 3] " +
+                    "FROM generate_series(0, 1999) g JOIN c ON c.n = g % 50 CROSS JOIN u");
+
+            // 40 notifiche per utente: una su 50 non letta, una su 100 da consegnare
+            statement.executeUpdate("WITH u AS (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n " +
+                    "                FROM utente WHERE " + UTENTI + ") " +
+                    "INSERT INTO notifica (id_utente, messaggio, letta, stato_consegna) " +
+                    "SELECT u.id, 'Notifica di prova', g % 50 <> 0, " +
+                    "       CASE WHEN g % 100 = 0 THEN 'IN_ATTESA' ELSE 'CONSEGNATA' END " +
+                    "FROM generate_series(0, 199999) g JOIN u ON u.n = g % 5000");
+
+            // Statistiche aggiornate, come dopo l'autovacuum su un database reale
+            statement.execute("ANALYZE utente, campo, prenotazione, lezione, allievo_lezione, manutenzione, " +
+                    "notifica");
+
+            try (ResultSet resultSet = statement.executeQuery(
+                    "SELECT (SELECT min(id) FROM campo WHERE " + CAMPI + "), " +
+                    "       (SELECT min(id) FROM utente WHERE " + UTENTI + " AND ruolo = 'SOCIO'), " +
+                    "       (SELECT min(id) FROM utente WHERE " + UTENTI + " AND ruolo = 'MAESTRO'), " +
+                    "       (SELECT max(id) FROM utente WHERE " + UTENTI + " AND ruolo = 'SOCIO'), " +
+                    "       (SELECT max(l.id) FROM lezione l JOIN utente m ON m.id = l.id_maestro " +
+                    "         WHERE m." + UTENTI + "), " +
+                    "       (SELECT max(p.id) FROM prenotazione p JOIN campo c ON c.id = p.id_campo " +
+                    "         WHERE c." + CAMPI + "), " +
+                    "       (SELECT max(m.id) FROM manutenzione m JOIN campo c ON c.id = m.id_campo " +
+                    "         WHERE c." + CAMPI + "), " +
+                    "       (SELECT max(n.id) FROM notifica n JOIN utente u ON u.id = n.id_utente " +
+                    "         WHERE u." + UTENTI + ")")) {
+                resultSet.next();
+                idCampo = resultSet.getInt(1);
+                idSocio = resultSet.getInt(2);
+                idMaestro = resultSet.getInt(3);
+                idAllievo = resultSet.getInt(4);
+                idLezione = resultSet.getInt(5);
+                idPrenotazione = resultSet.getInt(6);
+                idManutenzione = resultSet.getInt(7);
+                idNotifica = resultSet.getLong(8);
+            }
+        }
+
+        data = LocalDate.now().minusDays(300);
+    }
+
+    @AfterAll
+    static void annullaModifiche() throws SQLException {
+        if (connection != null) {
+            try {
+                connection.rollback();
+            } finally {
+                ConnectionManager.closeConnection(connection);
+            }
+        }
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Prenotazioni di una data (getPrenotazioniByData)")
+    void testPrenotazioniPerData() throws SQLException {
+        assertUsaIndice("prenotazione", PrenotazioneDAO.QUERY_BY_DATA, data);
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Prenotazioni di un campo (getPrenotazioniByCampo)")
+    void testPrenotazioniPerCampo() throws SQLException {
+        LocalDate inizio = PrenotazioneDAO.getInizioPrenotazioniAttive();
+        String piano = piano(PrenotazioneDAO.queryByCampo(false), idCampo, inizio);
+
+        assertNessunaScansioneSequenziale("prenotazione", piano);
+        assertSoloPartizioniDa(inizio, piano);
+        assertUsaIndice("prenotazione", PrenotazioneDAO.queryByCampo(true), idCampo);
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Prenotazioni di un socio (getPrenotazioniBySocio)")
+    void testPrenotazioniPerSocio() throws SQLException {
+        LocalDate inizio = PrenotazioneDAO.getInizioPrenotazioniAttive();
+        String piano = piano(PrenotazioneDAO.queryBySocio(false), idSocio, inizio);
+
+        assertNessunaScansioneSequenziale("prenotazione", piano);
+        assertSoloPartizioniDa(inizio, piano);
+        assertUsaIndice("prenotazione", PrenotazioneDAO.queryBySocio(true), idSocio);
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Prenotazioni di un campo in una data (getPrenotazioniByDataAndCampo)")
+    void testPrenotazioniPerDataECampo() throws SQLException {
+        assertUsaIndice("prenotazione", PrenotazioneDAO.QUERY_BY_DATA_AND_CAMPO, data, idCampo);
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("Prenotazioni di un campo in un intervallo (getPrenotazioniByDateRangeAndCampo)")
+    void testPrenotazioniPerIntervalloECampo() throws SQLException {
+        assertUsaIndice("prenotazione", PrenotazioneDAO.QUERY_BY_DATE_RANGE_AND_CAMPO,
+                data, data.plusDays(7), idCampo);
+    }
+
+    @Test
+    @Order(6)
+    @DisplayName("Pagine di prenotazioni (getPrenotazioniDopo)")
+    void testPaginaPrenotazioni() throws SQLException {
+        LocalDate inizio = PrenotazioneDAO.getInizioPrenotazioniAttive();
+        String prima = piano(PrenotazioneDAO.queryDopo(false, true), inizio, 21);
+        String successiva = piano(PrenotazioneDAO.queryDopo(false, false),
+                inizio, inizio.plusDays(3), LocalTime.of(10, 0), 0, 21);
+
+        assertNessunaScansioneSequenziale("prenotazione", prima);
+        assertSoloPartizioniDa(inizio, prima);
+        assertNessunaScansioneSequenziale("prenotazione", successiva);
+        assertSoloPartizioniDa(inizio, successiva);
+        assertUsaIndice("prenotazione", PrenotazioneDAO.queryDopo(true, false), data, LocalTime.of(10, 0), 0, 21);
+    }
+
+    @Test
+    @Order(7)
+    @DisplayName("Elenco completo e orari occupati leggono solo le partizioni necessarie (getAllPrenotazioni, " +
+            "getSlotOccupati)")
+    void testPartizioniLette() throws SQLException {
+        // Queste letture restituiscono partizioni intere: conta che le altre siano escluse dal piano
+        LocalDate inizio = PrenotazioneDAO.getInizioPrenotazioniAttive();
+        assertSoloPartizioniDa(inizio, piano(PrenotazioneDAO.queryAll(false), inizio));
+        assertSoloPartizioniDa(LocalDate.now(), piano(PrenotazioneDAO.QUERY_SLOT_OCCUPATI, LocalDate.now()));
+    }
+
+    @Test
+    @Order(8)
+    @DisplayName("Prenotazione per ID e per lezione, modifica e cancellazione (getPrenotazioneById, " +
+            "getPrenotazioneByLezione, updatePrenotazione, deletePrenotazione)")
+    void testPrenotazionePerId() throws SQLException {
+        assertUsaIndice("prenotazione", PrenotazioneDAO.QUERY_BY_ID, idPrenotazione);
+
+        String piano = piano(PrenotazioneDAO.QUERY_BY_LEZIONE, idLezione);
+        assertNessunaScansioneSequenziale("prenotazione", piano);
+        assertNessunaScansioneSequenziale("lezione", piano);
+
+        assertUsaIndice("prenotazione", PrenotazioneDAO.UPDATE_BY_ID,
+                idPrenotazione, data, LocalTime.of(10, 0), idCampo, idSocio);
+        assertUsaIndice("prenotazione", PrenotazioneDAO.DELETE_BY_ID, idPrenotazione);
+    }
+
+    @Test
+    @Order(9)
+    @DisplayName("Cancellazione per manutenzione (deletePrenotazioniByCampoAndDateRange)")
+    void testCancellazionePerManutenzione() throws SQLException {
+        assertUsaIndice("prenotazione", PrenotazioneDAO.DELETE_BY_CAMPO_AND_DATE_RANGE,
+                idCampo, data, data.plusDays(3));
+    }
+
+    @Test
+    @Order(10)
+    @DisplayName("Verifica di disponibilità multipla (verificaDisponibilita)")
+    void testVerificaDisponibilita() throws SQLException {
+        Array campi = connection.createArrayOf("integer", new Object[] { idCampo, idCampo });
+        Array date = connection.createArrayOf("date", new Object[] { data, data.plusDays(7) });
+        Array ore = connection.createArrayOf("time", new Object[] { LocalTime.of(10, 0), LocalTime.of(11, 0) });
+
+        String piano = piano(PrenotazioneDAO.QUERY_DISPONIBILITA, campi, date, ore);
+
+        assertNessunaScansioneSequenziale("prenotazione", piano);
+        assertNessunaScansioneSequenziale("manutenzione", piano);
+    }
+
+    @Test
+    @Order(11)
+    @DisplayName("Lezioni di un maestro (getLezioniByMaestro)")
+    void testLezioniPerMaestro() throws SQLException {
+        assertUsaIndice("lezione", LezioneDAO.QUERY_BY_MAESTRO, idMaestro);
+    }
+
+    @Test
+    @Order(12)
+    @DisplayName("Pagina successiva di lezioni (getLezioniDopo)")
+    void testPaginaLezioni() throws SQLException {
+        String piano = piano(LezioneDAO.queryDopo(false), data, LocalTime.of(10, 0), 0, 21);
+
+        assertNessunaScansioneSequenziale("prenotazione", piano);
+    }
+
+    @Test
+    @Order(13)
+    @DisplayName("Lezione per ID e per prenotazione, modifica e cancellazione (getLezioneById, " +
+            "getLezioneByPrenotazione, updateLezione, deleteLezione)")
+    void testLezionePerIdEPrenotazione() throws SQLException {
+        String piano = piano(LezioneDAO.QUERY_BY_ID, idLezione);
+        assertNessunaScansioneSequenziale("lezione", piano);
+        assertNessunaScansioneSequenziale("prenotazione", piano);
+
+        piano = piano(LezioneDAO.QUERY_BY_PRENOTAZIONE, idPrenotazione);
+        assertNessunaScansioneSequenziale("lezione", piano);
+        assertNessunaScansioneSequenziale("prenotazione", piano);
+
+        assertUsaIndice("lezione", LezioneDAO.UPDATE_BY_ID, "Lezione di prova", idPrenotazione, idMaestro,
+                idLezione);
+        assertUsaIndice("lezione", LezioneDAO.DELETE_BY_ID, idLezione);
+    }
+
+    @Test
+    @Order(14)
+    @DisplayName("Lezioni di un allievo (getLezioniByAllievo)")
+    void testLezioniPerAllievo() throws SQLException {
+        assertUsaIndice("allievo_lezione", AllievoLezioneDAO.QUERY_LEZIONI_BY_ALLIEVO, idAllievo);
+    }
+
+    @Test
+    @Order(15)
+    @DisplayName("Allievi e iscrizioni di una lezione (getAllieviByLezione, contaAllievi, getAllieviLezione, " +
+            "getAllievoLezione, segnaPresenza, aggiungiFeedback, rimuoviAllievoLezione, rimuoviAllievi)")
+    void testAllieviPerLezione() throws SQLException {
+        assertUsaIndice("allievo_lezione", AllievoLezioneDAO.QUERY_ALLIEVI_BY_LEZIONE, idLezione);
+        assertUsaIndice("allievo_lezione", AllievoLezioneDAO.QUERY_CONTA_ALLIEVI, idLezione);
+        assertUsaIndice("allievo_lezione", AllievoLezioneDAO.QUERY_ALLIEVI_LEZIONE, idLezione);
+        assertUsaIndice("allievo_lezione", AllievoLezioneDAO.QUERY_ALLIEVO_LEZIONE, idLezione, idAllievo);
+        assertUsaIndice("allievo_lezione", AllievoLezioneDAO.UPDATE_PRESENZA, true, idLezione, idAllievo);
+        assertUsaIndice("allievo_lezione", AllievoLezioneDAO.UPDATE_FEEDBACK, "Bene", idLezione, idAllievo);
+        assertUsaIndice("allievo_lezione", AllievoLezioneDAO.DELETE_ALLIEVO, idLezione, idAllievo);
+        assertUsaIndice("allievo_lezione", AllievoLezioneDAO.DELETE_BY_LEZIONE, idLezione);
+    }
+
+    @Test
+    @Order(16)
+    @DisplayName("Manutenzioni di un campo (getManutenzioniByCampo)")
+    void testManutenzioniPerCampo() throws SQLException {
+        assertUsaIndice("manutenzione", ManutenzioneDAO.QUERY_BY_CAMPO, idCampo);
+    }
+
+    @Test
+    @Order(17)
+    @DisplayName("Manutenzione attiva di un campo in una data (getManutenzioneAttivaByDataAndCampo)")
+    void testManutenzioneAttiva() throws SQLException {
+        assertUsaIndice("manutenzione", ManutenzioneDAO.QUERY_ATTIVA_BY_DATA_AND_CAMPO, idCampo, data, data, data);
+    }
+
+    @Test
+    @Order(18)
+    @DisplayName("Manutenzione per ID, cambio di stato, completamento e cancellazione (getManutenzioneById, " +
+            "updateStatoManutenzione, completaManutenzione, deleteManutenzioni)")
+    void testManutenzionePerId() throws SQLException {
+        assertUsaIndice("manutenzione", ManutenzioneDAO.QUERY_BY_ID, idManutenzione);
+        assertUsaIndice("manutenzione", ManutenzioneDAO.UPDATE_STATO, "ANNULLATA", idManutenzione);
+        assertUsaIndice("manutenzione", ManutenzioneDAO.UPDATE_COMPLETATA, data, idManutenzione);
+        assertUsaIndice("manutenzione", ManutenzioneDAO.DELETE_BY_ID, idManutenzione);
+    }
+
+    @Test
+    @Order(19)
+    @DisplayName("Login, utente per ID, cambio di ruolo e cancellazione (login, getUtenteById, updateRuolo, " +
+            "deleteUtente)")
+    void testUtente() throws SQLException {
+        assertUsaIndice("utente", UtenteDAO.QUERY_LOGIN, "piano.1@test.invalid", "password");
+        assertUsaIndice("utente", UtenteDAO.QUERY_BY_ID, idSocio);
+        assertUsaIndice("utente", UtenteDAO.UPDATE_RUOLO, "MAESTRO", idSocio);
+        assertUsaIndice("utente", UtenteDAO.DELETE_BY_ID, idSocio);
+    }
+
+    @Test
+    @Order(20)
+    @DisplayName("Pagine di utenti (getUtentiDopo)")
+    void testPaginaUtenti() throws SQLException {
+        assertUsaIndice("utente", UtenteDAO.queryDopo(true), 21);
+        assertUsaIndice("utente", UtenteDAO.queryDopo(false), idSocio, 21);
+    }
+
+    @Test
+    @Order(21)
+    @DisplayName("Notifiche di un utente e non lette (getNotificheDopo, contaNonLette, consumaNonLette)")
+    void testNotificheUtente() throws SQLException {
+        assertUsaIndice("notifica", NotificaDAO.queryDopo(true), idSocio, 21);
+        assertUsaIndice("notifica", NotificaDAO.queryDopo(false), idSocio, idNotifica, 21);
+        assertUsaIndice("notifica", NotificaDAO.QUERY_CONTA_NON_LETTE);
+        assertUsaIndice("notifica", NotificaDAO.UPDATE_CONSUMA_NON_LETTE, idSocio);
+    }
+
+    @Test
+    @Order(22)
+    @DisplayName("Consegna e pulizia delle notifiche (prelevaDaConsegnare, segnaConsegnate, registraFallimento, " +
+            "eliminaEccedenti)")
+    void testConsegnaNotifiche() throws SQLException {
+        Array ids = connection.createArrayOf("bigint", new Object[] { idNotifica, idNotifica - 1 });
+        Array utenti = connection.createArrayOf("integer", new Object[] { idSocio, idAllievo });
+
+        assertUsaIndice("notifica", NotificaDAO.UPDATE_PRELEVA, 60_000L, 100);
+        assertUsaIndice("notifica", NotificaDAO.UPDATE_CONSEGNATE, ids);
+        assertUsaIndice("notifica", NotificaDAO.UPDATE_FALLIMENTO, "Errore", "IN_ATTESA", 1000L, idNotifica);
+        assertUsaIndice("notifica", NotificaDAO.DELETE_ECCEDENTI, utenti, 50);
+    }
+
+    /**
+     * Verifica che il piano della query non legga la tabella indicata con una
+     * scansione sequenziale.
+     */
+    private static void assertUsaIndice(String tabella, String query, Object... parametri) throws SQLException {
+        assertNessunaScansioneSequenziale(tabella, piano(query, parametri));
+    }
+
+    /**
+     * Verifica che il piano della query non legga le partizioni mensili di
+     * prenotazione precedenti al mese della data indicata.
+     */
+    private static void assertSoloPartizioniDa(LocalDate inizio, String piano) {
+        Matcher matcher = Pattern.compile("prenotazione_p(\\d{4})_(\\d{2})\\b").matcher(piano);
+        YearMonth primo = YearMonth.from(inizio);
+        boolean trovata = false;
+        while (matcher.find()) {
+            YearMonth mese = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            assertFalse(mese.isBefore(primo), "La partizione " + matcher.group() +
+                    " non dovrebbe essere letta:\n" + piano);
+            trovata = true;
+        }
+        assertTrue(trovata, "Il piano dovrebbe leggere almeno una partizione di prenotazione:\n" + piano);
+    }
+
+    private static void assertNessunaScansioneSequenziale(String tabella, String piano) {
+        // Le partizioni mensili di prenotazione compaiono nel piano con il proprio nome
+        assertFalse(Pattern.compile("Seq Scan on " + tabella + "(_p\\d{4}_\\d{2})?\\b").matcher(piano).find(),
+                "La tabella " + tabella + " non dovrebbe essere letta con una scansione sequenziale:\n" + piano);
+    }
+
+    /**
+     * Restituisce il piano di esecuzione della query con i parametri indicati.
+     */
+    private static String piano(String query, Object... parametri) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + query)) {
+            for (int i = 0; i < parametri.length; i++) {
+                statement.setObject(i + 1, parametri[i]);
+            }
+            StringBuilder piano = new StringBuilder();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    piano.append(resultSet.getString(1)).append('\n');
+                }
+            }
+            return piano.toString();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package it.tennis_club.orm;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per RingBuffer.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class RingBufferTest {
+
+    @Test
+    @Order(1)
+    @DisplayName("La capacità viene arrotondata alla potenza di due successiva")
+    void testCapacita() {
+        assertEquals(1, new RingBuffer<String>(1).getCapacita());
+        assertEquals(8, new RingBuffer<String>(5).getCapacita());
+        assertEquals(8, new RingBuffer<String>(8).getCapacita());
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<String>(0));
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Gli elementi vengono prelevati nell'ordine di inserimento")
+    void testOrdine() {
+        RingBuffer<Integer> coda = new RingBuffer<>(4);
+        assertNull(coda.preleva(), "La coda vuota non dovrebbe restituire elementi");
+
+        // Più giri della coda, per verificare il riuso delle celle
+        for (int giro = 0; giro < 3; giro++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(coda.offri(giro * 10 + i));
+            }
+            for (int i = 0; i < 3; i++) {
+                assertEquals(giro * 10 + i, coda.preleva());
+            }
+        }
+        assertNull(coda.preleva());
+        assertEquals(9, coda.getInseriti());
+        assertEquals(9, coda.getPrelevati());
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Da piena la coda rifiuta gli elementi senza bloccare")
+    void testPiena() {
+        RingBuffer<String> coda = new RingBuffer<>(2);
+        assertTrue(coda.offri("a"));
+        assertTrue(coda.offri("b"));
+        assertFalse(coda.offri("c"), "La coda piena dovrebbe rifiutare l'inserimento");
+
+        assertEquals("a", coda.preleva());
+        assertTrue(coda.offri("c"), "Dopo un prelievo dovrebbe esserci spazio");
+        assertEquals("b", coda.preleva());
+        assertEquals("c", coda.preleva());
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Con più produttori nessun elemento viene perso o duplicato")
+    void testProduttoriConcorrenti() throws InterruptedException {
+        int produttori = 4;
+        int perProduttore = 50_000;
+        RingBuffer<Integer> coda = new RingBuffer<>(1024);
+        AtomicInteger rifiutati = new AtomicInteger();
+        CountDownLatch partenza = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < produttori; p++) {
+            int base = p * perProduttore;
+            Thread thread = new Thread(() -> {
+                try {
+                    partenza.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProduttore; i++) {
+                    // Quando la coda è piena si riprova, per contare ogni elemento
+                    while (!coda.offri(base + i)) {
+                        rifiutati.incrementAndGet();
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        boolean[] visti = new boolean[produttori * perProduttore];
+        int[] ultimo = new int[produttori];
+        Arrays.fill(ultimo, -1);
+        partenza.countDown();
+
+        int prelevati = 0;
+        while (prelevati < visti.length) {
+            Integer elemento = coda.preleva();
+            if (elemento == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            assertFalse(visti[elemento], "Elemento duplicato: " + elemento);
+            visti[elemento] = true;
+            int produttore = elemento / perProduttore;
+            assertTrue(elemento % perProduttore > ultimo[produttore],
+                    "Gli elementi di un produttore dovrebbero restare in ordine");
+            ultimo[produttore] = elemento % perProduttore;
+            prelevati++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(coda.preleva());
+        assertEquals(visti.length, coda.getInseriti());
+    }
+}
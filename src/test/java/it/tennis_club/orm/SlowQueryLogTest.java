@@ -0,0 +1,211 @@
+package it.tennis_club.orm;
+
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per SlowQueryLog.
+ * Le query vengono eseguite su un pool di connessioni finte, quindi questi
+ * test non richiedono il database.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class SlowQueryLogTest {
+
+    private static final long MILLIS = 1_000_000L;
+
+    private ConnectionPool pool;
+    private long sogliaOriginale;
+    private double campionamentoOriginale;
+
+    @BeforeEach
+    void setUp() {
+        sogliaOriginale = SlowQueryLog.getSogliaMillis();
+        campionamentoOriginale = SlowQueryLog.getCampionamento();
+        SlowQueryLog.reset();
+        SlowQueryLog.setAbilitato(true);
+        SlowQueryLog.setSogliaMillis(100);
+        pool = new ConnectionPool(SlowQueryLogTest::connessioneFinta,
+                new ConnectionPool.Config().minSize(0).maxSize(1).housekeepingPeriodMillis(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+        SlowQueryLog.setAbilitato(false);
+        SlowQueryLog.setSogliaMillis(sogliaOriginale);
+        SlowQueryLog.setCampionamento(campionamentoOriginale);
+        SlowQueryLog.reset();
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("L'impronta normalizza letterali, liste, spazi e maiuscole")
+    void testImpronta() {
+        assertEquals("select * from prenotazione where id_campo = ? and data = ?",
+                SlowQueryLog.impronta("SELECT *\n  FROM prenotazione\n WHERE id_campo = 3 AND data = '2026-05-01'"));
+        assertEquals("select id from utente where id in (?...)",
+                SlowQueryLog.impronta("SELECT id FROM utente WHERE id IN (?, ?, ?)"));
+        assertEquals("select id from utente where id in (?...)",
+                SlowQueryLog.impronta("SELECT id FROM utente WHERE id IN (1, 2,3, 4)"));
+        assertEquals("insert into t (a, b) values (?...), ...",
+                SlowQueryLog.impronta("INSERT INTO t (a, b) VALUES (?, ?), (?, ?), (?, ?)"));
+        assertEquals("select nome from campo where note = ?",
+                SlowQueryLog.impronta("SELECT nome FROM campo -- commento\n WHERE note = 'l''erba'"));
+        assertEquals("alter table prenotazione_p2024_01 set schema archivio",
+                SlowQueryLog.impronta("ALTER TABLE prenotazione_p2024_01 SET SCHEMA archivio"),
+                "I numeri nei nomi delle tabelle non dovrebbero essere sostituiti");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Le query lente vengono aggregate per metodo e impronta")
+    void testAggregazione() {
+        SlowQueryLog.setCampionamento(0);
+
+        SlowQueryLog.registra("PrenotazioneDAO.getX", "SELECT * FROM p WHERE id = 1", "(Int)", 150 * MILLIS, 1,
+                false);
+        SlowQueryLog.registra("PrenotazioneDAO.getX", "SELECT * FROM p WHERE id = 2", "(Int)", 250 * MILLIS, 3,
+                false);
+        SlowQueryLog.registra("PrenotazioneDAO.getX", "SELECT * FROM p WHERE id = 3", "(Int)", 1 * MILLIS, 1,
+                false);
+
+        List<SlowQueryLog.Voce> report = SlowQueryLog.getReport(10);
+        assertEquals(1, report.size(), "Le due query lente dovrebbero avere la stessa impronta");
+        SlowQueryLog.Voce voce = report.get(0);
+        assertEquals("PrenotazioneDAO.getX", voce.getMetodo());
+        assertEquals("select * from p where id = ?", voce.getImpronta());
+        assertEquals(2, voce.getEsecuzioni(), "La query rapida non dovrebbe essere registrata senza campionamento");
+        assertEquals(2, voce.getLente());
+        assertEquals(400.0, voce.getTempoTotaleMillis(), 0.001);
+        assertEquals(250.0, voce.getMaxMillis(), 0.001);
+        assertEquals(2.0, voce.getRigheMedie(), 0.001);
+        assertEquals(List.of("(Int)"), voce.getFormeParametri());
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Le query rapide campionate vengono pesate per l'inverso del tasso")
+    void testCampionamento() {
+        SlowQueryLog.setCampionamento(0.5);
+
+        // Con tasso 0.5 ogni esecuzione campionata ne rappresenta due
+        for (int i = 0; i < 1000; i++) {
+            SlowQueryLog.registra("LezioneDAO.getY", "SELECT 1", null, MILLIS, 1, false);
+        }
+
+        SlowQueryLog.Voce voce = SlowQueryLog.getReport(10).get(0);
+        assertEquals(0, voce.getEsecuzioni() % 2);
+        assertTrue(voce.getEsecuzioni() > 800 && voce.getEsecuzioni() < 1200,
+                "La stima dovrebbe essere vicina alle esecuzioni reali: " + voce.getEsecuzioni());
+        assertEquals(0, voce.getLente());
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Il report è ordinato per tempo totale e include la quota")
+    void testReportOrdinato() {
+        SlowQueryLog.setCampionamento(1);
+
+        SlowQueryLog.registra("ManutenzioneDAO.a", "SELECT a", null, 100 * MILLIS, 0, false);
+        SlowQueryLog.registra("PrenotazioneDAO.b", "SELECT b", null, 300 * MILLIS, 0, false);
+        SlowQueryLog.registra("LezioneDAO.c", "SELECT c", null, 10 * MILLIS, 0, true);
+
+        List<SlowQueryLog.Voce> report = SlowQueryLog.getReport(2);
+        assertEquals(2, report.size(), "Il report dovrebbe rispettare il limite");
+        assertEquals("PrenotazioneDAO.b", report.get(0).getMetodo());
+        assertEquals("ManutenzioneDAO.a", report.get(1).getMetodo());
+        assertEquals(300 * 100.0 / 410, report.get(0).getQuota(), 0.001);
+
+        SlowQueryLog.Voce errore = SlowQueryLog.getReport(3).get(2);
+        assertEquals(1, errore.getErrori());
+        assertTrue(SlowQueryLog.report(3).contains("PrenotazioneDAO.b"));
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("Le query dei DAO vengono registrate con metodo, righe e forma dei parametri")
+    void testQueryDao() throws SQLException {
+        SlowQueryLog.setSogliaMillis(0);
+
+        new FintoDAO(pool).aggiorna(4);
+
+        List<SlowQueryLog.Voce> report = SlowQueryLog.getReport(10);
+        assertEquals(1, report.size());
+        SlowQueryLog.Voce voce = report.get(0);
+        assertEquals("SlowQueryLogTest$FintoDAO.aggiorna", voce.getMetodo());
+        assertEquals("update prenotazione set data = ? where id = ?", voce.getImpronta());
+        assertEquals(List.of("(Date, Int)"), voce.getFormeParametri());
+        assertEquals(1.0, voce.getRigheMedie(), 0.001);
+    }
+
+    @Test
+    @Order(6)
+    @DisplayName("Da disabilitato il registro non intercetta le query")
+    void testDisabilitato() throws SQLException {
+        SlowQueryLog.setAbilitato(false);
+        SlowQueryLog.setSogliaMillis(0);
+
+        new FintoDAO(pool).aggiorna(1);
+
+        assertTrue(SlowQueryLog.getReport(10).isEmpty(), "Non dovrebbero esserci query registrate");
+    }
+
+    /**
+     * DAO di prova: il nome termina con "DAO" ed è nel package orm, come
+     * quelli reali.
+     */
+    private static class FintoDAO {
+        private final ConnectionPool pool;
+
+        FintoDAO(ConnectionPool pool) {
+            this.pool = pool;
+        }
+
+        void aggiorna(int id) throws SQLException {
+            try (Connection connection = pool.getConnection();
+                    PreparedStatement ps = connection.prepareStatement(
+                            "UPDATE prenotazione SET data = ? WHERE id = ?")) {
+                ps.setDate(1, Date.valueOf("2026-05-01"));
+                ps.setInt(2, id);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private static Connection connessioneFinta() {
+        return (Connection) Proxy.newProxyInstance(SlowQueryLogTest.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (p, method, args) -> {
+                    switch (method.getName()) {
+                        case "prepareStatement":
+                            return statementFinto();
+                        case "getAutoCommit":
+                            return true;
+                        case "isClosed":
+                        case "isReadOnly":
+                            return false;
+                        case "isValid":
+                            return true;
+                        case "hashCode":
+                            return System.identityHashCode(p);
+                        case "equals":
+                            return p == args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private static PreparedStatement statementFinto() {
+        return (PreparedStatement) Proxy.newProxyInstance(SlowQueryLogTest.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                (p, method, args) -> method.getName().equals("executeUpdate") ? 1 : null);
+    }
+}
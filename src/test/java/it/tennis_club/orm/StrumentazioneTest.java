@@ -0,0 +1,246 @@
+package it.tennis_club.orm;
+
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per Strumentazione.
+ * Le chiamate dei DAO vengono esercitate con un pool di connessioni finte,
+ * quindi questi test non richiedono il database.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class StrumentazioneTest {
+
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() {
+        Strumentazione.reset();
+        Strumentazione.setAbilitata(true);
+        pool = new ConnectionPool(StrumentazioneTest::connessioneFinta,
+                new ConnectionPool.Config().minSize(0).maxSize(2).acquireTimeoutMillis(50)
+                        .housekeepingPeriodMillis(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+        Strumentazione.setAbilitata(false);
+        Strumentazione.reset();
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Da disabilitata la strumentazione non registra nulla")
+    void testDisabilitata() throws SQLException {
+        Strumentazione.setAbilitata(false);
+
+        Strumentazione.misura("Servizio.metodo", () -> {
+        });
+        new FintoDAO(pool).leggi(1);
+
+        assertTrue(Strumentazione.getStatistiche().isEmpty(), "Non dovrebbero esserci statistiche");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Chiamate ed errori vengono contati per metodo")
+    void testChiamateEdErrori() {
+        for (int i = 0; i < 3; i++) {
+            boolean errore = i == 0;
+            try {
+                Strumentazione.misura("Servizio.metodo", () -> {
+                    if (errore) {
+                        throw new IllegalStateException("Errore simulato");
+                    }
+                });
+            } catch (IllegalStateException e) {
+                // atteso per la prima chiamata
+            }
+        }
+
+        Strumentazione.Statistiche statistiche = Strumentazione.getStatistiche("Servizio.metodo");
+        assertNotNull(statistiche);
+        assertEquals(3, statistiche.getChiamate());
+        assertEquals(1, statistiche.getErrori());
+        assertTrue(statistiche.getMaxNanos() >= statistiche.getP50Nanos(),
+                "Il massimo non dovrebbe essere inferiore alla mediana");
+        assertTrue(Strumentazione.dump().contains("Servizio.metodo"), "Il dump dovrebbe contenere il metodo");
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Una chiamata del DAO viene misurata una volta con i suoi statement")
+    void testChiamataDao() throws SQLException {
+        assertEquals(Integer.valueOf(2), new FintoDAO(pool).leggi(2));
+
+        Strumentazione.Statistiche statistiche = Strumentazione.getStatistiche("FintoDAO.leggi");
+        assertNotNull(statistiche, "La chiamata del DAO dovrebbe essere registrata");
+        assertEquals(1, statistiche.getChiamate());
+        assertEquals(0, statistiche.getErrori());
+        assertEquals(2, statistiche.getStatement());
+        assertEquals(2, statistiche.getMaxStatement());
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("I metodi che ricevono la connessione vengono misurati e quelli che ne usano due contano una volta")
+    void testConnessioni() throws SQLException {
+        FintoDAO dao = new FintoDAO(pool);
+
+        dao.leggiDueVolte();
+        try (Connection connection = pool.getConnection()) {
+            dao.leggi(connection, 3);
+        }
+
+        assertEquals(1, Strumentazione.getStatistiche("FintoDAO.leggiDueVolte").getChiamate(),
+                "Un metodo con due connessioni dovrebbe contare una sola chiamata");
+        assertEquals(2, Strumentazione.getStatistiche("FintoDAO.leggiDueVolte").getStatement());
+        Strumentazione.Statistiche conConnessione = Strumentazione.getStatistiche("FintoDAO.leggi(Connection, int)");
+        assertNotNull(conConnessione, "Il metodo che riceve la connessione dovrebbe essere misurato");
+        assertEquals(1, conConnessione.getChiamate());
+        assertEquals(3, conConnessione.getStatement());
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("Gli statement del DAO vengono contati anche per il servizio chiamante")
+    void testStatementNelServizio() throws SQLException {
+        FintoDAO dao = new FintoDAO(pool);
+
+        Strumentazione.misura("Servizio.metodo", () -> {
+            dao.leggi(1);
+            dao.leggi(2);
+        });
+
+        assertEquals(3, Strumentazione.getStatistiche("Servizio.metodo").getStatement());
+        assertEquals(2, Strumentazione.getStatistiche("FintoDAO.leggi").getChiamate());
+    }
+
+    @Test
+    @Order(6)
+    @DisplayName("Un'eccezione JDBC segna come errore la chiamata del DAO")
+    void testErroreDao() {
+        assertThrows(SQLException.class, () -> new FintoDAO(pool).fallisci());
+
+        Strumentazione.Statistiche statistiche = Strumentazione.getStatistiche("FintoDAO.fallisci");
+        assertEquals(1, statistiche.getChiamate());
+        assertEquals(1, statistiche.getErrori());
+    }
+
+    @Test
+    @Order(7)
+    @DisplayName("L'attesa scaduta di una connessione è un errore del metodo e un timeout del pool")
+    void testTimeoutPool() throws SQLException {
+        try (Connection prima = pool.getConnection(); Connection seconda = pool.getConnection()) {
+            assertThrows(SQLException.class, () -> new FintoDAO(pool).leggi(1));
+        }
+
+        assertEquals(1, pool.getStats().getTimeouts());
+        assertEquals(1, Strumentazione.getStatistiche().size(), "Non dovrebbero esserci altre chiamate");
+        assertEquals(1, Strumentazione.getStatistiche("FintoDAO.leggi").getErrori());
+        assertEquals(0, Strumentazione.getStatistiche("FintoDAO.leggi").getStatement());
+    }
+
+    @Test
+    @Order(8)
+    @DisplayName("Il reset azzera le statistiche")
+    void testReset() {
+        Strumentazione.inizia("Servizio.metodo").fine();
+        assertFalse(Strumentazione.getStatistiche().isEmpty());
+
+        Strumentazione.reset();
+
+        assertTrue(Strumentazione.getStatistiche().isEmpty(), "Le statistiche dovrebbero essere vuote");
+        assertNull(Strumentazione.getStatistiche("Servizio.metodo"));
+    }
+
+    /**
+     * DAO di prova, misurato come quelli reali.
+     */
+    private static class FintoDAO {
+        private final ConnectionPool pool;
+
+        FintoDAO(ConnectionPool pool) {
+            this.pool = pool;
+        }
+
+        Integer leggi(int statement) throws SQLException {
+            return Strumentazione.misura("FintoDAO.leggi", () -> {
+                try (Connection connection = pool.getConnection()) {
+                    leggi(connection, statement);
+                    return statement;
+                }
+            });
+        }
+
+        void leggi(Connection connection, int statement) throws SQLException {
+            Strumentazione.misura("FintoDAO.leggi(Connection, int)", () -> {
+                for (int i = 0; i < statement; i++) {
+                    try (PreparedStatement ps = connection.prepareStatement("SELECT 1")) {
+                        ps.executeQuery();
+                    }
+                }
+            });
+        }
+
+        void leggiDueVolte() throws SQLException {
+            Strumentazione.misura("FintoDAO.leggiDueVolte", () -> {
+                try (Connection connection = pool.getConnection()) {
+                    connection.prepareStatement("SELECT 1").close();
+                }
+                try (Connection connection = pool.getConnection()) {
+                    connection.prepareStatement("SELECT 1").close();
+                }
+            });
+        }
+
+        void fallisci() throws SQLException {
+            Strumentazione.misura("FintoDAO.fallisci", () -> {
+                try (Connection connection = pool.getConnection();
+                        PreparedStatement ps = connection.prepareStatement("SELECT errore")) {
+                    ps.executeQuery();
+                }
+            });
+        }
+    }
+
+    private static Connection connessioneFinta() {
+        return (Connection) Proxy.newProxyInstance(StrumentazioneTest.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (p, method, args) -> {
+                    switch (method.getName()) {
+                        case "prepareStatement":
+                            return statementFinto((String) args[0]);
+                        case "getAutoCommit":
+                            return true;
+                        case "isClosed":
+                        case "isReadOnly":
+                            return false;
+                        case "isValid":
+                            return true;
+                        case "hashCode":
+                            return System.identityHashCode(p);
+                        case "equals":
+                            return p == args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private static PreparedStatement statementFinto(String sql) {
+        return (PreparedStatement) Proxy.newProxyInstance(StrumentazioneTest.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class }, (p, method, args) -> {
+                    if (method.getName().equals("executeQuery") && sql.contains("errore")) {
+                        throw new SQLException("Errore simulato");
+                    }
+                    return null;
+                });
+    }
+}
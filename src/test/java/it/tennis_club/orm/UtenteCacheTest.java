@@ -0,0 +1,138 @@
+package it.tennis_club.orm;
+
+import it.tennis_club.domain_model.Utente;
+import it.tennis_club.domain_model.Utente.Ruolo;
+import org.junit.jupiter.api.*;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per UtenteCache.
+ * La cache viene alimentata da un DAO finto, quindi questi test
+ * non richiedono il database.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class UtenteCacheTest {
+
+    private FakeUtenteDAO utenteDAO;
+
+    @BeforeEach
+    void setUp() {
+        utenteDAO = new FakeUtenteDAO();
+        for (int id = 1; id <= 3; id++) {
+            Utente utente = new Utente();
+            utente.setId(id);
+            utente.setNome("Nome" + id);
+            utente.setCognome("Cognome" + id);
+            utente.setEmail("utente" + id + "@tennis.it");
+            utente.setPassword("segreta" + id);
+            utente.setRuolo(Ruolo.SOCIO);
+            utenteDAO.utenti.put(id, utente);
+        }
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Le letture ripetute sono servite dalla memoria")
+    void testLettureRipetute() throws SQLException {
+        UtenteCache cache = new UtenteCache(utenteDAO, 10, 60000);
+
+        cache.getUtenteById(1);
+        cache.getUtenteById(1);
+        cache.getUtenteById(1);
+
+        assertEquals(1, utenteDAO.caricamenti, "Il DAO dovrebbe essere interrogato una sola volta");
+        UtenteCache.Stats stats = cache.getStats();
+        assertEquals(2, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(2.0 / 3.0, stats.getHitRatio(), 0.0001);
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("La password non viene conservata né restituita")
+    void testPasswordNonConservata() throws SQLException {
+        UtenteCache cache = new UtenteCache(utenteDAO, 10, 60000);
+
+        assertNull(cache.getUtenteById(1).getPassword(), "Il primo caricamento non dovrebbe restituire la password");
+        assertNull(cache.getUtenteById(1).getPassword(), "La lettura dalla cache non dovrebbe restituire la password");
+        assertEquals("utente1@tennis.it", cache.getUtenteById(1).getEmail());
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Oltre la dimensione massima viene rimosso l'utente usato meno di recente")
+    void testRimozioneLru() throws SQLException {
+        UtenteCache cache = new UtenteCache(utenteDAO, 2, 60000);
+
+        cache.getUtenteById(1);
+        cache.getUtenteById(2);
+        cache.getUtenteById(1); // 2 diventa il meno recente
+        cache.getUtenteById(3);
+
+        assertEquals(1, cache.getStats().getEvictions());
+        assertEquals(2, cache.getStats().getSize());
+
+        int caricamenti = utenteDAO.caricamenti;
+        cache.getUtenteById(1);
+        assertEquals(caricamenti, utenteDAO.caricamenti, "L'utente 1 dovrebbe essere ancora in cache");
+        cache.getUtenteById(2);
+        assertEquals(caricamenti + 1, utenteDAO.caricamenti, "L'utente 2 dovrebbe essere stato rimosso");
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Le voci scadute e invalidate vengono ricaricate")
+    void testScadenzaEInvalidazione() throws SQLException {
+        UtenteCache scaduta = new UtenteCache(utenteDAO, 10, 0);
+        scaduta.getUtenteById(1);
+        scaduta.getUtenteById(1);
+        assertEquals(2, utenteDAO.caricamenti, "Con TTL nullo ogni lettura dovrebbe ricaricare");
+
+        UtenteCache cache = new UtenteCache(utenteDAO, 10, 60000);
+        cache.getUtenteById(1);
+        utenteDAO.utenti.get(1).setRuolo(Ruolo.MAESTRO);
+        cache.invalidate(1);
+
+        assertEquals(Ruolo.MAESTRO, cache.getUtenteById(1).getRuolo(), "Dopo l'invalidazione il ruolo dovrebbe essere aggiornato");
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("Un utente inesistente non viene messo in cache")
+    void testUtenteInesistente() throws SQLException {
+        UtenteCache cache = new UtenteCache(utenteDAO, 10, 60000);
+
+        assertNull(cache.getUtenteById(99));
+        assertEquals(0, cache.getStats().getSize());
+    }
+
+    /**
+     * DAO finto che restituisce utenti in memoria.
+     */
+    private static class FakeUtenteDAO extends UtenteDAO {
+        final Map<Integer, Utente> utenti = new HashMap<>();
+        int caricamenti;
+
+        @Override
+        public Utente getUtenteById(Integer id) {
+            caricamenti++;
+            Utente utente = utenti.get(id);
+            if (utente == null) {
+                return null;
+            }
+            Utente copia = new Utente();
+            copia.setId(utente.getId());
+            copia.setNome(utente.getNome());
+            copia.setCognome(utente.getCognome());
+            copia.setEmail(utente.getEmail());
+            copia.setPassword(utente.getPassword());
+            copia.setRuolo(utente.getRuolo());
+            return copia;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package it.tennis_club.orm;
 import it.tennis_club.domain_model.Utente;
 import org.junit.jupiter.api.*;
 
+import java.io.StringReader;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
@@ -216,4 +217,75 @@ class UtenteDAOTest {
 
         assertFalse(risultato, "La cancellazione di un utente inesistente dovrebbe restituire false");
     }
+
+    @Test
+    @Order(12)
+    @DisplayName("La lettura a cursore restituisce tutti gli utenti senza password")
+    void testForEachUtente() throws SQLException {
+        createTestUtente();
+
+        List<Utente> attesi = utenteDAO.getAllUtenti();
+        List<Utente> letti = new ArrayList<>();
+        long righe = utenteDAO.forEachUtente(letti::add);
+
+        assertEquals(attesi.size(), righe, "Il numero di righe lette dovrebbe corrispondere");
+        for (int i = 0; i < attesi.size(); i++) {
+            assertEquals(attesi.get(i).getId(), letti.get(i).getId(), "L'ordine degli utenti dovrebbe corrispondere");
+            assertNull(letti.get(i).getPassword(), "La password non dovrebbe essere letta");
+        }
+    }
+
+    @Test
+    @Order(13)
+    @DisplayName("L'importazione da CSV inserisce le righe valide e riporta quelle scartate")
+    void testImportaUtenti() throws SQLException {
+        Utente esistente = createTestUtente();
+
+        String csv = "nome,cognome,email,password,ruolo\n" +
+                "Anna,Import,anna.import@test.it,pwd1,socio\n" +
+                "Bruno,Import,bruno.import@test.it,pwd2,ALLIEVO\n" +
+                ",Import,vuoto.import@test.it,pwd3,SOCIO\n" +
+                "Carla,Import,anna.import@test.it,pwd4,SOCIO\n" +
+                "Dario,Import,dario.import@test.it,pwd5,PRESIDENTE\n" +
+                "Test,Utente," + esistente.getEmail() + ",pwd6,SOCIO\n";
+
+        EsitoImportazione esito = utenteDAO.importaUtenti(new StringReader(csv));
+        for (Utente utente : utenteDAO.getAllUtenti()) {
+            if (utente.getEmail().endsWith(".import@test.it")) {
+                idsUtentiCreati.add(utente.getId());
+            }
+        }
+
+        assertEquals(2, esito.getImportati(), "Dovrebbero essere importati due utenti");
+        assertEquals(2, idsUtentiCreati.size() - 1, "Nel database dovrebbero esserci i due utenti importati");
+
+        List<EsitoImportazione.ErroreRiga> errori = esito.getErrori();
+        assertEquals(4, errori.size(), "Dovrebbero essere scartate quattro righe");
+        assertEquals(3, errori.get(0).getRiga());
+        assertTrue(errori.get(0).getMessaggio().contains("nome"), "Riga 3: nome vuoto");
+        assertEquals(4, errori.get(1).getRiga());
+        assertTrue(errori.get(1).getMessaggio().contains("riga 1"), "Riga 4: email ripetuta nel file");
+        assertEquals(5, errori.get(2).getRiga());
+        assertTrue(errori.get(2).getMessaggio().contains("Ruolo"), "Riga 5: ruolo non valido");
+        assertEquals(6, errori.get(3).getRiga());
+        assertTrue(errori.get(3).getMessaggio().contains("registrata"), "Riga 6: email già registrata");
+
+        Utente anna = utenteDAO.login("anna.import@test.it", "pwd1");
+        assertNotNull(anna, "L'utente importato dovrebbe poter accedere");
+        assertEquals(Utente.Ruolo.SOCIO, anna.getRuolo(), "Il ruolo dovrebbe essere normalizzato");
+    }
+
+    @Test
+    @Order(14)
+    @DisplayName("Un CSV malformato annulla l'intera importazione")
+    void testImportaUtentiCsvMalformato() throws SQLException {
+        String csv = "nome,cognome,email,password,ruolo\n" +
+                "Elena,Import,elena.import@test.it,pwd1,SOCIO\n" +
+                "Fabio,Import,fabio.import@test.it,pwd2,SOCIO,colonna in più\n";
+
+        assertThrows(SQLException.class, () -> utenteDAO.importaUtenti(new StringReader(csv)),
+                "Una riga con colonne in più dovrebbe annullare l'importazione");
+        assertNull(utenteDAO.login("elena.import@test.it", "pwd1"),
+                "Nessuna riga dovrebbe essere stata importata");
+    }
 }
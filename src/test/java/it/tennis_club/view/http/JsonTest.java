@@ -0,0 +1,96 @@
+package it.tennis_club.view.http;
+
+import org.junit.jupiter.api.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per la conversione JSON dell'API HTTP.
+ * Non richiedono il database.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class JsonTest {
+
+    @Test
+    @Order(1)
+    @DisplayName("Scrittura di oggetti, liste, date ed enum")
+    void testScrivi() {
+        Map<String, Object> valore = new LinkedHashMap<>();
+        valore.put("id", 7);
+        valore.put("data", LocalDate.of(2026, 10, 16));
+        valore.put("ora", LocalTime.of(9, 30));
+        valore.put("ruolo", Thread.State.NEW);
+        valore.put("coperto", true);
+        valore.put("descrizione", null);
+        valore.put("elementi", Arrays.asList(1, "due"));
+
+        assertEquals("{\"id\":7,\"data\":\"2026-10-16\",\"ora\":\"09:30\",\"ruolo\":\"NEW\",\"coperto\":true,"
+                + "\"descrizione\":null,\"elementi\":[1,\"due\"]}", Json.scrivi(valore));
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Le stringhe vengono scritte con i caratteri di escape")
+    void testScriviEscape() {
+        assertEquals("\"a\\\"b\\\\c\\nd\\u0001\"", Json.scrivi("a\"b\\c\nd\u0001"));
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Lettura di un oggetto con valori annidati")
+    @SuppressWarnings("unchecked")
+    void testLeggi() {
+        Map<String, Object> valore = (Map<String, Object>) Json.leggi(
+                " {\"email\": \"mario@test.it\", \"idCampo\": 3, \"ok\": false, \"nota\": null,"
+                        + " \"lista\": [1.5, \"\\u00e8\"], \"vuoto\": {}} ");
+
+        assertEquals("mario@test.it", valore.get("email"));
+        assertEquals(new BigDecimal("3"), valore.get("idCampo"));
+        assertEquals(Boolean.FALSE, valore.get("ok"));
+        assertTrue(valore.containsKey("nota"));
+        assertNull(valore.get("nota"));
+        assertEquals(List.of(new BigDecimal("1.5"), "è"), valore.get("lista"));
+        assertEquals(Map.of(), valore.get("vuoto"));
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Il testo scritto viene riletto uguale")
+    void testAndataERitorno() {
+        Map<String, Object> valore = new LinkedHashMap<>();
+        valore.put("testo", "riga 1\nriga 2 \"citata\"");
+        valore.put("numeri", List.of(new BigDecimal("1"), new BigDecimal("-2.5e3")));
+
+        assertEquals(valore, Json.leggi(Json.scrivi(valore)));
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("Il JSON non valido viene rifiutato")
+    void testLeggiNonValido() {
+        assertThrows(IllegalArgumentException.class, () -> Json.leggi(""));
+        assertThrows(IllegalArgumentException.class, () -> Json.leggi("{\"a\":1"));
+        assertThrows(IllegalArgumentException.class, () -> Json.leggi("{\"a\" 1}"));
+        assertThrows(IllegalArgumentException.class, () -> Json.leggi("[1,]"));
+        assertThrows(IllegalArgumentException.class, () -> Json.leggi("\"non terminata"));
+        assertThrows(IllegalArgumentException.class, () -> Json.leggi("{} {}"));
+        assertThrows(IllegalArgumentException.class, () -> Json.leggi("tru"));
+        assertThrows(IllegalArgumentException.class, () -> Json.leggi("[".repeat(100) + "]".repeat(100)),
+                "L'annidamento eccessivo dovrebbe essere rifiutato");
+    }
+
+    @Test
+    @Order(6)
+    @DisplayName("I tipi non supportati non vengono scritti")
+    void testScriviTipoNonSupportato() {
+        assertThrows(IllegalArgumentException.class, () -> Json.scrivi(new Object()));
+    }
+}